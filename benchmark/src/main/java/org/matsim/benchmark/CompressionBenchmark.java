@@ -0,0 +1,85 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import org.matsim.core.utils.io.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+
+/**
+ * Measures the throughput of compressing and decompressing a (large) file, e.g. an
+ * events file, with different numbers of compression threads.
+ *
+ * Usage: <code>CompressionBenchmark input-file output-directory [threads...]</code>.
+ * The input file is re-compressed to <code>.gz</code> and <code>.zst</code> in the
+ * output directory for each number of threads, and read back afterwards.
+ */
+public class CompressionBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: CompressionBenchmark input-file output-directory [threads...]");
+			System.exit(1);
+		}
+		URL input = IOUtils.resolveFileOrResource(args[0]);
+		File outputDirectory = new File(args[1]);
+		int[] threadCounts = new int[Math.max(1, args.length - 2)];
+		threadCounts[0] = Runtime.getRuntime().availableProcessors();
+		for (int i = 2; i < args.length; i++) {
+			threadCounts[i - 2] = Integer.parseInt(args[i]);
+		}
+
+		// read the input once sequentially to warm up the file system cache
+		long size = copy(IOUtils.getInputStream(input), OutputStream.nullOutputStream());
+		System.out.printf("input: %s, %.1f MB uncompressed%n", input, size / 1e6);
+
+		for (String extension : new String[] { "gz", "zst" }) {
+			for (int threads : threadCounts) {
+				IOUtils.setCompressionThreads(threads);
+				URL output = IOUtils.getFileUrl(new File(outputDirectory, "benchmark." + extension).getPath());
+
+				long start = System.nanoTime();
+				try (OutputStream out = IOUtils.getOutputStream(output, false)) {
+					copy(IOUtils.getInputStream(input), out);
+				}
+				double writeSeconds = (System.nanoTime() - start) / 1e9;
+
+				start = System.nanoTime();
+				copy(IOUtils.getInputStream(output), OutputStream.nullOutputStream());
+				double readSeconds = (System.nanoTime() - start) / 1e9;
+
+				System.out.printf("%s, %d thread(s): write %.1f MB/s, read %.1f MB/s, compressed size %.1f MB%n",
+						extension, threads, size / 1e6 / writeSeconds, size / 1e6 / readSeconds,
+						new File(outputDirectory, "benchmark." + extension).length() / 1e6);
+			}
+		}
+		IOUtils.setCompressionThreads(1);
+	}
+
+	private static long copy(InputStream in, OutputStream out) throws IOException {
+		try (in) {
+			return in.transferTo(out);
+		}
+	}
+}
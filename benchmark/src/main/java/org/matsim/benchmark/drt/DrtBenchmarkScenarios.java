@@ -0,0 +1,204 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.benchmark.drt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.drt.passenger.DrtRequest;
+import org.matsim.contrib.drt.schedule.DefaultDrtStopTask;
+import org.matsim.contrib.drt.schedule.DrtDriveTask;
+import org.matsim.contrib.drt.schedule.DrtStayTask;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicle;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicleImpl;
+import org.matsim.contrib.dvrp.fleet.ImmutableDvrpVehicleSpecification;
+import org.matsim.contrib.dvrp.optimizer.Request;
+import org.matsim.contrib.dvrp.path.VrpPathWithTravelData;
+import org.matsim.contrib.dvrp.path.VrpPaths;
+import org.matsim.contrib.dvrp.schedule.Schedule;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Reproducible (for a given seed) synthetic networks, fleets and demand for benchmarking the DRT optimizer kernels
+ * without loading a scenario (see {@link DrtKernelBenchmark}).
+ */
+public class DrtBenchmarkScenarios {
+	public static final double SERVICE_END_TIME = 30 * 3600;
+	public static final int VEHICLE_CAPACITY = 4;
+
+	private static final double FREESPEED = 10;
+	private static final int MIN_PATH_LINKS = 2;
+	private static final int MAX_PATH_LINKS = 20;
+
+	/**
+	 * Square grid of {@code size x size} nodes connected with bidirectional links.
+	 */
+	public static Network createGridNetwork(int size, double linkLength) {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y),
+						new Coord(x * linkLength, y * linkLength));
+			}
+		}
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					addLinks(network, nodes[x][y], nodes[x + 1][y], linkLength);
+				}
+				if (y + 1 < size) {
+					addLinks(network, nodes[x][y], nodes[x][y + 1], linkLength);
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void addLinks(Network network, Node nodeA, Node nodeB, double length) {
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(nodeA.getId() + "-" + nodeB.getId()), nodeA, nodeB,
+				length, FREESPEED, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(nodeB.getId() + "-" + nodeA.getId()), nodeB, nodeA,
+				length, FREESPEED, 1000, 1);
+	}
+
+	/**
+	 * Creates vehicles with started schedules: the current (stay) task is followed by {@code stopsPerVehicle} stops,
+	 * each reached by driving along a random walk through the network. Each passenger is picked up at one stop and
+	 * dropped off at the next one.
+	 */
+	public static List<DvrpVehicle> createFleet(Network network, int vehicleCount, int stopsPerVehicle,
+			double stopDuration, double maxWaitTime, TravelTime travelTime, Random random) {
+		Link[] links = network.getLinks().values().toArray(new Link[0]);
+		List<DvrpVehicle> vehicles = new ArrayList<>(vehicleCount);
+		for (int v = 0; v < vehicleCount; v++) {
+			Link startLink = links[random.nextInt(links.length)];
+			DvrpVehicle vehicle = new DvrpVehicleImpl(ImmutableDvrpVehicleSpecification.newBuilder()
+					.id(Id.create("v" + v, DvrpVehicle.class))
+					.startLinkId(startLink.getId())
+					.capacity(VEHICLE_CAPACITY)
+					.serviceBeginTime(0)
+					.serviceEndTime(SERVICE_END_TIME)
+					.build(), startLink);
+			Schedule schedule = vehicle.getSchedule();
+			schedule.addTask(new DrtStayTask(0, 0, startLink));
+
+			Link link = startLink;
+			double time = 0;
+			DrtRequest previousRequest = null;
+			List<Link> stopLinks = new ArrayList<>();
+			List<VrpPathWithTravelData> paths = new ArrayList<>();
+			for (int s = 0; s < stopsPerVehicle; s++) {
+				VrpPathWithTravelData path = createRandomPath(link, time, travelTime, random);
+				link = path.getToLink();
+				time = path.getArrivalTime() + stopDuration;
+				paths.add(path);
+				stopLinks.add(link);
+			}
+
+			for (int s = 0; s < stopsPerVehicle; s++) {
+				VrpPathWithTravelData path = paths.get(s);
+				schedule.addTask(new DrtDriveTask(path, DrtDriveTask.TYPE));
+				var stopTask = new DefaultDrtStopTask(path.getArrivalTime(), path.getArrivalTime() + stopDuration,
+						path.getToLink());
+				if (previousRequest != null) {
+					stopTask.addDropoffRequest(previousRequest);
+				}
+				if (s + 1 < stopsPerVehicle) {
+					double dropoffTime = paths.get(s + 1).getArrivalTime();
+					previousRequest = DrtRequest.newBuilder()
+							.id(Id.create(vehicle.getId() + "_" + s, Request.class))
+							.submissionTime(0)
+							.earliestStartTime(0)
+							.latestStartTime(stopTask.getBeginTime() + maxWaitTime)
+							.latestArrivalTime(dropoffTime + maxWaitTime)
+							.fromLink(stopLinks.get(s))
+							.toLink(stopLinks.get(s + 1))
+							.build();
+					stopTask.addPickupRequest(previousRequest);
+				}
+				schedule.addTask(stopTask);
+			}
+			schedule.addTask(new DrtStayTask(time, SERVICE_END_TIME, link));
+			schedule.nextTask();
+			vehicles.add(vehicle);
+		}
+		return vehicles;
+	}
+
+	private static VrpPathWithTravelData createRandomPath(Link fromLink, double departureTime, TravelTime travelTime,
+			Random random) {
+		int linkCount = MIN_PATH_LINKS + random.nextInt(MAX_PATH_LINKS - MIN_PATH_LINKS + 1);
+		List<Link> pathLinks = new ArrayList<>(linkCount);
+		Link link = fromLink;
+		for (int i = 0; i < linkCount; i++) {
+			link = nextRandomLink(link, random);
+			pathLinks.add(link);
+		}
+		Link toLink = pathLinks.remove(pathLinks.size() - 1);
+		Path path = new Path(List.of(), pathLinks, Double.NaN, Double.NaN);// only links are used
+		return VrpPaths.createPath(fromLink, toLink, departureTime, path, travelTime, false, false);
+	}
+
+	private static Link nextRandomLink(Link link, Random random) {
+		List<Link> candidates = new ArrayList<>(link.getToNode().getOutLinks().size());
+		for (Link outLink : link.getToNode().getOutLinks().values()) {
+			if (outLink.getToNode() != link.getFromNode()) {// no U-turns
+				candidates.add(outLink);
+			}
+		}
+		return candidates.get(random.nextInt(candidates.size()));
+	}
+
+	/**
+	 * Creates requests (submitted at {@code time}) between random links.
+	 */
+	public static List<DrtRequest> createRequests(Network network, int requestCount, double time, double maxWaitTime,
+			double maxTravelTime, Random random) {
+		Link[] links = network.getLinks().values().toArray(new Link[0]);
+		List<DrtRequest> requests = new ArrayList<>(requestCount);
+		for (int r = 0; r < requestCount; r++) {
+			Link fromLink = links[random.nextInt(links.length)];
+			Link toLink;
+			do {
+				toLink = links[random.nextInt(links.length)];
+			} while (toLink == fromLink);
+			requests.add(DrtRequest.newBuilder()
+					.id(Id.create("r" + r, Request.class))
+					.submissionTime(time)
+					.earliestStartTime(time)
+					.latestStartTime(time + maxWaitTime)
+					.latestArrivalTime(time + maxTravelTime)
+					.fromLink(fromLink)
+					.toLink(toLink)
+					.build());
+		}
+		return requests;
+	}
+}
@@ -0,0 +1,229 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.benchmark.drt;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.matsim.api.core.v01.IdMap;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.drt.optimizer.VehicleDataEntryFactoryImpl;
+import org.matsim.contrib.drt.optimizer.VehicleEntry;
+import org.matsim.contrib.drt.optimizer.insertion.CostCalculationStrategy;
+import org.matsim.contrib.drt.optimizer.insertion.DefaultInsertionCostCalculator;
+import org.matsim.contrib.drt.optimizer.insertion.DetourTimeEstimator;
+import org.matsim.contrib.drt.optimizer.insertion.InsertionCostCalculator;
+import org.matsim.contrib.drt.optimizer.insertion.InsertionGenerator;
+import org.matsim.contrib.drt.optimizer.insertion.InsertionWithDetourData;
+import org.matsim.contrib.drt.passenger.DrtRequest;
+import org.matsim.contrib.drt.run.DrtConfigGroup;
+import org.matsim.contrib.drt.schedule.DrtStayTaskEndTimeCalculator;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicle;
+import org.matsim.contrib.dvrp.path.OneToManyPathSearch;
+import org.matsim.contrib.dvrp.router.TimeAsTravelDisutility;
+import org.matsim.contrib.dvrp.schedule.ScheduleTimingUpdater;
+import org.matsim.contrib.dvrp.trafficmonitoring.QSimFreeSpeedTravelTime;
+import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.router.speedy.SpeedyGraph;
+import org.matsim.core.router.util.TravelTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmarks of the DRT dispatching kernels (vehicle entry creation, insertion generation, insertion cost
+ * calculation, one-to-many path search and schedule timing updates) on synthetic fleets and demand (see
+ * {@link DrtBenchmarkScenarios}). Unlike {@code RunDrtBenchmark} (drt contrib), no simulation is run, so a regression
+ * can be attributed to a single kernel.
+ * <p>
+ * Each invocation processes the whole fleet (or all requests), so the scores are per fleet (or request set) and are
+ * comparable only for the same {@link #vehicleCount}. The same seed is used for each fleet size, so the results are
+ * comparable between runs.
+ * <p>
+ * Usage: <code>DrtKernelBenchmark [vehicle-counts...]</code> (default: 1000 10000 50000)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class DrtKernelBenchmark {
+	private static final long SEED = 4711;
+	private static final int GRID_SIZE = 100;
+	private static final double LINK_LENGTH = 200;
+	private static final int STOPS_PER_VEHICLE = 4;
+	private static final int REQUEST_COUNT = 20;
+	private static final int COST_CALCULATION_REQUEST_COUNT = 2;// all their insertions are kept in memory
+	private static final double CURRENT_TIME = 0;
+
+	public static void main(String[] args) throws RunnerException {
+		ChainedOptionsBuilder options = new OptionsBuilder().include(DrtKernelBenchmark.class.getSimpleName());
+		if (args.length > 0) {
+			options.param("vehicleCount", args);
+		}
+		new Runner(options.build()).run();
+	}
+
+	@Param({ "1000", "10000", "50000" })
+	public int vehicleCount;
+
+	private final DrtConfigGroup drtCfg = new DrtConfigGroup().setStopDuration(60).setMaxWaitTime(600);
+	private final TravelTime travelTime = new QSimFreeSpeedTravelTime(1);
+
+	private Network network;
+	private List<DvrpVehicle> fleet;
+	private List<DrtRequest> requests;
+	private List<VehicleEntry> entries;
+
+	private VehicleDataEntryFactoryImpl entryFactory;
+	private InsertionGenerator insertionGenerator;
+	private InsertionCostCalculator costCalculator;
+	private List<DrtRequest> costRequests;
+	private List<List<InsertionWithDetourData>> insertions;
+	private OneToManyPathSearch pathSearch;
+	private List<Link> vehicleLinks;
+	private DrtStayTaskEndTimeCalculator stayTaskEndTimeCalculator;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		network = DrtBenchmarkScenarios.createGridNetwork(GRID_SIZE, LINK_LENGTH);
+		Random random = new Random(SEED);
+		fleet = createFleet(random);
+		requests = DrtBenchmarkScenarios.createRequests(network, REQUEST_COUNT, CURRENT_TIME, drtCfg.getMaxWaitTime(),
+				3600, random);
+
+		entryFactory = new VehicleDataEntryFactoryImpl(drtCfg);
+		entries = fleet.stream()
+				.map(v -> entryFactory.create(v, CURRENT_TIME))
+				.filter(Objects::nonNull)
+				.collect(Collectors.toList());
+
+		insertionGenerator = new InsertionGenerator(drtCfg.getStopDuration(),
+				DetourTimeEstimator.createBeelineBasedEstimator(10 / 1.3));
+
+		costCalculator = new DefaultInsertionCostCalculator(new CostCalculationStrategy.RejectSoftConstraintViolations());
+		costRequests = requests.subList(0, COST_CALCULATION_REQUEST_COUNT);
+		insertions = new ArrayList<>();
+		for (DrtRequest request : costRequests) {
+			List<InsertionWithDetourData> requestInsertions = new ArrayList<>();
+			for (VehicleEntry entry : entries) {
+				requestInsertions.addAll(insertionGenerator.generateInsertions(request, entry));
+			}
+			insertions.add(requestInsertions);
+		}
+
+		IdMap<Node, Node> nodeMap = new IdMap<>(Node.class);
+		nodeMap.putAll(network.getNodes());
+		pathSearch = OneToManyPathSearch.createSearch(new SpeedyGraph(network), nodeMap, travelTime,
+				new TimeAsTravelDisutility(travelTime), true);
+		Set<Link> links = new LinkedHashSet<>();
+		entries.forEach(e -> links.add(e.start.link));
+		vehicleLinks = new ArrayList<>(links);
+
+		stayTaskEndTimeCalculator = new DrtStayTaskEndTimeCalculator(drtCfg);
+	}
+
+	private List<DvrpVehicle> createFleet(Random random) {
+		return DrtBenchmarkScenarios.createFleet(network, vehicleCount, STOPS_PER_VEHICLE, drtCfg.getStopDuration(),
+				drtCfg.getMaxWaitTime(), travelTime, random);
+	}
+
+	@Benchmark
+	public void vehicleEntryCreation(Blackhole blackhole) {
+		for (DvrpVehicle vehicle : fleet) {
+			blackhole.consume(entryFactory.create(vehicle, CURRENT_TIME));
+		}
+	}
+
+	@Benchmark
+	public void insertionGeneration(Blackhole blackhole) {
+		for (DrtRequest request : requests) {
+			for (VehicleEntry entry : entries) {
+				blackhole.consume(insertionGenerator.generateInsertions(request, entry));
+			}
+		}
+	}
+
+	@Benchmark
+	public void insertionCostCalculation(Blackhole blackhole) {
+		for (int r = 0; r < costRequests.size(); r++) {
+			DrtRequest request = costRequests.get(r);
+			for (InsertionWithDetourData i : insertions.get(r)) {
+				blackhole.consume(costCalculator.calculate(request, i.insertion, i.detourTimeInfo));
+			}
+		}
+	}
+
+	@Benchmark
+	public void oneToManyPathSearchToPickup(Blackhole blackhole) {
+		for (DrtRequest request : requests) {
+			// backward search: from all vehicle positions to the pickup
+			blackhole.consume(pathSearch.calcPathDataArray(request.getFromLink(), vehicleLinks, CURRENT_TIME, false));
+		}
+	}
+
+	/**
+	 * Updating the timings modifies the schedules, so each invocation gets a freshly created (identical) fleet.
+	 */
+	@State(Scope.Thread)
+	public static class FreshSchedules {
+		private List<DvrpVehicle> fleet;
+		private MobsimTimer timer;
+
+		@Setup(Level.Invocation)
+		public void setup(DrtKernelBenchmark benchmark) {
+			fleet = benchmark.createFleet(new Random(SEED));
+			timer = new MobsimTimer();
+			timer.incrementTime();// delays all vehicles by 1 s
+		}
+	}
+
+	@Benchmark
+	public void scheduleTimingUpdate(FreshSchedules schedules) {
+		var timingUpdater = new ScheduleTimingUpdater(schedules.timer, stayTaskEndTimeCalculator);
+		for (DvrpVehicle vehicle : schedules.fleet) {
+			timingUpdater.updateTimings(vehicle);
+		}
+	}
+}
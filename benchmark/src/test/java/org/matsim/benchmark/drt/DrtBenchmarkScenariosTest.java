@@ -0,0 +1,73 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.benchmark.drt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.contrib.drt.schedule.DrtStopTask;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicle;
+import org.matsim.contrib.dvrp.schedule.Schedule;
+import org.matsim.contrib.dvrp.schedule.Task;
+import org.matsim.contrib.dvrp.trafficmonitoring.QSimFreeSpeedTravelTime;
+
+public class DrtBenchmarkScenariosTest {
+	private final Network network = DrtBenchmarkScenarios.createGridNetwork(5, 100);
+
+	@Test
+	public void createGridNetwork() {
+		assertThat(network.getNodes()).hasSize(25);
+		assertThat(network.getLinks()).hasSize(2 * 2 * 5 * 4);
+	}
+
+	@Test
+	public void createFleet() {
+		List<DvrpVehicle> fleet = createFleet(new Random(1));
+		assertThat(fleet).hasSize(10);
+		for (DvrpVehicle vehicle : fleet) {
+			Schedule schedule = vehicle.getSchedule();
+			assertThat(schedule.getStatus()).isEqualTo(Schedule.ScheduleStatus.STARTED);
+			assertThat(schedule.getCurrentTask().getTaskIdx()).isEqualTo(0);
+			// stay, 3 x (drive, stop), stay
+			assertThat(schedule.getTasks()).hasSize(8);
+			assertThat(((DrtStopTask)schedule.getTasks().get(2)).getPickupRequests()).hasSize(1);
+			assertThat(((DrtStopTask)schedule.getTasks().get(6)).getDropoffRequests()).hasSize(1);
+		}
+
+		// reproducible
+		List<DvrpVehicle> otherFleet = createFleet(new Random(1));
+		for (int v = 0; v < fleet.size(); v++) {
+			List<? extends Task> tasks = fleet.get(v).getSchedule().getTasks();
+			List<? extends Task> otherTasks = otherFleet.get(v).getSchedule().getTasks();
+			for (int t = 0; t < tasks.size(); t++) {
+				assertThat(otherTasks.get(t).getEndTime()).isEqualTo(tasks.get(t).getEndTime());
+			}
+		}
+	}
+
+	private List<DvrpVehicle> createFleet(Random random) {
+		return DrtBenchmarkScenarios.createFleet(network, 10, 3, 60, 600, new QSimFreeSpeedTravelTime(1), random);
+	}
+}
@@ -54,6 +54,7 @@ final class AccessibilityComputationShutdownListener implements ShutdownListener
 
 	private final Map<String, AccessibilityContributionCalculator> calculators = new LinkedHashMap<>();
 	private AccessibilityAggregator accessibilityAggregator;
+	private AccessibilityTimeProfiles accessibilityTimeProfiles;
 	private final ArrayList<FacilityDataExchangeInterface> zoneDataExchangeListeners = new ArrayList<>();
 
 	private AccessibilityConfigGroup acg;
@@ -93,8 +94,15 @@ final class AccessibilityComputationShutdownListener implements ShutdownListener
 			return;
 		}
 		LOG.info("Initializing accessibility computation...");
-		accessibilityAggregator = new AccessibilityAggregator();
-		addFacilityDataExchangeListener(accessibilityAggregator);
+		List<Double> timesOfDay = acg.getTimesOfDay();
+		if (timesOfDay.size() > 1) {
+			// the profiles also provide the data for the accessibility file, without creating a map entry per cell and time
+			accessibilityTimeProfiles = new AccessibilityTimeProfiles(measuringPoints, timesOfDay);
+			addFacilityDataExchangeListener(accessibilityTimeProfiles);
+		} else {
+			accessibilityAggregator = new AccessibilityAggregator();
+			addFacilityDataExchangeListener(accessibilityAggregator);
+		}
 
 		if (outputDirectory != null) {
 			File file = new File(outputDirectory);
@@ -102,14 +110,27 @@ final class AccessibilityComputationShutdownListener implements ShutdownListener
 		}
 
 		LOG.info("Start computing accessibilities.");
-		computeAccessibilities(acg.getTimeOfDay(), opportunities);
+		computeAccessibilities(timesOfDay, opportunities);
 		LOG.info("Finished computing accessibilities.");
 
 		writeCSVFile(outputDirectory);
+		if (accessibilityTimeProfiles != null) {
+			writeProfileCSVFile(outputDirectory);
+		}
 	}
 
 
 	public final void computeAccessibilities(Double departureTime, ActivityFacilities opportunities) {
+		computeAccessibilities(Collections.singletonList(departureTime), opportunities);
+	}
+
+
+	/**
+	 * All departure times are computed for one origin node before moving on to the next one, so that the calculators can
+	 * reuse whatever does not depend on the departure time (e.g. the nearest links of the measuring points, the walk
+	 * costs or, for time-independent travel times, the whole least-cost path tree).
+	 */
+	public final void computeAccessibilities(List<Double> departureTimes, ActivityFacilities opportunities) {
 		for (String mode : calculators.keySet()) {
 			AccessibilityContributionCalculator calculator = calculators.get(mode);
 			calculator.initialize(measuringPoints, opportunities);
@@ -140,7 +161,7 @@ final class AccessibilityComputationShutdownListener implements ShutdownListener
 				for (final List<Id<? extends BasicLocation>> partition : partitions) {
 					tasks.add(() -> {
 						try {
-							compute(mode, departureTime, aggregatedOpportunities, aggregatedOrigins, partition, progressBar);
+							compute(mode, departureTimes, aggregatedOpportunities, aggregatedOrigins, partition, progressBar);
 						} catch (Exception e) {
 							throw new RuntimeException(e);
 						}
@@ -161,7 +182,7 @@ final class AccessibilityComputationShutdownListener implements ShutdownListener
 			} else {
 				LOG.info("Performing the computation without parallelization.");
 				ProgressBar progressBar = new ProgressBar(aggregatedOrigins.size());
-				compute(mode, departureTime, aggregatedOpportunities, aggregatedOrigins, aggregatedOriginIds, progressBar);
+				compute(mode, departureTimes, aggregatedOpportunities, aggregatedOrigins, aggregatedOriginIds, progressBar);
 			}
 		}
 		for (FacilityDataExchangeInterface zoneDataExchangeInterface : this.zoneDataExchangeListeners) {
@@ -170,7 +191,7 @@ final class AccessibilityComputationShutdownListener implements ShutdownListener
 	}
 
 
-	private void compute(String mode, Double departureTime, Map<Id<? extends BasicLocation>, AggregationObject> aggregatedOpportunities,
+	private void compute(String mode, List<Double> departureTimes, Map<Id<? extends BasicLocation>, AggregationObject> aggregatedOpportunities,
 						 Map<Id<? extends BasicLocation>, ArrayList<ActivityFacility>> aggregatedOrigins,
 						 Collection<Id<? extends BasicLocation>> subsetOfNodes, ProgressBar progressBar) {
 
@@ -186,27 +207,29 @@ final class AccessibilityComputationShutdownListener implements ShutdownListener
 			progressBar.update();
 
 			Gbl.assertNotNull(calculator);
-			calculator.notifyNewOriginNode(fromNodeId, departureTime);
-
-			// Go through all measuring points assigned to current node
-			for (ActivityFacility origin : aggregatedOrigins.get(fromNodeId)) {
-				assert(origin.getCoord() != null);
-
-                double expSum = calculator.computeContributionOfOpportunity(origin, aggregatedOpportunities, departureTime);
-
-				double accessibility;
-                if (acg.getAccessibilityMeasureType() == AccessibilityConfigGroup.AccessibilityMeasureType.logSum) {
-					accessibility = (1/this.cnScoringGroup.getBrainExpBeta()) * Math.log(expSum);
-                } else if (acg.getAccessibilityMeasureType() == AccessibilityConfigGroup.AccessibilityMeasureType.rawSum) {
-					accessibility = expSum;
-                } else if (acg.getAccessibilityMeasureType() == AccessibilityConfigGroup.AccessibilityMeasureType.gravity) {
-                    throw new IllegalArgumentException("This accessibility measure is not yet implemented.");
-                } else {
-                    throw new IllegalArgumentException("No valid accessibility measure type chosen.");
-                }
-
-				for (FacilityDataExchangeInterface zoneDataExchangeInterface : this.zoneDataExchangeListeners) {
-					zoneDataExchangeInterface.setFacilityAccessibilities(origin, departureTime, mode, accessibility);
+			for (Double departureTime : departureTimes) {
+				calculator.notifyNewOriginNode(fromNodeId, departureTime);
+
+				// Go through all measuring points assigned to current node
+				for (ActivityFacility origin : aggregatedOrigins.get(fromNodeId)) {
+					assert(origin.getCoord() != null);
+
+					double expSum = calculator.computeContributionOfOpportunity(origin, aggregatedOpportunities, departureTime);
+
+					double accessibility;
+					if (acg.getAccessibilityMeasureType() == AccessibilityConfigGroup.AccessibilityMeasureType.logSum) {
+						accessibility = (1/this.cnScoringGroup.getBrainExpBeta()) * Math.log(expSum);
+					} else if (acg.getAccessibilityMeasureType() == AccessibilityConfigGroup.AccessibilityMeasureType.rawSum) {
+						accessibility = expSum;
+					} else if (acg.getAccessibilityMeasureType() == AccessibilityConfigGroup.AccessibilityMeasureType.gravity) {
+						throw new IllegalArgumentException("This accessibility measure is not yet implemented.");
+					} else {
+						throw new IllegalArgumentException("No valid accessibility measure type chosen.");
+					}
+
+					for (FacilityDataExchangeInterface zoneDataExchangeInterface : this.zoneDataExchangeListeners) {
+						zoneDataExchangeInterface.setFacilityAccessibilities(origin, departureTime, mode, accessibility);
+					}
 				}
 			}
 		}
@@ -216,7 +239,6 @@ final class AccessibilityComputationShutdownListener implements ShutdownListener
 	private void writeCSVFile(String adaptedOutputDirectory) {
 		LOG.info("Start writing accessibility output to " + adaptedOutputDirectory + ".");
 
-		Map<Tuple<ActivityFacility, Double>, Map<String,Double>> accessibilitiesMap = accessibilityAggregator.getAccessibilitiesMap();
 		final CSVWriter writer = new CSVWriter(adaptedOutputDirectory + "/" + CSVWriter.FILE_NAME ) ;
 
 		// Write header
@@ -233,7 +255,18 @@ final class AccessibilityComputationShutdownListener implements ShutdownListener
 		}
 		writer.writeNewLine();
 
-		// Write data
+		if (accessibilityTimeProfiles != null) {
+			writeProfileData(writer);
+		} else {
+			writeAggregatedData(writer);
+		}
+		writer.close() ;
+		LOG.info("Finished writing accessibility output to " + adaptedOutputDirectory + ".");
+	}
+
+
+	private void writeAggregatedData(CSVWriter writer) {
+		Map<Tuple<ActivityFacility, Double>, Map<String,Double>> accessibilitiesMap = accessibilityAggregator.getAccessibilitiesMap();
 		for (Tuple<ActivityFacility, Double> tuple : accessibilitiesMap.keySet()) {
 			ActivityFacility facility = tuple.getFirst();
 			writer.writeField(facility.getId().toString());
@@ -249,15 +282,98 @@ final class AccessibilityComputationShutdownListener implements ShutdownListener
 					writer.writeField(Double.NaN) ;
 				}
 			}
-			for (ActivityFacilities additionalDataFacilities : this.additionalFacilityData) { // Again: Iterate over all additional data collections
-				String additionalDataName = additionalDataFacilities.getName();
-				int value = (int) facility.getAttributes().getAttribute(additionalDataName);
-				writer.writeField(value);
+			writeAdditionalData(writer, facility);
+			writer.writeNewLine();
+		}
+	}
+
+
+	/**
+	 * Writes the same lines as {@link #writeAggregatedData(CSVWriter)} (measuring points sorted by y and x coordinate),
+	 * but directly from the time profiles.
+	 */
+	private void writeProfileData(CSVWriter writer) {
+		List<Double> timesOfDay = accessibilityTimeProfiles.getTimesOfDay();
+		List<ActivityFacility> cells = accessibilityTimeProfiles.getMeasuringPoints();
+		Integer[] sortedCells = new Integer[cells.size()];
+		for (int c = 0; c < sortedCells.length; c++) {
+			sortedCells[c] = c;
+		}
+		Arrays.sort(sortedCells, Comparator.<Integer>comparingDouble(c -> cells.get(c).getCoord().getY())
+				.thenComparingDouble(c -> cells.get(c).getCoord().getX()));
+
+		for (int c : sortedCells) {
+			ActivityFacility facility = cells.get(c);
+			for (int t = 0; t < timesOfDay.size(); t++) {
+				if (!isComputed(c, t)) {
+					continue;
+				}
+				writer.writeField(facility.getId().toString());
+				writer.writeField(facility.getCoord().getX());
+				writer.writeField(facility.getCoord().getY());
+				writer.writeField(timesOfDay.get(t));
+				for (String mode : getModes()) {
+					writer.writeField(accessibilityTimeProfiles.getAccessibility(mode, t, c));
+				}
+				writeAdditionalData(writer, facility);
+				writer.writeNewLine();
+			}
+		}
+	}
+
+
+	private boolean isComputed(int cellIndex, int timeIndex) {
+		for (String mode : getModes()) {
+			if (!Double.isNaN(accessibilityTimeProfiles.getAccessibility(mode, timeIndex, cellIndex))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+	private void writeAdditionalData(CSVWriter writer, ActivityFacility facility) {
+		for (ActivityFacilities additionalDataFacilities : this.additionalFacilityData) { // Again: Iterate over all additional data collections
+			String additionalDataName = additionalDataFacilities.getName();
+			int value = (int) facility.getAttributes().getAttribute(additionalDataName);
+			writer.writeField(value);
+		}
+	}
+
+
+	/**
+	 * Writes the time profiles with one line per measuring point and one column per mode and departure time.
+	 */
+	private void writeProfileCSVFile(String adaptedOutputDirectory) {
+		LOG.info("Start writing accessibility profiles to " + adaptedOutputDirectory + ".");
+		final CSVWriter writer = new CSVWriter(adaptedOutputDirectory + "/" + CSVWriter.PROFILE_FILE_NAME);
+
+		List<Double> timesOfDay = accessibilityTimeProfiles.getTimesOfDay();
+		writer.writeField(Labels.ID);
+		writer.writeField(Labels.X_COORDINATE);
+		writer.writeField(Labels.Y_COORDINATE);
+		for (String mode : getModes()) {
+			for (Double timeOfDay : timesOfDay) {
+				writer.writeField(mode + "_accessibility_" + timeOfDay);
+			}
+		}
+		writer.writeNewLine();
+
+		List<ActivityFacility> cells = accessibilityTimeProfiles.getMeasuringPoints();
+		for (int c = 0; c < cells.size(); c++) {
+			ActivityFacility facility = cells.get(c);
+			writer.writeField(facility.getId().toString());
+			writer.writeField(facility.getCoord().getX());
+			writer.writeField(facility.getCoord().getY());
+			for (String mode : getModes()) {
+				for (int t = 0; t < timesOfDay.size(); t++) {
+					writer.writeField(accessibilityTimeProfiles.getAccessibility(mode, t, c));
+				}
 			}
 			writer.writeNewLine();
 		}
-		writer.close() ;
-		LOG.info("Finished writing accessibility output to " + adaptedOutputDirectory + ".");
+		writer.close();
+		LOG.info("Finished writing accessibility profiles to " + adaptedOutputDirectory + ".");
 	}
 
 
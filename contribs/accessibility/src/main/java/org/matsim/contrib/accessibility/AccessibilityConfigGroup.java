@@ -24,6 +24,7 @@ import java.util.*;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.core.config.ReflectiveConfigGroup;
+import org.matsim.core.utils.misc.Time;
 import org.matsim.facilities.ActivityFacilities;
 import org.matsim.facilities.ActivityFacility;
 
@@ -112,6 +113,9 @@ public final class AccessibilityConfigGroup extends ReflectiveConfigGroup{
 	public static final String TIME_OF_DAY = "timeOfDay";
 	private Double timeOfDay = 8.*3600;
 
+	public static final String TIMES_OF_DAY = "timesOfDay";
+	private final List<Double> timesOfDay = new ArrayList<>();
+
 	public AccessibilityConfigGroup() {
 		super(GROUP_NAME);
 		isComputingMode.add(Modes4Accessibility.freespeed);
@@ -122,6 +126,9 @@ public final class AccessibilityConfigGroup extends ReflectiveConfigGroup{
 		Map<String,String> map = new TreeMap<>() ;
 		
 		map.put(TIME_OF_DAY, "time of day at which trips for accessibility computations are assumed to start");
+		map.put(TIMES_OF_DAY, "comma-separated times of day at which trips are assumed to start (e.g. hourly departures for an "
+				+ "accessibility profile); if set, they are used instead of " + TIME_OF_DAY + ". The departure times are computed "
+				+ "together for each origin, so this is much faster than running the whole computation for each of them.");
 		
 //		map.put(ACCESSIBILITY_DESTINATION_SAMPLING_RATE, "if only a sample of destinations should be used " +
 //				"(reduces accuracy -- not recommended except when necessary for computational speed reasons)");
@@ -203,6 +210,38 @@ public final class AccessibilityConfigGroup extends ReflectiveConfigGroup{
 	public void setTimeOfDay(Double timeOfDay) {
 		this.timeOfDay = timeOfDay;
 	}
+
+	/**
+	 * @return the departure times set via {@link #TIMES_OF_DAY} or, if none are set, {@link #getTimeOfDay()}
+	 */
+	public List<Double> getTimesOfDay() {
+		return timesOfDay.isEmpty() ? Collections.singletonList(timeOfDay) : Collections.unmodifiableList(timesOfDay);
+	}
+	public void setTimesOfDay(List<Double> timesOfDay) {
+		this.timesOfDay.clear();
+		this.timesOfDay.addAll(timesOfDay);
+	}
+	@StringGetter(TIMES_OF_DAY)
+	private String getTimesOfDayAsString() {
+		StringBuilder stb = new StringBuilder();
+		for (Double time : timesOfDay) {
+			if (stb.length() > 0) {
+				stb.append(',');
+			}
+			stb.append(time);
+		}
+		return stb.toString();
+	}
+	@StringSetter(TIMES_OF_DAY)
+	private void setTimesOfDay(String value) {
+		List<Double> times = new ArrayList<>();
+		for (String time : value.split(",")) {
+			if (!time.isBlank()) {
+				times.add(Time.parseTime(time.trim()));
+			}
+		}
+		setTimesOfDay(times);
+	}
 	
     @StringGetter(MEASURE_POINT_GEOMETRY_PROVISION)
     public MeasurePointGeometryProvision getMeasurePointGeometryProvision() {
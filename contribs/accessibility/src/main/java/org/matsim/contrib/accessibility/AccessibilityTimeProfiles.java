@@ -0,0 +1,112 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.accessibility;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.facilities.ActivityFacilities;
+import org.matsim.facilities.ActivityFacility;
+
+/**
+ * Collects the accessibilities computed for several departure times (see {@link AccessibilityConfigGroup#TIMES_OF_DAY})
+ * into one compact array per mode, with a row of cells (i.e. measuring points) for each departure time. Unlike
+ * {@link AccessibilityAggregator}, no map entry is created for each measuring point and time.
+ * <p>
+ * The arrays are written concurrently by the (parallel) accessibility computation; each element is written only once.
+ */
+public final class AccessibilityTimeProfiles implements FacilityDataExchangeInterface {
+	private final List<Double> timesOfDay;
+	private final Map<Double, Integer> timeIndices = new HashMap<>();
+
+	private final List<ActivityFacility> measuringPoints;
+	private final int[] cellIndices;// by measuring point id index
+
+	// [time * cellCount + cell]
+	private final Map<String, double[]> accessibilities = new ConcurrentHashMap<>();
+
+	public AccessibilityTimeProfiles(ActivityFacilities measuringPoints, List<Double> timesOfDay) {
+		this.timesOfDay = List.copyOf(timesOfDay);
+		for (int t = 0; t < this.timesOfDay.size(); t++) {
+			timeIndices.put(this.timesOfDay.get(t), t);
+		}
+
+		this.measuringPoints = new ArrayList<>(measuringPoints.getFacilities().values());
+		cellIndices = new int[Id.getNumberOfIds(ActivityFacility.class)];
+		Arrays.fill(cellIndices, -1);
+		for (int c = 0; c < this.measuringPoints.size(); c++) {
+			cellIndices[this.measuringPoints.get(c).getId().index()] = c;
+		}
+	}
+
+	@Override
+	public void setFacilityAccessibilities(ActivityFacility measurePoint, Double timeOfDay, String mode, double accessibility) {
+		Integer timeIndex = timeIndices.get(timeOfDay);
+		int id = measurePoint.getId().index();
+		int cellIndex = id < cellIndices.length ? cellIndices[id] : -1;
+		if (timeIndex == null || cellIndex < 0) {
+			throw new IllegalArgumentException("Unknown time of day (" + timeOfDay + ") or measuring point (" + measurePoint.getId() + ")");
+		}
+		accessibilities.computeIfAbsent(mode, m -> {
+			double[] values = new double[timesOfDay.size() * this.measuringPoints.size()];
+			Arrays.fill(values, Double.NaN);
+			return values;
+		})[timeIndex * this.measuringPoints.size() + cellIndex] = accessibility;
+	}
+
+	@Override
+	public void finish() {
+	}
+
+	public List<Double> getTimesOfDay() {
+		return timesOfDay;
+	}
+
+	/**
+	 * @return the measuring points in the order of the cells
+	 */
+	public List<ActivityFacility> getMeasuringPoints() {
+		return Collections.unmodifiableList(measuringPoints);
+	}
+
+	public Set<String> getModes() {
+		return Collections.unmodifiableSet(accessibilities.keySet());
+	}
+
+	/**
+	 * @return the accessibilities of the given mode as a row-major (time x cell) array; NaN if not computed
+	 */
+	public double[] getAccessibilities(String mode) {
+		return accessibilities.get(mode);
+	}
+
+	public double getAccessibility(String mode, int timeIndex, int cellIndex) {
+		double[] values = accessibilities.get(mode);
+		return values == null ? Double.NaN : values[timeIndex * measuringPoints.size() + cellIndex];
+	}
+}
@@ -10,6 +10,7 @@ public final class CSVWriter {
 	private static final Logger log = Logger.getLogger(CSVWriter.class);
 
 	public static final String FILE_NAME= "accessibilities.csv";
+	public static final String PROFILE_FILE_NAME= "accessibility_profiles.csv";
 	
 	private static final String SEPARATOR = ",";
 	// comma is the correct choice for excel.  But gnuplot cannot deal with comma, needs "\t"!
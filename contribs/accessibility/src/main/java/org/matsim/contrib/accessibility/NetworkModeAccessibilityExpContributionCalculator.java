@@ -16,18 +16,31 @@ import org.matsim.core.gbl.Gbl;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.network.algorithms.TransportModeNetworkFilter;
 import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
+import org.matsim.core.router.speedy.LeastCostPathTree;
+import org.matsim.core.router.speedy.SpeedyGraph;
 import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
 import org.matsim.facilities.ActivityFacilities;
 import org.matsim.facilities.ActivityFacility;
-import org.matsim.utils.leastcostpathtree.LeastCostPathTree;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
 /**
+ * The least-cost path tree of each origin node is computed once (on a {@link SpeedyGraph} of the mode-specific
+ * sub-network). Since the network part of the utility does not depend on the measuring point, the sum over all
+ * (aggregated) opportunities, exp(-beta * cost(node, destination)) * sum_destination, is also computed once per origin
+ * node, on primitive arrays indexed by the destination nodes, and then only scaled for each measuring point assigned to
+ * that node (using the identity exp(a + b) = exp(a) * exp(b)).
+ * <p>
+ * If several departure times are computed for the same origin node in a row (see
+ * {@link AccessibilityConfigGroup#TIMES_OF_DAY}), the access part of each measuring point (nearest link, walk utility) is
+ * reused, and so is the whole tree if the travel costs do not depend on time (free speed travel times, no road pricing).
+ *
  * @author thibautd, dziemke
  */
 final class NetworkModeAccessibilityExpContributionCalculator implements AccessibilityContributionCalculator {
@@ -48,6 +61,7 @@ final class NetworkModeAccessibilityExpContributionCalculator implements Accessi
 	private double walkSpeed_m_s;
 
 	private Node fromNode = null;
+	private SpeedyGraph graph;
 	private LeastCostPathTree lcpt;
 	//private final DijkstraTree dijkstraTree;
 	//private final MultiNodePathCalculator multiNodePathCalculator;
@@ -56,6 +70,19 @@ final class NetworkModeAccessibilityExpContributionCalculator implements Accessi
 	private Map<Id<? extends BasicLocation>, ArrayList<ActivityFacility>> aggregatedMeasurePoints;
 	private Map<Id<? extends BasicLocation>, AggregationObject> aggregatedOpportunities;
 
+	// aggregated opportunities: nearest node index and the pre-computed sum over the opportunities
+	private int[] opportunityNodeIndices;
+	private double[] opportunitySums;
+
+	// sum over all opportunities of exp(-beta * cost(fromNode, node)) * sum_node
+	private double opportunitiesExpSum;
+
+	private final boolean timeInvariantCosts;
+	private double opportunitiesExpSumDepartureTime = Double.NaN;
+
+	// access of the measuring points assigned to fromNode, reused across departure times
+	private final Map<ActivityFacility, OriginAccess> originAccesses = new HashMap<>();
+
 
 
 	public NetworkModeAccessibilityExpContributionCalculator(String mode, final TravelTime travelTime, final TravelDisutilityFactory travelDisutilityFactory, Scenario scenario) {
@@ -71,8 +98,9 @@ final class NetworkModeAccessibilityExpContributionCalculator implements Accessi
 		networkConfigGroup = scenario.getConfig().network();
 
 		RoadPricingScheme scheme = (RoadPricingScheme) scenario.getScenarioElement( RoadPricingScheme.ELEMENT_NAME );
+		this.timeInvariantCosts = travelTime instanceof FreeSpeedTravelTime && scheme == null;
 //		this.lcpt = new LeastCostPathTreeExtended(travelTime, travelDisutility, scheme);
-		this.lcpt = new LeastCostPathTree(travelTime, travelDisutility);
+		// the tree is created once the (mode-specific) graph is known, see initialize()
 		//this.dijkstraTree = new DijkstraTree(network, travelDisutility, travelTime);
 		//FastMultiNodeDijkstraFactory fastMultiNodeDijkstraFactory = new FastMultiNodeDijkstraFactory(true);
 		//this.multiNodePathCalculator = (MultiNodePathCalculator) fastMultiNodeDijkstraFactory.createPathCalculator(network, travelDisutility, travelTime);
@@ -103,28 +131,61 @@ final class NetworkModeAccessibilityExpContributionCalculator implements Accessi
 
         this.aggregatedMeasurePoints = AccessibilityUtils.aggregateMeasurePointsWithSameNearestNode(measuringPoints, subNetwork);
 		this.aggregatedOpportunities = AccessibilityUtils.aggregateOpportunitiesWithSameNearestNode(opportunities, subNetwork, scenario.getConfig());
+
+		this.graph = new SpeedyGraph(subNetwork);
+		this.lcpt = new LeastCostPathTree(graph, travelTime, travelDisutility);
+		this.fromNode = null;// nothing computed so far can be reused
+		this.originAccesses.clear();
+
+		this.opportunityNodeIndices = new int[aggregatedOpportunities.size()];
+		this.opportunitySums = new double[aggregatedOpportunities.size()];
+		int i = 0;
+		for (AggregationObject destination : aggregatedOpportunities.values()) {
+			opportunityNodeIndices[i] = ((Node) destination.getNearestBasicLocation()).getId().index();
+			opportunitySums[i] = destination.getSum();
+			i++;
+		}
 	}
 
 
 	@Override
 	public void notifyNewOriginNode(Id<? extends BasicLocation> fromNodeId, Double departureTime) {
-		this.fromNode = subNetwork.getNodes().get(fromNodeId);
-		this.lcpt.calculate(subNetwork, fromNode, departureTime);
+		Node newFromNode = subNetwork.getNodes().get(fromNodeId);
+		if (newFromNode == fromNode) {
+			if (timeInvariantCosts || departureTime.equals(opportunitiesExpSumDepartureTime)) {
+				return;// same tree as for the previous departure time
+			}
+		} else {
+			this.fromNode = newFromNode;
+			originAccesses.clear();
+		}
+		this.opportunitiesExpSumDepartureTime = departureTime;
+		this.lcpt.calculate(fromNode.getId().index(), departureTime, null, null);
 		//this.dijkstraTree.calcLeastCostPathTree(fromNode, departureTime);
 		//multiNodePathCalculator.calcLeastCostPath(fromNode, aggregatedToNodes, departureTime, null, null);
+
+		final double beta = planCalcScoreConfigGroup.getBrainExpBeta();
+		double expSum = 0.;
+		for (int i = 0; i < opportunityNodeIndices.length; i++) {
+			// Remaining travel on network; exp(-infinity) = 0 for unreachable destinations
+			double congestedCarUtility = -lcpt.getCost(opportunityNodeIndices[i]);
+			// Pre-computed effect of all opportunities reachable from destination network node
+			expSum += Math.exp(beta * congestedCarUtility) * opportunitySums[i];
+		}
+		this.opportunitiesExpSum = expSum;
 	}
 
 
+	/**
+	 * The opportunities aggregated in {@link #initialize} are used (as done by the accessibility listener, which passes
+	 * them as {@code aggregatedOpportunities}).
+	 */
 	@Override
 	public double computeContributionOfOpportunity(ActivityFacility origin,
 			Map<Id<? extends BasicLocation>, AggregationObject> aggregatedOpportunities, Double departureTime) {
-		double expSum = 0.;
+		Gbl.assertIf(aggregatedOpportunities == this.aggregatedOpportunities);
 
-		Link nearestLink = NetworkUtils.getNearestLinkExactly(subNetwork, origin.getCoord());
-		Distances distance = NetworkUtil.getDistances2NodeViaGivenLink(origin.getCoord(), nearestLink, fromNode);
-		double walkTravelTimeMeasuringPoint2Road_h = distance.getDistancePoint2Intersection() / (this.walkSpeed_m_s * 3600);
-		// Orthogonal walk to nearest link
-		double walkUtilityMeasuringPoint2Road = (walkTravelTimeMeasuringPoint2Road_h * betaWalkTT);
+		OriginAccess access = originAccesses.computeIfAbsent(origin, this::computeOriginAccess);
 		// NEW AV MODE
 		//		double waitingTime_h = (Double) origin.getAttributes().getAttribute("waitingTime_s") / 3600.;
 		//		double walkUtilityMeasuringPoint2Road = ((walkTravelTimeMeasuringPoint2Road_h + waitingTime_h) * betaWalkTT)
@@ -132,28 +193,41 @@ final class NetworkModeAccessibilityExpContributionCalculator implements Accessi
 		// END NEW AV MODE
 
 		// Travel on section of first link to first node
-		double distanceFraction = distance.getDistanceIntersection2Node() / nearestLink.getLength();
-		double congestedCarUtilityRoad2Node = -travelDisutility.getLinkTravelDisutility(nearestLink, departureTime, null, null) * distanceFraction;
+		double congestedCarUtilityRoad2Node = -travelDisutility.getLinkTravelDisutility(access.nearestLink, departureTime, null, null)
+				* access.distanceFraction;
 
 		// Combine all utility components (using the identity: exp(a+b) = exp(a) * exp(b))
 		double modeSpecificConstant = AccessibilityUtils.getModeSpecificConstantForAccessibilities(mode, planCalcScoreConfigGroup);
 
-		for (final AggregationObject destination : aggregatedOpportunities.values()) {
+		// Remaining travel on network and opportunities: see notifyNewOriginNode()
+		//double congestedCarUtility = - dijkstraTree.getLeastCostPath(destination.getNearestNode()).travelCost;
+		//double congestedCarUtility = - multiNodePathCalculator.constructPath(fromNode, destination.getNearestNode(), departureTime).travelCost;
+		return Math.exp(this.planCalcScoreConfigGroup.getBrainExpBeta() * (access.walkUtilityMeasuringPoint2Road + modeSpecificConstant
+				+ congestedCarUtilityRoad2Node)) * opportunitiesExpSum;
+	}
 
 
+	private OriginAccess computeOriginAccess(ActivityFacility origin) {
+		Link nearestLink = NetworkUtils.getNearestLinkExactly(subNetwork, origin.getCoord());
+		Distances distance = NetworkUtil.getDistances2NodeViaGivenLink(origin.getCoord(), nearestLink, fromNode);
+		double walkTravelTimeMeasuringPoint2Road_h = distance.getDistancePoint2Intersection() / (this.walkSpeed_m_s * 3600);
+		// Orthogonal walk to nearest link
+		double walkUtilityMeasuringPoint2Road = (walkTravelTimeMeasuringPoint2Road_h * betaWalkTT);
+		double distanceFraction = distance.getDistanceIntersection2Node() / nearestLink.getLength();
+		return new OriginAccess(nearestLink, walkUtilityMeasuringPoint2Road, distanceFraction);
+	}
 
-			// Remaining travel on network
-			double congestedCarUtility = -lcpt.getTree().get(((Node) destination.getNearestBasicLocation()).getId()).getCost();
-			//double congestedCarUtility = - dijkstraTree.getLeastCostPath(destination.getNearestNode()).travelCost;
-			//double congestedCarUtility = - multiNodePathCalculator.constructPath(fromNode, destination.getNearestNode(), departureTime).travelCost;
 
-			// Pre-computed effect of all opportunities reachable from destination network node
-			double sumExpVjkWalk = destination.getSum();
+	private static final class OriginAccess {
+		private final Link nearestLink;
+		private final double walkUtilityMeasuringPoint2Road;
+		private final double distanceFraction;
 
-				expSum += Math.exp(this.planCalcScoreConfigGroup.getBrainExpBeta() * (walkUtilityMeasuringPoint2Road + modeSpecificConstant
-					+ congestedCarUtilityRoad2Node + congestedCarUtility)) * sumExpVjkWalk;
+		private OriginAccess(Link nearestLink, double walkUtilityMeasuringPoint2Road, double distanceFraction) {
+			this.nearestLink = nearestLink;
+			this.walkUtilityMeasuringPoint2Road = walkUtilityMeasuringPoint2Road;
+			this.distanceFraction = distanceFraction;
 		}
-		return expSum;
 	}
 
 
@@ -172,6 +246,11 @@ final class NetworkModeAccessibilityExpContributionCalculator implements Accessi
 		networkModeAccessibilityExpContributionCalculator.subNetwork = this.subNetwork;
 		networkModeAccessibilityExpContributionCalculator.aggregatedMeasurePoints = this.aggregatedMeasurePoints;
 		networkModeAccessibilityExpContributionCalculator.aggregatedOpportunities = this.aggregatedOpportunities;
+		networkModeAccessibilityExpContributionCalculator.graph = this.graph;
+		networkModeAccessibilityExpContributionCalculator.lcpt = new LeastCostPathTree(this.graph, this.travelTime,
+				networkModeAccessibilityExpContributionCalculator.travelDisutility);
+		networkModeAccessibilityExpContributionCalculator.opportunityNodeIndices = this.opportunityNodeIndices;
+		networkModeAccessibilityExpContributionCalculator.opportunitySums = this.opportunitySums;
 		return networkModeAccessibilityExpContributionCalculator;
 	}
 
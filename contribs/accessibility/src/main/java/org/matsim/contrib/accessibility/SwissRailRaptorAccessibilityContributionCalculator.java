@@ -37,6 +37,11 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
+ * The parts of the costs that depend neither on the origin nor on the departure time (egress walks from the stops to
+ * the opportunities) are computed once in {@link #initialize}; the direct walk costs of the measuring points of an origin
+ * node are kept while several departure times are computed for the node in a row (see
+ * {@link AccessibilityConfigGroup#TIMES_OF_DAY}), so that only the tree needs to be calculated for each departure time.
+ *
  * @author dziemke
  */
 class SwissRailRaptorAccessibilityContributionCalculator implements AccessibilityContributionCalculator {
@@ -56,6 +61,17 @@ class SwissRailRaptorAccessibilityContributionCalculator implements Accessibilit
 
     Map<Id<ActivityFacility>, Collection<TransitStopFacility>> stopsPerAggregatedOpportunity = new LinkedHashMap<>();
 
+	// aggregated opportunities (in the iteration order of aggregatedOpportunities): coordinates and the stops nearby
+	// with the egress walk costs, opportunity i has stops [stopStarts[i], stopStarts[i + 1])
+	private Coord[] opportunityCoords;
+	private int[] stopStarts;
+	private Id<TransitStopFacility>[] stopIds;
+	private double[] egressWalkCosts;
+
+	// direct walk costs from the measuring points of the current origin node to all opportunities
+	private Id<? extends BasicLocation> currentNodeId;
+	private final Map<ActivityFacility, double[]> directWalkCosts = new HashMap<>();
+
 
     public SwissRailRaptorAccessibilityContributionCalculator(String mode, PlanCalcScoreConfigGroup planCalcScoreConfigGroup, Scenario scenario) {
 		this.mode = mode;
@@ -127,49 +143,88 @@ class SwissRailRaptorAccessibilityContributionCalculator implements Accessibilit
 
             stopsPerAggregatedOpportunity.put(opportunity.getId(), stops);
         }
+        prepareOpportunityArrays();
     }
 
 
+	@SuppressWarnings("unchecked")
+	private void prepareOpportunityArrays() {
+		int opportunityCount = aggregatedOpportunities.size();
+		opportunityCoords = new Coord[opportunityCount];
+		stopStarts = new int[opportunityCount + 1];
+		int stopCount = 0;
+		for (AggregationObject destination : aggregatedOpportunities.values()) {
+			stopCount += stopsPerAggregatedOpportunity.get(destination.getNearestBasicLocation().getId()).size();
+		}
+		stopIds = new Id[stopCount];
+		egressWalkCosts = new double[stopCount];
+
+		int i = 0;
+		int s = 0;
+		for (AggregationObject destination : aggregatedOpportunities.values()) {
+			final Coord toCoord = destination.getNearestBasicLocation().getCoord();
+			opportunityCoords[i] = toCoord;
+			stopStarts[i] = s;
+			for (TransitStopFacility stop : stopsPerAggregatedOpportunity.get(destination.getNearestBasicLocation().getId())) {
+				double distance = CoordUtils.calcEuclideanDistance(stop.getCoord(), toCoord);
+				stopIds[s] = stop.getId();
+				egressWalkCosts[s] = - distance / walkSpeed_m_h  * betaWalkTT;
+				s++;
+			}
+			i++;
+		}
+		stopStarts[opportunityCount] = s;
+		currentNodeId = null;
+		directWalkCosts.clear();
+	}
+
+
 	@Override
 	public void notifyNewOriginNode(Id<? extends BasicLocation> fromNodeId, Double departureTime) {
+		if (!fromNodeId.equals(currentNodeId)) {
+			currentNodeId = fromNodeId;
+			directWalkCosts.clear();
+		}
 	}
 
 
 	@Override
 	public double computeContributionOfOpportunity(ActivityFacility origin,
             Map<Id<? extends BasicLocation>, AggregationObject> aggregatedOpportunities, Double departureTime) {
-        double expSum = 0.;
+		Gbl.assertIf(aggregatedOpportunities == this.aggregatedOpportunities);
+
+		final double[] directWalkCosts = this.directWalkCosts.computeIfAbsent(origin, this::calcDirectWalkCosts);
 
         final Map<Id<TransitStopFacility>, SwissRailRaptorCore.TravelInfo> idTravelInfoMap = raptor.calcTree(origin, departureTime, null, new Attributes());
 
-        for (final AggregationObject destination : aggregatedOpportunities.values()) {
-            //compute direct walk costs
-            final Coord toCoord = destination.getNearestBasicLocation().getCoord();
-            double directDistance_m = CoordUtils.calcEuclideanDistance(origin.getCoord(), toCoord);
-            double directWalkCost = -directDistance_m / walkSpeed_m_h * betaWalkTT;
-
-            double travelCost = Double.MAX_VALUE;
-            ActivityFacility nearestStop = ((ActivityFacility) destination.getNearestBasicLocation());
-            Collection<TransitStopFacility> stops = stopsPerAggregatedOpportunity.get(nearestStop.getId());
-
-            for (TransitStopFacility stop : stops) {
-                final SwissRailRaptorCore.TravelInfo travelInfo = idTravelInfoMap.get(stop.getId());
-                if (travelInfo != null) {
-                    double distance = CoordUtils.calcEuclideanDistance(stop.getCoord(), toCoord);
-                    double egressWalkCost = - distance / walkSpeed_m_h  * betaWalkTT;
-                    //total travel cost include travel, access, egress and waiting costs
-                    double cost = travelInfo.accessCost + travelInfo.travelCost + travelInfo.waitingCost + egressWalkCost;
-                    travelCost = Math.min(travelCost, cost);
-                }
-            }
+		final double modeSpecificConstant = AccessibilityUtils.getModeSpecificConstantForAccessibilities(mode, planCalcScoreConfigGroup);
+		final double beta = this.planCalcScoreConfigGroup.getBrainExpBeta();
+		double expSum = 0.;
+		for (int i = 0; i < directWalkCosts.length; i++) {
+			//check whether direct walk time is cheaper
+			double travelCost = directWalkCosts[i];
+			for (int s = stopStarts[i]; s < stopStarts[i + 1]; s++) {
+				final SwissRailRaptorCore.TravelInfo travelInfo = idTravelInfoMap.get(stopIds[s]);
+				if (travelInfo != null) {
+					//total travel cost include travel, access, egress and waiting costs
+					double cost = travelInfo.accessCost + travelInfo.travelCost + travelInfo.waitingCost + egressWalkCosts[s];
+					travelCost = Math.min(travelCost, cost);
+				}
+			}
+			expSum += Math.exp(beta * (-travelCost + modeSpecificConstant));
+		}
+		return expSum;
+	}
 
-            //check whether direct walk time is cheaper
-            travelCost = Math.min(travelCost, directWalkCost);
 
-            double modeSpecificConstant = AccessibilityUtils.getModeSpecificConstantForAccessibilities(mode, planCalcScoreConfigGroup);
-            expSum += Math.exp(this.planCalcScoreConfigGroup.getBrainExpBeta() * (-travelCost + modeSpecificConstant));
-        }
-        return expSum;
+	private double[] calcDirectWalkCosts(ActivityFacility origin) {
+		final Coord fromCoord = origin.getCoord();
+		double[] costs = new double[opportunityCoords.length];
+		for (int i = 0; i < costs.length; i++) {
+			double directDistance_m = CoordUtils.calcEuclideanDistance(fromCoord, opportunityCoords[i]);
+			costs[i] = -directDistance_m / walkSpeed_m_h * betaWalkTT;
+		}
+		return costs;
 	}
 
 
@@ -180,6 +235,10 @@ class SwissRailRaptorAccessibilityContributionCalculator implements Accessibilit
         swissRailRaptorAccessibilityContributionCalculator.aggregatedMeasurePoints = this.aggregatedMeasurePoints;
         swissRailRaptorAccessibilityContributionCalculator.aggregatedOpportunities = this.aggregatedOpportunities;
         swissRailRaptorAccessibilityContributionCalculator.stopsPerAggregatedOpportunity = this.stopsPerAggregatedOpportunity;
+		swissRailRaptorAccessibilityContributionCalculator.opportunityCoords = this.opportunityCoords;
+		swissRailRaptorAccessibilityContributionCalculator.stopStarts = this.stopStarts;
+		swissRailRaptorAccessibilityContributionCalculator.stopIds = this.stopIds;
+		swissRailRaptorAccessibilityContributionCalculator.egressWalkCosts = this.egressWalkCosts;
 		return swissRailRaptorAccessibilityContributionCalculator;
 	}
 
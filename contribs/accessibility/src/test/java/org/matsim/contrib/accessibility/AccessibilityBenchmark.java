@@ -0,0 +1,154 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.accessibility;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutilityFactory;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+import org.matsim.facilities.ActivityFacilities;
+import org.matsim.facilities.ActivityFacilitiesFactory;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.facilities.FacilitiesUtils;
+
+/**
+ * Measures the throughput (measuring points per second) of the network-mode accessibility computation on a synthetic
+ * grid network with square grid cells as measuring points and randomly placed opportunities. No simulation is run.
+ * <p>
+ * Usage: <code>AccessibilityBenchmark [measuring-point-counts...]</code> (default: 10000 100000 1000000)
+ * <p>
+ * Kept in the test sources (and not in the benchmark module), as it needs the package-private accessibility classes.
+ */
+public class AccessibilityBenchmark {
+	private static final long SEED = 4711;
+	private static final int GRID_SIZE = 100;// nodes per row/column
+	private static final double LINK_LENGTH = 200;
+	private static final int OPPORTUNITY_COUNT = 10000;
+
+	public static void main(String[] args) {
+		int[] measuringPointCounts = args.length == 0 ?
+				new int[] { 10000, 100000, 1000000 } :
+				Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+
+		for (int measuringPointCount : measuringPointCounts) {
+			run(measuringPointCount);
+		}
+	}
+
+	private static void run(int measuringPointCount) {
+		Config config = ConfigUtils.createConfig();
+		ConfigUtils.addOrGetModule(config, AccessibilityConfigGroup.class).setUseParallelization(true);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		createGridNetwork(scenario.getNetwork());
+
+		double extent = (GRID_SIZE - 1) * LINK_LENGTH;
+		ActivityFacilities measuringPoints = createMeasuringPoints(measuringPointCount, extent);
+		ActivityFacilities opportunities = createOpportunities(extent, new Random(SEED));
+
+		var listener = new AccessibilityComputationShutdownListener(scenario, measuringPoints, opportunities, null);
+		listener.putAccessibilityContributionCalculator(TransportMode.car,
+				new NetworkModeAccessibilityExpContributionCalculator(TransportMode.car, new FreeSpeedTravelTime(),
+						new OnlyTimeDependentTravelDisutilityFactory(), scenario));
+		AtomicLong results = new AtomicLong();
+		listener.addFacilityDataExchangeListener(new FacilityDataExchangeInterface() {
+			@Override
+			public void setFacilityAccessibilities(ActivityFacility measurePoint, Double timeOfDay, String mode,
+					double accessibility) {
+				results.incrementAndGet();
+			}
+
+			@Override
+			public void finish() {
+			}
+		});
+
+		long start = System.nanoTime();
+		listener.computeAccessibilities(8 * 3600., opportunities);
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.printf("measuring points: %d, opportunities: %d, results: %d, time: %.2f s, throughput: %.0f points/s%n",
+				measuringPointCount, OPPORTUNITY_COUNT, results.get(), seconds, measuringPointCount / seconds);
+	}
+
+	private static void createGridNetwork(Network network) {
+		Node[][] nodes = new Node[GRID_SIZE][GRID_SIZE];
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y),
+						new Coord(x * LINK_LENGTH, y * LINK_LENGTH));
+			}
+		}
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				if (x + 1 < GRID_SIZE) {
+					addLinks(network, nodes[x][y], nodes[x + 1][y]);
+				}
+				if (y + 1 < GRID_SIZE) {
+					addLinks(network, nodes[x][y], nodes[x][y + 1]);
+				}
+			}
+		}
+	}
+
+	private static void addLinks(Network network, Node a, Node b) {
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(a.getId() + "-" + b.getId()), a, b, LINK_LENGTH, 15,
+				1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(b.getId() + "-" + a.getId()), b, a, LINK_LENGTH, 15,
+				1000, 1);
+	}
+
+	private static ActivityFacilities createMeasuringPoints(int count, double extent) {
+		ActivityFacilities measuringPoints = FacilitiesUtils.createActivityFacilities("measuringPoints");
+		ActivityFacilitiesFactory factory = measuringPoints.getFactory();
+		int cellsPerRow = (int)Math.ceil(Math.sqrt(count));
+		double cellSize = extent / cellsPerRow;
+		for (int i = 0; i < count; i++) {
+			double x = (i % cellsPerRow + 0.5) * cellSize;
+			double y = (i / cellsPerRow + 0.5) * cellSize;
+			measuringPoints.addActivityFacility(
+					factory.createActivityFacility(Id.create("mp" + i, ActivityFacility.class), new Coord(x, y)));
+		}
+		return measuringPoints;
+	}
+
+	private static ActivityFacilities createOpportunities(double extent, Random random) {
+		ActivityFacilities opportunities = FacilitiesUtils.createActivityFacilities("opportunities");
+		ActivityFacilitiesFactory factory = opportunities.getFactory();
+		for (int i = 0; i < OPPORTUNITY_COUNT; i++) {
+			Coord coord = new Coord(random.nextDouble() * extent, random.nextDouble() * extent);
+			opportunities.addActivityFacility(
+					factory.createActivityFacility(Id.create("opportunity" + i, ActivityFacility.class), coord));
+		}
+		return opportunities;
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.accessibility;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.facilities.ActivityFacilities;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.facilities.FacilitiesUtils;
+
+public class AccessibilityTimeProfilesTest {
+
+	@Test
+	public void timesOfDay() {
+		AccessibilityConfigGroup acg = ConfigUtils.addOrGetModule(ConfigUtils.createConfig(), AccessibilityConfigGroup.class);
+		Assert.assertEquals(List.of(8. * 3600), acg.getTimesOfDay());
+
+		acg.addParam(AccessibilityConfigGroup.TIMES_OF_DAY, "07:00:00, 28800");
+		Assert.assertEquals(List.of(7. * 3600, 8. * 3600), acg.getTimesOfDay());
+	}
+
+	@Test
+	public void compactArray() {
+		ActivityFacilities measuringPoints = FacilitiesUtils.createActivityFacilities();
+		ActivityFacility a = addMeasuringPoint(measuringPoints, "a");
+		ActivityFacility b = addMeasuringPoint(measuringPoints, "b");
+		ActivityFacility c = addMeasuringPoint(measuringPoints, "c");
+
+		AccessibilityTimeProfiles profiles = new AccessibilityTimeProfiles(measuringPoints, List.of(3600., 7200.));
+		List<ActivityFacility> cells = profiles.getMeasuringPoints();
+		Assert.assertEquals(3, cells.size());
+
+		profiles.setFacilityAccessibilities(b, 7200., "car", 1.5);
+		profiles.setFacilityAccessibilities(c, 3600., "car", 2.5);
+
+		// time x cell, NaN if not computed
+		double[] expected = { Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN };
+		expected[3 + cells.indexOf(b)] = 1.5;
+		expected[cells.indexOf(c)] = 2.5;
+		Assert.assertArrayEquals(expected, profiles.getAccessibilities("car"), 0.);
+		Assert.assertEquals(1.5, profiles.getAccessibility("car", 1, cells.indexOf(b)), 0.);
+		Assert.assertTrue(Double.isNaN(profiles.getAccessibility("car", 0, cells.indexOf(a))));
+		Assert.assertTrue(Double.isNaN(profiles.getAccessibility("pt", 0, 0)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unknownTimeOfDay() {
+		ActivityFacilities measuringPoints = FacilitiesUtils.createActivityFacilities();
+		ActivityFacility a = addMeasuringPoint(measuringPoints, "a");
+		new AccessibilityTimeProfiles(measuringPoints, List.of(3600.)).setFacilityAccessibilities(a, 0., "car", 1);
+	}
+
+	private static ActivityFacility addMeasuringPoint(ActivityFacilities measuringPoints, String id) {
+		ActivityFacility facility = measuringPoints.getFactory()
+				.createActivityFacility(Id.create(id, ActivityFacility.class), new Coord(0, 0));
+		measuringPoints.addActivityFacility(facility);
+		return facility;
+	}
+}
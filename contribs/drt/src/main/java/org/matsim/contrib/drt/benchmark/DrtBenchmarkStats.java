@@ -0,0 +1,101 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+
+package org.matsim.contrib.drt.benchmark;
+
+import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
+import org.matsim.contrib.common.csv.CSVLineBuilder;
+import org.matsim.contrib.common.csv.CompactCSVWriter;
+import org.matsim.contrib.drt.analysis.DrtEventSequenceCollector;
+import org.matsim.contrib.drt.analysis.DrtEventSequenceCollector.EventSequence;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.events.AfterMobsimEvent;
+import org.matsim.core.controler.events.BeforeMobsimEvent;
+import org.matsim.core.controler.events.ShutdownEvent;
+import org.matsim.core.controler.listener.AfterMobsimListener;
+import org.matsim.core.controler.listener.BeforeMobsimListener;
+import org.matsim.core.controler.listener.ShutdownListener;
+import org.matsim.core.utils.io.IOUtils;
+
+/**
+ * Averages (over all runs) the mobsim wall time (which includes the time spent in the DRT optimizer), the rejection
+ * rate and the passenger wait time.
+ */
+public class DrtBenchmarkStats implements BeforeMobsimListener, AfterMobsimListener, ShutdownListener {
+	public static final String[] HEADER = { //
+			"MobsimWallTime_avg", //
+			"RejectionRate_avg", //
+			"PassWaitTime_avg" };
+
+	private final OutputDirectoryHierarchy controlerIO;
+	private final String mode;
+	private final DrtEventSequenceCollector drtEventSequenceCollector;
+
+	private final SummaryStatistics mobsimWallTime = new SummaryStatistics();
+	private final SummaryStatistics rejectionRate = new SummaryStatistics();
+	private final SummaryStatistics passengerWaitTime = new SummaryStatistics();
+
+	private long mobsimStartNanos;
+
+	public DrtBenchmarkStats(OutputDirectoryHierarchy controlerIO, String mode,
+			DrtEventSequenceCollector drtEventSequenceCollector) {
+		this.controlerIO = controlerIO;
+		this.mode = mode;
+		this.drtEventSequenceCollector = drtEventSequenceCollector;
+	}
+
+	@Override
+	public void notifyBeforeMobsim(BeforeMobsimEvent event) {
+		mobsimStartNanos = System.nanoTime();
+	}
+
+	@Override
+	public void notifyAfterMobsim(AfterMobsimEvent event) {
+		mobsimWallTime.addValue((System.nanoTime() - mobsimStartNanos) / 1e9);
+
+		int submitted = drtEventSequenceCollector.getRequestSubmissions().size();
+		int rejected = drtEventSequenceCollector.getRejectedRequestSequences().size();
+		rejectionRate.addValue(submitted == 0 ? 0 : (double)rejected / submitted);
+
+		SummaryStatistics singleRunWaitTime = new SummaryStatistics();
+		for (EventSequence sequence : drtEventSequenceCollector.getPerformedRequestSequences().values()) {
+			if (sequence.getDeparture().isPresent() && sequence.getPickedUp().isPresent()) {
+				singleRunWaitTime.addValue(
+						sequence.getPickedUp().get().getTime() - sequence.getDeparture().get().getTime());
+			}
+		}
+		if (singleRunWaitTime.getN() > 0) {
+			passengerWaitTime.addValue(singleRunWaitTime.getMean());
+		}
+	}
+
+	@Override
+	public void notifyShutdown(ShutdownEvent event) {
+		try (CompactCSVWriter writer = new CompactCSVWriter(
+				IOUtils.getBufferedWriter(controlerIO.getOutputFilename(mode + "_benchmark_stats.txt")))) {
+			writer.writeNext(HEADER);
+			writer.writeNext(new CSVLineBuilder()//
+					.addf("%.2f", mobsimWallTime.getMean())
+					.addf("%.4f", rejectionRate.getMean())
+					.addf("%.1f", passengerWaitTime.getMean()));
+		}
+	}
+}
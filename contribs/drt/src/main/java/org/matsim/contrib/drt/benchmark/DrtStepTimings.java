@@ -0,0 +1,77 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.drt.benchmark;
+
+import org.matsim.contrib.common.csv.CompactCSVWriter;
+import org.matsim.core.controler.IterationCounter;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.mobsim.framework.events.MobsimAfterSimStepEvent;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
+import org.matsim.core.mobsim.framework.events.MobsimInitializedEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimAfterSimStepListener;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeCleanupListener;
+import org.matsim.core.mobsim.framework.listeners.MobsimInitializedListener;
+import org.matsim.core.utils.io.IOUtils;
+
+import com.google.inject.Inject;
+
+/**
+ * Streams the wall time of each mobsim step (which includes the time spent in the DVRP optimizers, e.g. on DRT
+ * dispatching) to {@code step_timings.csv.gz} in the iteration directory, so that latency peaks can be attributed to
+ * particular times of day. The time spent on writing is not included in the measured wall times.
+ */
+public class DrtStepTimings
+		implements MobsimInitializedListener, MobsimAfterSimStepListener, MobsimBeforeCleanupListener {
+	public static final String[] HEADER = { "time", "wallTime_us" };
+
+	private final OutputDirectoryHierarchy controlerIO;
+	private final IterationCounter iterationCounter;
+
+	private CompactCSVWriter writer;
+	private long stepStartNanos;
+
+	@Inject
+	public DrtStepTimings(OutputDirectoryHierarchy controlerIO, IterationCounter iterationCounter) {
+		this.controlerIO = controlerIO;
+		this.iterationCounter = iterationCounter;
+	}
+
+	@Override
+	public void notifyMobsimInitialized(@SuppressWarnings("rawtypes") MobsimInitializedEvent e) {
+		writer = new CompactCSVWriter(IOUtils.getBufferedWriter(
+				controlerIO.getIterationFilename(iterationCounter.getIterationNumber(), "step_timings.csv.gz")));
+		writer.writeNext(HEADER);
+		stepStartNanos = System.nanoTime();
+	}
+
+	@Override
+	public void notifyMobsimAfterSimStep(@SuppressWarnings("rawtypes") MobsimAfterSimStepEvent e) {
+		long wallTimeNanos = System.nanoTime() - stepStartNanos;
+		writer.writeNext(String.valueOf((int)e.getSimulationTime()), String.valueOf(wallTimeNanos / 1000));
+		stepStartNanos = System.nanoTime();
+	}
+
+	@Override
+	public void notifyMobsimBeforeCleanup(@SuppressWarnings("rawtypes") MobsimBeforeCleanupEvent e) {
+		writer.close();
+		writer = null;
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+
+package org.matsim.contrib.drt.benchmark;
+
+import java.net.URL;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.contrib.drt.analysis.DrtEventSequenceCollector;
+import org.matsim.contrib.drt.run.DrtConfigGroup;
+import org.matsim.contrib.drt.run.DrtConfigs;
+import org.matsim.contrib.drt.run.DrtControlerCreator;
+import org.matsim.contrib.drt.run.MultiModeDrtConfigGroup;
+import org.matsim.contrib.drt.run.MultiModeDrtModule;
+import org.matsim.contrib.dvrp.benchmark.DvrpBenchmarks;
+import org.matsim.contrib.dvrp.run.AbstractDvrpModeModule;
+import org.matsim.contrib.dvrp.run.DvrpConfigGroup;
+import org.matsim.contrib.dvrp.run.DvrpQSimComponents;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.AbstractModule;
+import org.matsim.core.controler.Controler;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.scenario.ScenarioUtils;
+
+/**
+ * Benchmarks DRT optimisation under deterministic travel times (see {@link DvrpBenchmarks}). The same demand is
+ * simulated in {@code runs} iterations (without replanning) and the averaged wall times and rejection rates are written
+ * to {@code <mode>_benchmark_stats.txt} (see {@link DrtBenchmarkStats}). The wall time of each mobsim step is written
+ * to the iteration directories (see {@link DrtStepTimings}). For benchmarking the optimizer kernels in isolation, see
+ * {@code org.matsim.benchmark.drt.DrtKernelBenchmark} (matsim-benchmark).
+ * <p>
+ * {@link #main(String[])} compares the default (sequential) insertion with the regional insertion (see
+ * {@link DrtConfigGroup#isRegionalInsertion()}); the config must define the DRT zonal system (regions).
+ */
+public class RunDrtBenchmark {
+	public static void run(URL configUrl, int runs, boolean regionalInsertion) {
+		Config config = ConfigUtils.loadConfig(configUrl, new MultiModeDrtConfigGroup(), new DvrpConfigGroup());
+		MultiModeDrtConfigGroup.get(config)
+				.getModalElements()
+				.forEach(drtCfg -> drtCfg.setRegionalInsertion(regionalInsertion));
+		config.controler()
+				.setOutputDirectory(config.controler().getOutputDirectory() + (regionalInsertion ?
+						"/regional_insertion" :
+						"/default_insertion"));
+		createControler(config, runs).run();
+	}
+
+	public static Controler createControler(Config config, int runs) {
+		config.controler().setLastIteration(runs - 1);
+		config.controler().setDumpDataAtEnd(false);
+		config.controler().setWriteEventsInterval(0);
+		config.controler().setWritePlansInterval(0);
+		config.controler().setCreateGraphs(false);
+		DvrpBenchmarks.adjustConfig(config);
+
+		MultiModeDrtConfigGroup multiModeDrtConfig = MultiModeDrtConfigGroup.get(config);
+		DrtConfigs.adjustMultiModeDrtConfig(multiModeDrtConfig, config.planCalcScore(), config.plansCalcRoute());
+
+		Scenario scenario = DrtControlerCreator.createScenarioWithDrtRouteFactory(config);
+		ScenarioUtils.loadScenario(scenario);
+
+		Controler controler = new Controler(scenario);
+		DvrpBenchmarks.initController(controler);
+
+		controler.configureQSimComponents(DvrpQSimComponents.activateAllModes(multiModeDrtConfig));
+		controler.addOverridingModule(new MultiModeDrtModule());
+		controler.addOverridingModule(new AbstractModule() {
+			@Override
+			public void install() {
+				bind(DrtStepTimings.class).asEagerSingleton();
+				addMobsimListenerBinding().to(DrtStepTimings.class);
+			}
+		});
+
+		for (DrtConfigGroup drtCfg : multiModeDrtConfig.getModalElements()) {
+			controler.addOverridingModule(new AbstractDvrpModeModule(drtCfg.getMode()) {
+				@Override
+				public void install() {
+					bindModal(DrtBenchmarkStats.class).toProvider(modalProvider(
+							getter -> new DrtBenchmarkStats(getter.get(OutputDirectoryHierarchy.class), getMode(),
+									getter.getModal(DrtEventSequenceCollector.class)))).asEagerSingleton();
+					addControlerListenerBinding().to(modalKey(DrtBenchmarkStats.class));
+				}
+			});
+		}
+		return controler;
+	}
+
+	/**
+	 * @param args config URL and the number of runs
+	 */
+	public static void main(String[] args) throws Exception {
+		URL configUrl = new URL(args[0]);
+		int runs = Integer.parseInt(args[1]);
+		run(configUrl, runs, false);
+		run(configUrl, runs, true);
+	}
+}
@@ -97,8 +97,11 @@ public class DefaultDrtOptimizer implements DrtOptimizer {
 			requestInserter.scheduleUnplannedRequests(unplannedRequests.getSchedulableRequests());
 		}
 
-		if (rebalancingInterval != null && e.getSimulationTime() % rebalancingInterval == 0) {
-			rebalanceFleet();
+		if (rebalancingInterval != null) {
+			relocateVehicles(rebalancingStrategy.pollRelocations());
+			if (e.getSimulationTime() % rebalancingInterval == 0) {
+				rebalanceFleet();
+			}
 		}
 	}
 
@@ -108,12 +111,16 @@ public class DefaultDrtOptimizer implements DrtOptimizer {
 				.values()
 				.stream()
 				.filter(scheduleInquiry::isIdle);
-		List<Relocation> relocations = rebalancingStrategy.calcRelocations(rebalancableVehicles,
-				mobsimTimer.getTimeOfDay());
+		relocateVehicles(rebalancingStrategy.calcRelocations(rebalancableVehicles, mobsimTimer.getTimeOfDay()));
+	}
 
+	private void relocateVehicles(List<Relocation> relocations) {
 		if (!relocations.isEmpty()) {
 			log.debug("Fleet rebalancing: #relocations=" + relocations.size());
 			for (Relocation r : relocations) {
+				if (!scheduleInquiry.isIdle(r.vehicle)) {
+					continue;// relocations calculated asynchronously may be outdated
+				}
 				Link currentLink = ((DrtStayTask)r.vehicle.getSchedule().getCurrentTask()).getLink();
 				if (currentLink != r.link) {
 					relocator.relocateVehicle(r.vehicle, r.link);
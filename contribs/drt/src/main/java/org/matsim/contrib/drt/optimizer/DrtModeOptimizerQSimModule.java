@@ -21,6 +21,7 @@
 package org.matsim.contrib.drt.optimizer;
 
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.contrib.drt.analysis.zonal.DrtZonalSystem;
 import org.matsim.contrib.drt.optimizer.depot.DepotFinder;
 import org.matsim.contrib.drt.optimizer.depot.NearestStartLinkAsDepot;
 import org.matsim.contrib.drt.optimizer.insertion.CostCalculationStrategy;
@@ -30,6 +31,7 @@ import org.matsim.contrib.drt.optimizer.insertion.DrtInsertionSearch;
 import org.matsim.contrib.drt.optimizer.insertion.DrtRequestInsertionRetryParams;
 import org.matsim.contrib.drt.optimizer.insertion.DrtRequestInsertionRetryQueue;
 import org.matsim.contrib.drt.optimizer.insertion.InsertionCostCalculator;
+import org.matsim.contrib.drt.optimizer.insertion.SpatiallyFilteredInsertionSearch;
 import org.matsim.contrib.drt.optimizer.insertion.UnplannedRequestInserter;
 import org.matsim.contrib.drt.optimizer.insertion.extensive.ExtensiveInsertionSearchParams;
 import org.matsim.contrib.drt.optimizer.insertion.extensive.ExtensiveInsertionSearchQSimModule;
@@ -95,16 +97,30 @@ public class DrtModeOptimizerQSimModule extends AbstractDvrpModeQSimModule {
 				getter -> new DefaultUnplannedRequestInserter(drtCfg, getter.getModal(Fleet.class),
 						getter.get(MobsimTimer.class), getter.get(EventsManager.class),
 						getter.getModal(RequestInsertionScheduler.class),
-						getter.getModal(VehicleEntry.EntryFactory.class), getter.getModal(DrtInsertionSearch.class),
+						getter.getModal(VehicleEntry.EntryFactory.class), drtCfg.isSpatialVehicleIndex() ?
+						new SpatiallyFilteredInsertionSearch(getter.getModal(VehicleEntryIndex.class),
+								getter.getModal(DrtInsertionSearch.class)) :
+						getter.getModal(DrtInsertionSearch.class),
 						getter.getModal(DrtRequestInsertionRetryQueue.class),
-						getter.getModal(QSimScopeForkJoinPoolHolder.class).getPool()))).asEagerSingleton();
+						getter.getModal(QSimScopeForkJoinPoolHolder.class).getPool(),
+						drtCfg.isRegionalInsertion() ? getter.getModal(DrtZonalSystem.class) : null)))
+				.asEagerSingleton();
 
 		bindModal(InsertionCostCalculator.class).toProvider(modalProvider(
 				getter -> new DefaultInsertionCostCalculator(getter.getModal(CostCalculationStrategy.class))));
 
 		install(getInsertionSearchQSimModule(drtCfg));
 
-		bindModal(VehicleEntry.EntryFactory.class).toInstance(new VehicleDataEntryFactoryImpl(drtCfg));
+		if (drtCfg.isSpatialVehicleIndex()) {
+			bindModal(VehicleEntryIndex.class).toProvider(
+					modalProvider(getter -> VehicleEntryIndex.create(getter.getModal(Network.class))))
+					.asEagerSingleton();
+			bindModal(VehicleEntry.EntryFactory.class).toProvider(modalProvider(
+					getter -> new VehicleDataEntryFactoryImpl(drtCfg, getter.getModal(VehicleEntryIndex.class))))
+					.asEagerSingleton();
+		} else {
+			bindModal(VehicleEntry.EntryFactory.class).toInstance(new VehicleDataEntryFactoryImpl(drtCfg));
+		}
 
 		bindModal(CostCalculationStrategy.class).to(drtCfg.isRejectRequestIfMaxWaitOrTravelTimeViolated() ?
 				CostCalculationStrategy.RejectSoftConstraintViolations.class :
@@ -24,6 +24,8 @@ import static org.matsim.contrib.drt.schedule.DrtTaskBaseType.getBaseTypeOrElseT
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.annotation.Nullable;
+
 import org.matsim.contrib.drt.run.DrtConfigGroup;
 import org.matsim.contrib.drt.schedule.DrtDriveTask;
 import org.matsim.contrib.drt.schedule.DrtStayTask;
@@ -41,8 +43,18 @@ import com.google.common.collect.ImmutableList;
  */
 public class VehicleDataEntryFactoryImpl implements VehicleEntry.EntryFactory {
 	private final double lookAhead;
+	@Nullable
+	private final VehicleEntryIndex vehicleEntryIndex;
 
 	public VehicleDataEntryFactoryImpl(DrtConfigGroup drtCfg) {
+		this(drtCfg, null);
+	}
+
+	/**
+	 * @param vehicleEntryIndex if not null, updated with every created entry
+	 */
+	public VehicleDataEntryFactoryImpl(DrtConfigGroup drtCfg, @Nullable VehicleEntryIndex vehicleEntryIndex) {
+		this.vehicleEntryIndex = vehicleEntryIndex;
 		lookAhead = drtCfg.getMaxWaitTime() - drtCfg.getStopDuration();
 		if (lookAhead < 0) {
 			throw new IllegalArgumentException(
@@ -51,6 +63,14 @@ public class VehicleDataEntryFactoryImpl implements VehicleEntry.EntryFactory {
 	}
 
 	public VehicleEntry create(DvrpVehicle vehicle, double currentTime) {
+		VehicleEntry entry = createEntry(vehicle, currentTime);
+		if (vehicleEntryIndex != null) {
+			vehicleEntryIndex.update(vehicle, entry);
+		}
+		return entry;
+	}
+
+	private VehicleEntry createEntry(DvrpVehicle vehicle, double currentTime) {
 		if (isNotEligibleForRequestInsertion(vehicle, currentTime)) {
 			return null;
 		}
@@ -0,0 +1,188 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.drt.optimizer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nullable;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.contrib.drt.passenger.DrtRequest;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicle;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.utils.collections.QuadTree;
+import org.matsim.core.utils.geometry.CoordUtils;
+
+/**
+ * Spatial index of the waypoints (the current position and the planned stops) after which a new pickup can be inserted
+ * into the vehicle schedules. The index is updated whenever a {@link VehicleEntry} is (re)created (see
+ * {@link VehicleDataEntryFactoryImpl}).
+ * <p>
+ * The pickup can be inserted after a waypoint only if the vehicle, departing from that waypoint, can reach the pickup
+ * link before the latest start time of the request. Since no vehicle is faster than {@code maxBeelineSpeed} (derived
+ * from the free speeds and the beeline lengths of links), waypoints departing at time {@code t} from a distance
+ * {@code d} can be skipped if {@code t + d / maxBeelineSpeed > latestStartTime}. As all waypoints depart not earlier
+ * than the request submission, only waypoints within a disk of radius
+ * {@code (latestStartTime - submissionTime) * maxBeelineSpeed} need to be checked.
+ * <p>
+ * Insertions violating the max wait time are infeasible only if
+ * {@link org.matsim.contrib.drt.run.DrtConfigGroup#isRejectRequestIfMaxWaitOrTravelTimeViolated()} is true, so the
+ * pruning is lossless only then. It also assumes that the travel times are not shorter than the free speed travel
+ * times (which may not hold for time-variant networks with increased free speeds).
+ */
+public class VehicleEntryIndex {
+	private static class IndexedWaypoint {
+		private final Id<DvrpVehicle> vehicleId;
+		private final Coord coord;
+		private final double departureTime;
+
+		private IndexedWaypoint(Id<DvrpVehicle> vehicleId, Coord coord, double departureTime) {
+			this.vehicleId = vehicleId;
+			this.coord = coord;
+			this.departureTime = departureTime;
+		}
+	}
+
+	private static class IndexedEntry {
+		private final Waypoint.Start start;// identifies the VehicleEntry (also shared by its decorating copies)
+		private final List<IndexedWaypoint> waypoints;
+
+		private IndexedEntry(Waypoint.Start start, List<IndexedWaypoint> waypoints) {
+			this.start = start;
+			this.waypoints = waypoints;
+		}
+	}
+
+	public static VehicleEntryIndex create(Network network) {
+		return new VehicleEntryIndex(network, calcMaxBeelineSpeed(network));
+	}
+
+	/**
+	 * @return the max speed at which the euclidean distance (between the to-nodes of links) can be covered, i.e. the
+	 * max free speed multiplied by the beeline to link length ratio
+	 */
+	static double calcMaxBeelineSpeed(Network network) {
+		double maxBeelineSpeed = 0;
+		for (Link link : network.getLinks().values()) {
+			double beelineLength = CoordUtils.calcEuclideanDistance(link.getFromNode().getCoord(),
+					link.getToNode().getCoord());
+			double beelineSpeed = beelineLength <= link.getLength() ?
+					link.getFreespeed() :
+					link.getFreespeed() * beelineLength / link.getLength();// may be infinite
+			maxBeelineSpeed = Math.max(maxBeelineSpeed, beelineSpeed);
+		}
+		return maxBeelineSpeed;
+	}
+
+	private final double maxBeelineSpeed;
+	private final QuadTree<IndexedWaypoint> quadTree;
+	private final Map<Id<DvrpVehicle>, IndexedEntry> indexedEntries = new HashMap<>();
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	public VehicleEntryIndex(Network network, double maxBeelineSpeed) {
+		this.maxBeelineSpeed = maxBeelineSpeed;
+		double[] bounds = NetworkUtils.getBoundingBox(network.getNodes().values());
+		quadTree = new QuadTree<>(bounds[0], bounds[1], bounds[2], bounds[3]);
+	}
+
+	/**
+	 * @param entry the current entry of the vehicle, or {@code null} if the vehicle cannot serve new requests
+	 */
+	public void update(DvrpVehicle vehicle, @Nullable VehicleEntry entry) {
+		lock.writeLock().lock();
+		try {
+			IndexedEntry oldEntry = indexedEntries.remove(vehicle.getId());
+			if (oldEntry != null) {
+				for (IndexedWaypoint w : oldEntry.waypoints) {
+					quadTree.remove(w.coord.getX(), w.coord.getY(), w);
+				}
+			}
+
+			if (entry != null) {
+				List<IndexedWaypoint> waypoints = new ArrayList<>();
+				int stopCount = entry.stops.size();
+				for (int i = 0; i <= stopCount; i++) {
+					Waypoint waypoint = entry.getWaypoint(i);
+					// the same condition as in InsertionGenerator: insertions after the last stop are always generated
+					if (i == stopCount || waypoint.getOutgoingOccupancy() < vehicle.getCapacity()) {
+						Coord coord = waypoint.getLink().getToNode().getCoord();
+						var w = new IndexedWaypoint(vehicle.getId(), coord, waypoint.getDepartureTime());
+						quadTree.put(coord.getX(), coord.getY(), w);
+						waypoints.add(w);
+					}
+				}
+				indexedEntries.put(vehicle.getId(), new IndexedEntry(entry.start, waypoints));
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Vehicle entries that are not (or no longer) indexed are always retained.
+	 *
+	 * @return vehicle entries that may be able to pick up the request before its latest start time
+	 */
+	public List<VehicleEntry> filterVehicleEntries(DrtRequest request, Collection<VehicleEntry> vehicleEntries) {
+		if (Double.isInfinite(maxBeelineSpeed)) {
+			return new ArrayList<>(vehicleEntries);// no pruning possible
+		}
+
+		Coord pickupCoord = request.getFromLink().getToNode().getCoord();
+		double latestStartTime = request.getLatestStartTime();
+		double radius = (latestStartTime - request.getSubmissionTime()) * maxBeelineSpeed;
+
+		Set<Id<DvrpVehicle>> reachingVehicles = new HashSet<>();
+		lock.readLock().lock();
+		try {
+			if (radius >= 0) {
+				for (IndexedWaypoint w : quadTree.getDisk(pickupCoord.getX(), pickupCoord.getY(), radius)) {
+					if (!reachingVehicles.contains(w.vehicleId) && w.departureTime
+							+ CoordUtils.calcEuclideanDistance(w.coord, pickupCoord) / maxBeelineSpeed
+							<= latestStartTime) {
+						reachingVehicles.add(w.vehicleId);
+					}
+				}
+			}
+
+			return vehicleEntries.stream().filter(e -> {
+				IndexedEntry indexedEntry = indexedEntries.get(e.vehicle.getId());
+				return indexedEntry == null
+						|| indexedEntry.start != e.start
+						|| reachingVehicles.contains(e.vehicle.getId());
+			}).collect(Collectors.toList());
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+}
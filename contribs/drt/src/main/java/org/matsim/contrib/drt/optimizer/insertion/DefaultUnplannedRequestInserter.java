@@ -19,22 +19,32 @@
 
 package org.matsim.contrib.drt.optimizer.insertion;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ForkJoinPool;
 import java.util.function.DoubleSupplier;
 import java.util.stream.Collectors;
 
+import javax.annotation.Nullable;
+
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
+import org.matsim.contrib.drt.analysis.zonal.DrtZonalSystem;
+import org.matsim.contrib.drt.analysis.zonal.DrtZone;
 import org.matsim.contrib.drt.optimizer.VehicleEntry;
 import org.matsim.contrib.drt.passenger.DrtRequest;
 import org.matsim.contrib.drt.run.DrtConfigGroup;
 import org.matsim.contrib.drt.scheduler.RequestInsertionScheduler;
+import org.matsim.contrib.drt.scheduler.RequestInsertionScheduler.PickupDropoffTaskPair;
 import org.matsim.contrib.dvrp.fleet.DvrpVehicle;
 import org.matsim.contrib.dvrp.fleet.Fleet;
 import org.matsim.contrib.dvrp.passenger.PassengerRequestRejectedEvent;
@@ -45,6 +55,14 @@ import org.matsim.core.mobsim.framework.MobsimTimer;
 import com.google.common.annotations.VisibleForTesting;
 
 /**
+ * By default, requests are inserted one after another, each into the best vehicle given the schedules updated by the
+ * preceding insertions. In the batch mode ({@link DrtConfigGroup#isBatchInsertion()}), the insertions of all requests
+ * are first evaluated in parallel, see {@link #scheduleUnplannedRequestsInBatches(List, Map, double)}.
+ * <p>
+ * In the regional mode ({@link DrtConfigGroup#isRegionalInsertion()}), requests and vehicles are first partitioned
+ * into the zones of {@link DrtZonalSystem} (e.g. service areas) and each zone is handled concurrently, see
+ * {@link #scheduleUnplannedRequestsInRegions(List, Map, double)}.
+ *
  * @author michalm
  */
 public class DefaultUnplannedRequestInserter implements UnplannedRequestInserter {
@@ -61,20 +79,37 @@ public class DefaultUnplannedRequestInserter implements UnplannedRequestInserter
 
 	private final ForkJoinPool forkJoinPool;
 	private final DrtInsertionSearch insertionSearch;
+	private final boolean batchInsertion;
+	@Nullable
+	private final DrtZonalSystem regions;
 
 	public DefaultUnplannedRequestInserter(DrtConfigGroup drtCfg, Fleet fleet, MobsimTimer mobsimTimer,
 			EventsManager eventsManager, RequestInsertionScheduler insertionScheduler,
 			VehicleEntry.EntryFactory vehicleEntryFactory, DrtInsertionSearch insertionSearch,
 			DrtRequestInsertionRetryQueue insertionRetryQueue, ForkJoinPool forkJoinPool) {
+		this(drtCfg, fleet, mobsimTimer, eventsManager, insertionScheduler, vehicleEntryFactory, insertionSearch,
+				insertionRetryQueue, forkJoinPool, null);
+	}
+
+	/**
+	 * @param regions zones used for partitioning requests and vehicles (only if
+	 *                {@link DrtConfigGroup#isRegionalInsertion()} is true)
+	 */
+	public DefaultUnplannedRequestInserter(DrtConfigGroup drtCfg, Fleet fleet, MobsimTimer mobsimTimer,
+			EventsManager eventsManager, RequestInsertionScheduler insertionScheduler,
+			VehicleEntry.EntryFactory vehicleEntryFactory, DrtInsertionSearch insertionSearch,
+			DrtRequestInsertionRetryQueue insertionRetryQueue, ForkJoinPool forkJoinPool,
+			@Nullable DrtZonalSystem regions) {
 		this(drtCfg.getMode(), fleet, mobsimTimer::getTimeOfDay, eventsManager, insertionScheduler, vehicleEntryFactory,
-				insertionRetryQueue, forkJoinPool, insertionSearch);
+				insertionRetryQueue, forkJoinPool, insertionSearch, drtCfg.isBatchInsertion(),
+				drtCfg.isRegionalInsertion() ? regions : null);
 	}
 
 	@VisibleForTesting
 	DefaultUnplannedRequestInserter(String mode, Fleet fleet, DoubleSupplier timeOfDay, EventsManager eventsManager,
 			RequestInsertionScheduler insertionScheduler, VehicleEntry.EntryFactory vehicleEntryFactory,
 			DrtRequestInsertionRetryQueue insertionRetryQueue, ForkJoinPool forkJoinPool,
-			DrtInsertionSearch insertionSearch) {
+			DrtInsertionSearch insertionSearch, boolean batchInsertion, @Nullable DrtZonalSystem regions) {
 		this.mode = mode;
 		this.fleet = fleet;
 		this.timeOfDay = timeOfDay;
@@ -84,6 +119,8 @@ public class DefaultUnplannedRequestInserter implements UnplannedRequestInserter
 		this.insertionRetryQueue = insertionRetryQueue;
 		this.forkJoinPool = forkJoinPool;
 		this.insertionSearch = insertionSearch;
+		this.batchInsertion = batchInsertion;
+		this.regions = regions;
 	}
 
 	@Override
@@ -102,6 +139,25 @@ public class DefaultUnplannedRequestInserter implements UnplannedRequestInserter
 				.filter(Objects::nonNull)
 				.collect(Collectors.toMap(e -> e.vehicle.getId(), e -> e))).join();
 
+		if (batchInsertion || regions != null) {
+			//old requests (to be retried) go first
+			List<DrtRequest> requests = new ArrayList<>(requestsToRetry);
+			requests.addAll(unplannedRequests);
+			unplannedRequests.clear();
+
+			if (regions != null) {
+				//requests not scheduled within their regions are then inserted into the whole fleet
+				requests = scheduleUnplannedRequestsInRegions(requests, vehicleEntries, now);
+			}
+
+			if (batchInsertion) {
+				scheduleUnplannedRequestsInBatches(requests, vehicleEntries, now);
+			} else {
+				requests.forEach(req -> scheduleUnplannedRequest(req, vehicleEntries, now));
+			}
+			return;
+		}
+
 		//first retry scheduling old requests
 		requestsToRetry.forEach(req -> scheduleUnplannedRequest(req, vehicleEntries, now));
 
@@ -116,6 +172,143 @@ public class DefaultUnplannedRequestInserter implements UnplannedRequestInserter
 			double now) {
 		Optional<InsertionWithDetourData> best = insertionSearch.findBestInsertion(req,
 				Collections.unmodifiableCollection(vehicleEntries.values()));
+		scheduleOrReject(req, best, vehicleEntries, now);
+	}
+
+	/**
+	 * The best insertions of all pending requests are evaluated in parallel against the same snapshot of vehicle
+	 * entries. Then they are applied in the order of the requests. If the vehicle of an insertion has already been
+	 * changed by a preceding insertion (from the same round), the insertion is discarded and the request is evaluated
+	 * again in the next round, against the updated entries. Requests without any insertion are rejected (or queued for
+	 * retry) right away.
+	 * <p>
+	 * Each round applies at least the insertion of the first pending request, and neither the evaluation (against an
+	 * immutable snapshot) nor the order of applying insertions depend on thread scheduling, so the outcome is
+	 * deterministic.
+	 */
+	private void scheduleUnplannedRequestsInBatches(List<DrtRequest> requests,
+			Map<Id<DvrpVehicle>, VehicleEntry> vehicleEntries, double now) {
+		List<DrtRequest> pendingRequests = requests;
+		while (!pendingRequests.isEmpty()) {
+			var batch = pendingRequests;
+			var snapshot = Collections.unmodifiableCollection(new ArrayList<>(vehicleEntries.values()));
+			List<Optional<InsertionWithDetourData>> bestInsertions = forkJoinPool.submit(() -> batch.parallelStream()
+					.map(req -> insertionSearch.findBestInsertion(req, snapshot))
+					.collect(Collectors.toList())).join();
+
+			Set<Id<DvrpVehicle>> modifiedVehicles = new HashSet<>();
+			pendingRequests = new ArrayList<>();
+			for (int i = 0; i < batch.size(); i++) {
+				var best = bestInsertions.get(i);
+				if (best.isPresent()) {
+					var vehicleId = best.get().insertion.vehicleEntry.vehicle.getId();
+					if (!modifiedVehicles.add(vehicleId)) {
+						pendingRequests.add(batch.get(i));
+						continue;
+					}
+				}
+				scheduleOrReject(batch.get(i), best, vehicleEntries, now);
+			}
+			log.debug("Batch insertion: " + (batch.size() - pendingRequests.size()) + " of " + batch.size()
+					+ " requests handled, " + pendingRequests.size() + " to be evaluated again");
+		}
+	}
+
+	private static class RegionalInsertionResult {
+		private final Map<Id<DvrpVehicle>, VehicleEntry> vehicleEntries;
+		private final Set<Id<DvrpVehicle>> modifiedVehicles = new HashSet<>();
+		private final List<PassengerRequestScheduledEvent> scheduledEvents = new ArrayList<>();
+		private final Set<DrtRequest> notScheduledRequests = new HashSet<>();
+
+		private RegionalInsertionResult(Map<Id<DvrpVehicle>, VehicleEntry> vehicleEntries) {
+			this.vehicleEntries = vehicleEntries;
+		}
+	}
+
+	/**
+	 * Requests (by the pickup link) and vehicles (by the start link of their entries) are partitioned into regions.
+	 * Regions are handled concurrently, each one like in the sequential mode, but only the vehicles of that region are
+	 * considered. Since the regions do not share vehicles, the schedules are modified concurrently only for different
+	 * vehicles (so {@link RequestInsertionScheduler} and {@link VehicleEntry.EntryFactory} must support that). Events
+	 * are emitted afterwards, on the calling thread, in the order of regions (i.e. the order in which the regions first
+	 * appear in the request list).
+	 *
+	 * @return requests that have not been scheduled (including those outside any region) in the original order; they
+	 * are then inserted into the whole fleet (cross-region fallback)
+	 */
+	private List<DrtRequest> scheduleUnplannedRequestsInRegions(List<DrtRequest> requests,
+			Map<Id<DvrpVehicle>, VehicleEntry> vehicleEntries, double now) {
+		Map<DrtZone, List<DrtRequest>> requestsByRegion = new LinkedHashMap<>();
+		for (DrtRequest req : requests) {
+			DrtZone region = regions.getZoneForLinkId(req.getFromLink().getId());
+			if (region != null) {
+				requestsByRegion.computeIfAbsent(region, r -> new ArrayList<>()).add(req);
+			}
+		}
+		if (requestsByRegion.isEmpty()) {
+			return requests;
+		}
+
+		Map<DrtZone, Map<Id<DvrpVehicle>, VehicleEntry>> entriesByRegion = new HashMap<>();
+		for (VehicleEntry entry : vehicleEntries.values()) {
+			DrtZone region = regions.getZoneForLinkId(entry.start.link.getId());
+			if (requestsByRegion.containsKey(region)) {
+				entriesByRegion.computeIfAbsent(region, r -> new HashMap<>()).put(entry.vehicle.getId(), entry);
+			}
+		}
+
+		List<RegionalInsertionResult> results = forkJoinPool.submit(() -> requestsByRegion.entrySet()
+				.parallelStream()
+				.map(e -> scheduleUnplannedRequestsInRegion(e.getValue(),
+						entriesByRegion.getOrDefault(e.getKey(), new HashMap<>()), now))
+				.collect(Collectors.toList())).join();
+
+		Set<DrtRequest> notScheduledRequests = new HashSet<>();
+		for (RegionalInsertionResult result : results) {
+			for (Id<DvrpVehicle> vehicleId : result.modifiedVehicles) {
+				VehicleEntry newVehicleEntry = result.vehicleEntries.get(vehicleId);
+				if (newVehicleEntry != null) {
+					vehicleEntries.put(vehicleId, newVehicleEntry);
+				} else {
+					vehicleEntries.remove(vehicleId);
+				}
+			}
+			result.scheduledEvents.forEach(eventsManager::processEvent);
+			notScheduledRequests.addAll(result.notScheduledRequests);
+		}
+
+		List<DrtRequest> remainingRequests = requests.stream()
+				.filter(req -> notScheduledRequests.contains(req) || regions.getZoneForLinkId(
+						req.getFromLink().getId()) == null)
+				.collect(Collectors.toList());
+		log.debug("Regional insertion: " + (requests.size() - remainingRequests.size()) + " of " + requests.size()
+				+ " requests scheduled in " + requestsByRegion.size() + " regions");
+		return remainingRequests;
+	}
+
+	private RegionalInsertionResult scheduleUnplannedRequestsInRegion(List<DrtRequest> requests,
+			Map<Id<DvrpVehicle>, VehicleEntry> vehicleEntries, double now) {
+		var result = new RegionalInsertionResult(vehicleEntries);
+		for (DrtRequest req : requests) {
+			Optional<InsertionWithDetourData> best = vehicleEntries.isEmpty() ?
+					Optional.empty() :
+					insertionSearch.findBestInsertion(req, Collections.unmodifiableCollection(vehicleEntries.values()));
+			if (best.isEmpty()) {
+				result.notScheduledRequests.add(req);
+				continue;
+			}
+
+			var vehicle = best.get().insertion.vehicleEntry.vehicle;
+			var pickupDropoffTaskPair = insertionScheduler.scheduleRequest(req, best.get());
+			updateVehicleEntry(vehicle, vehicleEntries, now);
+			result.modifiedVehicles.add(vehicle.getId());
+			result.scheduledEvents.add(createScheduledEvent(req, vehicle, pickupDropoffTaskPair, now));
+		}
+		return result;
+	}
+
+	private void scheduleOrReject(DrtRequest req, Optional<InsertionWithDetourData> best,
+			Map<Id<DvrpVehicle>, VehicleEntry> vehicleEntries, double now) {
 		if (best.isEmpty()) {
 			if (!insertionRetryQueue.tryAddFailedRequest(req, now)) {
 				eventsManager.processEvent(
@@ -132,18 +325,24 @@ public class DefaultUnplannedRequestInserter implements UnplannedRequestInserter
 			InsertionWithDetourData insertion = best.get();
 			var vehicle = insertion.insertion.vehicleEntry.vehicle;
 			var pickupDropoffTaskPair = insertionScheduler.scheduleRequest(req, insertion);
+			updateVehicleEntry(vehicle, vehicleEntries, now);
+			eventsManager.processEvent(createScheduledEvent(req, vehicle, pickupDropoffTaskPair, now));
+		}
+	}
 
-			VehicleEntry newVehicleEntry = vehicleEntryFactory.create(vehicle, now);
-			if (newVehicleEntry != null) {
-				vehicleEntries.put(vehicle.getId(), newVehicleEntry);
-			} else {
-				vehicleEntries.remove(vehicle.getId());
-			}
-
-			eventsManager.processEvent(
-					new PassengerRequestScheduledEvent(now, mode, req.getId(), req.getPassengerId(), vehicle.getId(),
-							pickupDropoffTaskPair.pickupTask.getEndTime(),
-							pickupDropoffTaskPair.dropoffTask.getBeginTime()));
+	private void updateVehicleEntry(DvrpVehicle vehicle, Map<Id<DvrpVehicle>, VehicleEntry> vehicleEntries,
+			double now) {
+		VehicleEntry newVehicleEntry = vehicleEntryFactory.create(vehicle, now);
+		if (newVehicleEntry != null) {
+			vehicleEntries.put(vehicle.getId(), newVehicleEntry);
+		} else {
+			vehicleEntries.remove(vehicle.getId());
 		}
 	}
+
+	private PassengerRequestScheduledEvent createScheduledEvent(DrtRequest req, DvrpVehicle vehicle,
+			PickupDropoffTaskPair pickupDropoffTaskPair, double now) {
+		return new PassengerRequestScheduledEvent(now, mode, req.getId(), req.getPassengerId(), vehicle.getId(),
+				pickupDropoffTaskPair.pickupTask.getEndTime(), pickupDropoffTaskPair.dropoffTask.getBeginTime());
+	}
 }
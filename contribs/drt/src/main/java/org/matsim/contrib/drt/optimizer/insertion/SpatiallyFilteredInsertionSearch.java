@@ -0,0 +1,51 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.drt.optimizer.insertion;
+
+import java.util.Collection;
+import java.util.Optional;
+
+import org.matsim.contrib.drt.optimizer.VehicleEntry;
+import org.matsim.contrib.drt.optimizer.VehicleEntryIndex;
+import org.matsim.contrib.drt.passenger.DrtRequest;
+
+/**
+ * Passes only the vehicles that may reach the pickup in time (according to {@link VehicleEntryIndex}) to the delegate
+ * search, so that insertions are not generated for the whole fleet.
+ */
+public class SpatiallyFilteredInsertionSearch implements DrtInsertionSearch {
+	private final VehicleEntryIndex vehicleEntryIndex;
+	private final DrtInsertionSearch delegate;
+
+	public SpatiallyFilteredInsertionSearch(VehicleEntryIndex vehicleEntryIndex, DrtInsertionSearch delegate) {
+		this.vehicleEntryIndex = vehicleEntryIndex;
+		this.delegate = delegate;
+	}
+
+	@Override
+	public Optional<InsertionWithDetourData> findBestInsertion(DrtRequest drtRequest,
+			Collection<VehicleEntry> vehicleEntries) {
+		var filteredEntries = vehicleEntryIndex.filterVehicleEntries(drtRequest, vehicleEntries);
+		return filteredEntries.isEmpty() ?
+				Optional.empty() :
+				delegate.findBestInsertion(drtRequest, filteredEntries);
+	}
+}
@@ -29,6 +29,7 @@ import org.matsim.contrib.drt.optimizer.insertion.DrtInsertionSearch;
 import org.matsim.contrib.drt.optimizer.insertion.InsertionCostCalculator;
 import org.matsim.contrib.drt.optimizer.insertion.InsertionDetourTimeCalculator;
 import org.matsim.contrib.drt.optimizer.insertion.InsertionWithDetourData;
+import org.matsim.contrib.drt.optimizer.insertion.InsertionWithDetourData.InsertionDetourData;
 import org.matsim.contrib.drt.passenger.DrtRequest;
 
 /**
@@ -57,11 +58,24 @@ final class ExtensiveInsertionSearch implements DrtInsertionSearch {
 			return Optional.empty();
 		}
 
-		DetourPathDataCache pathData = detourPathCalculator.calculatePaths(drtRequest, insertions);
-		return bestInsertionFinder.findBestInsertion(drtRequest, insertions.stream().map(i -> {
-			var insertionDetourData = pathData.createInsertionDetourData(i);
-			return new InsertionWithDetourData(i, insertionDetourData,
-					detourTimeCalculator.calculateDetourTimeInfo(i, insertionDetourData));
-		}));
+		return detourPathCalculator.calculatePaths(drtRequest, insertions, pathData -> {
+			var bestInsertion = bestInsertionFinder.findBestInsertion(drtRequest, insertions.stream().map(i -> {
+				var insertionDetourData = pathData.createInsertionDetourData(i);
+				return new InsertionWithDetourData(i, insertionDetourData,
+						detourTimeCalculator.calculateDetourTimeInfo(i, insertionDetourData));
+			}));
+			// the paths are created lazily from the search trees, which are reused once the searches are released
+			bestInsertion.ifPresent(insertion -> detachPaths(insertion.detourData));
+			return bestInsertion;
+		});
+	}
+
+	private static void detachPaths(InsertionDetourData detourData) {
+		detourData.detourToPickup.detach();
+		detourData.detourFromPickup.detach();
+		if (detourData.detourToDropoff != null) {// null if dropoff follows pickup
+			detourData.detourToDropoff.detach();
+		}
+		detourData.detourFromDropoff.detach();
 	}
 }
@@ -25,10 +25,13 @@ import static org.matsim.contrib.drt.optimizer.insertion.InsertionGenerator.Inse
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 import org.matsim.api.core.v01.IdMap;
@@ -49,15 +52,32 @@ import org.matsim.core.router.util.TravelTime;
 import com.google.common.annotations.VisibleForTesting;
 
 /**
+ * Path searches are not thread-safe. To allow computing the paths for several requests at the same time (see
+ * {@link DrtConfigGroup#isBatchInsertion()}), each call borrows a set of searches from a pool, which is extended on
+ * demand, so its size equals the maximum number of concurrent calls.
+ *
  * @author michalm
  */
 class MultiInsertionDetourPathCalculator implements MobsimBeforeCleanupListener {
 	public static final int MAX_THREADS = 4;
 
-	private final OneToManyPathSearch toPickupPathSearch;
-	private final OneToManyPathSearch fromPickupPathSearch;
-	private final OneToManyPathSearch toDropoffPathSearch;
-	private final OneToManyPathSearch fromDropoffPathSearch;
+	private static class PathSearches {
+		private final OneToManyPathSearch toPickupPathSearch;
+		private final OneToManyPathSearch fromPickupPathSearch;
+		private final OneToManyPathSearch toDropoffPathSearch;
+		private final OneToManyPathSearch fromDropoffPathSearch;
+
+		private PathSearches(OneToManyPathSearch toPickupPathSearch, OneToManyPathSearch fromPickupPathSearch,
+				OneToManyPathSearch toDropoffPathSearch, OneToManyPathSearch fromDropoffPathSearch) {
+			this.toPickupPathSearch = toPickupPathSearch;
+			this.fromPickupPathSearch = fromPickupPathSearch;
+			this.toDropoffPathSearch = toDropoffPathSearch;
+			this.fromDropoffPathSearch = fromDropoffPathSearch;
+		}
+	}
+
+	private final Supplier<PathSearches> pathSearchesFactory;
+	private final Queue<PathSearches> idlePathSearches = new ConcurrentLinkedQueue<>();
 
 	private final ExecutorService executorService;
 
@@ -67,30 +87,62 @@ class MultiInsertionDetourPathCalculator implements MobsimBeforeCleanupListener
 		IdMap<Node, Node> nodeMap = new IdMap<>(Node.class);
 		nodeMap.putAll(network.getNodes());
 
-		toPickupPathSearch = OneToManyPathSearch.createSearch(graph, nodeMap, travelTime, travelDisutility, true);
-		fromPickupPathSearch = OneToManyPathSearch.createSearch(graph, nodeMap, travelTime, travelDisutility, true);
-		toDropoffPathSearch = OneToManyPathSearch.createSearch(graph, nodeMap, travelTime, travelDisutility, true);
-		fromDropoffPathSearch = OneToManyPathSearch.createSearch(graph, nodeMap, travelTime, travelDisutility, true);
-		executorService = Executors.newFixedThreadPool(Math.min(drtCfg.getNumberOfThreads(), MAX_THREADS));
+		pathSearchesFactory = () -> new PathSearches(
+				OneToManyPathSearch.createSearch(graph, nodeMap, travelTime, travelDisutility, true),
+				OneToManyPathSearch.createSearch(graph, nodeMap, travelTime, travelDisutility, true),
+				OneToManyPathSearch.createSearch(graph, nodeMap, travelTime, travelDisutility, true),
+				OneToManyPathSearch.createSearch(graph, nodeMap, travelTime, travelDisutility, true));
+		// in the batch mode, requests are processed concurrently, so all threads may be used for computing paths
+		executorService = Executors.newFixedThreadPool(drtCfg.isBatchInsertion() ?
+				drtCfg.getNumberOfThreads() :
+				Math.min(drtCfg.getNumberOfThreads(), MAX_THREADS));
 	}
 
+	/**
+	 * The given path searches are shared by all calls, so this calculator must not be used concurrently.
+	 */
 	@VisibleForTesting
 	MultiInsertionDetourPathCalculator(OneToManyPathSearch toPickupPathSearch, OneToManyPathSearch fromPickupPathSearch,
 			OneToManyPathSearch toDropoffPathSearch, OneToManyPathSearch fromDropoffPathSearch, int numberOfThreads) {
-		this.toPickupPathSearch = toPickupPathSearch;
-		this.fromPickupPathSearch = fromPickupPathSearch;
-		this.toDropoffPathSearch = toDropoffPathSearch;
-		this.fromDropoffPathSearch = fromDropoffPathSearch;
+		var pathSearches = new PathSearches(toPickupPathSearch, fromPickupPathSearch, toDropoffPathSearch,
+				fromDropoffPathSearch);
+		pathSearchesFactory = () -> pathSearches;
 		executorService = Executors.newFixedThreadPool(Math.min(numberOfThreads, MAX_THREADS));
 	}
 
 	DetourPathDataCache calculatePaths(DrtRequest drtRequest, List<Insertion> filteredInsertions) {
+		return calculatePaths(drtRequest, filteredInsertions, Function.identity());
+	}
+
+	/**
+	 * The paths (see {@link PathData#detach()}) can be obtained only inside {@code pathDataProcessor}, as the searches
+	 * are returned to the pool (and so may be reused by the next call) afterwards.
+	 */
+	<R> R calculatePaths(DrtRequest drtRequest, List<Insertion> filteredInsertions,
+			Function<DetourPathDataCache, R> pathDataProcessor) {
+		var pathSearches = idlePathSearches.poll();
+		if (pathSearches == null) {
+			pathSearches = pathSearchesFactory.get();
+		}
+		try {
+			return pathDataProcessor.apply(calculatePaths(pathSearches, drtRequest, filteredInsertions));
+		} finally {
+			idlePathSearches.add(pathSearches);
+		}
+	}
+
+	private DetourPathDataCache calculatePaths(PathSearches searches, DrtRequest drtRequest,
+			List<Insertion> filteredInsertions) {
 		// with vehicle insertion filtering -- pathsToPickup is the most computationally demanding task, while
 		// pathsFromDropoff is the least demanding one
-		var pathsToPickupFuture = executorService.submit(() -> calcPathsToPickup(drtRequest, filteredInsertions));
-		var pathsFromPickupFuture = executorService.submit(() -> calcPathsFromPickup(drtRequest, filteredInsertions));
-		var pathsToDropoffFuture = executorService.submit(() -> calcPathsToDropoff(drtRequest, filteredInsertions));
-		var pathsFromDropoffFuture = executorService.submit(() -> calcPathsFromDropoff(drtRequest, filteredInsertions));
+		var pathsToPickupFuture = executorService.submit(
+				() -> calcPathsToPickup(searches.toPickupPathSearch, drtRequest, filteredInsertions));
+		var pathsFromPickupFuture = executorService.submit(
+				() -> calcPathsFromPickup(searches.fromPickupPathSearch, drtRequest, filteredInsertions));
+		var pathsToDropoffFuture = executorService.submit(
+				() -> calcPathsToDropoff(searches.toDropoffPathSearch, drtRequest, filteredInsertions));
+		var pathsFromDropoffFuture = executorService.submit(
+				() -> calcPathsFromDropoff(searches.fromDropoffPathSearch, drtRequest, filteredInsertions));
 
 		try {
 			return new DetourPathDataCache(pathsToPickupFuture.get(), pathsFromPickupFuture.get(),
@@ -100,7 +152,8 @@ class MultiInsertionDetourPathCalculator implements MobsimBeforeCleanupListener
 		}
 	}
 
-	private Map<Link, PathData> calcPathsToPickup(DrtRequest drtRequest, List<Insertion> filteredInsertions) {
+	private Map<Link, PathData> calcPathsToPickup(OneToManyPathSearch toPickupPathSearch, DrtRequest drtRequest,
+			List<Insertion> filteredInsertions) {
 		// calc backward dijkstra from pickup to ends of selected stops + starts
 		double earliestPickupTime = drtRequest.getEarliestStartTime(); // optimistic
 		Collection<Link> toLinks = getDetourLinks(filteredInsertions.stream(),
@@ -108,7 +161,8 @@ class MultiInsertionDetourPathCalculator implements MobsimBeforeCleanupListener
 		return toPickupPathSearch.calcPathDataMap(drtRequest.getFromLink(), toLinks, earliestPickupTime, false);
 	}
 
-	private Map<Link, PathData> calcPathsFromPickup(DrtRequest drtRequest, List<Insertion> filteredInsertions) {
+	private Map<Link, PathData> calcPathsFromPickup(OneToManyPathSearch fromPickupPathSearch, DrtRequest drtRequest,
+			List<Insertion> filteredInsertions) {
 		// calc forward dijkstra from pickup to beginnings of selected stops + dropoff
 		double earliestPickupTime = drtRequest.getEarliestStartTime(); // optimistic
 		Collection<Link> toLinks = getDetourLinks(filteredInsertions.stream(),
@@ -116,7 +170,8 @@ class MultiInsertionDetourPathCalculator implements MobsimBeforeCleanupListener
 		return fromPickupPathSearch.calcPathDataMap(drtRequest.getFromLink(), toLinks, earliestPickupTime, true);
 	}
 
-	private Map<Link, PathData> calcPathsToDropoff(DrtRequest drtRequest, List<Insertion> filteredInsertions) {
+	private Map<Link, PathData> calcPathsToDropoff(OneToManyPathSearch toDropoffPathSearch, DrtRequest drtRequest,
+			List<Insertion> filteredInsertions) {
 		// calc backward dijkstra from dropoff to ends of selected stops
 		double latestDropoffTime = drtRequest.getLatestArrivalTime(); // pessimistic
 		Collection<Link> toLinks = getDetourLinks(filteredInsertions.stream()
@@ -125,7 +180,8 @@ class MultiInsertionDetourPathCalculator implements MobsimBeforeCleanupListener
 		return toDropoffPathSearch.calcPathDataMap(drtRequest.getToLink(), toLinks, latestDropoffTime, false);
 	}
 
-	private Map<Link, PathData> calcPathsFromDropoff(DrtRequest drtRequest, List<Insertion> filteredInsertions) {
+	private Map<Link, PathData> calcPathsFromDropoff(OneToManyPathSearch fromDropoffPathSearch, DrtRequest drtRequest,
+			List<Insertion> filteredInsertions) {
 		// calc forward dijkstra from dropoff to beginnings of selected stops
 		double latestDropoffTime = drtRequest.getLatestArrivalTime(); // pessimistic
 		Collection<Link> toLinks = getDetourLinks(filteredInsertions.stream()
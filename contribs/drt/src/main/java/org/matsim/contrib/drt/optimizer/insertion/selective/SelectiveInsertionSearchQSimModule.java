@@ -27,6 +27,7 @@ import org.matsim.contrib.drt.optimizer.insertion.InsertionCostCalculator;
 import org.matsim.contrib.drt.run.DrtConfigGroup;
 import org.matsim.contrib.dvrp.run.AbstractDvrpModeQSimModule;
 import org.matsim.contrib.dvrp.run.DvrpModes;
+import org.matsim.contrib.dvrp.trafficmonitoring.DvrpTravelTimeModule;
 import org.matsim.contrib.zone.skims.TravelTimeMatrix;
 import org.matsim.core.controler.MatsimServices;
 import org.matsim.core.modal.ModalProviders;
@@ -48,15 +49,21 @@ public class SelectiveInsertionSearchQSimModule extends AbstractDvrpModeQSimModu
 	@Override
 	protected void configureQSim() {
 		addModalComponent(SelectiveInsertionSearch.class, modalProvider(getter -> {
+			// The restrictive estimator does not have to be admissible, so it can use the time-dependent matrix
+			// (available for the dvrp-global network only)
+			TravelTimeMatrix travelTimeMatrix = drtCfg.isUseModeFilteredSubnetwork() ?
+					getter.getModal(TravelTimeMatrix.class) :
+					getter.getNamed(TravelTimeMatrix.class, DvrpTravelTimeModule.DVRP_ESTIMATED);
 			SelectiveInsertionProvider provider = SelectiveInsertionProvider.create(drtCfg,
-					getter.getModal(InsertionCostCalculator.class), getter.getModal(TravelTimeMatrix.class),
+					getter.getModal(InsertionCostCalculator.class), travelTimeMatrix,
 					getter.getModal(TravelTime.class), getter.getModal(QSimScopeForkJoinPoolHolder.class).getPool());
 			// Use 0 as the cost for the selected insertion:
 			// - In the selective strategy, there is at most 1 insertion pre-selected. So no need to compute as there is
 			//   no other insertion to compare with.
 			// - We assume that the travel times obtained from DvrpTravelTimeMatrix are reasonably well estimated(*),
 			//   so we do not want to check for time window violations
-			//  Re (*) currently, free-speed travel times are quite accurate. We still need to adjust them to different times of day.
+			//  Re (*) currently, free-speed travel times are quite accurate. They can be adjusted to different times of day
+			//  by switching on DvrpTravelTimeMatrixParams.timeDependent.
 			InsertionCostCalculator zeroCostInsertionCostCalculator = (drtRequest, insertion, detourTimeInfo) -> 0;
 			return new SelectiveInsertionSearch(provider, getter.getModal(SingleInsertionDetourPathCalculator.class),
 					zeroCostInsertionCostCalculator, drtCfg, getter.get(MatsimServices.class));
@@ -25,6 +25,8 @@ import static org.matsim.contrib.drt.optimizer.insertion.InsertionWithDetourData
 import static org.matsim.contrib.dvrp.path.OneToManyPathSearch.PathData;
 import static org.matsim.contrib.dvrp.path.VrpPaths.FIRST_LINK_TT;
 
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -49,39 +51,78 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.Futures;
 
 /**
+ * Path calculators are not thread-safe. To allow computing the paths for several requests at the same time (see
+ * {@link DrtConfigGroup#isBatchInsertion()}), each call borrows a set of calculators from a pool, which is extended on
+ * demand, so its size equals the maximum number of concurrent calls.
+ *
  * @author Michal Maciejewski (michalm)
  */
 class SingleInsertionDetourPathCalculator implements MobsimBeforeCleanupListener {
 
 	public static final int MAX_THREADS = 4;
 
+	private static class PathSearches {
+		private final LeastCostPathCalculator toPickupPathSearch;
+		private final LeastCostPathCalculator fromPickupPathSearch;
+		private final LeastCostPathCalculator toDropoffPathSearch;
+		private final LeastCostPathCalculator fromDropoffPathSearch;
+
+		private PathSearches(Network network, TravelTime travelTime, TravelDisutility travelDisutility,
+				LeastCostPathCalculatorFactory pathCalculatorFactory) {
+			toPickupPathSearch = pathCalculatorFactory.createPathCalculator(network, travelDisutility, travelTime);
+			fromPickupPathSearch = pathCalculatorFactory.createPathCalculator(network, travelDisutility, travelTime);
+			toDropoffPathSearch = pathCalculatorFactory.createPathCalculator(network, travelDisutility, travelTime);
+			fromDropoffPathSearch = pathCalculatorFactory.createPathCalculator(network, travelDisutility, travelTime);
+		}
+	}
+
+	private final Network network;
 	private final TravelTime travelTime;
+	private final TravelDisutility travelDisutility;
+	private final LeastCostPathCalculatorFactory pathCalculatorFactory;
 
-	private final LeastCostPathCalculator toPickupPathSearch;
-	private final LeastCostPathCalculator fromPickupPathSearch;
-	private final LeastCostPathCalculator toDropoffPathSearch;
-	private final LeastCostPathCalculator fromDropoffPathSearch;
+	private final Queue<PathSearches> idlePathSearches = new ConcurrentLinkedQueue<>();
 
 	private final ExecutorService executorService;
 
 	SingleInsertionDetourPathCalculator(Network network, TravelTime travelTime,
 			TravelDisutility travelDisutility, DrtConfigGroup drtCfg) {
-		this(network, travelTime, travelDisutility, drtCfg.getNumberOfThreads(), new SpeedyALTFactory());
+		// in the batch mode, requests are processed concurrently, so all threads may be used for computing paths
+		this(network, travelTime, travelDisutility, new SpeedyALTFactory(), drtCfg.isBatchInsertion() ?
+				drtCfg.getNumberOfThreads() :
+				Math.min(drtCfg.getNumberOfThreads(), MAX_THREADS));
 	}
 
 	@VisibleForTesting
 	SingleInsertionDetourPathCalculator(Network network, TravelTime travelTime, TravelDisutility travelDisutility,
 			int numberOfThreads, LeastCostPathCalculatorFactory pathCalculatorFactory) {
-		this.travelTime = travelTime;
+		this(network, travelTime, travelDisutility, pathCalculatorFactory, Math.min(numberOfThreads, MAX_THREADS));
+	}
 
-		toPickupPathSearch = pathCalculatorFactory.createPathCalculator(network, travelDisutility, travelTime);
-		fromPickupPathSearch = pathCalculatorFactory.createPathCalculator(network, travelDisutility, travelTime);
-		toDropoffPathSearch = pathCalculatorFactory.createPathCalculator(network, travelDisutility, travelTime);
-		fromDropoffPathSearch = pathCalculatorFactory.createPathCalculator(network, travelDisutility, travelTime);
-		executorService = Executors.newFixedThreadPool(Math.min(numberOfThreads, MAX_THREADS));
+	private SingleInsertionDetourPathCalculator(Network network, TravelTime travelTime,
+			TravelDisutility travelDisutility, LeastCostPathCalculatorFactory pathCalculatorFactory,
+			int executorThreads) {
+		this.network = network;
+		this.travelTime = travelTime;
+		this.travelDisutility = travelDisutility;
+		this.pathCalculatorFactory = pathCalculatorFactory;
+		idlePathSearches.add(new PathSearches(network, travelTime, travelDisutility, pathCalculatorFactory));
+		executorService = Executors.newFixedThreadPool(executorThreads);
 	}
 
 	InsertionDetourData calculatePaths(DrtRequest drtRequest, Insertion insertion) {
+		var pathSearches = idlePathSearches.poll();
+		if (pathSearches == null) {
+			pathSearches = new PathSearches(network, travelTime, travelDisutility, pathCalculatorFactory);
+		}
+		try {
+			return calculatePaths(pathSearches, drtRequest, insertion);
+		} finally {
+			idlePathSearches.add(pathSearches);
+		}
+	}
+
+	private InsertionDetourData calculatePaths(PathSearches searches, DrtRequest drtRequest, Insertion insertion) {
 		Link pickup = drtRequest.getFromLink();
 		Link dropoff = drtRequest.getToLink();
 
@@ -92,23 +133,23 @@ class SingleInsertionDetourPathCalculator implements MobsimBeforeCleanupListener
 		//  passing it as an argument, instead of Insertion)
 
 		Future<PathData> toPickupFuture = executorService.submit(
-				() -> calcPathData(toPickupPathSearch, insertion.pickup.previousWaypoint.getLink(), pickup,
+				() -> calcPathData(searches.toPickupPathSearch, insertion.pickup.previousWaypoint.getLink(), pickup,
 						earliestPickupTime));
 
 		Future<PathData> fromPickupFuture = executorService.submit(
-				() -> calcPathData(fromPickupPathSearch, pickup, insertion.pickup.nextWaypoint.getLink(),
+				() -> calcPathData(searches.fromPickupPathSearch, pickup, insertion.pickup.nextWaypoint.getLink(),
 						earliestPickupTime));
 
 		Future<PathData> toDropoffFuture = insertion.dropoff.previousWaypoint instanceof Waypoint.Pickup ?
 				Futures.immediateFuture(null) :
 				executorService.submit(
-						() -> calcPathData(toDropoffPathSearch, insertion.dropoff.previousWaypoint.getLink(), dropoff,
+						() -> calcPathData(searches.toDropoffPathSearch, insertion.dropoff.previousWaypoint.getLink(), dropoff,
 								latestDropoffTime));
 
 		Future<PathData> fromDropoffFuture = insertion.dropoff.nextWaypoint instanceof Waypoint.End ?
 				Futures.immediateFuture(PathData.EMPTY) :
 				executorService.submit(
-						() -> calcPathData(fromDropoffPathSearch, dropoff, insertion.dropoff.nextWaypoint.getLink(),
+						() -> calcPathData(searches.fromDropoffPathSearch, dropoff, insertion.dropoff.nextWaypoint.getLink(),
 								latestDropoffTime));
 
 		try {
@@ -46,4 +46,16 @@ public interface RebalancingStrategy {
 	 *
 	 */
 	List<Relocation> calcRelocations(Stream<? extends DvrpVehicle> rebalancableVehicles, double time);
+
+	/**
+	 * Relevant only for strategies that calculate relocations asynchronously (i.e. return them at a later time
+	 * step, but not later than the next call to {@link #calcRelocations(Stream, double)}). This method is called at
+	 * each time step and must not block.
+	 *
+	 * @return relocations calculated since the last rebalancing step, if ready (some vehicles may no longer be
+	 * rebalancable)
+	 */
+	default List<Relocation> pollRelocations() {
+		return List.of();
+	}
 }
@@ -22,6 +22,10 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
 
 import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.network.Link;
@@ -31,13 +35,15 @@ import org.matsim.contrib.drt.optimizer.rebalancing.RebalancingStrategy.Relocati
 import org.matsim.contrib.dvrp.fleet.DvrpVehicle;
 import org.matsim.contrib.dvrp.schedule.Schedules;
 import org.matsim.contrib.common.util.DistanceUtils;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeCleanupListener;
 
 /**
  * Computes inter-zonal flows at the zonal (aggregated) level (i.e. without looking into individual vehicles)
  *
  * @author michalm
  */
-public class AggregatedMinCostRelocationCalculator implements ZonalRelocationCalculator {
+public class AggregatedMinCostRelocationCalculator implements ZonalRelocationCalculator, MobsimBeforeCleanupListener {
 	public static class DrtZoneVehicleSurplus {
 		public final DrtZone zone;
 		public final int surplus;
@@ -49,15 +55,71 @@ public class AggregatedMinCostRelocationCalculator implements ZonalRelocationCal
 	}
 
 	private final DrtZoneTargetLinkSelector targetLinkSelector;
+	private final Function<List<DrtZoneVehicleSurplus>, List<TransportProblem.Flow<DrtZone, DrtZone>>> transportProblemSolver;
+	private final ExecutorService executorService;// null if synchronous
+
+	// asynchronous mode: the flows being calculated and the vehicles to be relocated
+	private CompletableFuture<List<TransportProblem.Flow<DrtZone, DrtZone>>> pendingFlows;
+	private Map<DrtZone, List<DvrpVehicle>> pendingRebalancableVehiclesPerZone;
 
 	public AggregatedMinCostRelocationCalculator(DrtZoneTargetLinkSelector targetLinkSelector) {
+		this(targetLinkSelector, TransportProblem::solveForVehicleSurplus, false);
+	}
+
+	/**
+	 * @param transportProblemSolver calculates the flows of vehicles between zones
+	 * @param asynchronous           if true, the flows are calculated in a background thread while the mobsim
+	 *                               continues; the relocations are returned by {@link #pollRelocations()} once
+	 *                               ready, but at the latest by the next call to
+	 *                               {@link #calcRelocations(List, Map)} (i.e. at the next rebalancing step)
+	 */
+	public AggregatedMinCostRelocationCalculator(DrtZoneTargetLinkSelector targetLinkSelector,
+			Function<List<DrtZoneVehicleSurplus>, List<TransportProblem.Flow<DrtZone, DrtZone>>> transportProblemSolver,
+			boolean asynchronous) {
 		this.targetLinkSelector = targetLinkSelector;
+		this.transportProblemSolver = transportProblemSolver;
+		this.executorService = asynchronous ? Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "AggregatedMinCostRelocationCalculator");
+			thread.setDaemon(true);
+			return thread;
+		}) : null;
 	}
 
 	@Override
 	public List<Relocation> calcRelocations(List<DrtZoneVehicleSurplus> vehicleSurplus,
 			Map<DrtZone, List<DvrpVehicle>> rebalancableVehiclesPerZone) {
-		return calcRelocations(rebalancableVehiclesPerZone, TransportProblem.solveForVehicleSurplus(vehicleSurplus));
+		if (executorService == null) {
+			return calcRelocations(rebalancableVehiclesPerZone, transportProblemSolver.apply(vehicleSurplus));
+		}
+
+		// normally already collected by pollRelocations() at one of the preceding time steps; otherwise, the next
+		// rebalancing step is the deadline, so wait for the calculation to finish
+		List<Relocation> previousRelocations = collectRelocations();
+		pendingRebalancableVehiclesPerZone = rebalancableVehiclesPerZone;
+		pendingFlows = CompletableFuture.supplyAsync(() -> transportProblemSolver.apply(vehicleSurplus),
+				executorService);
+		return previousRelocations;
+	}
+
+	@Override
+	public List<Relocation> pollRelocations() {
+		// never block the mobsim thread before the deadline (i.e. the next rebalancing step)
+		if (pendingFlows == null || !pendingFlows.isDone()) {
+			return List.of();
+		}
+		return collectRelocations();
+	}
+
+	private List<Relocation> collectRelocations() {
+		if (pendingFlows == null) {
+			return List.of();
+		}
+		List<TransportProblem.Flow<DrtZone, DrtZone>> flows = pendingFlows.join();
+		Map<DrtZone, List<DvrpVehicle>> rebalancableVehiclesPerZone = pendingRebalancableVehiclesPerZone;
+		pendingFlows = null;
+		pendingRebalancableVehiclesPerZone = null;
+		// vehicles are matched to the flows here (i.e. in the mobsim thread), since this requires reading schedules
+		return calcRelocations(rebalancableVehiclesPerZone, flows);
 	}
 
 	private List<Relocation> calcRelocations(Map<DrtZone, List<DvrpVehicle>> rebalancableVehiclesPerZone,
@@ -78,6 +140,15 @@ public class AggregatedMinCostRelocationCalculator implements ZonalRelocationCal
 		return relocations;
 	}
 
+	@Override
+	public void notifyMobsimBeforeCleanup(MobsimBeforeCleanupEvent e) {
+		if (executorService != null) {
+			pendingFlows = null;
+			pendingRebalancableVehiclesPerZone = null;
+			executorService.shutdownNow();
+		}
+	}
+
 	private DvrpVehicle findNearestVehicle(List<DvrpVehicle> rebalancableVehicles, Link destinationLink) {
 		Coord toCoord = destinationLink.getFromNode().getCoord();
 		return rebalancableVehicles.stream()
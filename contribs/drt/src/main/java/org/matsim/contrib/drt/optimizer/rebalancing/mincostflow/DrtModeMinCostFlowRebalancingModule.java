@@ -96,9 +96,24 @@ public class DrtModeMinCostFlowRebalancingModule extends AbstractDvrpModeModule
 								+ strategyParams.getZonalDemandEstimatorType());
 				}
 
-				bindModal(ZonalRelocationCalculator.class).toProvider(modalProvider(
-						getter -> new AggregatedMinCostRelocationCalculator(
-								getter.getModal(DrtZoneTargetLinkSelector.class)))).asEagerSingleton();
+				addModalComponent(AggregatedMinCostRelocationCalculator.class, modalProvider(getter -> {
+					var targetLinkSelector = getter.getModal(DrtZoneTargetLinkSelector.class);
+					switch (strategyParams.getTransportProblemSolver()) {
+						case MinCostFlow:
+							return new AggregatedMinCostRelocationCalculator(targetLinkSelector,
+									TransportProblem::solveForVehicleSurplus, strategyParams.isAsynchronous());
+
+						case SuccessiveShortestPaths:
+							var transportProblem = new ZonalTransportProblem(getter.getModal(DrtZonalSystem.class));
+							return new AggregatedMinCostRelocationCalculator(targetLinkSelector,
+									transportProblem::solveForVehicleSurplus, strategyParams.isAsynchronous());
+
+						default:
+							throw new IllegalArgumentException(
+									"Unsupported transportProblemSolver=" + strategyParams.getTransportProblemSolver());
+					}
+				}));
+				bindModal(ZonalRelocationCalculator.class).to(modalKey(AggregatedMinCostRelocationCalculator.class));
 			}
 		});
 
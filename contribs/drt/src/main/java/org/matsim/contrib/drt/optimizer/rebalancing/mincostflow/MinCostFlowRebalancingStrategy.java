@@ -87,4 +87,9 @@ public class MinCostFlowRebalancingStrategy implements RebalancingStrategy {
 
 		return relocationCalculator.calcRelocations(vehicleSurpluses, rebalancableVehiclesPerZone);
 	}
+
+	@Override
+	public List<Relocation> pollRelocations() {
+		return relocationCalculator.pollRelocations();
+	}
 }
@@ -41,6 +41,10 @@ public final class MinCostFlowRebalancingStrategyParams extends ReflectiveConfig
 		PreviousIterationDemand, None
 	}
 
+	public enum TransportProblemSolverType {
+		MinCostFlow, SuccessiveShortestPaths
+	}
+
 	public static final String TARGET_ALPHA = "targetAlpha";
 	static final String TARGET_ALPHA_EXP = "alpha coefficient in linear target calculation."
 			+ " In general, should be lower than 1.0 to prevent over-reacting and high empty mileage.";
@@ -66,6 +70,17 @@ public final class MinCostFlowRebalancingStrategyParams extends ReflectiveConfig
 			+ " Used when 'zonalDemandEstimatorType' is not set to 'None'."
 			+ " Default value is 1800 s.";
 
+	public static final String TRANSPORT_PROBLEM_SOLVER = "transportProblemSolver";
+	static final String TRANSPORT_PROBLEM_SOLVER_EXP = "Defines the solver of the transport problem."
+			+ " Can be one of [MinCostFlow, SuccessiveShortestPaths]. SuccessiveShortestPaths is faster"
+			+ " (in particular for many zones), but may break ties differently. Current default is MinCostFlow";
+
+	public static final String ASYNCHRONOUS = "asynchronous";
+	static final String ASYNCHRONOUS_EXP = "If true, the transport problem is solved in a background thread"
+			+ " while the mobsim continues, and the vehicles are relocated at the first time step after the solution"
+			+ " is ready, but not later than at the next rebalancing step (vehicles that are no longer idle are not"
+			+ " relocated). Since the lag depends on the solver speed, runs are not deterministic. Default is false";
+
 	@NotNull
 	private RebalancingTargetCalculatorType rebalancingTargetCalculatorType = RebalancingTargetCalculatorType.EstimatedDemand;
 
@@ -81,6 +96,11 @@ public final class MinCostFlowRebalancingStrategyParams extends ReflectiveConfig
 	@NotNull
 	private ZonalDemandEstimatorType zonalDemandEstimatorType = ZonalDemandEstimatorType.PreviousIterationDemand;
 
+	@NotNull
+	private TransportProblemSolverType transportProblemSolver = TransportProblemSolverType.MinCostFlow;
+
+	private boolean asynchronous = false;
+
 	public MinCostFlowRebalancingStrategyParams() {
 		super(SET_NAME);
 	}
@@ -92,6 +112,8 @@ public final class MinCostFlowRebalancingStrategyParams extends ReflectiveConfig
 		map.put(TARGET_BETA, TARGET_BETA_EXP);
 		map.put(ZONAL_DEMAND_ESTIMATOR_TYPE, ZONAL_DEMAND_ESTIMATOR_TYPE_EXP);
 		map.put(DEMAND_ESTIMATION_PERIOD, DEMAND_ESTIMATION_PERIOD_EXP);
+		map.put(TRANSPORT_PROBLEM_SOLVER, TRANSPORT_PROBLEM_SOLVER_EXP);
+		map.put(ASYNCHRONOUS, ASYNCHRONOUS_EXP);
 		return map;
 	}
 
@@ -174,4 +196,36 @@ public final class MinCostFlowRebalancingStrategyParams extends ReflectiveConfig
 	public void setZonalDemandEstimatorType(ZonalDemandEstimatorType estimatorType) {
 		this.zonalDemandEstimatorType = estimatorType;
 	}
+
+	/**
+	 * @return -- {@value #TRANSPORT_PROBLEM_SOLVER_EXP}
+	 */
+	@StringGetter(TRANSPORT_PROBLEM_SOLVER)
+	public TransportProblemSolverType getTransportProblemSolver() {
+		return transportProblemSolver;
+	}
+
+	/**
+	 * @param transportProblemSolver -- {@value #TRANSPORT_PROBLEM_SOLVER_EXP}
+	 */
+	@StringSetter(TRANSPORT_PROBLEM_SOLVER)
+	public void setTransportProblemSolver(TransportProblemSolverType transportProblemSolver) {
+		this.transportProblemSolver = transportProblemSolver;
+	}
+
+	/**
+	 * @return -- {@value #ASYNCHRONOUS_EXP}
+	 */
+	@StringGetter(ASYNCHRONOUS)
+	public boolean isAsynchronous() {
+		return asynchronous;
+	}
+
+	/**
+	 * @param asynchronous -- {@value #ASYNCHRONOUS_EXP}
+	 */
+	@StringSetter(ASYNCHRONOUS)
+	public void setAsynchronous(boolean asynchronous) {
+		this.asynchronous = asynchronous;
+	}
 }
@@ -49,7 +49,7 @@ public class TransportProblem<P, C> {
 		return new TransportProblem<DrtZone, DrtZone>(TransportProblem::calcStraightLineDistance).solve(supply, demand);
 	}
 
-	private static int calcStraightLineDistance(DrtZone zone1, DrtZone zone2) {
+	static int calcStraightLineDistance(DrtZone zone1, DrtZone zone2) {
 		return (int)DistanceUtils.calculateDistance(zone1.getCentroid(), zone2.getCentroid());
 	}
 
@@ -58,7 +58,7 @@ public class TransportProblem<P, C> {
 		public final C destination;
 		public final int amount;
 
-		private Flow(P origin, C destination, int amount) {
+		Flow(P origin, C destination, int amount) {
 			this.origin = origin;
 			this.destination = destination;
 			this.amount = amount;
@@ -0,0 +1,293 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.optimizer.rebalancing.mincostflow;
+
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Successive shortest path algorithm for the (possibly unbalanced) transportation problem: ship
+ * {@code min(total supply, total demand)} units from producers to consumers at minimum cost. Unlike
+ * {@link graphs.flows.MinCostFlow} (used by {@link TransportProblem}), it operates directly on the dense
+ * producer-consumer cost matrix using primitive arrays only (no edge objects, no boxed priority queue entries).
+ * <p>
+ * Node potentials keep the reduced costs non-negative, so each shortest path is found with Dijkstra's algorithm, which
+ * stops as soon as the nearest consumer with remaining demand is known.
+ * <p>
+ * Producers have node indices {@code [0, P)}, consumers {@code [P, P + C)}; the source and the sink are implicit.
+ */
+public final class TransportProblemSolver {
+	private static final long INFINITY = Long.MAX_VALUE / 4;
+
+	private final int P;
+	private final int C;
+	private final int[] costs;
+
+	private final int[] flows;
+	private final int[] remainingSupply;
+	private final int[] remainingDemand;
+
+	// reduced cost of arc a->b: cost(a, b) + potential(a) - potential(b)
+	private final long[] potentials;
+	private long sourcePotential = Long.MIN_VALUE;
+	private long sinkPotential = 0;
+
+	private final long[] dist;
+	private final int[] pred;// of producers: consumer (backward arc) or -1 (source); of consumers: producer
+	private final boolean[] finished;
+	private final MinHeap heap;
+
+	/**
+	 * @param supply supply of each producer
+	 * @param demand demand of each consumer
+	 * @param costs  costs per unit shipped, row-major {@code supply.length x demand.length} matrix
+	 * @return flows, row-major {@code supply.length x demand.length} matrix
+	 */
+	public static int[] solve(int[] supply, int[] demand, int[] costs) {
+		Preconditions.checkArgument(costs.length == supply.length * demand.length);
+		var solver = new TransportProblemSolver(supply, demand, costs);
+		if (supply.length > 0 && demand.length > 0) {
+			solver.solve();
+		}
+		return solver.flows;
+	}
+
+	private TransportProblemSolver(int[] supply, int[] demand, int[] costs) {
+		P = supply.length;
+		C = demand.length;
+		this.costs = costs;
+
+		flows = new int[P * C];
+		remainingSupply = supply.clone();
+		remainingDemand = demand.clone();
+
+		potentials = new long[P + C];// consumers: 0 (as the sink)
+		for (int i = 0; i < P; i++) {
+			long minCost = INFINITY;
+			for (int j = 0; j < C; j++) {
+				minCost = Math.min(minCost, costs[i * C + j]);
+			}
+			potentials[i] = -minCost;// so that all arcs i->j have non-negative reduced costs
+			sourcePotential = Math.max(sourcePotential, potentials[i]);
+		}
+
+		dist = new long[P + C];
+		pred = new int[P + C];
+		finished = new boolean[P + C];
+		heap = new MinHeap(P + C, dist);
+	}
+
+	private void solve() {
+		while (true) {
+			int lastConsumer = findShortestPath();
+			if (lastConsumer < 0) {
+				return;// no more augmenting paths
+			}
+			augment(lastConsumer);
+		}
+	}
+
+	/**
+	 * Dijkstra from the source (i.e. from all producers with remaining supply). Also updates the potentials.
+	 *
+	 * @return the last consumer on the shortest path to the sink, or -1 if the sink is not reachable
+	 */
+	private int findShortestPath() {
+		Arrays.fill(dist, INFINITY);
+		Arrays.fill(finished, false);
+		heap.clear();
+		for (int i = 0; i < P; i++) {
+			if (remainingSupply[i] > 0) {
+				dist[i] = sourcePotential - potentials[i];
+				pred[i] = -1;
+				heap.insertOrDecrease(i);
+			}
+		}
+
+		long sinkDist = INFINITY;
+		int lastConsumer = -1;
+		while (!heap.isEmpty() && dist[heap.peek()] < sinkDist) {
+			int u = heap.poll();
+			finished[u] = true;
+			long du = dist[u] + potentials[u];
+			if (u < P) {
+				// forward arcs: producer -> consumer
+				int row = u * C;
+				for (int j = 0; j < C; j++) {
+					int v = P + j;
+					if (!finished[v]) {
+						long d = du + costs[row + j] - potentials[v];
+						if (d < dist[v]) {
+							dist[v] = d;
+							pred[v] = u;
+							heap.insertOrDecrease(v);
+						}
+					}
+				}
+			} else {
+				int j = u - P;
+				if (remainingDemand[j] > 0) {
+					long d = du - sinkPotential;
+					if (d < sinkDist) {
+						sinkDist = d;
+						lastConsumer = j;
+					}
+				}
+				// backward arcs: consumer -> producer (if there is a flow to reduce)
+				for (int i = 0; i < P; i++) {
+					if (!finished[i] && flows[i * C + j] > 0) {
+						long d = du - costs[i * C + j] - potentials[i];
+						if (d < dist[i]) {
+							dist[i] = d;
+							pred[i] = u;
+							heap.insertOrDecrease(i);
+						}
+					}
+				}
+			}
+		}
+
+		if (lastConsumer >= 0) {
+			// nodes not finished are at least as far as the sink
+			for (int n = 0; n < P + C; n++) {
+				potentials[n] += Math.min(dist[n], sinkDist);
+			}
+			sinkPotential += sinkDist;
+		}
+		return lastConsumer;
+	}
+
+	private void augment(int lastConsumer) {
+		int amount = remainingDemand[lastConsumer];
+		for (int v = P + lastConsumer; ; ) {
+			int i = pred[v];
+			if (pred[i] < 0) {
+				amount = Math.min(amount, remainingSupply[i]);
+				break;
+			}
+			v = pred[i];
+			amount = Math.min(amount, flows[i * C + v - P]);
+		}
+
+		remainingDemand[lastConsumer] -= amount;
+		for (int v = P + lastConsumer; ; ) {
+			int i = pred[v];
+			flows[i * C + v - P] += amount;
+			if (pred[i] < 0) {
+				remainingSupply[i] -= amount;
+				break;
+			}
+			v = pred[i];
+			flows[i * C + v - P] -= amount;
+		}
+	}
+
+	/**
+	 * Binary min-heap of node indices ordered by {@code keys}, with decrease-key support.
+	 */
+	private static final class MinHeap {
+		private final int[] heap;
+		private final int[] positions;// -1 if not in the heap
+		private final long[] keys;
+		private int size;
+
+		private MinHeap(int capacity, long[] keys) {
+			heap = new int[capacity];
+			positions = new int[capacity];
+			this.keys = keys;
+			Arrays.fill(positions, -1);
+		}
+
+		private boolean isEmpty() {
+			return size == 0;
+		}
+
+		private void clear() {
+			for (int k = 0; k < size; k++) {
+				positions[heap[k]] = -1;
+			}
+			size = 0;
+		}
+
+		private int peek() {
+			return heap[0];
+		}
+
+		private int poll() {
+			int top = heap[0];
+			positions[top] = -1;
+			size--;
+			if (size > 0) {
+				heap[0] = heap[size];
+				positions[heap[0]] = 0;
+				siftDown(0);
+			}
+			return top;
+		}
+
+		private void insertOrDecrease(int node) {
+			int k = positions[node];
+			if (k < 0) {
+				k = size++;
+				heap[k] = node;
+				positions[node] = k;
+			}
+			siftUp(k);
+		}
+
+		private void siftUp(int k) {
+			int node = heap[k];
+			long key = keys[node];
+			while (k > 0) {
+				int parent = (k - 1) >>> 1;
+				if (keys[heap[parent]] <= key) {
+					break;
+				}
+				heap[k] = heap[parent];
+				positions[heap[k]] = k;
+				k = parent;
+			}
+			heap[k] = node;
+			positions[node] = k;
+		}
+
+		private void siftDown(int k) {
+			int node = heap[k];
+			long key = keys[node];
+			while (true) {
+				int child = 2 * k + 1;
+				if (child >= size) {
+					break;
+				}
+				if (child + 1 < size && keys[heap[child + 1]] < keys[heap[child]]) {
+					child++;
+				}
+				if (keys[heap[child]] >= key) {
+					break;
+				}
+				heap[k] = heap[child];
+				positions[heap[k]] = k;
+				k = child;
+			}
+			heap[k] = node;
+			positions[node] = k;
+		}
+	}
+}
@@ -37,4 +37,16 @@ public interface ZonalRelocationCalculator {
 	 */
 	List<Relocation> calcRelocations(List<DrtZoneVehicleSurplus> vehicleSurplus,
 			Map<DrtZone, List<DvrpVehicle>> rebalancableVehiclesPerZone);
+
+	/**
+	 * Relevant only for calculators that calculate relocations asynchronously (i.e. return them at a later time
+	 * step, but not later than the next call to {@link #calcRelocations(List, Map)}). Called at each time step, must
+	 * not block.
+	 *
+	 * @return relocations calculated since the last rebalancing step, if ready (some vehicles may no longer be
+	 * rebalancable)
+	 */
+	default List<Relocation> pollRelocations() {
+		return List.of();
+	}
 }
@@ -0,0 +1,105 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.optimizer.rebalancing.mincostflow;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.contrib.drt.analysis.zonal.DrtZonalSystem;
+import org.matsim.contrib.drt.analysis.zonal.DrtZone;
+import org.matsim.contrib.drt.optimizer.rebalancing.mincostflow.AggregatedMinCostRelocationCalculator.DrtZoneVehicleSurplus;
+import org.matsim.contrib.drt.optimizer.rebalancing.mincostflow.TransportProblem.Flow;
+
+/**
+ * Transport problem between the zones of a zonal system, solved with {@link TransportProblemSolver}. The costs are the
+ * same as in {@link TransportProblem#solveForVehicleSurplus(List)} (straight-line distances between the zone
+ * centroids), but they are calculated only once per origin zone and then cached.
+ * <p>
+ * Not thread-safe: must not be used by more than one thread at a time.
+ */
+public class ZonalTransportProblem {
+	private final Map<DrtZone, Integer> zoneIndices = new HashMap<>();
+	private final DrtZone[] zones;
+	private final int[][] costRows;// [from zone][to zone], calculated lazily
+
+	public ZonalTransportProblem(DrtZonalSystem zonalSystem) {
+		zones = zonalSystem.getZones().values().toArray(new DrtZone[0]);
+		for (int i = 0; i < zones.length; i++) {
+			zoneIndices.put(zones[i], i);
+		}
+		costRows = new int[zones.length][];
+	}
+
+	public List<Flow<DrtZone, DrtZone>> solveForVehicleSurplus(List<DrtZoneVehicleSurplus> vehicleSurplus) {
+		List<DrtZoneVehicleSurplus> supply = new ArrayList<>();
+		List<DrtZoneVehicleSurplus> demand = new ArrayList<>();
+		for (DrtZoneVehicleSurplus s : vehicleSurplus) {
+			if (s.surplus > 0) {
+				supply.add(s);
+			} else if (s.surplus < 0) {
+				demand.add(s);
+			}
+		}
+
+		int P = supply.size();
+		int C = demand.size();
+		int[] supplyValues = new int[P];
+		int[] demandValues = new int[C];
+		int[] demandZoneIndices = new int[C];
+		for (int j = 0; j < C; j++) {
+			demandValues[j] = -demand.get(j).surplus;
+			demandZoneIndices[j] = zoneIndices.get(demand.get(j).zone);
+		}
+		int[] costs = new int[P * C];
+		for (int i = 0; i < P; i++) {
+			supplyValues[i] = supply.get(i).surplus;
+			int[] costRow = getCostRow(zoneIndices.get(supply.get(i).zone));
+			for (int j = 0; j < C; j++) {
+				costs[i * C + j] = costRow[demandZoneIndices[j]];
+			}
+		}
+
+		int[] flows = TransportProblemSolver.solve(supplyValues, demandValues, costs);
+
+		List<Flow<DrtZone, DrtZone>> result = new ArrayList<>();
+		for (int i = 0; i < P; i++) {
+			for (int j = 0; j < C; j++) {
+				int flow = flows[i * C + j];
+				if (flow > 0) {
+					result.add(new Flow<>(supply.get(i).zone, demand.get(j).zone, flow));
+				}
+			}
+		}
+		return result;
+	}
+
+	private int[] getCostRow(int fromZoneIdx) {
+		int[] costRow = costRows[fromZoneIdx];
+		if (costRow == null) {
+			DrtZone fromZone = zones[fromZoneIdx];
+			costRow = costRows[fromZoneIdx] = new int[zones.length];
+			for (int toZoneIdx = 0; toZoneIdx < zones.length; toZoneIdx++) {
+				costRow[toZoneIdx] = TransportProblem.calcStraightLineDistance(fromZone, zones[toZoneIdx]);
+			}
+		}
+		return costRow;
+	}
+}
@@ -153,6 +153,31 @@ public final class DrtConfigGroup extends ReflectiveConfigGroupWithConfigurableP
 					+ " using up to 4 threads."
 					+ " Default value is the number of cores available to JVM.";
 
+	public static final String BATCH_INSERTION = "batchInsertion";
+	static final String BATCH_INSERTION_EXP =
+			"If true, the insertions of all requests submitted within one time step are evaluated in parallel"
+					+ " against the same state of the vehicle schedules. The best insertions are then applied in the order"
+					+ " of submission; requests whose best vehicle has already been changed by a preceding insertion are"
+					+ " evaluated again. The results are deterministic, but may differ from the (default) sequential insertion."
+					+ " Useful if many requests are submitted at the same time. False by default.";
+
+	public static final String SPATIAL_VEHICLE_INDEX = "spatialVehicleIndex";
+	static final String SPATIAL_VEHICLE_INDEX_EXP =
+			"If true, a spatial index of the current positions and planned stops of vehicles is maintained, and only"
+					+ " vehicles that may reach the pickup location before the latest start time (max wait time) of"
+					+ " a request are considered for its insertion. Assumes that the vehicles do not drive faster than"
+					+ " the free speed of links. Requires " + REJECT_REQUEST_IF_MAX_WAIT_OR_TRAVEL_TIME_VIOLATED
+					+ " to be true. Useful for large fleets. False by default.";
+
+	public static final String REGIONAL_INSERTION = "regionalInsertion";
+	static final String REGIONAL_INSERTION_EXP =
+			"If true, requests and vehicles are partitioned into the zones of the DRT zonal system (e.g. service areas"
+					+ " loaded from a shape file) and the requests of different zones are inserted concurrently, each"
+					+ " one only into the vehicles located in its zone. Requests that cannot be inserted this way (or"
+					+ " that start outside the zones) are then inserted into the whole fleet. Requires "
+					+ DrtZonalSystemParams.SET_NAME + " to be defined. Useful for large multi-zone operations."
+					+ " False by default.";
+
 	public static final String STORE_UNSHARED_PATH = "storeUnsharedPath";
 	static final String STORE_UNSHARED_PATH_EXP = "Store planned unshared drt route as a link sequence";
 
@@ -205,6 +230,12 @@ public final class DrtConfigGroup extends ReflectiveConfigGroupWithConfigurableP
 	@Positive
 	private int numberOfThreads = Runtime.getRuntime().availableProcessors();
 
+	private boolean batchInsertion = false;
+
+	private boolean spatialVehicleIndex = false;
+
+	private boolean regionalInsertion = false;
+
 	@PositiveOrZero
 	private double advanceRequestPlanningHorizon = 0; // beta-feature; planning horizon for advance (prebooked) requests
 
@@ -308,6 +339,12 @@ public final class DrtConfigGroup extends ReflectiveConfigGroupWithConfigurableP
 					+ " in order to speed up the DRT route update during the replanning phase.");
 		}
 
+		Verify.verify(!isSpatialVehicleIndex() || isRejectRequestIfMaxWaitOrTravelTimeViolated(),
+				SPATIAL_VEHICLE_INDEX + " requires " + REJECT_REQUEST_IF_MAX_WAIT_OR_TRAVEL_TIME_VIOLATED + " to be true");
+
+		Verify.verify(!isRegionalInsertion() || getZonalSystemParams().isPresent(),
+				REGIONAL_INSERTION + " requires " + DrtZonalSystemParams.SET_NAME + " to be defined");
+
 		Verify.verify(getParameterSets(MinCostFlowRebalancingStrategyParams.SET_NAME).size() <= 1,
 				"More than one rebalancing parameter sets is specified");
 
@@ -334,6 +371,9 @@ public final class DrtConfigGroup extends ReflectiveConfigGroupWithConfigurableP
 		map.put(MAX_WALK_DISTANCE, MAX_WALK_DISTANCE_EXP);
 		map.put(TRANSIT_STOP_FILE, TRANSIT_STOP_FILE_EXP);
 		map.put(NUMBER_OF_THREADS, NUMBER_OF_THREADS_EXP);
+		map.put(BATCH_INSERTION, BATCH_INSERTION_EXP);
+		map.put(SPATIAL_VEHICLE_INDEX, SPATIAL_VEHICLE_INDEX_EXP);
+		map.put(REGIONAL_INSERTION, REGIONAL_INSERTION_EXP);
 		map.put(REJECT_REQUEST_IF_MAX_WAIT_OR_TRAVEL_TIME_VIOLATED,
 				REJECT_REQUEST_IF_MAX_WAIT_OR_TRAVEL_TIME_VIOLATED_EXP);
 		map.put(DRT_SERVICE_AREA_SHAPE_FILE, DRT_SERVICE_AREA_SHAPE_FILE_EXP);
@@ -650,6 +690,57 @@ public final class DrtConfigGroup extends ReflectiveConfigGroupWithConfigurableP
 		return this;
 	}
 
+	/**
+	 * @return -- {@value #BATCH_INSERTION_EXP}
+	 */
+	@StringGetter(BATCH_INSERTION)
+	public boolean isBatchInsertion() {
+		return batchInsertion;
+	}
+
+	/**
+	 * @param batchInsertion -- {@value #BATCH_INSERTION_EXP}
+	 */
+	@StringSetter(BATCH_INSERTION)
+	public DrtConfigGroup setBatchInsertion(boolean batchInsertion) {
+		this.batchInsertion = batchInsertion;
+		return this;
+	}
+
+	/**
+	 * @return -- {@value #SPATIAL_VEHICLE_INDEX_EXP}
+	 */
+	@StringGetter(SPATIAL_VEHICLE_INDEX)
+	public boolean isSpatialVehicleIndex() {
+		return spatialVehicleIndex;
+	}
+
+	/**
+	 * @param spatialVehicleIndex -- {@value #SPATIAL_VEHICLE_INDEX_EXP}
+	 */
+	@StringSetter(SPATIAL_VEHICLE_INDEX)
+	public DrtConfigGroup setSpatialVehicleIndex(boolean spatialVehicleIndex) {
+		this.spatialVehicleIndex = spatialVehicleIndex;
+		return this;
+	}
+
+	/**
+	 * @return -- {@value #REGIONAL_INSERTION_EXP}
+	 */
+	@StringGetter(REGIONAL_INSERTION)
+	public boolean isRegionalInsertion() {
+		return regionalInsertion;
+	}
+
+	/**
+	 * @param regionalInsertion -- {@value #REGIONAL_INSERTION_EXP}
+	 */
+	@StringSetter(REGIONAL_INSERTION)
+	public DrtConfigGroup setRegionalInsertion(boolean regionalInsertion) {
+		this.regionalInsertion = regionalInsertion;
+		return this;
+	}
+
 	/**
 	 * @return -- {@value #STORE_UNSHARED_PATH_EXP}
 	 */
@@ -0,0 +1,137 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.drt.optimizer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.drt.passenger.DrtRequest;
+import org.matsim.contrib.drt.schedule.DefaultDrtStopTask;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicle;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicleImpl;
+import org.matsim.contrib.dvrp.fleet.ImmutableDvrpVehicleSpecification;
+import org.matsim.contrib.dvrp.optimizer.Request;
+import org.matsim.core.network.NetworkUtils;
+
+import com.google.common.collect.ImmutableList;
+
+public class VehicleEntryIndexTest {
+	private final Network network = NetworkUtils.createNetwork();
+	private final Node nodeA = node("A", 0);
+	private final Node nodeB = node("B", 1000);
+	private final Node nodeC = node("C", 10000);
+
+	// all links: 10 m/s
+	private final Link linkCA = link("CA", nodeC, nodeA, 10000);
+	private final Link linkAB = link("AB", nodeA, nodeB, 1000);
+	private final Link linkBC = link("BC", nodeB, nodeC, 9000);
+
+	// pickup at node B, within 300 s
+	private final DrtRequest request = DrtRequest.newBuilder()
+			.id(Id.create("r", Request.class))
+			.submissionTime(0)
+			.latestStartTime(300)
+			.fromLink(linkAB)
+			.toLink(linkBC)
+			.build();
+
+	@Test
+	public void calcMaxBeelineSpeed() {
+		assertThat(VehicleEntryIndex.calcMaxBeelineSpeed(network)).isEqualTo(10);
+
+		//beeline longer than link: 10 m/s * 1000 m / 500 m
+		link("BA", nodeB, nodeA, 500);
+		assertThat(VehicleEntryIndex.calcMaxBeelineSpeed(network)).isEqualTo(20);
+	}
+
+	@Test
+	public void filterVehicleEntries() {
+		var index = VehicleEntryIndex.create(network);
+
+		//at node A: 1000 m => 100 s
+		var entryAtA = entry(vehicle("a", 1), linkCA, 0);
+		//at node C: 9000 m => 900 s
+		var entryAtC = entry(vehicle("c", 1), linkBC, 0);
+		//at node C, but with a stop at node A: 100 + 1000 m => 200 s
+		var entryWithStopAtA = entry(vehicle("stop", 1), linkBC, 0, stop(linkCA, 100, 0));
+		//at node C, but with a stop at node A that is departed too late: 250 + 1000 m => 350 s
+		var entryWithLateStopAtA = entry(vehicle("lateStop", 1), linkBC, 0, stop(linkCA, 250, 0));
+		//at node C, with a fully loaded stop at node A and the last stop at node C
+		var fullVehicle = vehicle("full", 1);
+		var entryWithFullStopAtA = entry(fullVehicle, linkBC, 0, stop(linkCA, 100, 1), stop(linkBC, 200, 0));
+		//not indexed
+		var notIndexedEntry = entry(vehicle("notIndexed", 1), linkBC, 0);
+
+		var entries = List.of(entryAtA, entryAtC, entryWithStopAtA, entryWithLateStopAtA, entryWithFullStopAtA,
+				notIndexedEntry);
+		for (var e : entries) {
+			if (e != notIndexedEntry) {
+				index.update(e.vehicle, e);
+			}
+		}
+
+		assertThat(index.filterVehicleEntries(request, entries)).containsExactly(entryAtA, entryWithStopAtA,
+				notIndexedEntry);
+
+		//a different (newer) entry of the full vehicle, which has not been indexed, is retained
+		var newEntry = entry(fullVehicle, linkBC, 0);
+		assertThat(index.filterVehicleEntries(request, List.of(newEntry))).containsExactly(newEntry);
+
+		//the vehicle at node A is no longer available
+		index.update(entryAtA.vehicle, null);
+		assertThat(index.filterVehicleEntries(request, List.of(entryAtA))).containsExactly(entryAtA);//not indexed
+	}
+
+	private Node node(String id, double x) {
+		return NetworkUtils.createAndAddNode(network, Id.createNodeId(id), new Coord(x, 0));
+	}
+
+	private Link link(String id, Node from, Node to, double length) {
+		return NetworkUtils.createAndAddLink(network, Id.createLinkId(id), from, to, length, 10, 1000, 1);
+	}
+
+	private DvrpVehicle vehicle(String id, int capacity) {
+		return new DvrpVehicleImpl(ImmutableDvrpVehicleSpecification.newBuilder()
+				.id(Id.create(id, DvrpVehicle.class))
+				.startLinkId(linkAB.getId())
+				.capacity(capacity)
+				.serviceBeginTime(0)
+				.serviceEndTime(1000)
+				.build(), linkAB);
+	}
+
+	private Waypoint.Stop stop(Link link, double departureTime, int outgoingOccupancy) {
+		return new Waypoint.Stop(new DefaultDrtStopTask(departureTime - 10, departureTime, link), 1000, 1000,
+				outgoingOccupancy);
+	}
+
+	private VehicleEntry entry(DvrpVehicle vehicle, Link startLink, double startTime, Waypoint.Stop... stops) {
+		return new VehicleEntry(vehicle, new Waypoint.Start(null, startLink, startTime, 0), ImmutableList.copyOf(stops),
+				null);
+	}
+}
@@ -28,15 +28,21 @@ import static org.mockito.Mockito.*;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.lang3.mutable.MutableInt;
 import org.junit.Rule;
 import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Identifiable;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.contrib.drt.analysis.zonal.DrtZonalSystem;
+import org.matsim.contrib.drt.analysis.zonal.DrtZone;
 import org.matsim.contrib.drt.optimizer.VehicleEntry;
+import org.matsim.contrib.drt.optimizer.Waypoint;
 import org.matsim.contrib.drt.passenger.DrtRequest;
 import org.matsim.contrib.drt.schedule.DefaultDrtStopTask;
 import org.matsim.contrib.drt.scheduler.RequestInsertionScheduler;
@@ -240,6 +246,119 @@ public class DefaultUnplannedRequestInserterTest {
 		assertThat(createEntryCounter.getValue()).isEqualTo(2);
 	}
 
+	@Test
+	public void batchInsertion_conflictingRequestIsEvaluatedAgain() {
+		var vehicle1 = vehicle("1");
+		var vehicle2 = vehicle("2");
+		var fleet = fleet(vehicle1, vehicle2);
+		var request2 = request("r2", "from2", "to2");
+		var unplannedRequests = requests(request1, request2);
+		double now = 15;
+
+		//every (re)created entry is a new object; remember the initial entry of vehicle1
+		var initialVehicle1Entry = new AtomicReference<VehicleEntry>();
+		VehicleEntry.EntryFactory entryFactory = (vehicle, currentTime) -> {
+			var entry = new VehicleEntry(vehicle, null, null, null);
+			if (vehicle == vehicle1) {
+				initialVehicle1Entry.compareAndSet(null, entry);
+			}
+			return entry;
+		};
+
+		DrtRequestInsertionRetryQueue retryQueue = new DrtRequestInsertionRetryQueue(
+				new DrtRequestInsertionRetryParams());//retry OFF, empty queue
+
+		//vehicle1 is the best one as long as its schedule remains unchanged, otherwise vehicle2
+		DrtInsertionSearch insertionSearch = (drtRequest, vEntries) -> {
+			var vehicle1Entry = vEntries.stream().filter(e -> e.vehicle == vehicle1).findFirst().orElseThrow();
+			var entry = vehicle1Entry == initialVehicle1Entry.get() ?
+					vehicle1Entry :
+					vEntries.stream().filter(e -> e.vehicle == vehicle2).findFirst().orElseThrow();
+			return Optional.of(
+					new InsertionWithDetourData(new InsertionGenerator.Insertion(entry, null, null), null, null));
+		};
+
+		RequestInsertionScheduler insertionScheduler = (request, insertion) -> {
+			var pickupTask = new DefaultDrtStopTask(now, now + 10, request.getFromLink());
+			var dropoffTask = new DefaultDrtStopTask(now + 20, now + 30, request.getToLink());
+			return new PickupDropoffTaskPair(pickupTask, dropoffTask);
+		};
+
+		//call insertion
+		new DefaultUnplannedRequestInserter(mode, fleet, () -> now, eventsManager, insertionScheduler, entryFactory,
+				retryQueue, rule.forkJoinPool, insertionSearch, true, null).scheduleUnplannedRequests(unplannedRequests);
+
+		//requests are removed from unplanned requests
+		assertThat(unplannedRequests).isEmpty();
+
+		//request1 gets vehicle1, request2 (also evaluated against the initial entries) is re-evaluated and gets vehicle2
+		ArgumentCaptor<PassengerRequestScheduledEvent> captor = ArgumentCaptor.forClass(
+				PassengerRequestScheduledEvent.class);
+		verify(eventsManager, times(2)).processEvent(captor.capture());
+		List<PassengerRequestScheduledEvent> events = captor.getAllValues();
+		assertThat(events.get(0).getRequestId()).isEqualTo(request1.getId());
+		assertThat(events.get(0).getVehicleId()).isEqualTo(vehicle1.getId());
+		assertThat(events.get(1).getRequestId()).isEqualTo(request2.getId());
+		assertThat(events.get(1).getVehicleId()).isEqualTo(vehicle2.getId());
+	}
+
+	@Test
+	public void regionalInsertion_crossRegionFallback() {
+		var vehicle1 = vehicle("1");
+		var vehicle2 = vehicle("2");
+		var fleet = fleet(vehicle1, vehicle2);
+		var request2 = request("r2", "from2", "to2");
+		var request3 = request("r3", "from1", "to3");
+		var unplannedRequests = requests(request1, request2, request3);
+		double now = 15;
+
+		//region1: request1, request3 and vehicle1; region2: request2 and vehicle2
+		var regions = new DrtZonalSystem(
+				List.of(DrtZone.createDummyZone("region1", List.of(request1.getFromLink()), new Coord(0, 0)),
+						DrtZone.createDummyZone("region2", List.of(request2.getFromLink()), new Coord(1, 1))));
+		VehicleEntry.EntryFactory entryFactory = (vehicle, currentTime) -> new VehicleEntry(vehicle,
+				new Waypoint.Start(null, vehicle == vehicle1 ? request1.getFromLink() : request2.getFromLink(), now, 0),
+				null, null);
+
+		DrtRequestInsertionRetryQueue retryQueue = new DrtRequestInsertionRetryQueue(
+				new DrtRequestInsertionRetryParams());//retry OFF, empty queue
+
+		//request3 can be served only by vehicle2 (from the other region)
+		DrtInsertionSearch insertionSearch = (drtRequest, vEntries) -> {
+			var entry = drtRequest == request3 ?
+					vEntries.stream().filter(e -> e.vehicle == vehicle2).findFirst() :
+					Optional.of(vEntries.iterator().next());
+			return entry.map(
+					e -> new InsertionWithDetourData(new InsertionGenerator.Insertion(e, null, null), null, null));
+		};
+
+		RequestInsertionScheduler insertionScheduler = (request, insertion) -> {
+			var pickupTask = new DefaultDrtStopTask(now, now + 10, request.getFromLink());
+			var dropoffTask = new DefaultDrtStopTask(now + 20, now + 30, request.getToLink());
+			return new PickupDropoffTaskPair(pickupTask, dropoffTask);
+		};
+
+		//call insertion
+		new DefaultUnplannedRequestInserter(mode, fleet, () -> now, eventsManager, insertionScheduler, entryFactory,
+				retryQueue, rule.forkJoinPool, insertionSearch, false, regions).scheduleUnplannedRequests(
+				unplannedRequests);
+
+		//requests are removed from unplanned requests
+		assertThat(unplannedRequests).isEmpty();
+
+		//request1 and request2 are scheduled within their regions, request3 is then inserted into the whole fleet
+		ArgumentCaptor<PassengerRequestScheduledEvent> captor = ArgumentCaptor.forClass(
+				PassengerRequestScheduledEvent.class);
+		verify(eventsManager, times(3)).processEvent(captor.capture());
+		List<PassengerRequestScheduledEvent> events = captor.getAllValues();
+		assertThat(events.get(0).getRequestId()).isEqualTo(request1.getId());
+		assertThat(events.get(0).getVehicleId()).isEqualTo(vehicle1.getId());
+		assertThat(events.get(1).getRequestId()).isEqualTo(request2.getId());
+		assertThat(events.get(1).getVehicleId()).isEqualTo(vehicle2.getId());
+		assertThat(events.get(2).getRequestId()).isEqualTo(request3.getId());
+		assertThat(events.get(2).getVehicleId()).isEqualTo(vehicle2.getId());
+	}
+
 	private Collection<DrtRequest> requests(DrtRequest... requests) {
 		return new ArrayList<>(Arrays.asList(requests));//returned collection needs to be modifiable
 	}
@@ -270,7 +389,7 @@ public class DefaultUnplannedRequestInserterTest {
 			VehicleEntry.EntryFactory vehicleEntryFactory, DrtRequestInsertionRetryQueue insertionRetryQueue,
 			DrtInsertionSearch insertionSearch, RequestInsertionScheduler insertionScheduler) {
 		return new DefaultUnplannedRequestInserter(mode, fleet, () -> now, eventsManager, insertionScheduler,
-				vehicleEntryFactory, insertionRetryQueue, rule.forkJoinPool, insertionSearch);
+				vehicleEntryFactory, insertionRetryQueue, rule.forkJoinPool, insertionSearch, false, null);
 	}
 
 	private Link link(String id) {
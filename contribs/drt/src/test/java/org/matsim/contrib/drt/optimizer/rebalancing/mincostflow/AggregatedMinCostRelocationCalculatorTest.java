@@ -0,0 +1,144 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.drt.optimizer.rebalancing.mincostflow;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.contrib.drt.analysis.zonal.DrtZone;
+import org.matsim.contrib.drt.optimizer.rebalancing.RebalancingStrategy.Relocation;
+import org.matsim.contrib.drt.optimizer.rebalancing.mincostflow.AggregatedMinCostRelocationCalculator.DrtZoneVehicleSurplus;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicle;
+
+public class AggregatedMinCostRelocationCalculatorTest {
+	private final DrtZone zoneA = DrtZone.createDummyZone("A", List.of(), new Coord(0, 0));
+	private final DrtZone zoneB = DrtZone.createDummyZone("B", List.of(), new Coord(1000, 0));
+	private final Link linkB = mock(Link.class);
+
+	@Test
+	public void synchronous_relocationsReturnedImmediately() {
+		var calculator = new AggregatedMinCostRelocationCalculator(zone -> linkB,
+				surplus -> List.of(new TransportProblem.Flow<>(zoneA, zoneB, 1)), false);
+
+		DvrpVehicle vehicle = mock(DvrpVehicle.class);
+		assertThat(calculator.calcRelocations(List.of(), vehiclesInA(vehicle))).extracting(r -> r.vehicle)
+				.containsExactly(vehicle);
+		assertThat(calculator.pollRelocations()).isEmpty();
+	}
+
+	@Test
+	public void asynchronous_relocationsPolledOnceReady() {
+		var solverStarted = new CountDownLatch(1);
+		var solverReleased = new CountDownLatch(1);
+		var calculator = new AggregatedMinCostRelocationCalculator(zone -> linkB, surplus -> {
+			solverStarted.countDown();
+			await(solverReleased);
+			return List.of(new TransportProblem.Flow<>(zoneA, zoneB, 1));
+		}, true);
+
+		DvrpVehicle vehicle = mock(DvrpVehicle.class);
+		assertThat(calculator.calcRelocations(List.of(), vehiclesInA(vehicle))).isEmpty();
+		await(solverStarted);
+		// not ready yet: polling does not block
+		assertThat(calculator.pollRelocations()).isEmpty();
+
+		solverReleased.countDown();
+		assertThat(pollUntilReady(calculator)).extracting(r -> r.vehicle).containsExactly(vehicle);
+		assertThat(calculator.pollRelocations()).isEmpty();
+	}
+
+	@Test
+	public void asynchronous_relocationsCollectedAtNextRebalancingStep() {
+		List<List<DrtZoneVehicleSurplus>> solvedProblems = new ArrayList<>();
+		var calculator = new AggregatedMinCostRelocationCalculator(zone -> linkB, surplus -> {
+			sleep();// slower than the mobsim step: the relocations must be waited for at the next rebalancing step
+			solvedProblems.add(surplus);
+			return List.of(new TransportProblem.Flow<>(zoneA, zoneB, 1));
+		}, true);
+
+		// pollRelocations() not called in between: the previous step is neither skipped nor lost
+		DvrpVehicle vehicle1 = mock(DvrpVehicle.class);
+		DvrpVehicle vehicle2 = mock(DvrpVehicle.class);
+		List<DrtZoneVehicleSurplus> surplus1 = List.of(new DrtZoneVehicleSurplus(zoneA, 1));
+		List<DrtZoneVehicleSurplus> surplus2 = List.of(new DrtZoneVehicleSurplus(zoneA, 1));
+		assertThat(calculator.calcRelocations(surplus1, vehiclesInA(vehicle1))).isEmpty();
+		List<Relocation> relocations = calculator.calcRelocations(surplus2, vehiclesInA(vehicle2));
+		assertThat(relocations).extracting(r -> r.vehicle).containsExactly(vehicle1);
+		assertThat(pollUntilReady(calculator)).extracting(r -> r.vehicle).containsExactly(vehicle2);
+
+		assertThat(solvedProblems).containsExactly(surplus1, surplus2);
+	}
+
+	@Test
+	public void asynchronous_cleanup() {
+		var calculator = new AggregatedMinCostRelocationCalculator(zone -> linkB,
+				surplus -> List.of(new TransportProblem.Flow<>(zoneA, zoneB, 1)), true);
+
+		calculator.calcRelocations(List.of(), vehiclesInA(mock(DvrpVehicle.class)));
+		calculator.notifyMobsimBeforeCleanup(null);
+
+		assertThat(calculator.pollRelocations()).isEmpty();
+		assertThatThrownBy(() -> calculator.calcRelocations(List.of(), vehiclesInA(mock(DvrpVehicle.class))))//
+				.isInstanceOf(RejectedExecutionException.class);
+	}
+
+	private Map<DrtZone, List<DvrpVehicle>> vehiclesInA(DvrpVehicle vehicle) {
+		// a single vehicle per zone, so no schedules need to be inspected when looking for the nearest one
+		return Map.of(zoneA, new ArrayList<>(List.of(vehicle)));
+	}
+
+	private static List<Relocation> pollUntilReady(AggregatedMinCostRelocationCalculator calculator) {
+		for (int i = 0; i < 100; i++) {
+			List<Relocation> relocations = calculator.pollRelocations();
+			if (!relocations.isEmpty()) {
+				return relocations;
+			}
+			sleep();
+		}
+		throw new AssertionError("Relocations not ready");
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static void sleep() {
+		try {
+			Thread.sleep(50);
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
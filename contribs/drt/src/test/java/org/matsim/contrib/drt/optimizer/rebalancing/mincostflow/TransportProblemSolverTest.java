@@ -0,0 +1,80 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.drt.optimizer.rebalancing.mincostflow;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+
+public class TransportProblemSolverTest {
+	@Test
+	public void balanced() {
+		int[] flows = TransportProblemSolver.solve(new int[] { 2, 3 }, new int[] { 4, 1 }, new int[] { 1, 5, 2, 1 });
+		assertThat(flows).containsExactly(2, 0, 2, 1);
+	}
+
+	@Test
+	public void unbalanced() {
+		// excess supply: all demand is met
+		assertThat(TransportProblemSolver.solve(new int[] { 5 }, new int[] { 2, 2 }, new int[] { 3, 1 }))//
+				.containsExactly(2, 2);
+		// excess demand: the cheaper producer is used
+		assertThat(TransportProblemSolver.solve(new int[] { 1, 1 }, new int[] { 1 }, new int[] { 4, 2 }))//
+				.containsExactly(0, 1);
+		// nothing to ship
+		assertThat(TransportProblemSolver.solve(new int[] {}, new int[] { 3 }, new int[] {})).isEmpty();
+	}
+
+	@Test
+	public void sameCostAsMinCostFlow() {
+		var random = new Random(42);
+		for (int n = 0; n < 50; n++) {
+			int[] supply = random.ints(1 + random.nextInt(20), 1, 10).toArray();
+			int[] demand = random.ints(1 + random.nextInt(20), 1, 10).toArray();
+			int[] costs = random.ints(supply.length * demand.length, 0, 1000).toArray();
+
+			int[] flows = TransportProblemSolver.solve(supply, demand, costs);
+			int shipped = IntStream.of(flows).sum();
+			int cost = IntStream.range(0, flows.length).map(k -> flows[k] * costs[k]).sum();
+
+			List<TransportProblem.Flow<Integer, Integer>> expectedFlows = new TransportProblem<Integer, Integer>(
+					(i, j) -> costs[i * demand.length + j]).solve(toPairs(supply), toPairs(demand));
+			assertThat(shipped).isEqualTo(expectedFlows.stream().mapToInt(f -> f.amount).sum());
+			assertThat(cost).isEqualTo(expectedFlows.stream()
+					.mapToInt(f -> f.amount * costs[f.origin * demand.length + f.destination])
+					.sum());
+		}
+	}
+
+	private static List<Pair<Integer, Integer>> toPairs(int[] values) {
+		List<Pair<Integer, Integer>> pairs = new ArrayList<>();
+		for (int i = 0; i < values.length; i++) {
+			pairs.add(Pair.of(i, values[i]));
+		}
+		return pairs;
+	}
+}
@@ -20,6 +20,7 @@
 
 package org.matsim.contrib.dvrp.path;
 
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collection;
 import java.util.OptionalInt;
@@ -79,6 +80,55 @@ public class LeastCostPathTreeStopCriteria {
 		};
 	}
 
+	/**
+	 * Reusable equivalent of {@code withMaxTravelTime(allEndNodesReached(endNodes), maxTravelTime)}. The end nodes are
+	 * marked in an array that is kept between the searches (and never cleared), so preparing a search does not
+	 * allocate any memory. Not thread-safe.
+	 */
+	public static class EndNodesReachedWithinMaxTravelTime implements StopCriterion {
+		private int[] endNodeMarks = new int[Id.getNumberOfIds(Node.class)];
+		private int currentMark = 0;
+		private int counter;
+		private double maxTravelTime;
+
+		public void reset(double maxTravelTime) {
+			Preconditions.checkArgument(maxTravelTime >= 0);
+			this.maxTravelTime = maxTravelTime;
+			counter = 0;
+			currentMark++;
+			if (currentMark == Integer.MAX_VALUE) {
+				Arrays.fill(endNodeMarks, 0);
+				currentMark = 1;
+			}
+		}
+
+		public void addEndNode(int nodeIndex) {
+			if (nodeIndex >= endNodeMarks.length) {
+				endNodeMarks = Arrays.copyOf(endNodeMarks, Math.max(Id.getNumberOfIds(Node.class), nodeIndex + 1));
+			}
+			if (endNodeMarks[nodeIndex] != currentMark) {
+				endNodeMarks[nodeIndex] = currentMark;
+				counter++;
+			}
+		}
+
+		public boolean hasEndNodes() {
+			return counter > 0;
+		}
+
+		@Override
+		public boolean stop(int nodeIndex, double arrivalTime, double travelCost, double distance,
+				double departureTime) {
+			if (arrivalTime - departureTime > maxTravelTime) {
+				return true;
+			}
+			if (nodeIndex < endNodeMarks.length && endNodeMarks[nodeIndex] == currentMark) {
+				counter--;
+			}
+			return counter == 0; // stop if all end nodes reached
+		}
+	}
+
 	public static class LeastCostEndNodeReached implements StopCriterion {
 		// zero or positive values allowed
 		private final IntToDoubleFunction additionalCostByNodeIndex;
@@ -20,9 +20,6 @@
 
 package org.matsim.contrib.dvrp.path;
 
-import static java.util.stream.Collectors.toList;
-import static org.matsim.contrib.dvrp.path.LeastCostPathTreeStopCriteria.allEndNodesReached;
-import static org.matsim.contrib.dvrp.path.LeastCostPathTreeStopCriteria.withMaxTravelTime;
 import static org.matsim.contrib.dvrp.path.VrpPaths.FIRST_LINK_TT;
 import static org.matsim.core.router.util.LeastCostPathCalculator.Path;
 
@@ -30,7 +27,6 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
-import java.util.function.Supplier;
 
 import javax.annotation.Nullable;
 
@@ -38,30 +34,55 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.IdMap;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.dvrp.path.LeastCostPathTreeStopCriteria.EndNodesReachedWithinMaxTravelTime;
 import org.matsim.contrib.dvrp.path.OneToManyPathSearch.PathData;
 import org.matsim.core.router.speedy.LeastCostPathTree;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.utils.misc.OptionalTime;
 
+import com.google.common.base.Preconditions;
+
 /**
+ * Can be reused for subsequent searches (see {@link #reset(boolean, Link, double)}). Paths of the lazily created
+ * {@link PathData} are read from the shared tree, so they can be obtained only until the next search starts.
+ *
  * @author Michal Maciejewski (michalm)
  */
 class OneToManyPathCalculator {
 	private final IdMap<Node, Node> nodeMap;
 	private final LeastCostPathTree dijkstraTree;
 	private final TravelTime travelTime;
-	private final boolean forwardSearch;
-	private final Link fromLink;
-	private final double startTime;
+	private final EndNodesReachedWithinMaxTravelTime stopCriterion;
+
+	private boolean forwardSearch;
+	private Link fromLink;
+	private double startTime;
+	private int generation = 0;
 
 	OneToManyPathCalculator(IdMap<Node, Node> nodeMap, LeastCostPathTree dijkstraTree, TravelTime travelTime,
 			boolean forwardSearch, Link fromLink, double startTime) {
+		this(nodeMap, dijkstraTree, travelTime, new EndNodesReachedWithinMaxTravelTime());
+		this.forwardSearch = forwardSearch;
+		this.fromLink = fromLink;
+		this.startTime = startTime;
+	}
+
+	OneToManyPathCalculator(IdMap<Node, Node> nodeMap, LeastCostPathTree dijkstraTree, TravelTime travelTime,
+			EndNodesReachedWithinMaxTravelTime stopCriterion) {
 		this.nodeMap = nodeMap;
 		this.dijkstraTree = dijkstraTree;
 		this.travelTime = travelTime;
+		this.stopCriterion = stopCriterion;
+	}
+
+	/**
+	 * Prepares the next search. The lazily created path data of the previous searches become invalid.
+	 */
+	void reset(boolean forwardSearch, Link fromLink, double startTime) {
 		this.forwardSearch = forwardSearch;
 		this.fromLink = fromLink;
 		this.startTime = startTime;
+		generation++;
 	}
 
 	void calculateDijkstraTree(Collection<Link> toLinks) {
@@ -69,13 +90,17 @@ class OneToManyPathCalculator {
 	}
 
 	void calculateDijkstraTree(Collection<Link> toLinks, double maxTravelTime) {
-		var toNodes = toLinks.stream().filter(link -> link != fromLink).map(this::getEndNode).collect(toList());
-		if (toNodes.size() == 0) {
+		stopCriterion.reset(maxTravelTime);
+		for (Link toLink : toLinks) {
+			if (toLink != fromLink) {
+				stopCriterion.addEndNode(getEndNode(toLink).getId().index());
+			}
+		}
+		if (!stopCriterion.hasEndNodes()) {
 			return;
 		}
 
 		int fromNodeIdx = getStartNode(fromLink).getId().index();
-		var stopCriterion = withMaxTravelTime(allEndNodesReached(toNodes), maxTravelTime);
 
 		if (forwardSearch) {
 			dijkstraTree.calculate(fromNodeIdx, startTime, null, null, stopCriterion);
@@ -93,8 +118,7 @@ class OneToManyPathCalculator {
 			if (pathTravelTime == Double.POSITIVE_INFINITY) {
 				return PathData.INFEASIBLE;
 			}
-			Supplier<Path> pathSupplier = () -> createPath(endNode);
-			return new PathData(pathSupplier, pathTravelTime,
+			return new PathData(this, endNode, generation, pathTravelTime,
 					getFirstAndLastLinkTT(fromLink, toLink, pathTravelTime, startTime));
 		}
 	}
@@ -112,6 +136,12 @@ class OneToManyPathCalculator {
 		}
 	}
 
+	Path createPath(Node toNode, int pathGeneration) {
+		Preconditions.checkState(pathGeneration == generation,
+				"The path has not been created before the next search started");
+		return createPath(toNode);
+	}
+
 	@Nullable
 	Path createPath(Node toNode) {
 		int toNodeIndex = toNode.getId().index();
@@ -119,8 +149,22 @@ class OneToManyPathCalculator {
 		if (travelTime == Double.POSITIVE_INFINITY) {
 			return null;
 		}
-		var nodes = constructNodeSequence(dijkstraTree, toNode, forwardSearch);
-		var links = constructLinkSequence(nodes);
+
+		List<Node> nodes = new ArrayList<>();
+		List<Link> links = new ArrayList<>();
+		nodes.add(toNode);
+		int index = toNodeIndex;
+		Link link;
+		while ((link = dijkstraTree.getComingFromLink(index)) != null) {
+			links.add(link);
+			index = dijkstraTree.getComingFrom(index);
+			nodes.add(nodeMap.get(Id.get(index, Node.class)));
+		}
+		if (forwardSearch) {
+			Collections.reverse(nodes);
+			Collections.reverse(links);
+		}
+
 		double cost = dijkstraTree.getCost(toNodeIndex);
 		return new Path(nodes, links, travelTime, cost);
 	}
@@ -134,40 +178,6 @@ class OneToManyPathCalculator {
 		return travelTimeMultiplier * (dijkstraTree.getTime(toNodeIndex).seconds() - startTime);
 	}
 
-	private List<Node> constructNodeSequence(LeastCostPathTree dijkstraTree, Node toNode, boolean forward) {
-		ArrayList<Node> nodes = new ArrayList<>();
-		nodes.add(toNode);
-
-		int index = dijkstraTree.getComingFrom(toNode.getId().index());
-		while (index >= 0) {
-			nodes.add(nodeMap.get(Id.get(index, Node.class)));
-			index = dijkstraTree.getComingFrom(index);
-		}
-
-		if (forward) {
-			Collections.reverse(nodes);
-		}
-		return nodes;
-	}
-
-	private List<Link> constructLinkSequence(List<Node> nodes) {
-		List<Link> links = new ArrayList<>(nodes.size() - 1);
-		Node prevNode = nodes.get(0);
-		for (int i = 1; i < nodes.size(); i++) {
-			Node nextNode = nodes.get(i);
-			for (Link link : prevNode.getOutLinks().values()) {
-				//FIXME this method will not work properly if there are many prevNode -> nextNode links
-				//TODO save link idx in tree OR pre-check: at most 1 arc per each node pair OR choose faster/better link
-				if (link.getToNode() == nextNode) {
-					links.add(link);
-					break;
-				}
-			}
-			prevNode = nextNode;
-		}
-		return links;
-	}
-
 	private Node getEndNode(Link link) {
 		return forwardSearch ? link.getFromNode() : link.getToNode();
 	}
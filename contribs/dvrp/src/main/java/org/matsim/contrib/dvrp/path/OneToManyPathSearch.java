@@ -29,6 +29,7 @@ import java.util.function.Supplier;
 import org.matsim.api.core.v01.IdMap;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.dvrp.path.LeastCostPathTreeStopCriteria.EndNodesReachedWithinMaxTravelTime;
 import org.matsim.core.router.speedy.LeastCostPathTree;
 import org.matsim.core.router.speedy.SpeedyGraph;
 import org.matsim.core.router.util.TravelDisutility;
@@ -51,48 +52,74 @@ public class OneToManyPathSearch {
 		private final Supplier<Path> pathSupplier;
 		private Path path;
 
+		// path not created yet (view on the tree of the calculator), valid until the calculator starts the next search
+		private final OneToManyPathCalculator pathCalculator;
+		private final Node endNode;
+		private final int generation;
+
 		private final double travelTime;
 
 		private PathData(double travelTime, double travelCost) {
-			this.pathSupplier = null;
+			this(null, null, null, 0, travelTime);
 			this.path = new Path(null, null, travelTime, travelCost);
-			this.travelTime = travelTime;
 		}
 
 		public PathData(Path path, double firstAndLastLinkTT) {
-			this.pathSupplier = null;
+			this(null, null, null, 0, path.travelTime + firstAndLastLinkTT);
 			this.path = new Path(null, ImmutableList.copyOf(path.links), path.travelTime, path.travelCost);
-			this.travelTime = path.travelTime + firstAndLastLinkTT;
 		}
 
 		public PathData(Supplier<Path> pathSupplier, double pathTravelTime, double firstAndLastLinkTT) {
+			this(pathSupplier, null, null, 0, pathTravelTime + firstAndLastLinkTT);
+		}
+
+		PathData(OneToManyPathCalculator pathCalculator, Node endNode, int generation, double pathTravelTime,
+				double firstAndLastLinkTT) {
+			this(null, pathCalculator, endNode, generation, pathTravelTime + firstAndLastLinkTT);
+		}
+
+		private PathData(Supplier<Path> pathSupplier, OneToManyPathCalculator pathCalculator, Node endNode,
+				int generation, double travelTime) {
 			this.pathSupplier = pathSupplier;
-			this.travelTime = pathTravelTime + firstAndLastLinkTT;
+			this.pathCalculator = pathCalculator;
+			this.endNode = endNode;
+			this.generation = generation;
+			this.travelTime = travelTime;
 		}
 
 		public double getTravelTime() {
 			return travelTime;
 		}
 
+		/**
+		 * Paths created lazily by {@link OneToManyPathSearch} are read from its search tree, which is reused by the
+		 * next search. Call this method before that happens if the path may be needed later on.
+		 *
+		 * @return this path data (with the path created), no longer dependent on the search
+		 */
+		public PathData detach() {
+			getPath();
+			return this;
+		}
+
 		//package visibility only (path.nodes is null)
 		Path getPath() {
 			if (path == null) {
-				path = pathSupplier.get();
+				path = pathCalculator != null ? pathCalculator.createPath(endNode, generation) : pathSupplier.get();
 			}
 			return path;
 		}
 	}
 
-	private final IdMap<Node, Node> nodeMap;
-	private final LeastCostPathTree dijkstraTree;
-	private final TravelTime travelTime;
+	private final OneToManyPathCalculator pathCalculator;
 	private final boolean lazyPathCreation;
 
 	private OneToManyPathSearch(IdMap<Node, Node> nodeMap, LeastCostPathTree dijkstraTree, TravelTime travelTime,
 			boolean lazyPathCreation) {
-		this.nodeMap = nodeMap;
-		this.dijkstraTree = dijkstraTree;
-		this.travelTime = travelTime;
+		// one (reusable) calculator per search: the tree, the stop criterion and the calculator are not re-created
+		// for each call; lazily created paths must be obtained before the next call (see PathData.detach())
+		this.pathCalculator = new OneToManyPathCalculator(nodeMap, dijkstraTree, travelTime,
+				new EndNodesReachedWithinMaxTravelTime());
 		this.lazyPathCreation = lazyPathCreation;
 	}
 
@@ -102,10 +129,9 @@ public class OneToManyPathSearch {
 
 	public PathData[] calcPathDataArray(Link fromLink, List<Link> toLinks, double startTime, boolean forward,
 			double maxTravelTime) {
-		OneToManyPathCalculator pathConstructor = new OneToManyPathCalculator(nodeMap, dijkstraTree, travelTime,
-				forward, fromLink, startTime);
-		pathConstructor.calculateDijkstraTree(toLinks, maxTravelTime);
-		return createPathDataArray(toLinks, pathConstructor);
+		pathCalculator.reset(forward, fromLink, startTime);
+		pathCalculator.calculateDijkstraTree(toLinks, maxTravelTime);
+		return createPathDataArray(toLinks, pathCalculator);
 	}
 
 	public Map<Link, PathData> calcPathDataMap(Link fromLink, Collection<Link> toLinks, double startTime,
@@ -115,8 +141,7 @@ public class OneToManyPathSearch {
 
 	public Map<Link, PathData> calcPathDataMap(Link fromLink, Collection<Link> toLinks, double startTime,
 			boolean forward, double maxTravelTime) {
-		OneToManyPathCalculator pathCalculator = new OneToManyPathCalculator(nodeMap, dijkstraTree, travelTime, forward,
-				fromLink, startTime);
+		pathCalculator.reset(forward, fromLink, startTime);
 		pathCalculator.calculateDijkstraTree(toLinks, maxTravelTime);
 		return createPathDataMap(toLinks, pathCalculator);
 	}
@@ -26,17 +26,22 @@ import org.matsim.contrib.dvrp.fleet.DvrpVehicleLookup;
 import org.matsim.contrib.dvrp.passenger.PassengerModule;
 import org.matsim.contrib.dvrp.router.DvrpGlobalRoutingNetworkProvider;
 import org.matsim.contrib.dvrp.trafficmonitoring.DvrpTravelTimeModule;
+import org.matsim.contrib.dvrp.trafficmonitoring.QSimFreeSpeedTravelTime;
+import org.matsim.contrib.dvrp.util.TimeDiscretizer;
 import org.matsim.contrib.dvrp.vrpagent.VrpAgentQueryHelper;
 import org.matsim.contrib.dynagent.run.DynActivityEngine;
 import org.matsim.contrib.zone.skims.FreeSpeedTravelTimeMatrix;
+import org.matsim.contrib.zone.skims.TimeDependentTravelTimeMatrix;
 import org.matsim.contrib.zone.skims.TravelTimeMatrix;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.controler.AbstractModule;
 import org.matsim.core.mobsim.framework.MobsimTimer;
 import org.matsim.core.mobsim.qsim.AbstractQSimModule;
+import org.matsim.core.router.util.TravelTime;
 import org.matsim.vis.otfvis.OnTheFlyServer.NonPlanAgentQueryHelper;
 
 import com.google.inject.Inject;
+import com.google.inject.Key;
 import com.google.inject.Singleton;
 import com.google.inject.name.Named;
 import com.google.inject.name.Names;
@@ -72,6 +77,7 @@ public final class DvrpModule extends AbstractModule {
 		//lazily initialised because:
 		// 1. we may have only mode-filtered subnetworks
 		// 2. optimisers may not use it
+		//free-speed travel times are optimistic, so this matrix can be used by admissible estimators
 		bind(TravelTimeMatrix.class).toProvider(new Provider<>() {
 			@Inject
 			@Named(DvrpGlobalRoutingNetworkProvider.DVRP_ROUTING)
@@ -89,6 +95,43 @@ public final class DvrpModule extends AbstractModule {
 			}
 		}).in(Singleton.class);
 
+		//best estimates (not necessarily optimistic) of the travel times
+		var estimatedTravelTimeMatrixKey = Key.get(TravelTimeMatrix.class,
+				Names.named(DvrpTravelTimeModule.DVRP_ESTIMATED));
+		if (dvrpConfigGroup.getTravelTimeMatrixParams().isTimeDependent()) {
+			//initialised eagerly: updated after each mobsim
+			bind(TimeDependentTravelTimeMatrix.class).toProvider(new Provider<>() {
+				@Inject
+				@Named(DvrpGlobalRoutingNetworkProvider.DVRP_ROUTING)
+				private Network network;
+
+				@Inject
+				private TravelTimeMatrix freeSpeedMatrix;
+
+				@Inject
+				private QSimConfigGroup qSimConfigGroup;
+
+				@Inject
+				@Named(DvrpTravelTimeModule.DVRP_ESTIMATED)
+				private TravelTime travelTime;
+
+				@Override
+				public TimeDependentTravelTimeMatrix get() {
+					var numberOfThreads = getConfig().global().getNumberOfThreads();
+					var params = dvrpConfigGroup.getTravelTimeMatrixParams();
+					var timeDiscretizer = new TimeDiscretizer(getConfig().travelTimeCalculator().getMaxTime(),
+							params.getCongestionTimeBinSize());
+					return new TimeDependentTravelTimeMatrix(freeSpeedMatrix, network, params, timeDiscretizer,
+							numberOfThreads, new QSimFreeSpeedTravelTime(qSimConfigGroup.getTimeStepSize()),
+							travelTime);
+				}
+			}).in(Singleton.class);
+			bind(estimatedTravelTimeMatrixKey).to(TimeDependentTravelTimeMatrix.class);
+			addControlerListenerBinding().to(TimeDependentTravelTimeMatrix.class);
+		} else {
+			bind(estimatedTravelTimeMatrixKey).to(TravelTimeMatrix.class);
+		}
+
 		bind(Network.class).annotatedWith(Names.named(DvrpGlobalRoutingNetworkProvider.DVRP_ROUTING))
 				.toProvider(DvrpGlobalRoutingNetworkProvider.class)
 				.asEagerSingleton();
@@ -76,6 +76,12 @@ public class ScheduleTimingUpdater {
 		}
 	}
 
+	/**
+	 * Updates the timings of the tasks starting from {@code startIdx}. The update stops at the first task whose
+	 * timing does not change (both the begin time and the recalculated end time), provided that the next task begins
+	 * when this one ends (e.g. after a waiting task that absorbs the delay). The following tasks then have the same
+	 * begin times as before, and their end times have already been calculated for these begin times.
+	 */
 	public void updateTimingsStartingFromTaskIdx(DvrpVehicle vehicle, int startIdx, double newBeginTime) {
 		Schedule schedule = vehicle.getSchedule();
 		List<? extends Task> tasks = schedule.getTasks();
@@ -89,6 +95,9 @@ public class ScheduleTimingUpdater {
 				i--;
 			} else if (calcEndTime < newBeginTime) {// 0 s is fine (e.g. last 'wait')
 				throw new IllegalStateException();
+			} else if (task.getBeginTime() == newBeginTime && task.getEndTime() == calcEndTime && (i + 1 == tasks.size()
+					|| tasks.get(i + 1).getBeginTime() == calcEndTime)) {
+				return;// the following tasks are not affected
 			} else {
 				task.setBeginTime(newBeginTime);
 				task.setEndTime(calcEndTime);
@@ -22,6 +22,8 @@ package org.matsim.contrib.zone.skims;
 
 import java.util.Map;
 
+import javax.annotation.Nullable;
+
 import org.matsim.core.config.ConfigGroup;
 import org.matsim.core.config.ReflectiveConfigGroup;
 
@@ -53,6 +55,54 @@ public class DvrpTravelTimeMatrixParams extends ReflectiveConfigGroup {
 	@PositiveOrZero
 	private int maxNeighborDistance = 1000; //[m]
 
+	public static final String TIME_DEPENDENT = "timeDependent";
+	private static final String TIME_DEPENDENT_EXP =
+			"If true, the free-speed travel times (from the zonal and the sparse matrices) are scaled by congestion"
+					+ " factors that depend on the time of day. The factors are derived from the DVRP travel time"
+					+ " estimates (for each time bin, a zonal travel time matrix is computed on a coarse grid) and"
+					+ " recomputed in the background after each mobsim. Since the scaled travel times are no longer"
+					+ " optimistic, they are used only by the non-admissible estimators (e.g. the restrictive detour"
+					+ " time estimator of the selective DRT insertion search). Default value is false.";
+
+	private boolean timeDependent = false;
+
+	public static final String CONGESTION_CELL_SIZE = "congestionCellSize";
+	private static final String CONGESTION_CELL_SIZE_EXP =
+			"size of square cells (meters) used for computing the congestion factors (only if 'timeDependent' is true)."
+					+ " The memory usage is proportional to the squared number of cells times the number of time bins"
+					+ " (4 bytes per entry), see also 'congestionFactorsMaxMemory'. Default value is 5000 m";
+
+	@Positive
+	private int congestionCellSize = 5000; //[m]
+
+	public static final String CONGESTION_TIME_BIN_SIZE = "congestionTimeBinSize";
+	private static final String CONGESTION_TIME_BIN_SIZE_EXP =
+			"size of time bins (seconds) used for computing the congestion factors (only if 'timeDependent' is true)."
+					+ " Time bins cover the period until travelTimeCalculator.maxTime. Default value is 3600 s";
+
+	@Positive
+	private int congestionTimeBinSize = 3600; //[s]
+
+	public static final String CONGESTION_FACTORS_MAX_MEMORY = "congestionFactorsMaxMemory";
+	private static final String CONGESTION_FACTORS_MAX_MEMORY_EXP =
+			"upper bound (megabytes) for the memory used by the congestion factors (only if 'timeDependent' is true),"
+					+ " i.e. for (number of cells)^2 * (number of time bins) * 4 bytes. The matrix is not created if the"
+					+ " bound is exceeded; then 'congestionCellSize' or 'congestionTimeBinSize' need to be increased."
+					+ " Default value is 256 MB";
+
+	@Positive
+	private int congestionFactorsMaxMemory = 256; //[MB]
+
+	public static final String CACHE_DIRECTORY = "cacheDirectory";
+	private static final String CACHE_DIRECTORY_EXP =
+			"If set, the free-speed travel time matrices are stored in (and loaded from) this directory, so that"
+					+ " they are computed only once for a given network and matrix params (e.g. for many runs on the"
+					+ " same network). Runs executed in parallel may share the directory. The cache is disabled by"
+					+ " default.";
+
+	@Nullable
+	private String cacheDirectory = null;
+
 	public DvrpTravelTimeMatrixParams() {
 		super(SET_NAME);
 	}
@@ -62,6 +112,11 @@ public class DvrpTravelTimeMatrixParams extends ReflectiveConfigGroup {
 		var map = super.getComments();
 		map.put(CELL_SIZE, CELL_SIZE_EXP);
 		map.put(MAX_NEIGHBOR_DISTANCE, MAX_NEIGHBOR_DISTANCE_EXP);
+		map.put(TIME_DEPENDENT, TIME_DEPENDENT_EXP);
+		map.put(CONGESTION_CELL_SIZE, CONGESTION_CELL_SIZE_EXP);
+		map.put(CONGESTION_TIME_BIN_SIZE, CONGESTION_TIME_BIN_SIZE_EXP);
+		map.put(CONGESTION_FACTORS_MAX_MEMORY, CONGESTION_FACTORS_MAX_MEMORY_EXP);
+		map.put(CACHE_DIRECTORY, CACHE_DIRECTORY_EXP);
 		return map;
 	}
 
@@ -99,6 +154,92 @@ public class DvrpTravelTimeMatrixParams extends ReflectiveConfigGroup {
 		return this;
 	}
 
+	/**
+	 * @return {@value #TIME_DEPENDENT_EXP}
+	 */
+	@StringGetter(TIME_DEPENDENT)
+	public boolean isTimeDependent() {
+		return timeDependent;
+	}
+
+	/**
+	 * @param timeDependent {@value #TIME_DEPENDENT_EXP}
+	 */
+	@StringSetter(TIME_DEPENDENT)
+	public DvrpTravelTimeMatrixParams setTimeDependent(boolean timeDependent) {
+		this.timeDependent = timeDependent;
+		return this;
+	}
+
+	/**
+	 * @return {@value #CONGESTION_CELL_SIZE_EXP}
+	 */
+	@StringGetter(CONGESTION_CELL_SIZE)
+	public int getCongestionCellSize() {
+		return congestionCellSize;
+	}
+
+	/**
+	 * @param congestionCellSize {@value #CONGESTION_CELL_SIZE_EXP}
+	 */
+	@StringSetter(CONGESTION_CELL_SIZE)
+	public DvrpTravelTimeMatrixParams setCongestionCellSize(int congestionCellSize) {
+		this.congestionCellSize = congestionCellSize;
+		return this;
+	}
+
+	/**
+	 * @return {@value #CONGESTION_TIME_BIN_SIZE_EXP}
+	 */
+	@StringGetter(CONGESTION_TIME_BIN_SIZE)
+	public int getCongestionTimeBinSize() {
+		return congestionTimeBinSize;
+	}
+
+	/**
+	 * @param congestionTimeBinSize {@value #CONGESTION_TIME_BIN_SIZE_EXP}
+	 */
+	@StringSetter(CONGESTION_TIME_BIN_SIZE)
+	public DvrpTravelTimeMatrixParams setCongestionTimeBinSize(int congestionTimeBinSize) {
+		this.congestionTimeBinSize = congestionTimeBinSize;
+		return this;
+	}
+
+	/**
+	 * @return {@value #CONGESTION_FACTORS_MAX_MEMORY_EXP}
+	 */
+	@StringGetter(CONGESTION_FACTORS_MAX_MEMORY)
+	public int getCongestionFactorsMaxMemory() {
+		return congestionFactorsMaxMemory;
+	}
+
+	/**
+	 * @param congestionFactorsMaxMemory {@value #CONGESTION_FACTORS_MAX_MEMORY_EXP}
+	 */
+	@StringSetter(CONGESTION_FACTORS_MAX_MEMORY)
+	public DvrpTravelTimeMatrixParams setCongestionFactorsMaxMemory(int congestionFactorsMaxMemory) {
+		this.congestionFactorsMaxMemory = congestionFactorsMaxMemory;
+		return this;
+	}
+
+	/**
+	 * @return {@value #CACHE_DIRECTORY_EXP}
+	 */
+	@Nullable
+	@StringGetter(CACHE_DIRECTORY)
+	public String getCacheDirectory() {
+		return cacheDirectory;
+	}
+
+	/**
+	 * @param cacheDirectory {@value #CACHE_DIRECTORY_EXP}
+	 */
+	@StringSetter(CACHE_DIRECTORY)
+	public DvrpTravelTimeMatrixParams setCacheDirectory(@Nullable String cacheDirectory) {
+		this.cacheDirectory = cacheDirectory;
+		return this;
+	}
+
 	@Override
 	public ConfigGroup createParameterSet(String type) {
 		return super.createParameterSet(type);
@@ -20,6 +20,8 @@
 
 package org.matsim.contrib.zone.skims;
 
+import java.nio.file.Paths;
+
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.contrib.dvrp.router.TimeAsTravelDisutility;
@@ -45,12 +47,26 @@ public class FreeSpeedTravelTimeMatrix implements TravelTimeMatrix {
 	public FreeSpeedTravelTimeMatrix(Network dvrpNetwork, DvrpTravelTimeMatrixParams params, int numberOfThreads,
 			TravelTime travelTime) {
 		gridSystem = new SquareGridSystem(dvrpNetwork.getNodes().values(), params.getCellSize());
+
+		TravelTimeMatrixCache cache = params.getCacheDirectory() == null ?
+				null :
+				new TravelTimeMatrixCache(Paths.get(params.getCacheDirectory()), dvrpNetwork, params, travelTime);
+		var cachedMatrices = cache == null ? null : cache.load(gridSystem);
+		if (cachedMatrices != null) {
+			freeSpeedTravelTimeMatrix = cachedMatrices.matrix;
+			freeSpeedTravelTimeSparseMatrix = cachedMatrices.sparseMatrix;
+			return;
+		}
+
 		var centralNodes = ZonalSystems.computeMostCentralNodes(dvrpNetwork.getNodes().values(), gridSystem);
 		var travelDisutility = new TimeAsTravelDisutility(travelTime);
 		freeSpeedTravelTimeMatrix = TravelTimeMatrices.calculateTravelTimeMatrix(dvrpNetwork, centralNodes, 0,
 				travelTime, travelDisutility, numberOfThreads);
 		freeSpeedTravelTimeSparseMatrix = TravelTimeMatrices.calculateTravelTimeSparseMatrix(dvrpNetwork,
 				params.getMaxNeighborDistance(), 0, travelTime, travelDisutility, numberOfThreads);
+		if (cache != null) {
+			cache.store(freeSpeedTravelTimeMatrix, freeSpeedTravelTimeSparseMatrix);
+		}
 	}
 
 	@Override
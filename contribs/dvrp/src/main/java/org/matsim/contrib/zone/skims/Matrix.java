@@ -22,15 +22,19 @@ package org.matsim.contrib.zone.skims;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import java.nio.ShortBuffer;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.NoSuchElementException;
-import java.util.Set;
 
 import org.matsim.api.core.v01.Id;
 import org.matsim.contrib.zone.Zone;
 
 /**
  * Based on FloatMatrix from sbb-matsim-extensions
+ * <p>
+ * Rows are stored in {@link ShortBuffer}s, which are either backed by arrays (if the matrix is computed) or by a
+ * memory-mapped file (if the matrix is loaded from {@link TravelTimeMatrixCache}).
  *
  * @author Michal Maciejewski (michalm)
  */
@@ -41,9 +45,21 @@ public final class Matrix {
 
 	//there are usually not so many Zone objects, so not a problem if zoneIndex2localIndex is sparse
 	private final int[] zoneIndex2matrixIndex = new int[Id.getNumberOfIds(Zone.class)];
-	private final short[][] matrix;
+	private final Zone[] zones;
+	private final ShortBuffer[] matrix;
+
+	Matrix(Collection<Zone> zones) {
+		this(zones, createRows(zones.size()));
+	}
+
+	/**
+	 * @param rows rows (and columns within rows) must be ordered the same way as zones
+	 */
+	Matrix(Collection<Zone> zones, ShortBuffer[] rows) {
+		checkArgument(rows.length == zones.size());
+		this.zones = zones.toArray(new Zone[0]);
+		this.matrix = rows;
 
-	Matrix(Set<Zone> zones) {
 		//to make sure we do not refer to zones added later
 		Arrays.fill(zoneIndex2matrixIndex, -1);
 
@@ -52,15 +68,20 @@ public final class Matrix {
 			zoneIndex2matrixIndex[zone.getId().index()] = nextIndex;
 			nextIndex++;
 		}
+	}
 
-		matrix = new short[zones.size()][zones.size()];
-		for (var row : matrix) {
+	private static ShortBuffer[] createRows(int size) {
+		ShortBuffer[] rows = new ShortBuffer[size];
+		for (int i = 0; i < size; i++) {
+			short[] row = new short[size];
 			Arrays.fill(row, (short)MAX_UNSIGNED_SHORT);//-1
+			rows[i] = ShortBuffer.wrap(row);
 		}
+		return rows;
 	}
 
 	public int get(Zone fromZone, Zone toZone) {
-		short shortValue = matrix[matrixIndex(fromZone)][matrixIndex(toZone)];
+		short shortValue = matrix[matrixIndex(fromZone)].get(matrixIndex(toZone));
 		if (shortValue == -1) {
 			throw new NoSuchElementException("No value set for zones: " + fromZone.getId() + " -> " + toZone.getId());
 		}
@@ -69,7 +90,21 @@ public final class Matrix {
 
 	public void set(Zone fromZone, Zone toZone, double value) {
 		checkArgument(Double.isFinite(value) && value >= 0 && value < MAX_UNSIGNED_SHORT);
-		matrix[matrixIndex(fromZone)][matrixIndex(toZone)] = (short)value;
+		matrix[matrixIndex(fromZone)].put(matrixIndex(toZone), (short)value);
+	}
+
+	/**
+	 * @return zones in the order of rows (and columns)
+	 */
+	Zone[] getZones() {
+		return zones;
+	}
+
+	/**
+	 * @return read-only view of the row
+	 */
+	ShortBuffer getRow(int matrixIndex) {
+		return matrix[matrixIndex].asReadOnlyBuffer();
 	}
 
 	private int matrixIndex(Zone zone) {
@@ -49,6 +49,10 @@ public final class SparseMatrix {
 		}
 	}
 
+	interface EntryConsumer {
+		void accept(int nodeIdx, int time);
+	}
+
 	private static final class Bucket {
 		private final int[] nodeIndices; // sorted for binary search
 		private final short[] values; // aligned with nodeIndices (using 'short' as in Matrix)
@@ -71,6 +75,12 @@ public final class SparseMatrix {
 		private int get(int toNodeIndex) {
 			return values[Arrays.binarySearch(nodeIndices, toNodeIndex)];
 		}
+
+		private void forEach(EntryConsumer consumer) {
+			for (int i = 0; i < nodeIndices.length; i++) {
+				consumer.accept(nodeIndices[i], Short.toUnsignedInt(values[i]));
+			}
+		}
 	}
 
 	public static final class SparseRow {
@@ -121,6 +131,18 @@ public final class SparseMatrix {
 					buckets[toNodeIndex & mask].get(toNodeIndex) :
 					-1; // value not present in the row
 		}
+
+		int size() {
+			return presentNodes.cardinality();
+		}
+
+		void forEach(EntryConsumer consumer) {
+			if (buckets != null) {
+				for (Bucket bucket : buckets) {
+					bucket.forEach(consumer);
+				}
+			}
+		}
 	}
 
 	private final SparseRow[] rows = new SparseRow[Id.getNumberOfIds(Node.class)];
@@ -135,6 +157,10 @@ public final class SparseMatrix {
 		return get(fromNode.getId().index(), toNode.getId().index());
 	}
 
+	SparseRow getRow(Node fromNode) {
+		return rows[fromNode.getId().index()];
+	}
+
 	public void setRow(Node fromNode, SparseRow row) {
 		rows[fromNode.getId().index()] = row;
 	}
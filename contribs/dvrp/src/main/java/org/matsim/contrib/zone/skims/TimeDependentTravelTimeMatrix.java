@@ -0,0 +1,208 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.zone.skims;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.dvrp.router.TimeAsTravelDisutility;
+import org.matsim.contrib.dvrp.util.TimeDiscretizer;
+import org.matsim.contrib.zone.SquareGridSystem;
+import org.matsim.contrib.zone.ZonalSystems;
+import org.matsim.contrib.zone.Zone;
+import org.matsim.core.controler.events.AfterMobsimEvent;
+import org.matsim.core.controler.events.BeforeMobsimEvent;
+import org.matsim.core.controler.events.ShutdownEvent;
+import org.matsim.core.controler.listener.AfterMobsimListener;
+import org.matsim.core.controler.listener.BeforeMobsimListener;
+import org.matsim.core.controler.listener.ShutdownListener;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Time-dependent travel time matrix. The free-speed travel times (taken from the zonal and the sparse matrices of
+ * {@link FreeSpeedTravelTimeMatrix}, so exact for the neighbouring nodes) are multiplied by a congestion factor that
+ * depends on the departure time bin and the (coarse) zones of the origin and destination nodes. For each time bin, the
+ * factors are obtained by comparing the congested and the free-speed zonal matrices computed between the most central
+ * nodes of the coarse zones. For origin and destination in the same coarse zone, the ratio of the congested to the
+ * free-speed link travel times (summed over the links ending in that zone) is used. Factors are not smaller than 1,
+ * so the travel times are not optimistic and must not be used by admissible estimators.
+ * <p>
+ * The factors are computed in parallel using the given travel times (typically, the DVRP travel time estimates) when
+ * the matrix is created, and then recomputed in the background after each mobsim (except for the last one), once the
+ * estimates have been updated. Before the next mobsim starts, the new factors replace the old ones. The background
+ * thread is shut down at the end of the run.
+ * <p>
+ * The factors take (number of coarse zones)^2 * (number of time bins) * 4 bytes, which must not exceed
+ * {@link DvrpTravelTimeMatrixParams#getCongestionFactorsMaxMemory()}.
+ */
+public class TimeDependentTravelTimeMatrix
+		implements TravelTimeMatrix, AfterMobsimListener, BeforeMobsimListener, ShutdownListener {
+	private static final Logger log = LogManager.getLogger(TimeDependentTravelTimeMatrix.class);
+
+	private final TravelTimeMatrix freeSpeedMatrix;
+	private final Network network;
+	private final TravelTime freeSpeedTravelTime;
+	private final TravelTime travelTime;
+	private final TimeDiscretizer timeDiscretizer;
+	private final int numberOfThreads;
+
+	private final SquareGridSystem gridSystem;
+	private final Map<Zone, Node> centralNodes;
+	private final int[] zoneIndex2matrixIndex;
+	private final int zoneCount;
+	private final Matrix freeSpeedZonalMatrix;
+
+	// [time bin][fromZone * zoneCount + toZone]
+	private volatile float[][] congestionFactors;
+	private final ExecutorService executorService = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "TimeDependentTravelTimeMatrix");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private CompletableFuture<float[][]> pendingUpdate;
+
+	public TimeDependentTravelTimeMatrix(TravelTimeMatrix freeSpeedMatrix, Network dvrpNetwork,
+			DvrpTravelTimeMatrixParams params, TimeDiscretizer timeDiscretizer, int numberOfThreads,
+			TravelTime freeSpeedTravelTime, TravelTime travelTime) {
+		this.freeSpeedMatrix = freeSpeedMatrix;
+		this.network = dvrpNetwork;
+		this.freeSpeedTravelTime = freeSpeedTravelTime;
+		this.travelTime = travelTime;
+		this.timeDiscretizer = timeDiscretizer;
+		this.numberOfThreads = numberOfThreads;
+
+		gridSystem = new SquareGridSystem(dvrpNetwork.getNodes().values(), params.getCongestionCellSize());
+		centralNodes = ZonalSystems.computeMostCentralNodes(dvrpNetwork.getNodes().values(), gridSystem);
+
+		//created after the zones, see Matrix
+		zoneIndex2matrixIndex = new int[Id.getNumberOfIds(Zone.class)];
+		Arrays.fill(zoneIndex2matrixIndex, -1);
+		int nextIndex = 0;
+		for (Zone zone : centralNodes.keySet()) {
+			zoneIndex2matrixIndex[zone.getId().index()] = nextIndex++;
+		}
+		zoneCount = nextIndex;
+
+		long megabytes = (4L * zoneCount * zoneCount * timeDiscretizer.getIntervalCount()) >> 20;
+		checkArgument(megabytes <= params.getCongestionFactorsMaxMemory(),
+				"Congestion factors for %s zones and %s time bins would take %s MB, more than %s (%s). Increase %s or %s.",
+				zoneCount, timeDiscretizer.getIntervalCount(), megabytes,
+				DvrpTravelTimeMatrixParams.CONGESTION_FACTORS_MAX_MEMORY, params.getCongestionFactorsMaxMemory(),
+				DvrpTravelTimeMatrixParams.CONGESTION_CELL_SIZE, DvrpTravelTimeMatrixParams.CONGESTION_TIME_BIN_SIZE);
+
+		freeSpeedZonalMatrix = TravelTimeMatrices.calculateTravelTimeMatrix(dvrpNetwork, centralNodes, 0,
+				freeSpeedTravelTime, new TimeAsTravelDisutility(freeSpeedTravelTime), numberOfThreads);
+		congestionFactors = calculateCongestionFactors();
+	}
+
+	@Override
+	public int getTravelTime(Node fromNode, Node toNode, double departureTime) {
+		int freeSpeedTime = freeSpeedMatrix.getTravelTime(fromNode, toNode, departureTime);
+		if (freeSpeedTime == 0) {
+			return 0;
+		}
+		float[] factors = congestionFactors[timeDiscretizer.getIdx(Math.max(departureTime, 0))];
+		return Math.round(freeSpeedTime * factors[matrixIndex(fromNode) * zoneCount + matrixIndex(toNode)]);
+	}
+
+	private int matrixIndex(Node node) {
+		return zoneIndex2matrixIndex[gridSystem.getZone(node).getId().index()];
+	}
+
+	@Override
+	public void notifyAfterMobsim(AfterMobsimEvent event) {
+		if (event.isLastIteration()) {
+			return;// no mobsim will use the new factors
+		}
+		pendingUpdate = CompletableFuture.supplyAsync(this::calculateCongestionFactors, executorService);
+	}
+
+	@Override
+	public void notifyBeforeMobsim(BeforeMobsimEvent event) {
+		if (pendingUpdate != null) {
+			congestionFactors = pendingUpdate.join();
+			pendingUpdate = null;
+		}
+	}
+
+	@Override
+	public void notifyShutdown(ShutdownEvent event) {
+		if (pendingUpdate != null) {
+			pendingUpdate.cancel(true);
+			pendingUpdate = null;
+		}
+		executorService.shutdownNow();
+	}
+
+	private float[][] calculateCongestionFactors() {
+		log.info("Calculating congestion factors for " + zoneCount + " zones and " + timeDiscretizer.getIntervalCount()
+				+ " time bins");
+		float[][] factors = new float[timeDiscretizer.getIntervalCount()][];
+		var travelDisutility = new TimeAsTravelDisutility(travelTime);
+		timeDiscretizer.forEach((bin, time) -> {
+			Matrix congestedZonalMatrix = TravelTimeMatrices.calculateTravelTimeMatrix(network, centralNodes, time,
+					travelTime, travelDisutility, numberOfThreads);
+			float[] binFactors = factors[bin] = new float[zoneCount * zoneCount];
+			for (Zone fromZone : centralNodes.keySet()) {
+				int fromIdx = zoneIndex2matrixIndex[fromZone.getId().index()];
+				for (Zone toZone : centralNodes.keySet()) {
+					int toIdx = zoneIndex2matrixIndex[toZone.getId().index()];
+					int freeSpeedTime = freeSpeedZonalMatrix.get(fromZone, toZone);
+					binFactors[fromIdx * zoneCount + toIdx] = freeSpeedTime > 0 ?
+							toFactor(congestedZonalMatrix.get(fromZone, toZone), freeSpeedTime) :
+							1;
+				}
+			}
+			calculateIntraZonalFactors(time, binFactors);
+		});
+		return factors;
+	}
+
+	private void calculateIntraZonalFactors(double time, float[] binFactors) {
+		double[] congestedTimes = new double[zoneCount];
+		double[] freeSpeedTimes = new double[zoneCount];
+		for (Link link : network.getLinks().values()) {
+			int idx = matrixIndex(link.getToNode());
+			congestedTimes[idx] += travelTime.getLinkTravelTime(link, time, null, null);
+			freeSpeedTimes[idx] += freeSpeedTravelTime.getLinkTravelTime(link, time, null, null);
+		}
+		for (int idx = 0; idx < zoneCount; idx++) {
+			binFactors[idx * zoneCount + idx] = freeSpeedTimes[idx] > 0 ?
+					toFactor(congestedTimes[idx], freeSpeedTimes[idx]) :
+					1;
+		}
+	}
+
+	private static float toFactor(double congestedTime, double freeSpeedTime) {
+		return (float)Math.max(1, congestedTime / freeSpeedTime);
+	}
+}
@@ -0,0 +1,290 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+
+package org.matsim.contrib.zone.skims;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ShortBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nullable;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.zone.ZonalSystem;
+import org.matsim.contrib.zone.Zone;
+import org.matsim.contrib.zone.skims.SparseMatrix.NodeAndTime;
+import org.matsim.contrib.zone.skims.SparseMatrix.SparseRow;
+import org.matsim.core.router.util.TravelTime;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.CountingInputStream;
+
+/**
+ * File cache of the zonal and the sparse free-speed travel time matrices, so that they are not recomputed in each run
+ * (e.g. when running many scenarios on the same network). The cache file name contains a hash of the inputs (nodes,
+ * links, link travel times and matrix params), hence any change of them results in a new file. Files are written to a
+ * temporary file and then moved, so runs sharing the cache directory never read incomplete files.
+ * <p>
+ * The zonal matrix is memory-mapped (read-only) when loaded, so the OS page cache can be shared by runs executed in
+ * parallel on the same machine. The sparse matrix is loaded into the heap. Since {@link Id} indices depend on the order
+ * of Id creation, nodes are referred to by their positions in the list of nodes sorted by Id, and zones by their Ids.
+ */
+public final class TravelTimeMatrixCache {
+	private static final Logger log = LogManager.getLogger(TravelTimeMatrixCache.class);
+
+	private static final int MAGIC = 0x4454544D; // "DTTM"
+	private static final int VERSION = 1;
+	private static final int NO_ROW = -1;
+
+	static final class CachedMatrices {
+		final Matrix matrix;
+		final SparseMatrix sparseMatrix;
+
+		private CachedMatrices(Matrix matrix, SparseMatrix sparseMatrix) {
+			this.matrix = matrix;
+			this.sparseMatrix = sparseMatrix;
+		}
+	}
+
+	private final Path cacheFile;
+	private final String key;
+	private final List<Node> sortedNodes;
+
+	public TravelTimeMatrixCache(Path cacheDirectory, Network dvrpNetwork, DvrpTravelTimeMatrixParams params,
+			TravelTime travelTime) {
+		sortedNodes = dvrpNetwork.getNodes()
+				.values()
+				.stream()
+				.sorted(Comparator.comparing(Node::getId))
+				.collect(Collectors.toList());
+		key = computeKey(sortedNodes, dvrpNetwork, params, travelTime);
+		cacheFile = cacheDirectory.resolve("travel_time_matrix_" + key + ".bin");
+	}
+
+	private static String computeKey(List<Node> sortedNodes, Network network, DvrpTravelTimeMatrixParams params,
+			TravelTime travelTime) {
+		Hasher hasher = Hashing.sha256().newHasher();
+		hasher.putInt(VERSION).putInt(params.getCellSize()).putInt(params.getMaxNeighborDistance());
+		for (Node node : sortedNodes) {
+			hasher.putString(node.getId().toString(), StandardCharsets.UTF_8)
+					.putDouble(node.getCoord().getX())
+					.putDouble(node.getCoord().getY());
+		}
+		List<Link> sortedLinks = network.getLinks()
+				.values()
+				.stream()
+				.sorted(Comparator.comparing(Link::getId))
+				.collect(Collectors.toList());
+		for (Link link : sortedLinks) {
+			hasher.putString(link.getId().toString(), StandardCharsets.UTF_8)
+					.putString(link.getFromNode().getId().toString(), StandardCharsets.UTF_8)
+					.putString(link.getToNode().getId().toString(), StandardCharsets.UTF_8)
+					.putDouble(link.getLength())
+					.putDouble(travelTime.getLinkTravelTime(link, 0, null, null));// matrices are computed for time 0
+		}
+		return hasher.hash().toString();
+	}
+
+	Path getCacheFile() {
+		return cacheFile;
+	}
+
+	/**
+	 * @return cached matrices, or {@code null} if there is no (valid) cache file
+	 */
+	@Nullable
+	CachedMatrices load(ZonalSystem zonalSystem) {
+		if (!Files.exists(cacheFile)) {
+			return null;
+		}
+
+		try (FileChannel channel = FileChannel.open(cacheFile)) {
+			var countingIn = new CountingInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+			var in = new DataInputStream(countingIn);
+			if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(key)) {
+				log.warn("Ignoring invalid travel time matrix cache file: " + cacheFile);
+				return null;
+			}
+
+			int zoneCount = in.readInt();
+			if (zoneCount != zonalSystem.getZones().size()) {
+				log.warn("Ignoring travel time matrix cache file with a different zonal system: " + cacheFile);
+				return null;
+			}
+			List<Zone> zones = new ArrayList<>(zoneCount);
+			for (int i = 0; i < zoneCount; i++) {
+				Zone zone = zonalSystem.getZones().get(Id.create(in.readUTF(), Zone.class));
+				if (zone == null) {
+					log.warn("Ignoring travel time matrix cache file with a different zonal system: " + cacheFile);
+					return null;
+				}
+				zones.add(zone);
+			}
+
+			int nodeCount = in.readInt();
+			if (nodeCount != sortedNodes.size()) {
+				log.warn("Ignoring travel time matrix cache file with a different network: " + cacheFile);
+				return null;
+			}
+
+			long matrixOffset = alignedOffset(countingIn.getCount());
+			long rowBytes = (long)zoneCount * Short.BYTES;
+			Matrix matrix = new Matrix(zones, mapRows(channel, matrixOffset, zoneCount, rowBytes));
+
+			channel.position(matrixOffset + zoneCount * rowBytes);
+			in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+			SparseMatrix sparseMatrix = new SparseMatrix();
+			for (Node node : sortedNodes) {
+				int size = in.readInt();
+				if (size == NO_ROW) {
+					continue;
+				}
+				List<NodeAndTime> nodeAndTimes = new ArrayList<>(size);
+				for (int i = 0; i < size; i++) {
+					Node toNode = sortedNodes.get(in.readInt());
+					nodeAndTimes.add(new NodeAndTime(toNode.getId().index(), in.readUnsignedShort()));
+				}
+				sparseMatrix.setRow(node, new SparseRow(nodeAndTimes));
+			}
+
+			log.info("Travel time matrices loaded from cache file: " + cacheFile);
+			return new CachedMatrices(matrix, sparseMatrix);
+		} catch (IOException | RuntimeException e) {
+			log.warn("Failed to load travel time matrix cache file: " + cacheFile, e);
+			return null;
+		}
+	}
+
+	private static ShortBuffer[] mapRows(FileChannel channel, long offset, int rowCount, long rowBytes)
+			throws IOException {
+		// a single buffer can map at most 2 GB, so (whole) rows are split into chunks
+		int rowsPerChunk = (int)Math.max(1, Math.min(rowCount, Integer.MAX_VALUE / Math.max(rowBytes, 1)));
+		ShortBuffer[] rows = new ShortBuffer[rowCount];
+		for (int chunkStart = 0; chunkStart < rowCount; chunkStart += rowsPerChunk) {
+			int chunkRows = Math.min(rowsPerChunk, rowCount - chunkStart);
+			ShortBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, offset + chunkStart * rowBytes,
+					chunkRows * rowBytes).asShortBuffer();
+			int rowLength = (int)(rowBytes / Short.BYTES);
+			for (int r = 0; r < chunkRows; r++) {
+				ShortBuffer row = chunk.duplicate();
+				row.position(r * rowLength).limit((r + 1) * rowLength);
+				rows[chunkStart + r] = row.slice();
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Failures are logged, but not propagated (the matrices have already been computed).
+	 */
+	void store(Matrix matrix, SparseMatrix sparseMatrix) {
+		Path tempFile = null;
+		try {
+			Files.createDirectories(cacheFile.getParent());
+			tempFile = Files.createTempFile(cacheFile.getParent(), cacheFile.getFileName().toString(), ".tmp");
+			try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeUTF(key);
+
+				Zone[] zones = matrix.getZones();
+				out.writeInt(zones.length);
+				for (Zone zone : zones) {
+					out.writeUTF(zone.getId().toString());
+				}
+				out.writeInt(sortedNodes.size());
+
+				while (out.size() != alignedOffset(out.size())) {
+					out.writeByte(0);
+				}
+				for (int i = 0; i < zones.length; i++) {
+					ShortBuffer row = matrix.getRow(i);
+					while (row.hasRemaining()) {
+						out.writeShort(row.get());
+					}
+				}
+
+				int[] nodeIndex2position = new int[Id.getNumberOfIds(Node.class)];
+				for (int i = 0; i < sortedNodes.size(); i++) {
+					nodeIndex2position[sortedNodes.get(i).getId().index()] = i;
+				}
+				for (Node node : sortedNodes) {
+					SparseRow row = sparseMatrix.getRow(node);
+					if (row == null) {
+						out.writeInt(NO_ROW);
+						continue;
+					}
+					int[] positionsAndTimes = new int[2 * row.size()];
+					int[] next = { 0 };
+					row.forEach((nodeIdx, time) -> {
+						positionsAndTimes[next[0]++] = nodeIndex2position[nodeIdx];
+						positionsAndTimes[next[0]++] = time;
+					});
+					out.writeInt(row.size());
+					for (int i = 0; i < positionsAndTimes.length; i += 2) {
+						out.writeInt(positionsAndTimes[i]);
+						out.writeShort(positionsAndTimes[i + 1]);
+					}
+				}
+			}
+
+			try {
+				Files.move(tempFile, cacheFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+			}
+			log.info("Travel time matrices stored in cache file: " + cacheFile);
+		} catch (IOException e) {
+			log.warn("Failed to store travel time matrices in cache file: " + cacheFile, e);
+			if (tempFile != null) {
+				try {
+					Files.deleteIfExists(tempFile);
+				} catch (IOException ignored) {
+				}
+			}
+		}
+	}
+
+	// the matrix is aligned to 8 bytes within the file (mapped pages are aligned as well)
+	private static long alignedOffset(long offset) {
+		return (offset + 7) & ~7L;
+	}
+}
@@ -21,6 +21,7 @@
 package org.matsim.contrib.dvrp.path;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -227,6 +228,23 @@ public class OneToManyPathCalculatorTest {
 		}
 	}
 
+	@Test
+	public void pathData_detachedBeforeReset() {
+		var pathCalculator = new OneToManyPathCalculator(nodeMap, dijkstraTree, travelTime, true, linkAB, 0);
+		pathCalculator.calculateDijkstraTree(List.of(linkDE));
+		var detachedPathData = pathCalculator.createPathDataLazily(linkDE).detach();
+		var lazyPathData = pathCalculator.createPathDataLazily(linkDE);
+
+		//the tree is reused for a backward search
+		pathCalculator.reset(false, linkDE, 0);
+		pathCalculator.calculateDijkstraTree(List.of(linkAB));
+
+		//path: B -> C -> D
+		assertPathData(detachedPathData,
+				new Path(ImmutableList.of(nodeB, nodeC, nodeD), ImmutableList.of(linkBC, linkCD), 20, 20), 1 + 10);
+		assertThatThrownBy(lazyPathData::getPath).isExactlyInstanceOf(IllegalStateException.class);
+	}
+
 	private void assertPathData(PathData pathData, Path expectedPath, double firstAndLastLinkTT) {
 		assertThat(pathData.getPath()).isEqualToComparingFieldByField(expectedPath);
 		assertThat(pathData.getTravelTime()).isEqualTo(expectedPath.travelTime + firstAndLastLinkTT);
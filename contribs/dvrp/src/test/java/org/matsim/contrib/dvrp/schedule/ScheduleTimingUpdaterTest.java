@@ -0,0 +1,120 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.dvrp.schedule;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicle;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicleImpl;
+import org.matsim.contrib.dvrp.fleet.ImmutableDvrpVehicleSpecification;
+import org.matsim.contrib.dvrp.path.VrpPathWithTravelDataImpl;
+import org.matsim.contrib.dvrp.schedule.Task.TaskType;
+import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.testcases.fakes.FakeLink;
+
+public class ScheduleTimingUpdaterTest {
+	private enum TestTaskType implements TaskType {
+		DRIVE, WAIT, STOP
+	}
+
+	private final Link link = new FakeLink(Id.createLinkId("link"));
+	private final DvrpVehicle vehicle = new DvrpVehicleImpl(ImmutableDvrpVehicleSpecification.newBuilder()
+			.id(Id.create("veh", DvrpVehicle.class))
+			.serviceBeginTime(0)
+			.serviceEndTime(100)
+			.capacity(1)
+			.startLinkId(link.getId())
+			.build(), link);
+
+	// WAIT absorbs delays (until its end time), STOP lasts 10 s
+	private int calculatorCalls = 0;
+	private final ScheduleTimingUpdater.StayTaskEndTimeCalculator calculator = (v, task, newBeginTime) -> {
+		calculatorCalls++;
+		return task.getTaskType() == TestTaskType.WAIT ? Math.max(newBeginTime, task.getEndTime()) : newBeginTime + 10;
+	};
+
+	private final Task drive = new DefaultDriveTask(TestTaskType.DRIVE,
+			new VrpPathWithTravelDataImpl(10, 10, new Link[] { link }, new double[] { 0 }));
+	private final Task wait = new DefaultStayTask(TestTaskType.WAIT, 20, 50, link);
+	private final Task stop = new DefaultStayTask(TestTaskType.STOP, 50, 60, link);
+	private final Task lastWait = new DefaultStayTask(TestTaskType.WAIT, 60, 100, link);
+
+	private final ScheduleTimingUpdater updater = new ScheduleTimingUpdater(new MobsimTimer(), calculator);
+
+	public ScheduleTimingUpdaterTest() {
+		vehicle.getSchedule().addTask(new DefaultStayTask(TestTaskType.STOP, 0, 10, link));
+		vehicle.getSchedule().addTask(drive);
+		vehicle.getSchedule().addTask(wait);
+		vehicle.getSchedule().addTask(stop);
+		vehicle.getSchedule().addTask(lastWait);
+	}
+
+	@Test
+	public void delayAbsorbed_updateStopsAtFirstUnchangedTask() {
+		updater.updateTimingsStartingFromTaskIdx(vehicle, 1, 15);
+
+		assertTiming(drive, 15, 25);
+		assertTiming(wait, 25, 50);
+		assertTiming(stop, 50, 60);// unchanged: the update stops here
+		assertTiming(lastWait, 60, 100);
+		assertThat(calculatorCalls).isEqualTo(2);// wait, stop
+	}
+
+	@Test
+	public void delayPropagated() {
+		updater.updateTimingsStartingFromTaskIdx(vehicle, 1, 45);
+
+		assertTiming(drive, 45, 55);
+		assertTiming(wait, 55, 55);
+		assertTiming(stop, 55, 65);
+		assertTiming(lastWait, 65, 100);
+		assertThat(calculatorCalls).isEqualTo(3);
+	}
+
+	@Test
+	public void unchangedBeginTime_inconsistentEndTimeRecalculated() {
+		// the stop lasts 20 s instead of 10 s, so it is updated (and so is the next task) despite the same begin time
+		stop.setEndTime(70);
+		lastWait.setBeginTime(70);
+		updater.updateTimingsStartingFromTaskIdx(vehicle, 1, 15);
+
+		assertTiming(wait, 25, 50);
+		assertTiming(stop, 50, 60);
+		assertTiming(lastWait, 60, 100);
+	}
+
+	@Test
+	public void gapAfterUnchangedTask_nextTaskUpdated() {
+		lastWait.setBeginTime(65);
+		updater.updateTimingsStartingFromTaskIdx(vehicle, 1, 15);
+
+		assertTiming(stop, 50, 60);
+		assertTiming(lastWait, 60, 100);
+	}
+
+	private void assertTiming(Task task, double beginTime, double endTime) {
+		assertThat(task.getBeginTime()).isEqualTo(beginTime);
+		assertThat(task.getEndTime()).isEqualTo(endTime);
+	}
+}
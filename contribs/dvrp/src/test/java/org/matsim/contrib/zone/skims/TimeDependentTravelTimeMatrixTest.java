@@ -0,0 +1,138 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.zone.skims;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.dvrp.trafficmonitoring.QSimFreeSpeedTravelTime;
+import org.matsim.contrib.dvrp.util.TimeDiscretizer;
+import org.matsim.core.controler.events.AfterMobsimEvent;
+import org.matsim.core.controler.events.ShutdownEvent;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.util.TravelTime;
+
+public class TimeDependentTravelTimeMatrixTest {
+
+	private final Network network = NetworkUtils.createNetwork();
+	private final Node nodeA = NetworkUtils.createAndAddNode(network, Id.createNodeId("A"), new Coord(0, 0));
+	private final Node nodeB = NetworkUtils.createAndAddNode(network, Id.createNodeId("B"), new Coord(150, 150));
+	private final Node nodeC = NetworkUtils.createAndAddNode(network, Id.createNodeId("C"), new Coord(-10, -10));
+
+	private final TravelTime freeSpeedTravelTime = new QSimFreeSpeedTravelTime(1);
+
+	// congested (2x slower) from 3600 on; the slowdown can be changed to simulate an update of the estimates
+	private double slowdown = 2;
+	private final TravelTime travelTime = (link, time, person, vehicle) -> (time >= 3600 ? slowdown : 1)
+			* freeSpeedTravelTime.getLinkTravelTime(link, time, person, vehicle);
+
+	public TimeDependentTravelTimeMatrixTest() {
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("AB"), nodeA, nodeB, 150, 15, 20, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("BA"), nodeB, nodeA, 300, 15, 40, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("AC"), nodeA, nodeC, 165, 15, 20, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("CA"), nodeC, nodeA, 135, 15, 20, 1);
+	}
+
+	@Test
+	public void matrix() {
+		// A and C are in the same (coarse) zone, B is in another one
+		var matrix = createMatrix();
+
+		// free flow
+		assertThat(matrix.getTravelTime(nodeA, nodeA, 0)).isEqualTo(0);
+		assertThat(matrix.getTravelTime(nodeA, nodeB, 0)).isEqualTo(10 + 1); // 1 s for moving over nodes
+		assertThat(matrix.getTravelTime(nodeB, nodeA, 0)).isEqualTo(20 + 1);
+		assertThat(matrix.getTravelTime(nodeA, nodeC, 0)).isEqualTo(11 + 1);
+		assertThat(matrix.getTravelTime(nodeC, nodeA, 0)).isEqualTo(9 + 1);
+
+		// congested: inter- and intra-zonal
+		assertThat(matrix.getTravelTime(nodeA, nodeA, 3600)).isEqualTo(0);
+		assertThat(matrix.getTravelTime(nodeA, nodeB, 3600)).isEqualTo(2 * (10 + 1));
+		assertThat(matrix.getTravelTime(nodeB, nodeA, 3600)).isEqualTo(2 * (20 + 1));
+		assertThat(matrix.getTravelTime(nodeA, nodeC, 3600)).isEqualTo(2 * (11 + 1));
+		assertThat(matrix.getTravelTime(nodeC, nodeA, 3600)).isEqualTo(2 * (9 + 1));
+
+		// beyond max time: the last (open-ended) time bin
+		assertThat(matrix.getTravelTime(nodeA, nodeB, 99999)).isEqualTo(2 * (10 + 1));
+	}
+
+	@Test
+	public void update() {
+		var matrix = createMatrix();
+		assertThat(matrix.getTravelTime(nodeA, nodeB, 3600)).isEqualTo(2 * (10 + 1));
+
+		slowdown = 3;
+		matrix.notifyAfterMobsim(new AfterMobsimEvent(null, 0, false));
+		// the new factors are used only once the next mobsim starts
+		matrix.notifyBeforeMobsim(null);
+		assertThat(matrix.getTravelTime(nodeA, nodeB, 3600)).isEqualTo(3 * (10 + 1));
+
+		// no factors are slower than free flow
+		slowdown = 0.5;
+		matrix.notifyAfterMobsim(new AfterMobsimEvent(null, 0, false));
+		matrix.notifyBeforeMobsim(null);
+		assertThat(matrix.getTravelTime(nodeA, nodeB, 3600)).isEqualTo(10 + 1);
+
+		// no update after the last mobsim
+		slowdown = 3;
+		matrix.notifyAfterMobsim(new AfterMobsimEvent(null, 1, true));
+		matrix.notifyBeforeMobsim(null);
+		assertThat(matrix.getTravelTime(nodeA, nodeB, 3600)).isEqualTo(10 + 1);
+
+		// no updates after shutdown
+		matrix.notifyShutdown(new ShutdownEvent(null, false, 1));
+		assertThatThrownBy(() -> matrix.notifyAfterMobsim(new AfterMobsimEvent(null, 2, false)))
+				.isInstanceOf(RejectedExecutionException.class);
+	}
+
+	@Test
+	public void maxMemory() {
+		// 3 zones x 3 zones x 100_001 time bins x 4 bytes = 3.4 MB
+		var params = createParams().setCongestionCellSize(10).setCongestionFactorsMaxMemory(1);
+		var timeDiscretizer = new TimeDiscretizer(100_000, 1);
+		assertThatThrownBy(() -> createMatrix(params, timeDiscretizer)).isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining(DvrpTravelTimeMatrixParams.CONGESTION_FACTORS_MAX_MEMORY);
+	}
+
+	private TimeDependentTravelTimeMatrix createMatrix() {
+		return createMatrix(createParams(), new TimeDiscretizer(7200, 3600));
+	}
+
+	private DvrpTravelTimeMatrixParams createParams() {
+		return new DvrpTravelTimeMatrixParams().setCellSize(100)
+				.setMaxNeighborDistance(9999)
+				.setCongestionCellSize(100);
+	}
+
+	private TimeDependentTravelTimeMatrix createMatrix(DvrpTravelTimeMatrixParams params,
+			TimeDiscretizer timeDiscretizer) {
+		var freeSpeedMatrix = new FreeSpeedTravelTimeMatrix(network, params, 1, freeSpeedTravelTime);
+		return new TimeDependentTravelTimeMatrix(freeSpeedMatrix, network, params, timeDiscretizer, 1,
+				freeSpeedTravelTime, travelTime);
+	}
+}
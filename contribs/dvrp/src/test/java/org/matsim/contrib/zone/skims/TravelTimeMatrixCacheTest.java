@@ -0,0 +1,105 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+
+package org.matsim.contrib.zone.skims;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.dvrp.trafficmonitoring.QSimFreeSpeedTravelTime;
+import org.matsim.contrib.zone.SquareGridSystem;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.util.TravelTime;
+
+public class TravelTimeMatrixCacheTest {
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private final Network network = NetworkUtils.createNetwork();
+	private final Node nodeA = NetworkUtils.createAndAddNode(network, Id.createNodeId("A"), new Coord(0, 0));
+	private final Node nodeB = NetworkUtils.createAndAddNode(network, Id.createNodeId("B"), new Coord(150, 150));
+	private final Node nodeC = NetworkUtils.createAndAddNode(network, Id.createNodeId("C"), new Coord(-10, -10));
+
+	private final TravelTime travelTime = new QSimFreeSpeedTravelTime(1);
+
+	public TravelTimeMatrixCacheTest() {
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("AB"), nodeA, nodeB, 150, 15, 20, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("BA"), nodeB, nodeA, 300, 15, 40, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("AC"), nodeA, nodeC, 165, 15, 20, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("CA"), nodeC, nodeA, 135, 15, 20, 1);
+	}
+
+	@Test
+	public void storeAndLoad() {
+		Path cacheDirectory = temporaryFolder.getRoot().toPath();
+		// C is a neighbour of A (the sparse matrix), B is not (the zonal matrix)
+		DvrpTravelTimeMatrixParams params = new DvrpTravelTimeMatrixParams().setCellSize(100)
+				.setMaxNeighborDistance(200)
+				.setCacheDirectory(cacheDirectory.toString());
+
+		var cache = new TravelTimeMatrixCache(cacheDirectory, network, params, travelTime);
+		var gridSystem = new SquareGridSystem(network.getNodes().values(), params.getCellSize());
+		assertThat(cache.load(gridSystem)).isNull();
+
+		var computedMatrix = new FreeSpeedTravelTimeMatrix(network, params, 1, travelTime);
+		assertThat(cache.getCacheFile()).exists();
+
+		var cachedMatrices = cache.load(gridSystem);
+		assertThat(cachedMatrices).isNotNull();
+		var loadedMatrix = new FreeSpeedTravelTimeMatrix(network, params, 1, travelTime);
+		for (Node from : network.getNodes().values()) {
+			for (Node to : network.getNodes().values()) {
+				assertThat(loadedMatrix.getTravelTime(from, to, 0)).isEqualTo(computedMatrix.getTravelTime(from, to, 0));
+			}
+		}
+		assertThat(loadedMatrix.getTravelTime(nodeA, nodeC, 0)).isEqualTo(11 + 1);
+		assertThat(loadedMatrix.getTravelTime(nodeB, nodeA, 0)).isEqualTo(20 + 1);
+		assertThat(cachedMatrices.matrix.get(gridSystem.getZone(nodeA), gridSystem.getZone(nodeB))).isEqualTo(10 + 1);
+	}
+
+	@Test
+	public void differentInputs_differentCacheFiles() throws Exception {
+		Path cacheDirectory = temporaryFolder.getRoot().toPath();
+		DvrpTravelTimeMatrixParams params = new DvrpTravelTimeMatrixParams().setCacheDirectory(
+				cacheDirectory.toString());
+		var cache = new TravelTimeMatrixCache(cacheDirectory, network, params, travelTime);
+
+		assertThat(new TravelTimeMatrixCache(cacheDirectory, network, params, travelTime).getCacheFile()).isEqualTo(
+				cache.getCacheFile());
+		assertThat(new TravelTimeMatrixCache(cacheDirectory, network, params.setCellSize(300),
+				travelTime).getCacheFile()).isNotEqualTo(cache.getCacheFile());
+		assertThat(new TravelTimeMatrixCache(cacheDirectory, network, params,
+				new QSimFreeSpeedTravelTime(2)).getCacheFile()).isNotEqualTo(cache.getCacheFile());
+
+		// invalid files are ignored
+		Files.writeString(cache.getCacheFile(), "invalid");
+		assertThat(cache.load(new SquareGridSystem(network.getNodes().values(), 200))).isNull();
+	}
+}
@@ -22,6 +22,7 @@
 package org.matsim.contrib.emissions;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
@@ -122,7 +123,8 @@ final class ColdEmissionAnalysisModule {
 		this.eventsManager.processEvent(coldEmissionEvent);
 	}
 
-	private static int cnt =10;
+	// shared by all handler shards, which may run concurrently
+	private static final AtomicInteger cnt = new AtomicInteger(10);
 	private Map<Pollutant, Double> calculateColdEmissions(Id<Vehicle> vehicleId, double parkingDuration, Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple, int distance_km ) {
 
 		final Map<Pollutant, Double> coldEmissionsOfEvent = new EnumMap<>( Pollutant.class );
@@ -134,11 +136,11 @@ final class ColdEmissionAnalysisModule {
 				coldEmissionsOfEvent.put( coldPollutant, 0.0 );
 				// yyyyyy todo replace by something more meaningful. kai, jan'20
 			}
-			if ( cnt >0 ) {
+			int remainingWarnings = cnt.getAndUpdate( c -> c > 0 ? c - 1 : 0 );
+			if ( remainingWarnings >0 ) {
 				logger.warn( "Just encountered non hbefa vehicle; currently, this code is setting the emissions of such vehicles to zero.  " +
 						"Might be necessary to find a better solution for this.  kai, jan'20" );
-				cnt--;
-				if ( cnt ==0 ) {
+				if ( remainingWarnings ==1 ) {
 					logger.warn( Gbl.FUTURE_SUPPRESSED );
 				}
 			}
@@ -41,9 +41,12 @@ import org.matsim.vehicles.VehicleUtils;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
+ * If there are several shards, each of them handles only the vehicles with {@code vehicle index % shard count == shard index}.
+ *
  * @author benjamin
  */
 final class ColdEmissionHandler implements LinkLeaveEventHandler, VehicleLeavesTrafficEventHandler, VehicleEntersTrafficEventHandler {
@@ -52,6 +55,10 @@ final class ColdEmissionHandler implements LinkLeaveEventHandler, VehicleLeavesT
     private final ColdEmissionAnalysisModule coldEmissionAnalysisModule;
     private final Scenario scenario;
     private final EmissionsConfigGroup emissionsConfigGroup;
+    private final int shardIndex;
+    private final int shardCount;
+    private final LinkEmissionsAccumulator linkEmissions;// null if not summed up
+    private final boolean creatingEmissionsEvents;
 
     private int zeroLinkLengthWarnCnt = 0;
     private int nonCarWarn = 0;
@@ -61,16 +68,40 @@ final class ColdEmissionHandler implements LinkLeaveEventHandler, VehicleLeavesT
     private final Map<Id<Vehicle>, Double> vehicleId2parkingDuration = new HashMap<>();
     private final Map<Id<Vehicle>, Id<Link>> vehicleId2coldEmissionEventLinkId = new HashMap<>();
 
+    /**
+     * @param eventsManager         the events manager providing the link and vehicle events
+     * @param emissionEventsManager the events manager to which the cold emission events are passed
+     */
     /*package-private*/ ColdEmissionHandler( Scenario scenario, Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> avgHbefaColdTable,
-                                Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> detailedHbefaColdTable, Set<Pollutant> coldPollutants, EventsManager eventsManager ){
+                                Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> detailedHbefaColdTable, Set<Pollutant> coldPollutants,
+                                EventsManager eventsManager, EventsManager emissionEventsManager, int shardIndex, int shardCount ){
 
         this.coldEmissionAnalysisModule = new ColdEmissionAnalysisModule( avgHbefaColdTable, detailedHbefaColdTable,
-                        ConfigUtils.addOrGetModule( scenario.getConfig(), EmissionsConfigGroup.class ), coldPollutants, eventsManager );
+                        ConfigUtils.addOrGetModule( scenario.getConfig(), EmissionsConfigGroup.class ), coldPollutants, emissionEventsManager );
         this.scenario = scenario;
         this.emissionsConfigGroup = ConfigUtils.addOrGetModule( scenario.getConfig(), EmissionsConfigGroup.class );
+        this.shardIndex = shardIndex;
+        this.shardCount = shardCount;
+        this.linkEmissions = emissionsConfigGroup.getLinkEmissionsTimeBinSize() > 0 ?
+                new LinkEmissionsAccumulator( emissionsConfigGroup.getLinkEmissionsTimeBinSize() ) :
+                null;
+        this.creatingEmissionsEvents = emissionsConfigGroup.isCreatingEmissionsEvents();
         eventsManager.addHandler( this );
     }
 
+    private boolean isInShard( Id<Vehicle> vehicleId ) {
+        return shardCount == 1 || vehicleId.index() % shardCount == shardIndex;
+    }
+
+    private void handleColdEmissions( Id<Vehicle> vehicleId, Id<Link> linkId, double time, Map<Pollutant, Double> coldEmissions ) {
+        if (linkEmissions != null) {
+            linkEmissions.add( time, linkId, coldEmissions );
+        }
+        if (creatingEmissionsEvents) {
+            coldEmissionAnalysisModule.throwColdEmissionEvent( vehicleId, linkId, time, coldEmissions );
+        }
+    }
+
         @Override
     public void reset(int iteration) {
         logger.info("resetting counters...");
@@ -79,13 +110,20 @@ final class ColdEmissionHandler implements LinkLeaveEventHandler, VehicleLeavesT
         vehicleId2parkingDuration.clear();
         vehicleId2coldEmissionEventLinkId.clear();
 
+        if (linkEmissions != null) {
+            linkEmissions.clear();
+        }
         }
 
-    private static int noVehWarnCnt=0;
+    // shared by all handler shards, which may run concurrently
+    private static final AtomicInteger noVehWarnCnt=new AtomicInteger();
 
     @Override
     public void handleEvent(LinkLeaveEvent event) {
 		Id<Vehicle> vehicleId = event.getVehicleId();
+        if (!isInShard(vehicleId)) {
+            return;
+        }
         Id<Link> linkId = event.getLinkId();
         Link link = this.scenario.getNetwork().getLinks().get(linkId);
         double linkLength = link.getLength();
@@ -118,7 +156,7 @@ final class ColdEmissionHandler implements LinkLeaveEventHandler, VehicleLeavesT
                             event.getTime(),
                             parkingDuration, 2);
 
-                    coldEmissionAnalysisModule.throwColdEmissionEvent(vehicle.getId(), linkId, event.getTime(), coldEmissions);
+                    handleColdEmissions(vehicle.getId(), linkId, event.getTime(), coldEmissions);
 
                     this.vehicleId2accumulatedDistance.remove( vehicleId );
                 } else{
@@ -137,11 +175,11 @@ final class ColdEmissionHandler implements LinkLeaveEventHandler, VehicleLeavesT
                                             + " Aborting..." );
         } else if( emissionsConfigGroup.getNonScenarioVehicles().equals(
                         EmissionsConfigGroup.NonScenarioVehicles.ignore ) ){
-            if( noVehWarnCnt < 10 ){
+            int warnCnt = noVehWarnCnt.getAndUpdate( c -> c < 10 ? c + 1 : c );
+            if( warnCnt < 10 ){
                 logger.warn(
                                 "No vehicle defined for id " + vehicleId + ". The vehicle will be ignored." );
-                noVehWarnCnt++;
-                if( noVehWarnCnt == 10 ) logger.warn( Gbl.FUTURE_SUPPRESSED );
+                if( warnCnt == 9 ) logger.warn( Gbl.FUTURE_SUPPRESSED );
             }
         } else{
             throw new RuntimeException( "Not yet implemented. Aborting..." );
@@ -150,6 +188,9 @@ final class ColdEmissionHandler implements LinkLeaveEventHandler, VehicleLeavesT
 
     @Override
     public void handleEvent(VehicleLeavesTrafficEvent event) {
+        if (!isInShard(event.getVehicleId())) {
+            return;
+        }
         if (!event.getNetworkMode().equals("car")) {
             if( nonCarWarn <=1) {
                 logger.warn("non-car modes are supported, however, not properly tested yet.");
@@ -165,6 +206,9 @@ final class ColdEmissionHandler implements LinkLeaveEventHandler, VehicleLeavesT
     // TODO actually, the engine starts before with the PersonEntersVehicleEvent
     @Override
     public void handleEvent(VehicleEntersTrafficEvent event) {
+        if (!isInShard(event.getVehicleId())) {
+            return;
+        }
         if (!event.getNetworkMode().equals("car")) {
             if( nonCarWarn <=1) {
                 logger.warn("non-car modes are supported, however, not properly tested yet.");
@@ -195,7 +239,7 @@ final class ColdEmissionHandler implements LinkLeaveEventHandler, VehicleLeavesT
             Map<Pollutant, Double> coldEmissions = coldEmissionAnalysisModule.checkVehicleInfoAndCalculateWColdEmissions(
                     vehicle.getType(), vehicleId, linkId, startEngineTime, parkingDuration, 1);
 
-            coldEmissionAnalysisModule.throwColdEmissionEvent(vehicleId, linkId, startEngineTime, coldEmissions);
+            handleColdEmissions(vehicleId, linkId, startEngineTime, coldEmissions);
             // yyyy again, I do not know what the "distance" does.  kai, jan'20
         }
     }
@@ -203,4 +247,8 @@ final class ColdEmissionHandler implements LinkLeaveEventHandler, VehicleLeavesT
     ColdEmissionAnalysisModule getColdEmissionAnalysisModule(){
         return coldEmissionAnalysisModule;
     }
+
+    LinkEmissionsAccumulator getLinkEmissions(){
+        return linkEmissions;
+    }
 }
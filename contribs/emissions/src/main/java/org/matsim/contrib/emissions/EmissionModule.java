@@ -40,9 +40,11 @@ public final class EmissionModule {
 	private static final Logger logger = Logger.getLogger(EmissionModule.class);
 	
 	private final Scenario scenario;
-	private WarmEmissionHandler warmEmissionHandler;
-	private ColdEmissionHandler coldEmissionHandler;
+	// one handler per shard
+	private WarmEmissionHandler[] warmEmissionHandlers;
+	private ColdEmissionHandler[] coldEmissionHandlers;
 
+	private final EventsManager simulationEventsManager;
 	private final EventsManager eventsManager;
 	private final EmissionsConfigGroup emissionConfigGroup;
 
@@ -66,6 +68,7 @@ public final class EmissionModule {
 
 		this.scenario = scenario;
 		this.emissionConfigGroup = (EmissionsConfigGroup) scenario.getConfig().getModules().get(EmissionsConfigGroup.GROUP_NAME);
+		this.simulationEventsManager = eventsManager;
 		this.eventsManager = emissionConfigGroup.isWritingEmissionsEvents() ? eventsManager : EventsUtils.createEventsManager();
 
 		checkConfigConsistency();
@@ -78,12 +81,23 @@ public final class EmissionModule {
 
 	public WarmEmissionAnalysisModule getWarmEmissionAnalysisModule() {
 		// makes sense to have this public for externalization computations.  kai, jan'20
-		return this.warmEmissionHandler.getWarmEmissionAnalysisModule();
+		checkSingleShard();
+		return this.warmEmissionHandlers[0].getWarmEmissionAnalysisModule();
 	}
 
 	public ColdEmissionAnalysisModule getColdEmissionAnalysisModule() {
 		// makes sense to have this public for externalization computations.  kai, jan'20
-		return this.coldEmissionHandler.getColdEmissionAnalysisModule();
+		checkSingleShard();
+		return this.coldEmissionHandlers[0].getColdEmissionAnalysisModule();
+	}
+
+	private void checkSingleShard() {
+		// with several shards, each shard has its own analysis module that sees only a part of the vehicles (and of the
+		// counters), so returning one of them would be misleading
+		if (warmEmissionHandlers.length > 1) {
+			throw new RuntimeException("The emission analysis modules are not available with several handler shards. Set numberOfHandlerShards in the "
+					+ EmissionsConfigGroup.GROUP_NAME + " config group to 1.");
+		}
 	}
 
 	// make these available for position emission module
@@ -101,22 +115,62 @@ public final class EmissionModule {
 		return eventsManager;
 	}
 
+	/**
+	 * @return the warm and cold emissions summed up per link and time bin (over all shards) since the last reset of the
+	 * handlers, i.e. the start of the current iteration; requires {@link EmissionsConfigGroup#getLinkEmissionsTimeBinSize()} > 0
+	 */
+	public LinkEmissionsAccumulator getLinkEmissions() {
+		if (emissionConfigGroup.getLinkEmissionsTimeBinSize() <= 0) {
+			throw new RuntimeException("Link emissions are not summed up. Set linkEmissionsTimeBinSize in the " + EmissionsConfigGroup.GROUP_NAME
+					+ " config group to a positive value.");
+		}
+		LinkEmissionsAccumulator linkEmissions = new LinkEmissionsAccumulator(emissionConfigGroup.getLinkEmissionsTimeBinSize());
+		for (WarmEmissionHandler handler : warmEmissionHandlers) {
+			linkEmissions.addAll(handler.getLinkEmissions());
+		}
+		for (ColdEmissionHandler handler : coldEmissionHandlers) {
+			linkEmissions.addAll(handler.getLinkEmissions());
+		}
+		return linkEmissions;
+	}
+
 	public void writeEmissionInformation() {
-		logger.info("Warm emissions were not calculated for " + warmEmissionHandler.getLinkLeaveWarnCnt() + " of " +
-				warmEmissionHandler.getLinkLeaveCnt() + " link leave events (no corresponding link enter event).");
-
-		WarmEmissionAnalysisModule wam = warmEmissionHandler.getWarmEmissionAnalysisModule();
-
-		logger.info("Emission calculation based on `Free flow only' occured for " + wam.getFreeFlowOccurences() + " of " +
-				wam.getWarmEmissionEventCounter() + " warm emission events.");
-		logger.info("Emission calculation based on `Stop&Go only' occured for " + wam.getStopGoOccurences() + " of " +
-				wam.getWarmEmissionEventCounter() + " warm emission events.");
-		logger.info("Emission calculation based on `Fractions' occured for " + wam.getFractionOccurences() + " of " +
-				wam.getWarmEmissionEventCounter() + " warm emission events.");
-		logger.info("Free flow occured on " + wam.getFreeFlowKmCounter() + " km of total " +
-				wam.getKmCounter() + " km, where emissions were calculated.");
-		logger.info("Stop&Go occured on " + wam.getStopGoKmCounter() + " km of total " +
-				wam.getKmCounter() + " km, where emissions were calculated.");
+		int linkLeaveWarnCnt = 0;
+		int linkLeaveCnt = 0;
+		int freeFlowOccurences = 0;
+		int stopGoOccurences = 0;
+		int fractionOccurences = 0;
+		int warmEmissionEventCounter = 0;
+		double freeFlowKmCounter = 0;
+		double stopGoKmCounter = 0;
+		double kmCounter = 0;
+		for (WarmEmissionHandler handler : warmEmissionHandlers) {
+			linkLeaveWarnCnt += handler.getLinkLeaveWarnCnt();
+			linkLeaveCnt += handler.getLinkLeaveCnt();
+
+			WarmEmissionAnalysisModule wam = handler.getWarmEmissionAnalysisModule();
+			freeFlowOccurences += wam.getFreeFlowOccurences();
+			stopGoOccurences += wam.getStopGoOccurences();
+			fractionOccurences += wam.getFractionOccurences();
+			warmEmissionEventCounter += wam.getWarmEmissionEventCounter();
+			freeFlowKmCounter += wam.getFreeFlowKmCounter();
+			stopGoKmCounter += wam.getStopGoKmCounter();
+			kmCounter += wam.getKmCounter();
+		}
+
+		logger.info("Warm emissions were not calculated for " + linkLeaveWarnCnt + " of " +
+				linkLeaveCnt + " link leave events (no corresponding link enter event).");
+
+		logger.info("Emission calculation based on `Free flow only' occured for " + freeFlowOccurences + " of " +
+				warmEmissionEventCounter + " warm emission events.");
+		logger.info("Emission calculation based on `Stop&Go only' occured for " + stopGoOccurences + " of " +
+				warmEmissionEventCounter + " warm emission events.");
+		logger.info("Emission calculation based on `Fractions' occured for " + fractionOccurences + " of " +
+				warmEmissionEventCounter + " warm emission events.");
+		logger.info("Free flow occured on " + freeFlowKmCounter + " km of total " +
+				kmCounter + " km, where emissions were calculated.");
+		logger.info("Stop&Go occured on " + stopGoKmCounter + " km of total " +
+				kmCounter + " km, where emissions were calculated.");
 		logger.info("Emission calculation terminated. Emission events can be found in regular events file.");
 	}
 
@@ -206,10 +260,21 @@ public final class EmissionModule {
 
 		loadRoadTypeMappings();
 
-		warmEmissionHandler = new WarmEmissionHandler(scenario, avgHbefaWarmTable, detailedHbefaWarmTable, hbefaRoadTrafficSpeeds, warmPollutants, eventsManager);
+		// each shard is a separate handler, so that a parallel events manager can process the shards in parallel; the emission
+		// events may then be created concurrently
+		int shardCount = emissionConfigGroup.getNumberOfHandlerShards();
+		EventsManager emissionEventsManager = shardCount > 1 ? EventsUtils.getParallelFeedableInstance(eventsManager) : eventsManager;
+
+		warmEmissionHandlers = new WarmEmissionHandler[shardCount];
+		coldEmissionHandlers = new ColdEmissionHandler[shardCount];
+		for (int shard = 0; shard < shardCount; shard++) {
+			warmEmissionHandlers[shard] = new WarmEmissionHandler(scenario, avgHbefaWarmTable, detailedHbefaWarmTable, hbefaRoadTrafficSpeeds,
+					warmPollutants, simulationEventsManager, emissionEventsManager, shard, shardCount);
 
-		coldEmissionHandler = new ColdEmissionHandler(scenario, avgHbefaColdTable, detailedHbefaColdTable, coldPollutants, eventsManager);
-		// this initiates all cold emissions processing!
+			coldEmissionHandlers[shard] = new ColdEmissionHandler(scenario, avgHbefaColdTable, detailedHbefaColdTable, coldPollutants,
+					simulationEventsManager, emissionEventsManager, shard, shardCount);
+			// this initiates all cold emissions processing!
+		}
 
 		logger.info("leaving createEmissionHandlers");
 	}
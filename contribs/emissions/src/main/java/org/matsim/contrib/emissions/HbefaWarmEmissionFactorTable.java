@@ -0,0 +1,104 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.emissions;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.matsim.core.utils.collections.Tuple;
+
+/**
+ * Dense lookup table of the warm emission factors for one combination of road category, vehicle category and vehicle
+ * attributes. Factors and speeds are stored in primitive arrays indexed by the ordinals of {@link HbefaTrafficSituation}
+ * and {@link Pollutant}. Each entry is resolved (i.e. looked up in the HBEFA tables, including all the fallbacks) on
+ * first access, so missing entries that are never needed do not cause errors or warnings.
+ * <p>
+ * Resolving an entry more than once (e.g. by concurrent calls) is harmless, as it always gives the same result.
+ */
+final class HbefaWarmEmissionFactorTable {
+	private static final int POLLUTANT_COUNT = Pollutant.values().length;
+	private static final HbefaTrafficSituation[] TRAFFIC_SITUATIONS = HbefaTrafficSituation.values();
+
+	interface FactorResolver {
+		HbefaWarmEmissionFactor getEf(Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple,
+				HbefaWarmEmissionFactorKey efkey);
+	}
+
+	// traffic situation and component are not set
+	private final HbefaWarmEmissionFactorKey keyPrototype;
+	private final Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple;
+
+	// [trafficSituation * POLLUTANT_COUNT + pollutant], NaN if not resolved yet
+	private final double[] factors = new double[TRAFFIC_SITUATIONS.length * POLLUTANT_COUNT];
+	private final double[] speeds = new double[TRAFFIC_SITUATIONS.length * POLLUTANT_COUNT];
+
+	// [trafficSituation], NaN if not specified
+	private final double[] trafficSpeeds = new double[TRAFFIC_SITUATIONS.length];
+
+	HbefaWarmEmissionFactorTable(HbefaWarmEmissionFactorKey keyPrototype,
+			Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple,
+			Map<HbefaTrafficSituation, Double> trafficSpeeds) {
+		this.keyPrototype = keyPrototype;
+		this.vehicleInformationTuple = vehicleInformationTuple;
+		Arrays.fill(factors, Double.NaN);
+		Arrays.fill(speeds, Double.NaN);
+		Arrays.fill(this.trafficSpeeds, Double.NaN);
+		if (trafficSpeeds != null) {
+			trafficSpeeds.forEach((trafficSituation, speed) -> this.trafficSpeeds[trafficSituation.ordinal()] = speed);
+		}
+	}
+
+	HbefaWarmEmissionFactorKey getKeyPrototype() {
+		return keyPrototype;
+	}
+
+	/**
+	 * @return speed of the traffic situation (see {@link EmissionUtils#createHBEFASpeedsTable(Map)}), NaN if not specified
+	 */
+	double getTrafficSpeed(HbefaTrafficSituation trafficSituation) {
+		return trafficSpeeds[trafficSituation.ordinal()];
+	}
+
+	double getFactor(HbefaTrafficSituation trafficSituation, Pollutant pollutant, FactorResolver resolver) {
+		int idx = trafficSituation.ordinal() * POLLUTANT_COUNT + pollutant.ordinal();
+		if (Double.isNaN(factors[idx])) {
+			resolve(idx, trafficSituation, pollutant, resolver);
+		}
+		return factors[idx];
+	}
+
+	double getSpeed(HbefaTrafficSituation trafficSituation, Pollutant pollutant, FactorResolver resolver) {
+		int idx = trafficSituation.ordinal() * POLLUTANT_COUNT + pollutant.ordinal();
+		if (Double.isNaN(speeds[idx])) {
+			resolve(idx, trafficSituation, pollutant, resolver);
+		}
+		return speeds[idx];
+	}
+
+	private void resolve(int idx, HbefaTrafficSituation trafficSituation, Pollutant pollutant, FactorResolver resolver) {
+		HbefaWarmEmissionFactorKey efkey = new HbefaWarmEmissionFactorKey(keyPrototype);
+		efkey.setTrafficSituation(trafficSituation);
+		efkey.setComponent(pollutant);
+		HbefaWarmEmissionFactor ef = resolver.getEf(vehicleInformationTuple, efkey);// throws if not found
+		factors[idx] = ef.getFactor();
+		speeds[idx] = ef.getSpeed();
+	}
+}
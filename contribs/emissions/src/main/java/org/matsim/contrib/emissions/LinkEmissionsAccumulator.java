@@ -0,0 +1,153 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.emissions;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sums up emissions per link and time bin in primitive arrays, i.e. without creating any emission events.
+ * <p>
+ * Instances are not thread-safe: each emission handler (shard) has its own accumulator, and the accumulators are merged
+ * with {@link #addAll(LinkEmissionsAccumulator)} once the events have been processed.
+ */
+public final class LinkEmissionsAccumulator {
+	private static final int POLLUTANT_COUNT = Pollutant.values().length;
+
+	private final double timeBinSize;
+
+	// [time bin][link index][pollutant ordinal]; the arrays of a link are created once there are emissions on it
+	private double[][][] emissions = new double[0][][];
+
+	public LinkEmissionsAccumulator(double timeBinSize) {
+		if (timeBinSize <= 0) {
+			throw new IllegalArgumentException("time bin size must be positive, but is " + timeBinSize);
+		}
+		this.timeBinSize = timeBinSize;
+	}
+
+	/**
+	 * @param emissions emissions indexed by {@link Pollutant#ordinal()}
+	 */
+	void add(double time, Id<Link> linkId, double[] emissions) {
+		double[] linkEmissions = getOrCreateLinkEmissions(getTimeBin(time), linkId.index());
+		for (int p = 0; p < POLLUTANT_COUNT; p++) {
+			linkEmissions[p] += emissions[p];
+		}
+	}
+
+	void add(double time, Id<Link> linkId, Map<Pollutant, Double> emissions) {
+		double[] linkEmissions = getOrCreateLinkEmissions(getTimeBin(time), linkId.index());
+		for (Map.Entry<Pollutant, Double> entry : emissions.entrySet()) {
+			linkEmissions[entry.getKey().ordinal()] += entry.getValue();
+		}
+	}
+
+	void addAll(LinkEmissionsAccumulator other) {
+		if (other.timeBinSize != timeBinSize) {
+			throw new IllegalArgumentException("different time bin sizes: " + timeBinSize + " and " + other.timeBinSize);
+		}
+		for (int bin = 0; bin < other.emissions.length; bin++) {
+			double[][] otherBinEmissions = other.emissions[bin];
+			for (int linkIdx = 0; linkIdx < otherBinEmissions.length; linkIdx++) {
+				double[] otherLinkEmissions = otherBinEmissions[linkIdx];
+				if (otherLinkEmissions != null) {
+					double[] linkEmissions = getOrCreateLinkEmissions(bin, linkIdx);
+					for (int p = 0; p < POLLUTANT_COUNT; p++) {
+						linkEmissions[p] += otherLinkEmissions[p];
+					}
+				}
+			}
+		}
+	}
+
+	void clear() {
+		emissions = new double[0][][];
+	}
+
+	public double getTimeBinSize() {
+		return timeBinSize;
+	}
+
+	/**
+	 * @return number of time bins up to (and including) the last one with emissions
+	 */
+	public int getTimeBinCount() {
+		return emissions.length;
+	}
+
+	public int getTimeBin(double time) {
+		return time <= 0 ? 0 : (int)(time / timeBinSize);
+	}
+
+	public double getEmissions(int timeBin, Id<Link> linkId, Pollutant pollutant) {
+		if (timeBin >= emissions.length || linkId.index() >= emissions[timeBin].length) {
+			return 0;
+		}
+		double[] linkEmissions = emissions[timeBin][linkId.index()];
+		return linkEmissions == null ? 0 : linkEmissions[pollutant.ordinal()];
+	}
+
+	/**
+	 * @return emissions by pollutant of all links with emissions in the given time bin (creates new maps at each call)
+	 */
+	public Map<Id<Link>, Map<Pollutant, Double>> getEmissions(int timeBin) {
+		Map<Id<Link>, Map<Pollutant, Double>> emissionsByLink = new HashMap<>();
+		if (timeBin < emissions.length) {
+			double[][] binEmissions = emissions[timeBin];
+			for (int linkIdx = 0; linkIdx < binEmissions.length; linkIdx++) {
+				double[] linkEmissions = binEmissions[linkIdx];
+				if (linkEmissions != null) {
+					Map<Pollutant, Double> emissionsByPollutant = new EnumMap<>(Pollutant.class);
+					for (Pollutant pollutant : Pollutant.values()) {
+						emissionsByPollutant.put(pollutant, linkEmissions[pollutant.ordinal()]);
+					}
+					emissionsByLink.put(Id.get(linkIdx, Link.class), emissionsByPollutant);
+				}
+			}
+		}
+		return emissionsByLink;
+	}
+
+	private double[] getOrCreateLinkEmissions(int timeBin, int linkIdx) {
+		if (timeBin >= emissions.length) {
+			int oldLength = emissions.length;
+			emissions = Arrays.copyOf(emissions, timeBin + 1);
+			for (int bin = oldLength; bin <= timeBin; bin++) {
+				emissions[bin] = new double[Id.getNumberOfIds(Link.class)][];
+			}
+		}
+		double[][] binEmissions = emissions[timeBin];
+		if (linkIdx >= binEmissions.length) {
+			binEmissions = emissions[timeBin] = Arrays.copyOf(binEmissions, Math.max(Id.getNumberOfIds(Link.class), linkIdx + 1));
+		}
+		double[] linkEmissions = binEmissions[linkIdx];
+		if (linkEmissions == null) {
+			linkEmissions = binEmissions[linkIdx] = new double[POLLUTANT_COUNT];
+		}
+		return linkEmissions;
+	}
+}
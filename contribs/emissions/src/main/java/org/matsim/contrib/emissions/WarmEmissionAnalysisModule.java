@@ -34,6 +34,8 @@ import org.matsim.vehicles.Vehicle;
 import org.matsim.vehicles.VehicleType;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.matsim.contrib.emissions.HbefaTrafficSituation.*;
 import static org.matsim.contrib.emissions.utils.EmissionsConfigGroup.EmissionsComputationMethod.AverageSpeed;
@@ -51,7 +53,15 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 	private final Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor>  avgHbefaWarmTable;
 	private final Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> detailedHbefaWarmTable;
 	private final Map<HbefaRoadVehicleCategoryKey, Map<HbefaTrafficSituation, Double>> hbefaRoadTrafficSpeeds;
-	private final Set<Pollutant> warmPollutants;
+	private final Pollutant[] warmPollutants;
+
+	// The HBEFA factors are resolved once per road category, vehicle category and vehicle attributes and then read
+	// from dense arrays.  Per vehicle type, the tables are additionally cached for each link, so that (after the first
+	// event) neither keys nor the road type attribute need to be looked up.
+	private final Map<HbefaRoadVehicleCategoryKey, Map<HbefaVehicleAttributes, HbefaWarmEmissionFactorTable>> factorTables = new ConcurrentHashMap<>();
+	private final Map<VehicleType, VehicleTypeFactorTables> vehicleTypeFactorTables = new ConcurrentHashMap<>();
+	private EmissionsConfigGroup.DetailedVsAverageLookupBehavior factorTablesLookupBehavior;
+	private final HbefaWarmEmissionFactorTable.FactorResolver factorResolver = this::getEf;
 
 	private final EventsManager eventsManager;
 	private final EmissionsConfigGroup ecg;
@@ -92,7 +102,7 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 		this.avgHbefaWarmTable = avgHbefaWarmTable;
 		this.detailedHbefaWarmTable = detailedHbefaWarmTable;
 		this.hbefaRoadTrafficSpeeds = hbefaRoadTrafficSpeeds;
-		this.warmPollutants = warmPollutants;
+		this.warmPollutants = warmPollutants.toArray(new Pollutant[0]);
 
 		Gbl.assertNotNull( eventsManager );
 		this.eventsManager = eventsManager;
@@ -207,69 +217,82 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 		this.eventsManager.processEvent(warmEmissionEvent);
 	}
 
+	void throwWarmEmissionEvent(double leaveTime, Id<Link> linkId, Id<Vehicle> vehicleId, double[] warmEmissions) {
+		throwWarmEmissionEvent(leaveTime, linkId, vehicleId, toMap(warmEmissions));
+	}
+
 	@Override
 	public Map<Pollutant, Double> checkVehicleInfoAndCalculateWarmEmissions(Vehicle vehicle, Link link, double travelTime) {
 		return checkVehicleInfoAndCalculateWarmEmissions(vehicle.getType(), vehicle.getId(), link, travelTime);
 	}
 
-	private static int cnt = 10;
+	// shared by all handler shards, which may run concurrently
+	private static final AtomicInteger cnt = new AtomicInteger(10);
 
 	/*package-private*/ Map<Pollutant, Double> checkVehicleInfoAndCalculateWarmEmissions(VehicleType vehicleType, Id<Vehicle> vehicleId,
 																						 Link link, double travelTime) {
-		{
-			String hbefaVehicleTypeDescription = EmissionUtils.getHbefaVehicleDescription(vehicleType, this.ecg);
-			// (this will, importantly, repair the hbefa description in the vehicle type. kai/kai, jan'20)
-			Gbl.assertNotNull(hbefaVehicleTypeDescription);
-		}
-		Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = EmissionUtils.convertVehicleDescription2VehicleInformationTuple(vehicleType);
-		Gbl.assertNotNull(vehicleInformationTuple);
+		double[] warmEmissions = new double[Pollutant.values().length];
+		calculateWarmEmissions(vehicleType, link, travelTime, warmEmissions);
+		return toMap(warmEmissions);
+	}
 
-		if (vehicleInformationTuple.getFirst() == null) {
-			throw new RuntimeException("Vehicle category for vehicle " + vehicleType + " is not valid. " +
-					"Please make sure that requirements for emission vehicles in " +
-					EmissionsConfigGroup.GROUP_NAME + " config group are met. Aborting...");
+	/**
+	 * Same as {@link #checkVehicleInfoAndCalculateWarmEmissions(Vehicle, Link, double)}, but without creating a map: the
+	 * emissions of the warm pollutants are written into {@code warmEmissions} (indexed by {@link Pollutant#ordinal()}),
+	 * which can be reused between the calls.  The vehicle information and the HBEFA road type of the link are read only
+	 * once per vehicle type and link, i.e. they are assumed not to change during the simulation.
+	 */
+	public void calculateWarmEmissions(VehicleType vehicleType, Link link, double travelTime, double[] warmEmissions) {
+		checkFactorTables();
+		VehicleTypeFactorTables typeFactorTables = getVehicleTypeFactorTables(vehicleType);
+		if (typeFactorTables.vehicleInformationTuple.getFirst() == HbefaVehicleCategory.NON_HBEFA_VEHICLE) {
+			setNonHbefaVehicleEmissions(warmEmissions);
+			return;
 		}
 
 		double freeVelocity = link.getFreespeed(); //TODO: what about time dependence
 
-		return calculateWarmEmissions(travelTime, EmissionUtils.getHbefaRoadType(link), freeVelocity, link.getLength(), vehicleInformationTuple);
+		calculateWarmEmissions(travelTime, typeFactorTables.getFactorTable(link), freeVelocity, link.getLength(), warmEmissions);
 	}
 
 	Map<Pollutant, Double> calculateWarmEmissions(double travelTime_sec, String roadType, double freeVelocity_ms,
 												  double linkLength_m, Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple) {
+		double[] warmEmissions = new double[Pollutant.values().length];
+		if (vehicleInformationTuple.getFirst() == HbefaVehicleCategory.NON_HBEFA_VEHICLE) {
+			setNonHbefaVehicleEmissions(warmEmissions);
+		} else {
+			checkFactorTables();
+			calculateWarmEmissions(travelTime_sec, getFactorTable(roadType, vehicleInformationTuple), freeVelocity_ms, linkLength_m, warmEmissions);
+		}
+		return toMap(warmEmissions);
+	}
 
+	private Map<Pollutant, Double> toMap(double[] warmEmissions) {
 		Map<Pollutant, Double> warmEmissionsOfEvent = new EnumMap<>(Pollutant.class);
+		for (Pollutant warmPollutant : warmPollutants) {
+			warmEmissionsOfEvent.put(warmPollutant, warmEmissions[warmPollutant.ordinal()]);
+		}
+		return warmEmissionsOfEvent;
+	}
 
+	private void setNonHbefaVehicleEmissions(double[] warmEmissions) {
 		// fallback vehicle types that we cannot or do not want to map onto a hbefa vehicle type:
-		if (vehicleInformationTuple.getFirst() == HbefaVehicleCategory.NON_HBEFA_VEHICLE) {
-			for (Pollutant warmPollutant : warmPollutants) {
-				warmEmissionsOfEvent.put(warmPollutant, 0.0);
-				// yyyyyy todo replace by something more meaningful. kai, jan'20
-			}
-			if (cnt > 0) {
-				logger.warn("Just encountered non hbefa vehicle; currently, this code is setting the emissions of such vehicles to zero.  " +
-						"Might be necessary to find a better solution for this.  kai, jan'20");
-				cnt--;
-				if (cnt == 0) {
-					logger.warn(Gbl.FUTURE_SUPPRESSED);
-				}
-			}
-			return warmEmissionsOfEvent;
+		for (Pollutant warmPollutant : warmPollutants) {
+			warmEmissions[warmPollutant.ordinal()] = 0.0;
+			// yyyyyy todo replace by something more meaningful. kai, jan'20
 		}
-
-		// translate vehicle information type into factor key.  yyyy maybe combine these two? kai, jan'20
-		HbefaWarmEmissionFactorKey efkey = new HbefaWarmEmissionFactorKey();
-		efkey.setVehicleCategory(vehicleInformationTuple.getFirst());
-		efkey.setRoadCategory(roadType);
-		if (this.detailedHbefaWarmTable != null) {
-			HbefaVehicleAttributes hbefaVehicleAttributes = new HbefaVehicleAttributes();
-			hbefaVehicleAttributes.setHbefaTechnology(vehicleInformationTuple.getSecond().getHbefaTechnology());
-			hbefaVehicleAttributes.setHbefaSizeClass(vehicleInformationTuple.getSecond().getHbefaSizeClass());
-			hbefaVehicleAttributes.setHbefaEmConcept(vehicleInformationTuple.getSecond().getHbefaEmConcept());
-			efkey.setVehicleAttributes(hbefaVehicleAttributes);
+		int remainingWarnings = cnt.getAndUpdate(c -> c > 0 ? c - 1 : 0);
+		if (remainingWarnings > 0) {
+			logger.warn("Just encountered non hbefa vehicle; currently, this code is setting the emissions of such vehicles to zero.  " +
+					"Might be necessary to find a better solution for this.  kai, jan'20");
+			if (remainingWarnings == 1) {
+				logger.warn(Gbl.FUTURE_SUPPRESSED);
+			}
 		}
+	}
 
-
+	private void calculateWarmEmissions(double travelTime_sec, HbefaWarmEmissionFactorTable factorTable, double freeVelocity_ms,
+										double linkLength_m, double[] warmEmissions) {
 		double averageSpeed_kmh = (linkLength_m / 1000) / (travelTime_sec / 3600);
 
 		// hedge against odd average speeds:
@@ -285,11 +308,12 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 			}
 		}
 
+		EmissionsConfigGroup.EmissionsComputationMethod computationMethod = ecg.getEmissionsComputationMethod();
+
 		// for the average speed method, the traffic situation is already known here:
-		if (ecg.getEmissionsComputationMethod() == AverageSpeed) {
-			final HbefaTrafficSituation trafficSituation = getTrafficSituation(efkey, averageSpeed_kmh, freeVelocity_ms * 3.6);
-//			logger.warn( "trafficSituation=" + trafficSituation );
-			efkey.setTrafficSituation(trafficSituation);
+		HbefaTrafficSituation trafficSituation = null;
+		if (computationMethod == AverageSpeed) {
+			trafficSituation = getTrafficSituation(factorTable, averageSpeed_kmh, freeVelocity_ms * 3.6);
 		}
 
 		double fractionStopGo = 0;
@@ -297,65 +321,51 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 		// for each pollutant, compute and memorize emissions:
 		for ( Pollutant warmPollutant : warmPollutants) {
 
-			efkey.setComponent(warmPollutant);
-
 			double ef_gpkm;
-			if (ecg.getEmissionsComputationMethod() == StopAndGoFraction) {
+			if (computationMethod == StopAndGoFraction) {
 
-				// compute faction.  This cannot be done earlier since efkey.component is needed.
-				fractionStopGo = getFractionStopAndGo(freeVelocity_ms * 3.6, averageSpeed_kmh, vehicleInformationTuple, efkey);
+				// compute faction.  This cannot be done earlier since the stop-go speed depends on the pollutant.
+				double stopGoSpeedFromTable_kmh = factorTable.getSpeed(STOPANDGO, warmPollutant, factorResolver);
+				fractionStopGo = getFractionStopAndGo(freeVelocity_ms * 3.6, averageSpeed_kmh, stopGoSpeedFromTable_kmh);
 
 				double efStopGo_gpkm = 0.;
 				if (fractionStopGo > 0) {
 					// compute emissions from stop-go fraction:
-					efkey.setTrafficSituation(STOPANDGO);
-					efStopGo_gpkm = getEf(vehicleInformationTuple, efkey).getFactor();
-					logger.debug("pollutant=" + warmPollutant + "; efStopGo=" + efStopGo_gpkm);
-
+					efStopGo_gpkm = factorTable.getFactor(STOPANDGO, warmPollutant, factorResolver);
 				}
 
 				double efFreeFlow_gpkm = 0. ;
 				if ( fractionStopGo<1.) {
 					// compute emissions for free-flow fraction:
-					efkey.setTrafficSituation(FREEFLOW);
-					efFreeFlow_gpkm = getEf(vehicleInformationTuple, efkey).getFactor();
-					logger.debug("pollutant=" + warmPollutant + "; efFreeFlow=" + efFreeFlow_gpkm);
+					efFreeFlow_gpkm = factorTable.getFactor(FREEFLOW, warmPollutant, factorResolver);
 				}
 
 				// sum them up:
 				double fractionFreeFlow = 1 - fractionStopGo;
 				ef_gpkm = (fractionFreeFlow * efFreeFlow_gpkm) + (fractionStopGo * efStopGo_gpkm);
 
-			} else if (ecg.getEmissionsComputationMethod() == AverageSpeed) {
-				ef_gpkm = getEf(vehicleInformationTuple, efkey).getFactor();
+			} else if (computationMethod == AverageSpeed) {
+				ef_gpkm = factorTable.getFactor(trafficSituation, warmPollutant, factorResolver);
 			} else {
 				throw new RuntimeException( Gbl.NOT_IMPLEMENTED );
 			}
 
-			double generatedEmissions = (linkLength_m / 1000) * ef_gpkm;
-			warmEmissionsOfEvent.put(warmPollutant, generatedEmissions);
+			warmEmissions[warmPollutant.ordinal()] = (linkLength_m / 1000) * ef_gpkm;
 		}
 
 		// update counters:
 		// yy I don't now what this is good for; I would base downstream analysis rather on events.  kai, jan'20
-		if (ecg.getEmissionsComputationMethod() == StopAndGoFraction) {
+		if (computationMethod == StopAndGoFraction) {
 			incrementCountersFractional( linkLength_m / 1000, fractionStopGo );
 		}
-		else if (ecg.getEmissionsComputationMethod() == AverageSpeed) {
-			incrementCountersAverage(efkey.getTrafficSituation(), linkLength_m / 1000);
+		else if (computationMethod == AverageSpeed) {
+			incrementCountersAverage(trafficSituation, linkLength_m / 1000);
 		} else {
 			throw new RuntimeException( Gbl.NOT_IMPLEMENTED );
 		}
-
-		return warmEmissionsOfEvent;
 	}
 
-	private double getFractionStopAndGo(double freeFlowSpeed_kmh, double averageSpeed_kmh,
-										Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple,
-										HbefaWarmEmissionFactorKey efkey) {
-
-		efkey.setTrafficSituation(STOPANDGO);
-		double stopGoSpeedFromTable_kmh = getEf(vehicleInformationTuple, efkey).getSpeed();
+	private double getFractionStopAndGo(double freeFlowSpeed_kmh, double averageSpeed_kmh, double stopGoSpeedFromTable_kmh) {
 
 		double fractionStopGo;
 
@@ -370,6 +380,91 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 		return fractionStopGo;
 	}
 
+	private void checkFactorTables() {
+		EmissionsConfigGroup.DetailedVsAverageLookupBehavior lookupBehavior = ecg.getDetailedVsAverageLookupBehavior();
+		if (lookupBehavior != factorTablesLookupBehavior) {
+			// the factors have been resolved with different fallbacks
+			factorTables.clear();
+			vehicleTypeFactorTables.clear();
+			factorTablesLookupBehavior = lookupBehavior;
+		}
+	}
+
+	private HbefaWarmEmissionFactorTable getFactorTable(String roadType, Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple) {
+		// translate vehicle information type into factor key.  yyyy maybe combine these two? kai, jan'20
+		HbefaWarmEmissionFactorKey efkey = new HbefaWarmEmissionFactorKey();
+		efkey.setVehicleCategory(vehicleInformationTuple.getFirst());
+		efkey.setRoadCategory(roadType);
+		if (this.detailedHbefaWarmTable != null) {
+			HbefaVehicleAttributes hbefaVehicleAttributes = new HbefaVehicleAttributes();
+			hbefaVehicleAttributes.setHbefaTechnology(vehicleInformationTuple.getSecond().getHbefaTechnology());
+			hbefaVehicleAttributes.setHbefaSizeClass(vehicleInformationTuple.getSecond().getHbefaSizeClass());
+			hbefaVehicleAttributes.setHbefaEmConcept(vehicleInformationTuple.getSecond().getHbefaEmConcept());
+			efkey.setVehicleAttributes(hbefaVehicleAttributes);
+		}
+
+		HbefaRoadVehicleCategoryKey roadVehicleCategoryKey = new HbefaRoadVehicleCategoryKey(efkey);
+		return factorTables.computeIfAbsent(roadVehicleCategoryKey, key -> new ConcurrentHashMap<>())
+				.computeIfAbsent(efkey.getVehicleAttributes(), attributes -> new HbefaWarmEmissionFactorTable(efkey, vehicleInformationTuple,
+						hbefaRoadTrafficSpeeds == null ? null : hbefaRoadTrafficSpeeds.get(roadVehicleCategoryKey)));
+	}
+
+	private VehicleTypeFactorTables getVehicleTypeFactorTables(VehicleType vehicleType) {
+		if (vehicleType == null) {
+			// not cached, the concurrent map does not accept null keys
+			return new VehicleTypeFactorTables(null);
+		}
+		return vehicleTypeFactorTables.computeIfAbsent(vehicleType, VehicleTypeFactorTables::new);
+	}
+
+	private final class VehicleTypeFactorTables {
+		private final Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple;
+
+		// [link index]; the link is stored to detect different links with the same id
+		private volatile Link[] links = new Link[0];
+		private volatile HbefaWarmEmissionFactorTable[] tables = new HbefaWarmEmissionFactorTable[0];
+
+		private VehicleTypeFactorTables(VehicleType vehicleType) {
+			{
+				String hbefaVehicleTypeDescription = EmissionUtils.getHbefaVehicleDescription(vehicleType, ecg);
+				// (this will, importantly, repair the hbefa description in the vehicle type. kai/kai, jan'20)
+				Gbl.assertNotNull(hbefaVehicleTypeDescription);
+			}
+			vehicleInformationTuple = EmissionUtils.convertVehicleDescription2VehicleInformationTuple(vehicleType);
+			Gbl.assertNotNull(vehicleInformationTuple);
+
+			if (vehicleInformationTuple.getFirst() == null) {
+				throw new RuntimeException("Vehicle category for vehicle " + vehicleType + " is not valid. " +
+						"Please make sure that requirements for emission vehicles in " +
+						EmissionsConfigGroup.GROUP_NAME + " config group are met. Aborting...");
+			}
+		}
+
+		private HbefaWarmEmissionFactorTable getFactorTable(Link link) {
+			int linkIdx = link.getId().index();
+			HbefaWarmEmissionFactorTable[] tables = this.tables;
+			Link[] links = this.links;
+			if (linkIdx < tables.length && linkIdx < links.length && links[linkIdx] == link && tables[linkIdx] != null) {
+				return tables[linkIdx];
+			}
+			HbefaWarmEmissionFactorTable table = WarmEmissionAnalysisModule.this.getFactorTable(EmissionUtils.getHbefaRoadType(link),
+					vehicleInformationTuple);
+			putFactorTable(link, table);
+			return table;
+		}
+
+		private synchronized void putFactorTable(Link link, HbefaWarmEmissionFactorTable table) {
+			int linkIdx = link.getId().index();
+			if (linkIdx >= tables.length) {
+				int length = Math.max(Id.getNumberOfIds(Link.class), linkIdx + 1);
+				tables = Arrays.copyOf(tables, length);
+				links = Arrays.copyOf(links, length);
+			}
+			tables[linkIdx] = table;
+			links[linkIdx] = link;
+		}
+	}
+
 	private HbefaWarmEmissionFactor getEf(Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple, HbefaWarmEmissionFactorKey efkey) {
 
 		switch (ecg.getDetailedVsAverageLookupBehavior()) {
@@ -553,36 +648,32 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 	}
 
 
-	//TODO: this is based on looking at the speeds in the HBEFA files, using an MFP, maybe from A.Loder would be nicer, jm  oct'18
-	private HbefaTrafficSituation getTrafficSituation(HbefaWarmEmissionFactorKey efkey, double averageSpeed_kmh, double freeFlowSpeed_kmh) {
-		//TODO: should this be generated only once much earlier?
-		HbefaRoadVehicleCategoryKey hbefaRoadVehicleCategoryKey = new HbefaRoadVehicleCategoryKey(efkey);
-		Map<HbefaTrafficSituation, Double> trafficSpeeds = this.hbefaRoadTrafficSpeeds.get(hbefaRoadVehicleCategoryKey);
-
-		//TODO: Hier die Berechunung einfügen, die die trafficSpeedTabelle entsprechend aus den Werten erstellt?
-		//Frage Laufzeit: Einmal berechnen ha
 
-		if (trafficSpeeds == null || !trafficSpeeds.containsKey(FREEFLOW)) {
+	//TODO: this is based on looking at the speeds in the HBEFA files, using an MFP, maybe from A.Loder would be nicer, jm  oct'18
+	private HbefaTrafficSituation getTrafficSituation(HbefaWarmEmissionFactorTable factorTable, double averageSpeed_kmh, double freeFlowSpeed_kmh) {
+		// the traffic speeds are taken from the speeds table when the factor table is created; NaN if not specified
+		// (comparisons with NaN are always false)
+		if (Double.isNaN(factorTable.getTrafficSpeed(FREEFLOW))) {
 			throw new RuntimeException("At least the FREEFLOW condition must be specified for all emission factor keys. " +
-					"It was not found for " + efkey);
+					"It was not found for " + factorTable.getKeyPrototype());
 		}
 
 		HbefaTrafficSituation trafficSituation  = FREEFLOW;
-		if (trafficSpeeds.containsKey(HEAVY) && averageSpeed_kmh <= trafficSpeeds.get(HEAVY)) {
+		if (averageSpeed_kmh <= factorTable.getTrafficSpeed(HEAVY)) {
 			trafficSituation = HEAVY;
 		}
-		if (trafficSpeeds.containsKey(SATURATED) && averageSpeed_kmh <= trafficSpeeds.get(SATURATED)) {
+		if (averageSpeed_kmh <= factorTable.getTrafficSpeed(SATURATED)) {
 			trafficSituation = SATURATED;
 		}
-		if (trafficSpeeds.containsKey(STOPANDGO) && averageSpeed_kmh <= trafficSpeeds.get(STOPANDGO)) {
-			if (averageSpeed_kmh != trafficSpeeds.get(FREEFLOW)) { //handle case testCheckVehicleInfoAndCalculateWarmEmissions_and_throwWarmEmissionEvent6
+		if (averageSpeed_kmh <= factorTable.getTrafficSpeed(STOPANDGO)) {
+			if (averageSpeed_kmh != factorTable.getTrafficSpeed(FREEFLOW)) { //handle case testCheckVehicleInfoAndCalculateWarmEmissions_and_throwWarmEmissionEvent6
 				trafficSituation = STOPANDGO;
 			}
 		}
 		/*FIXME The following lines should be added to account for the HBEFA 4.1's additiona traffic situation,
 		   but it currently causes a test failure (jwj, Nov'20) */
-//		if (trafficSpeeds.containsKey(STOPANDGO_HEAVY) && averageSpeed_kmh <= trafficSpeeds.get(STOPANDGO_HEAVY)) {
-//			if (averageSpeed_kmh != trafficSpeeds.get(FREEFLOW)) { //handle case testCheckVehicleInfoAndCalculateWarmEmissions_and_throwWarmEmissionEvent6
+//		if (averageSpeed_kmh <= factorTable.getTrafficSpeed(STOPANDGO_HEAVY)) {
+//			if (averageSpeed_kmh != factorTable.getTrafficSpeed(FREEFLOW)) { //handle case testCheckVehicleInfoAndCalculateWarmEmissions_and_throwWarmEmissionEvent6
 //				trafficSituation = STOPANDGO_HEAVY;
 //			}
 //		}
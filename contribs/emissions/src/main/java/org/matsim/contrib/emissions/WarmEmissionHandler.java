@@ -47,6 +47,8 @@ import java.util.Set;
 
 
 /**
+ * If there are several shards, each of them handles only the vehicles with {@code vehicle index % shard count == shard index}.
+ *
  * @author benjamin
  *
  */
@@ -56,6 +58,11 @@ class WarmEmissionHandler implements LinkEnterEventHandler, LinkLeaveEventHandle
 	private final WarmEmissionAnalysisModule warmEmissionAnalysisModule;
 	private final Scenario scenario;
 	private final EmissionsConfigGroup emissionsConfigGroup;
+	private final int shardIndex;
+	private final int shardCount;
+	private final LinkEmissionsAccumulator linkEmissions;// null if not summed up
+	private final boolean creatingEmissionsEvents;
+	private final double[] warmEmissions = new double[Pollutant.values().length];
 
 	private int linkLeaveCnt = 0;
 	private int linkLeaveFirstActWarnCnt = 0;
@@ -68,20 +75,34 @@ class WarmEmissionHandler implements LinkEnterEventHandler, LinkLeaveEventHandle
 	private final Map<Id<Vehicle>, Tuple<Id<Link>, Double>> vehicleLeavesTraffic = new HashMap<>();
 	private final Map<Id<Vehicle>, Tuple<Id<Link>, Double>> vehicleEntersTraffic = new HashMap<>();
 
+	/**
+	 * @param eventsManager         the events manager providing the link and vehicle events
+	 * @param emissionEventsManager the events manager to which the warm emission events are passed
+	 */
 	/*package-private*/ WarmEmissionHandler( Scenario scenario, Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> avgHbefaWarmTable,
 				    Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> detailedHbefaWarmTable,
 				    Map<HbefaRoadVehicleCategoryKey, Map<HbefaTrafficSituation, Double>> hbefaRoadTrafficSpeeds, Set<Pollutant> warmPollutants,
-				    EventsManager eventsManager ){
+				    EventsManager eventsManager, EventsManager emissionEventsManager, int shardIndex, int shardCount ){
 
 		this.scenario = scenario;
 		this.emissionsConfigGroup = ConfigUtils.addOrGetModule( scenario.getConfig(), EmissionsConfigGroup.class );
+		this.shardIndex = shardIndex;
+		this.shardCount = shardCount;
+		this.linkEmissions = emissionsConfigGroup.getLinkEmissionsTimeBinSize() > 0 ?
+				new LinkEmissionsAccumulator( emissionsConfigGroup.getLinkEmissionsTimeBinSize() ) :
+				null;
+		this.creatingEmissionsEvents = emissionsConfigGroup.isCreatingEmissionsEvents();
 
 		this.warmEmissionAnalysisModule = new WarmEmissionAnalysisModule( avgHbefaWarmTable, detailedHbefaWarmTable, hbefaRoadTrafficSpeeds,
-				warmPollutants, eventsManager, ConfigUtils.addOrGetModule( scenario.getConfig(), EmissionsConfigGroup.class) );
+				warmPollutants, emissionEventsManager, emissionsConfigGroup );
 
 		eventsManager.addHandler( this );
 	}
 
+	private boolean isInShard( Id<Vehicle> vehicleId ) {
+		return shardCount == 1 || vehicleId.index() % shardCount == shardIndex;
+	}
+
 	@Override
 	public void reset(int iteration) {
 		linkLeaveCnt = 0;
@@ -91,11 +112,18 @@ class WarmEmissionHandler implements LinkEnterEventHandler, LinkLeaveEventHandle
 		vehicleLeavesTraffic.clear();
 		vehicleEntersTraffic.clear();
 
+		if (linkEmissions != null) {
+			linkEmissions.clear();
+		}
+
 		warmEmissionAnalysisModule.reset();
 	}
 
 	@Override
 	public void handleEvent(VehicleLeavesTrafficEvent event) {
+		if (!isInShard(event.getVehicleId())) {
+			return;
+		}
 		if(!event.getNetworkMode().equals("car")){
 			if( nonCarWarn <=1) {
 				logger.warn("non-car modes are supported, however, not properly tested yet.");
@@ -114,6 +142,9 @@ class WarmEmissionHandler implements LinkEnterEventHandler, LinkLeaveEventHandle
 
 	@Override
 	public void handleEvent(VehicleEntersTrafficEvent event) {
+		if (!isInShard(event.getVehicleId())) {
+			return;
+		}
 		if (!event.getNetworkMode().equals("car")) {
 			if (nonCarWarn <= 1) {
 				logger.warn("non-car modes are supported, however, not properly tested yet.");
@@ -127,6 +158,9 @@ class WarmEmissionHandler implements LinkEnterEventHandler, LinkLeaveEventHandle
 
 	@Override
 	public void handleEvent(LinkEnterEvent event) {
+		if (!isInShard(event.getVehicleId())) {
+			return;
+		}
 		Tuple<Id<Link>, Double> linkId2Time = new Tuple<>(event.getLinkId(), event.getTime());
 		this.linkenter.put(event.getVehicleId(), linkId2Time);
 	}
@@ -134,6 +168,9 @@ class WarmEmissionHandler implements LinkEnterEventHandler, LinkLeaveEventHandle
 	@Override
 	public void handleEvent(LinkLeaveEvent event) {
 		Id<Vehicle> vehicleId = event.getVehicleId();
+		if (!isInShard(vehicleId)) {
+			return;
+		}
 		Id<Link> linkId = event.getLinkId();
 		double leaveTime = event.getTime();
 		Link link = this.scenario.getNetwork().getLinks().get(linkId);
@@ -216,8 +253,13 @@ class WarmEmissionHandler implements LinkEnterEventHandler, LinkLeaveEventHandle
 
 			} else {
 				VehicleType vehicleType = vehicle.getType() ;
-				Map<Pollutant, Double> warmEmissions = warmEmissionAnalysisModule.checkVehicleInfoAndCalculateWarmEmissions(vehicleType, vehicleId, link, travelTime );
-				warmEmissionAnalysisModule.throwWarmEmissionEvent(leaveTime, linkId, vehicleId, warmEmissions);
+				warmEmissionAnalysisModule.calculateWarmEmissions(vehicleType, link, travelTime, warmEmissions);
+				if (linkEmissions != null) {
+					linkEmissions.add(leaveTime, linkId, warmEmissions);
+				}
+				if (creatingEmissionsEvents) {
+					warmEmissionAnalysisModule.throwWarmEmissionEvent(leaveTime, linkId, vehicleId, warmEmissions);
+				}
 			}
 		}
 	}
@@ -233,4 +275,8 @@ class WarmEmissionHandler implements LinkEnterEventHandler, LinkLeaveEventHandle
 	/*package-private*/ WarmEmissionAnalysisModule getWarmEmissionAnalysisModule(){
 		return warmEmissionAnalysisModule;
 	}
+
+	/*package-private*/ LinkEmissionsAccumulator getLinkEmissions(){
+		return linkEmissions;
+	}
 }
@@ -0,0 +1,65 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.emissions.analysis;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.matsim.contrib.emissions.Pollutant;
+import org.matsim.core.utils.io.IOUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes the tiles of a {@link TiledEmissionGridAnalyzer} to a csv file (columns: time, pollutant, x, y, value) as soon as they
+ * are computed. Only cells with a value other than 0 are written. The file is gzipped if its name ends with ".gz".
+ */
+public final class CsvTileWriter implements TiledEmissionGridAnalyzer.TileConsumer, Closeable {
+
+    private final CSVPrinter printer;
+
+    public CsvTileWriter(String filename) {
+        try {
+            printer = new CSVPrinter(IOUtils.getBufferedWriter(filename), CSVFormat.DEFAULT.withHeader("time", "pollutant", "x", "y", "value"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void accept(double timeBinStartTime, Pollutant pollutant, TiledEmissionGridAnalyzer.Tile tile) {
+        tile.forEachCoordinate((x, y, value) -> {
+            if (value != 0) {
+                try {
+                    printer.printRecord(timeBinStartTime, pollutant, x, y, value);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        printer.close();
+    }
+}
@@ -204,11 +204,21 @@ public abstract class FastEmissionGridAnalyzer {
      */
     private static int rasterizeLink(Link link, double value, Raster raster) {
 
-
         int x0 = raster.getXIndex(link.getFromNode().getCoord().getX());
         int x1 = raster.getXIndex(link.getToNode().getCoord().getX());
         int y0 = raster.getYIndex(link.getFromNode().getCoord().getY());
         int y1 = raster.getYIndex(link.getToNode().getCoord().getY());
+        return rasterizeLink(x0, y0, x1, y1, (xi, yi) -> raster.adjustValueForIndex(xi, yi, value));
+    }
+
+    /**
+     * Same as {@link #rasterizeLink(Link, double, Raster)}, but for a link between the cells (x0, y0) and (x1, y1); the covered
+     * cells are passed to the consumer
+     *
+     * @return number of cells the link is rastered to
+     */
+    static int rasterizeLink(int x0, int y0, int x1, int y1, CellConsumer consumer) {
+
         int dx = Math.abs(x1 - x0);
         int dy = -Math.abs(y1 - y0);
         int err = dx + dy, e2;
@@ -221,12 +231,12 @@ public abstract class FastEmissionGridAnalyzer {
         if (dx == 0 && dy == 0) {
             // the algorithm doesn't really support lines shorter than the cell size.
             // do avoid complicated computation within the loop, catch this case here
-            raster.adjustValueForIndex(x0, y0, value);
+            consumer.accept(x0, y0);
             return 1;
         }
 
         do {
-            raster.adjustValueForIndex(x0, y0, value);
+            consumer.accept(x0, y0);
             result++;
 
             e2 = err + err;
@@ -257,7 +267,7 @@ public abstract class FastEmissionGridAnalyzer {
      * @param taps Length of the kernel
      * @return Gaussian Kernel
      */
-    private static double[] createKernel(int taps) {
+    static double[] createKernel(int taps) {
 
         var result = new double[taps];
         var binomialIndex = taps - 1;
@@ -270,6 +280,11 @@ public abstract class FastEmissionGridAnalyzer {
         return result;
     }
 
+    @FunctionalInterface
+    interface CellConsumer {
+        void accept(int xi, int yi);
+    }
+
     @FunctionalInterface
     private interface GetValue {
         double forIndex(int fixedIndex, int volatileIndex);
@@ -0,0 +1,383 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.emissions.analysis;
+
+import gnu.trove.map.TObjectDoubleMap;
+import gnu.trove.map.hash.TObjectDoubleHashMap;
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.emissions.Pollutant;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * This class renders the same smoothed emission rasters as {@link FastEmissionGridAnalyzer}, but per time bin and without ever
+ * holding a whole raster in memory, so that it also works for large areas and small cells.
+ * <p>
+ * The raster is split into square tiles of {@code tileSize x tileSize} cells, which are processed in parallel. Each tile is
+ * rasterized together with a halo of {@code radius} cells around it, which contains everything the blur kernel needs, so the
+ * values of a tile are the same as if the whole raster had been blurred at once. Finished tiles are passed to a
+ * {@link TileConsumer} right away, e.g. to a {@link CsvTileWriter} which writes them to disk.
+ * <p>
+ * The events file is streamed. It must be sorted by time (as written by MATSim), so that a time bin can be processed as soon as
+ * an event of a later time bin is read. Only the emissions per link of the current time bin are kept in memory.
+ */
+public abstract class TiledEmissionGridAnalyzer {
+
+    private static final Logger logger = Logger.getLogger(TiledEmissionGridAnalyzer.class);
+
+    /**
+     * Processes an events file with emissions as {@link FastEmissionGridAnalyzer#processEventsFile(String, Network, double, int)}
+     * does, but separately for each time bin.
+     *
+     * @param timeBinSize size of the time bins in seconds
+     * @param tileSize    number of cells in each direction of a tile. Tiles should be much larger than the radius, since the
+     *                    halo of each tile is rasterized and blurred as well
+     * @param consumer    receives the tiles, possibly from several threads at once. Tiles without any emissions (also not in their
+     *                    halo) are skipped, i.e. all their values are 0
+     */
+    public static void processEventsFile(final String eventsFile, final Network network, final double cellSize, final int radius,
+                                         final double timeBinSize, final int tileSize, final TileConsumer consumer) {
+
+        var grid = new TileGrid(network, cellSize, radius, tileSize);
+        var streamer = new TimeBinStreamer(network, grid, timeBinSize, consumer);
+
+        logger.info("Start streaming events file.");
+        new RawEmissionEventsReader(streamer).readFile(eventsFile);
+        streamer.processCurrentTimeBin();
+    }
+
+    /**
+     * Rasterizes and blurs the emissions tile by tile. The tiles are processed in parallel.
+     */
+    static void processLinkEmissions(final TileGrid grid, final TObjectDoubleMap<Id<Link>> emissions, final Consumer<Tile> tileConsumer) {
+
+        IntStream.range(0, grid.tileCountX * grid.tileCountY).parallel().forEach(tileIndex -> {
+            var tile = processTile(grid, tileIndex % grid.tileCountX, tileIndex / grid.tileCountX, emissions);
+            if (tile != null) {
+                tileConsumer.accept(tile);
+            }
+        });
+    }
+
+    private static Tile processTile(TileGrid grid, int tileX, int tileY, TObjectDoubleMap<Id<Link>> emissions) {
+
+        var radius = grid.radius;
+        var xOffset = tileX * grid.tileSize;
+        var yOffset = tileY * grid.tileSize;
+        var xLength = Math.min(grid.tileSize, grid.xLength - xOffset);
+        var yLength = Math.min(grid.tileSize, grid.yLength - yOffset);
+
+        // the tile including its halo
+        var haloXOffset = xOffset - radius;
+        var haloYOffset = yOffset - radius;
+        var haloXLength = xLength + 2 * radius;
+        var haloYLength = yLength + 2 * radius;
+        var original = new double[haloXLength * haloYLength];
+        var cellArea = grid.cellSize * grid.cellSize; // assume square cells at the moment
+
+        var hasEmissions = false;
+        for (var linkIndex : grid.linksByTile[tileY * grid.tileCountX + tileX]) {
+            var value = emissions.get(grid.links[linkIndex].getId());
+            if (value == 0) {
+                continue;
+            }
+            hasEmissions = true;
+            var cellValue = value / grid.cellCounts[linkIndex] / cellArea;
+            FastEmissionGridAnalyzer.rasterizeLink(grid.x0[linkIndex], grid.y0[linkIndex], grid.x1[linkIndex], grid.y1[linkIndex], (xi, yi) -> {
+                var hxi = xi - haloXOffset;
+                var hyi = yi - haloYOffset;
+                if (hxi >= 0 && hxi < haloXLength && hyi >= 0 && hyi < haloYLength) {
+                    original[hyi * haloXLength + hxi] += cellValue;
+                }
+            });
+        }
+        if (!hasEmissions) {
+            return null;
+        }
+
+        // smooth horizontally (all rows of the halo, but only the columns of the tile)
+        var kernel = grid.kernel;
+        var firstPass = new double[xLength * haloYLength];
+        for (var hyi = 0; hyi < haloYLength; hyi++) {
+            for (var xi = 0; xi < xLength; xi++) {
+                var value = 0.;
+                var rowStart = hyi * haloXLength + xi;
+                for (var ki = 0; ki < kernel.length; ki++) {
+                    value += original[rowStart + ki] * kernel[ki];
+                }
+                firstPass[hyi * xLength + xi] = value;
+            }
+        }
+
+        // smooth vertically
+        var data = new double[xLength * yLength];
+        for (var yi = 0; yi < yLength; yi++) {
+            for (var xi = 0; xi < xLength; xi++) {
+                var value = 0.;
+                for (var ki = 0; ki < kernel.length; ki++) {
+                    value += firstPass[(yi + ki) * xLength + xi] * kernel[ki];
+                }
+                data[yi * xLength + xi] = value;
+            }
+        }
+        return new Tile(grid, xOffset, yOffset, xLength, yLength, data);
+    }
+
+    /**
+     * Receives the processed tiles. Must be thread-safe.
+     */
+    @FunctionalInterface
+    public interface TileConsumer {
+        void accept(double timeBinStartTime, Pollutant pollutant, Tile tile);
+    }
+
+    /**
+     * Part of a raster. The cells have the same indices and coordinates as in the raster created by {@link FastEmissionGridAnalyzer}
+     * for the same network and cell size.
+     */
+    public static final class Tile {
+
+        private final TileGrid grid;
+        private final int xOffset;
+        private final int yOffset;
+        private final int xLength;
+        private final int yLength;
+        private final double[] data;
+
+        private Tile(TileGrid grid, int xOffset, int yOffset, int xLength, int yLength, double[] data) {
+            this.grid = grid;
+            this.xOffset = xOffset;
+            this.yOffset = yOffset;
+            this.xLength = xLength;
+            this.yLength = yLength;
+            this.data = data;
+        }
+
+        /**
+         * x index (within the whole raster) of the first cell of this tile
+         */
+        public int getXOffset() {
+            return xOffset;
+        }
+
+        /**
+         * y index (within the whole raster) of the first cell of this tile
+         */
+        public int getYOffset() {
+            return yOffset;
+        }
+
+        public int getXLength() {
+            return xLength;
+        }
+
+        public int getYLength() {
+            return yLength;
+        }
+
+        public double getCellSize() {
+            return grid.cellSize;
+        }
+
+        /**
+         * @param xi x index between 0 and {@code #getXLength} - 1 (i.e. relative to this tile)
+         * @param yi y index between 0 and {@code #getYLength} - 1 (i.e. relative to this tile)
+         * @return value in the tile
+         */
+        public double getValueByIndex(int xi, int yi) {
+            return data[yi * xLength + xi];
+        }
+
+        /**
+         * Convert (tile) index back to a coordinate.
+         */
+        public Coord getCoordForIndex(int xi, int yi) {
+            return new Coord((xOffset + xi) * grid.cellSize + grid.minX, (yOffset + yi) * grid.cellSize + grid.minY);
+        }
+
+        /**
+         * This iterates over the x and y coordinates of the tile and supplies the corresponding value into the acceptor function
+         */
+        public void forEachCoordinate(Raster.DoubleTriConsumer consumer) {
+            for (var xi = 0; xi < xLength; xi++) {
+                for (var yi = 0; yi < yLength; yi++) {
+                    var x = (xOffset + xi) * grid.cellSize + grid.minX;
+                    var y = (yOffset + yi) * grid.cellSize + grid.minY;
+                    consumer.consume(x, y, getValueByIndex(xi, yi));
+                }
+            }
+        }
+    }
+
+    /**
+     * The raster (only its dimensions, no values) split into tiles, and the links that are rasterized (with their halo) onto
+     * each tile. This is computed only once per network.
+     */
+    static final class TileGrid {
+
+        private final double minX;
+        private final double minY;
+        private final double cellSize;
+        private final int radius;
+        private final int tileSize;
+        private final double[] kernel;
+
+        // same as in Raster
+        private final int xLength;
+        private final int yLength;
+        private final int tileCountX;
+        private final int tileCountY;
+
+        private final Link[] links;
+        // cells of the first and last node, and number of cells of each link
+        private final int[] x0;
+        private final int[] y0;
+        private final int[] x1;
+        private final int[] y1;
+        private final int[] cellCounts;
+        private final int[][] linksByTile;
+
+        TileGrid(Network network, double cellSize, int radius, int tileSize) {
+
+            if (tileSize <= 0) {
+                throw new IllegalArgumentException("tile size must be positive, but is " + tileSize);
+            }
+            var bounds = new Raster.Bounds(network.getNodes().values().stream().map(Node::getCoord).collect(Collectors.toSet()));
+            this.minX = bounds.getMinX();
+            this.minY = bounds.getMinY();
+            this.cellSize = cellSize;
+            this.radius = radius;
+            this.tileSize = tileSize;
+            this.kernel = FastEmissionGridAnalyzer.createKernel(radius * 2 + 1);
+
+            this.xLength = getXIndex(bounds.getMaxX()) + 1;
+            this.yLength = getYIndex(bounds.getMaxY()) + 1;
+            this.tileCountX = (xLength + tileSize - 1) / tileSize;
+            this.tileCountY = (yLength + tileSize - 1) / tileSize;
+
+            links = network.getLinks().values().toArray(new Link[0]);
+            x0 = new int[links.length];
+            y0 = new int[links.length];
+            x1 = new int[links.length];
+            y1 = new int[links.length];
+            cellCounts = new int[links.length];
+
+            List<List<Integer>> tileLinks = new ArrayList<>(tileCountX * tileCountY);
+            for (var t = 0; t < tileCountX * tileCountY; t++) {
+                tileLinks.add(new ArrayList<>());
+            }
+            for (var l = 0; l < links.length; l++) {
+                var link = links[l];
+                x0[l] = getXIndex(link.getFromNode().getCoord().getX());
+                y0[l] = getYIndex(link.getFromNode().getCoord().getY());
+                x1[l] = getXIndex(link.getToNode().getCoord().getX());
+                y1[l] = getYIndex(link.getToNode().getCoord().getY());
+                cellCounts[l] = FastEmissionGridAnalyzer.rasterizeLink(x0[l], y0[l], x1[l], y1[l], (xi, yi) -> {
+                });
+
+                // all cells of a link are within the bounding box of its first and last cell
+                var minTileX = Math.max(0, (Math.min(x0[l], x1[l]) - radius) / tileSize);
+                var maxTileX = Math.min(tileCountX - 1, (Math.max(x0[l], x1[l]) + radius) / tileSize);
+                var minTileY = Math.max(0, (Math.min(y0[l], y1[l]) - radius) / tileSize);
+                var maxTileY = Math.min(tileCountY - 1, (Math.max(y0[l], y1[l]) + radius) / tileSize);
+                for (var ty = minTileY; ty <= maxTileY; ty++) {
+                    for (var tx = minTileX; tx <= maxTileX; tx++) {
+                        tileLinks.get(ty * tileCountX + tx).add(l);
+                    }
+                }
+            }
+            linksByTile = tileLinks.stream().map(list -> list.stream().mapToInt(Integer::intValue).toArray()).toArray(int[][]::new);
+        }
+
+        private int getXIndex(double x) {
+            return (int) ((x - minX) / cellSize);
+        }
+
+        private int getYIndex(double y) {
+            return (int) ((y - minY) / cellSize);
+        }
+    }
+
+    /**
+     * Sums up the emissions by link for the current time bin and processes the time bin once the events have moved on.
+     */
+    private static final class TimeBinStreamer implements RawEmissionEventsReader.HandleEmissionEvent {
+
+        private final Network network;
+        private final TileGrid grid;
+        private final double timeBinSize;
+        private final TileConsumer consumer;
+
+        private final Map<Pollutant, TObjectDoubleHashMap<Id<Link>>> linkEmissionsByPollutant = new EnumMap<>(Pollutant.class);
+        private int currentTimeBin = 0;
+
+        private TimeBinStreamer(Network network, TileGrid grid, double timeBinSize, TileConsumer consumer) {
+            if (timeBinSize <= 0) {
+                throw new IllegalArgumentException("time bin size must be positive, but is " + timeBinSize);
+            }
+            this.network = network;
+            this.grid = grid;
+            this.timeBinSize = timeBinSize;
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void accept(double time, String linkId, String vehicleId, Pollutant pollutant, double value) {
+
+            var timeBin = (int) (Math.max(time, 0) / timeBinSize);
+            if (timeBin < currentTimeBin) {
+                throw new RuntimeException("Emission events must be sorted by time, but an event at " + time
+                        + " was read after events of the time bin starting at " + currentTimeBin * timeBinSize);
+            }
+            if (timeBin > currentTimeBin) {
+                processCurrentTimeBin();
+                currentTimeBin = timeBin;
+            }
+
+            var id = Id.createLinkId(linkId);
+            if (network.getLinks().containsKey(id)) {
+                var linkMap = linkEmissionsByPollutant.computeIfAbsent(pollutant, key -> new TObjectDoubleHashMap<>());
+                linkMap.adjustOrPutValue(id, value, value);
+            }
+        }
+
+        private void processCurrentTimeBin() {
+
+            var startTime = currentTimeBin * timeBinSize;
+            for (var entry : linkEmissionsByPollutant.entrySet()) {
+                logger.info("Smoothing of: " + entry.getKey() + " for the time bin starting at " + startTime);
+                processLinkEmissions(grid, entry.getValue(), tile -> consumer.accept(startTime, entry.getKey(), tile));
+            }
+            linkEmissionsByPollutant.clear();
+        }
+    }
+}
@@ -107,6 +107,15 @@ public final class EmissionsConfigGroup extends ReflectiveConfigGroup {
 	private static final String HBEFA_TABLE_CONSISTENCY_CHECKING_LEVEL = "hbefaTableConsistencyCheckingLevel";
 	private HbefaTableConsistencyCheckingLevel hbefaTableConsistencyCheckingLevel = HbefaTableConsistencyCheckingLevel.allCombinations;
 
+	private static final String CREATING_EMISSIONS_EVENTS = "isCreatingEmissionsEvents";
+	private boolean isCreatingEmissionsEvents = true;
+
+	private static final String LINK_EMISSIONS_TIME_BIN_SIZE = "linkEmissionsTimeBinSize";
+	private double linkEmissionsTimeBinSize = 0;
+
+	private static final String NUMBER_OF_HANDLER_SHARDS = "numberOfHandlerShards";
+	private int numberOfHandlerShards = 1;
+
 	@Deprecated // should be phased out.  kai, oct'18
 	private static final String EMISSION_ROADTYPE_MAPPING_FILE_CMT = "REQUIRED if source of the HBEFA road type is set to "+HbefaRoadTypeSource.fromFile +". It maps from input road types to HBEFA 3.1 road type strings";
 	private static final String EMISSION_FACTORS_WARM_FILE_AVERAGE_CMT = "file with HBEFA vehicle type specific fleet average warm emission factors";
@@ -165,6 +174,16 @@ public final class EmissionsConfigGroup extends ReflectiveConfigGroup {
 
 	private static final String EMISSIONS_COMPUTATION_METHOD_CMT = "if true, the original fractional method from Hülsmann et al (2011) will be used to calculate emission factors";
 
+	private static final String CREATING_EMISSIONS_EVENTS_CMT = "if false, no warm and cold emission events are created at all, i.e. they are neither written " +
+			"nor passed to the handlers of the emission events manager. Use " + LINK_EMISSIONS_TIME_BIN_SIZE + " to still obtain the emissions per link.";
+
+	private static final String LINK_EMISSIONS_TIME_BIN_SIZE_CMT = "if > 0, the warm and cold emissions are summed up per link and time bin of this size (in seconds), " +
+			"without creating any events. The sums are available from EmissionModule.getLinkEmissions(). 0 (default) means no summing up.";
+
+	private static final String NUMBER_OF_HANDLER_SHARDS_CMT = "number of warm and cold emission handler pairs; each pair computes the emissions of the vehicles " +
+			"whose index modulo this number equals its shard index. With a parallel events manager, the shards are processed in parallel. " +
+			"With more than one shard, EmissionModule.getWarm/ColdEmissionAnalysisModule() are not available.";
+
 
 	@Override
 	public Map<String, String> getComments() {
@@ -214,6 +233,12 @@ public final class EmissionsConfigGroup extends ReflectiveConfigGroup {
 
 		map.put(EMISSIONS_COMPUTATION_METHOD, EMISSIONS_COMPUTATION_METHOD_CMT);
 
+		map.put(CREATING_EMISSIONS_EVENTS, CREATING_EMISSIONS_EVENTS_CMT);
+
+		map.put(LINK_EMISSIONS_TIME_BIN_SIZE, LINK_EMISSIONS_TIME_BIN_SIZE_CMT);
+
+		map.put(NUMBER_OF_HANDLER_SHARDS, NUMBER_OF_HANDLER_SHARDS_CMT);
+
 		return map;
 	}
 
@@ -550,6 +575,54 @@ public final class EmissionsConfigGroup extends ReflectiveConfigGroup {
 	public void setEmissionsComputationMethod(EmissionsComputationMethod emissionsComputationMethod) {
 		this.emissionsComputationMethod = emissionsComputationMethod;
 	}
+	// ============================================
+	// ============================================
+	/**
+	 * @return {@value #CREATING_EMISSIONS_EVENTS_CMT}
+	 */
+	@StringGetter(CREATING_EMISSIONS_EVENTS)
+	public boolean isCreatingEmissionsEvents() {
+		return isCreatingEmissionsEvents;
+	}
+	/**
+	 * @param creatingEmissionsEvents -- {@value #CREATING_EMISSIONS_EVENTS_CMT}
+	 */
+	@StringSetter(CREATING_EMISSIONS_EVENTS)
+	public void setCreatingEmissionsEvents(boolean creatingEmissionsEvents) {
+		isCreatingEmissionsEvents = creatingEmissionsEvents;
+	}
+	// ============================================
+	// ============================================
+	/**
+	 * @return {@value #LINK_EMISSIONS_TIME_BIN_SIZE_CMT}
+	 */
+	@StringGetter(LINK_EMISSIONS_TIME_BIN_SIZE)
+	public double getLinkEmissionsTimeBinSize() {
+		return linkEmissionsTimeBinSize;
+	}
+	/**
+	 * @param linkEmissionsTimeBinSize -- {@value #LINK_EMISSIONS_TIME_BIN_SIZE_CMT}
+	 */
+	@StringSetter(LINK_EMISSIONS_TIME_BIN_SIZE)
+	public void setLinkEmissionsTimeBinSize(double linkEmissionsTimeBinSize) {
+		this.linkEmissionsTimeBinSize = linkEmissionsTimeBinSize;
+	}
+	// ============================================
+	// ============================================
+	/**
+	 * @return {@value #NUMBER_OF_HANDLER_SHARDS_CMT}
+	 */
+	@StringGetter(NUMBER_OF_HANDLER_SHARDS)
+	public int getNumberOfHandlerShards() {
+		return numberOfHandlerShards;
+	}
+	/**
+	 * @param numberOfHandlerShards -- {@value #NUMBER_OF_HANDLER_SHARDS_CMT}
+	 */
+	@StringSetter(NUMBER_OF_HANDLER_SHARDS)
+	public void setNumberOfHandlerShards(int numberOfHandlerShards) {
+		this.numberOfHandlerShards = numberOfHandlerShards;
+	}
 
 	@Override
 	protected final void checkConsistency(Config config){
@@ -567,6 +640,16 @@ public final class EmissionsConfigGroup extends ReflectiveConfigGroup {
 			default:
 				throw new IllegalStateException("Unexpected value: " + this.emissionsComputationMethod);
 		}
+		if (this.numberOfHandlerShards < 1) {
+			throw new RuntimeException(NUMBER_OF_HANDLER_SHARDS + " must be at least 1, but is " + this.numberOfHandlerShards);
+		}
+		if (this.linkEmissionsTimeBinSize < 0) {
+			throw new RuntimeException(LINK_EMISSIONS_TIME_BIN_SIZE + " must not be negative, but is " + this.linkEmissionsTimeBinSize);
+		}
+		if (!this.isCreatingEmissionsEvents && this.linkEmissionsTimeBinSize == 0) {
+			log.warn("Neither emission events are created nor link emissions are summed up, i.e. the emissions are computed but not available anywhere. " +
+					"Consider setting " + LINK_EMISSIONS_TIME_BIN_SIZE + ".");
+		}
 	}
 
 }
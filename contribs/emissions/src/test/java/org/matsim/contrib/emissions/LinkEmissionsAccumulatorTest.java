@@ -0,0 +1,68 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.emissions;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.testcases.MatsimTestUtils;
+
+import java.util.Map;
+
+public class LinkEmissionsAccumulatorTest {
+
+	private final Id<Link> linkA = Id.createLinkId("accumulator_a");
+	private final Id<Link> linkB = Id.createLinkId("accumulator_b");
+
+	@Test
+	public void addAndMerge() {
+		LinkEmissionsAccumulator warm = new LinkEmissionsAccumulator(3600);
+		double[] warmEmissions = new double[Pollutant.values().length];
+		warmEmissions[Pollutant.CO2_TOTAL.ordinal()] = 10;
+		warm.add(100, linkA, warmEmissions);
+		warm.add(200, linkA, warmEmissions);
+		warm.add(7300, linkB, warmEmissions);
+
+		LinkEmissionsAccumulator cold = new LinkEmissionsAccumulator(3600);
+		cold.add(3599, linkA, Map.of(Pollutant.CO2_TOTAL, 1., Pollutant.NOx, 2.));
+
+		LinkEmissionsAccumulator all = new LinkEmissionsAccumulator(3600);
+		all.addAll(warm);
+		all.addAll(cold);
+
+		Assert.assertEquals(3, all.getTimeBinCount());
+		Assert.assertEquals(21, all.getEmissions(0, linkA, Pollutant.CO2_TOTAL), MatsimTestUtils.EPSILON);
+		Assert.assertEquals(2, all.getEmissions(0, linkA, Pollutant.NOx), MatsimTestUtils.EPSILON);
+		Assert.assertEquals(0, all.getEmissions(0, linkB, Pollutant.CO2_TOTAL), MatsimTestUtils.EPSILON);
+		Assert.assertEquals(0, all.getEmissions(1, linkA, Pollutant.CO2_TOTAL), MatsimTestUtils.EPSILON);
+		Assert.assertEquals(10, all.getEmissions(2, linkB, Pollutant.CO2_TOTAL), MatsimTestUtils.EPSILON);
+		Assert.assertEquals(0, all.getEmissions(5, linkB, Pollutant.CO2_TOTAL), MatsimTestUtils.EPSILON);
+
+		Map<Id<Link>, Map<Pollutant, Double>> firstBin = all.getEmissions(0);
+		Assert.assertEquals(1, firstBin.size());
+		Assert.assertEquals(21, firstBin.get(linkA).get(Pollutant.CO2_TOTAL), MatsimTestUtils.EPSILON);
+		Assert.assertTrue(all.getEmissions(1).isEmpty());
+
+		all.clear();
+		Assert.assertEquals(0, all.getTimeBinCount());
+	}
+}
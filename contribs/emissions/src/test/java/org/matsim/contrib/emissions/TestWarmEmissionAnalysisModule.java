@@ -309,6 +309,30 @@ public class TestWarmEmissionAnalysisModule {
 	}
 
 
+	@Test
+	public void testCalculateWarmEmissions_intoReusableArray(){
+		setUp();
+
+		Id<VehicleType> tableVehicleTypeId = Id.create(
+				PASSENGER_CAR + ";" + "petrol (4S)" +";" + "<1,4L" +";"+ "PC-P-Euro-0", VehicleType.class );
+		VehiclesFactory vehFac = VehicleUtils.getFactory();
+		VehicleType tableVehicleType = vehFac.createVehicleType(tableVehicleTypeId);
+		Vehicle tableVehicle = vehFac.createVehicle(Id.create("vehicle 9", Vehicle.class), tableVehicleType);
+		double tableLinkLength= 30.*1000;
+		Link tableLink = createMockLink("link table", tableLinkLength, AVG_PASSENGER_CAR_SPEED_FF_KMH / 3.6);
+
+		// the same array is reused for free flow and stop go; both must match the map-based results
+		double[] warmEmissions = new double[Pollutant.values().length];
+		for (double travelTime : new double[] { tableLinkLength / AVG_PASSENGER_CAR_SPEED_FF_KMH * 3.6,
+				2 * tableLinkLength / AVG_PASSENGER_CAR_SPEED_FF_KMH * 3.6 }) {
+			Map<Pollutant, Double> expected = emissionsModule.checkVehicleInfoAndCalculateWarmEmissions(tableVehicle, tableLink, travelTime);
+			emissionsModule.calculateWarmEmissions(tableVehicleType, tableLink, travelTime, warmEmissions);
+			for (Pollutant pollutant : pollutants) {
+				Assert.assertEquals(expected.get(pollutant), warmEmissions[pollutant.ordinal()], MatsimTestUtils.EPSILON);
+			}
+		}
+	}
+
 	private void setUp() {
 
 		Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> avgHbefaWarmTable = new HashMap<>();
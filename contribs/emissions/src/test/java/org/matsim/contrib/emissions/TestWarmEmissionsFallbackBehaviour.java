@@ -224,6 +224,19 @@ public class TestWarmEmissionsFallbackBehaviour {
 
 
 
+	/**
+	 * with several handler shards, each shard has its own analysis module
+	 *
+	 * -> should abort instead of returning the module of one of the shards
+	 */
+	@Test
+	public void testWarmAnalysisModuleNotAvailableWithSeveralShards() {
+		EmissionModule emissionModule = setUpScenario(EmissionsConfigGroup.DetailedVsAverageLookupBehavior.onlyTryDetailedElseAbort, 2);
+
+		Assert.assertThrows(RuntimeException.class, emissionModule::getWarmEmissionAnalysisModule);
+		Assert.assertThrows(RuntimeException.class, emissionModule::getColdEmissionAnalysisModule);
+	}
+
 
 // ---------- setup and helper methods -------------	
 
@@ -234,6 +247,10 @@ public class TestWarmEmissionsFallbackBehaviour {
 	 * @return EmissionsModule
 	 */
 	private EmissionModule setUpScenario(EmissionsConfigGroup.DetailedVsAverageLookupBehavior lookupBehavior) {
+		return setUpScenario(lookupBehavior, 1);
+	}
+
+	private EmissionModule setUpScenario(EmissionsConfigGroup.DetailedVsAverageLookupBehavior lookupBehavior, int numberOfHandlerShards) {
 //		Config config = ConfigUtils.createConfig();
 		Config config = ConfigUtils.loadConfig( IOUtils.extendUrl( ExamplesUtils.getTestScenarioURL( "emissions-sampleScenario" ), "config_empty.xml" ).toString() ) ;
 //		Config config = RunDetailedEmissionToolOnlineExample.prepareConfig( new String[]{"./scenarios/sampleScenario/testv2_Vehv2/config_detailed.xml"} ) ;
@@ -244,6 +261,7 @@ public class TestWarmEmissionsFallbackBehaviour {
 		emissionsConfig.setDetailedColdEmissionFactorsFile("sample_41_EFA_ColdStart_SubSegm_2020detailed.txt");
 		emissionsConfig.setAverageWarmEmissionFactorsFile( "sample_41_EFA_HOT_vehcat_2020average.txt" );
 		emissionsConfig.setDetailedWarmEmissionFactorsFile("sample_41_EFA_HOT_SubSegm_2020detailed.txt");
+		emissionsConfig.setNumberOfHandlerShards(numberOfHandlerShards);
 
 		Scenario scenario = ScenarioUtils.loadScenario( config );
 
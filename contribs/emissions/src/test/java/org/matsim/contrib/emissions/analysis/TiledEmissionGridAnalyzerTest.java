@@ -0,0 +1,135 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.emissions.analysis;
+
+import gnu.trove.map.hash.TObjectDoubleHashMap;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.emissions.Pollutant;
+import org.matsim.contrib.emissions.utils.TestUtils;
+import org.matsim.core.config.groups.NetworkConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TiledEmissionGridAnalyzerTest {
+
+    @Rule
+    public MatsimTestUtils utils = new MatsimTestUtils();
+
+    @Test
+    public void processLinkEmissions_sameAsFastEmissionGridAnalyzer() {
+
+        var network = NetworkUtils.createNetwork(new NetworkConfigGroup());
+        var node1 = createAndAddNode(network, "node1", 30, 79);
+        var node2 = createAndAddNode(network, "node2", 129, 79);
+        var node3 = createAndAddNode(network, "node3", 79, 30);
+        var node4 = createAndAddNode(network, "node4", 95, 129);
+        // nodes without links, so that the links are not at the edges of the raster
+        createAndAddNode(network, "corner1", 0, 0);
+        createAndAddNode(network, "corner2", 159, 159);
+
+        var link1 = network.getFactory().createLink(Id.createLinkId("link1"), node1, node2);
+        var link2 = network.getFactory().createLink(Id.createLinkId("link2"), node3, node4);
+        network.addLink(link1);
+        network.addLink(link2);
+
+        var emissions = new TObjectDoubleHashMap<Id<Link>>();
+        emissions.put(link1.getId(), 20.);
+        emissions.put(link2.getId(), 10.);
+
+        var raster = FastEmissionGridAnalyzer.processLinkEmissions(emissions, network, 10, 2);
+
+        // tiles much smaller than the kernel, so that the halos span several tiles
+        var grid = new TiledEmissionGridAnalyzer.TileGrid(network, 10, 2, 3);
+        List<TiledEmissionGridAnalyzer.Tile> tiles = new CopyOnWriteArrayList<>();
+        TiledEmissionGridAnalyzer.processLinkEmissions(grid, emissions, tiles::add);
+
+        var tiledSum = 0.;
+        for (var tile : tiles) {
+            for (var xi = 0; xi < tile.getXLength(); xi++) {
+                for (var yi = 0; yi < tile.getYLength(); yi++) {
+                    var value = tile.getValueByIndex(xi, yi);
+                    assertEquals(raster.getValueByIndex(tile.getXOffset() + xi, tile.getYOffset() + yi), value, 1e-12);
+                    assertEquals(raster.getCoordForIndex(tile.getXOffset() + xi, tile.getYOffset() + yi), tile.getCoordForIndex(xi, yi));
+                    tiledSum += value;
+                }
+            }
+        }
+
+        // skipped tiles must be empty
+        var rasterSum = new double[1];
+        raster.forEachIndex((xi, yi, value) -> rasterSum[0] += value);
+        assertEquals(rasterSum[0], tiledSum, 1e-12);
+    }
+
+    @Test
+    public void processEventsFile() throws IOException {
+
+        final var networkUrl = IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("equil"), "network.xml");
+        final var emissionEvents = Paths.get(utils.getOutputDirectory()).resolve("emission.events.xml.gz");
+        final var csvFile = Paths.get(utils.getOutputDirectory()).resolve("emissions.csv");
+        final var biggestExpectedValue = 6.056547619047618E-6;
+
+        var network = NetworkUtils.readNetwork(networkUrl.toString());
+        TestUtils.writeWarmEventsToFile(emissionEvents, network, Pollutant.NOx, 10, 1, 1);
+
+        List<TiledEmissionGridAnalyzer.Tile> tiles = new CopyOnWriteArrayList<>();
+        try (var writer = new CsvTileWriter(csvFile.toString())) {
+            TiledEmissionGridAnalyzer.processEventsFile(emissionEvents.toString(), network, 1000, 1, 3600, 10, (time, pollutant, tile) -> {
+                assertEquals(0, time, 0);
+                assertEquals(Pollutant.NOx, pollutant);
+                tiles.add(tile);
+                writer.accept(time, pollutant, tile);
+            });
+        }
+
+        assertFalse(tiles.isEmpty());
+        tiles.forEach(tile -> tile.forEachCoordinate((x, y, value) -> assertTrue(biggestExpectedValue >= value)));
+
+        try (BufferedReader reader = IOUtils.getBufferedReader(csvFile.toString())) {
+            assertEquals("time,pollutant,x,y,value", reader.readLine());
+            assertTrue(reader.readLine().startsWith("0.0,NOx,"));
+        }
+    }
+
+    private static Node createAndAddNode(Network network, String id, double x, double y) {
+        var node = network.getFactory().createNode(Id.createNodeId(id), new Coord(x, y));
+        network.addNode(node);
+        return node;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.ev.charging;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.contrib.ev.fleet.ElectricVehicle;
+import org.matsim.contrib.ev.infrastructure.Charger;
+import org.matsim.contrib.ev.infrastructure.ChargerSpecification;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Predicts the availability of chargers for planning charging stops (i.e. outside the mobsim, where the charger queues
+ * are not known) from the waiting times observed in the previous iteration. A vehicle waits from
+ * {@link QueuedAtChargerEvent} until {@link ChargingStartEvent} (or {@link QuitQueueAtChargerEvent}), vehicles plugged
+ * in immediately wait 0. The waiting times are averaged per charger and time bin of the arrival at the charger.
+ * <p>
+ * The predictions are replaced at {@link #reset(int)}, i.e. before the replanning of the next iteration, and may be
+ * queried concurrently by several routing threads.
+ */
+public final class ChargerWaitTimes
+		implements QueuedAtChargerEventHandler, ChargingStartEventHandler, QuitQueueAtChargerEventHandler {
+	private final double timeBinSize;
+
+	// observed in the current iteration
+	private final Map<Id<ElectricVehicle>, QueuedAtChargerEvent> queuedVehicles = new HashMap<>();
+	private final Map<Id<Charger>, WaitTimeBins> observedWaitTimes = new HashMap<>();
+	private double lastEventTime;
+
+	// average wait times by time bin, observed in the previous iteration
+	private volatile Map<Id<Charger>, double[]> predictedWaitTimes = Map.of();
+
+	public ChargerWaitTimes(double timeBinSize) {
+		Preconditions.checkArgument(timeBinSize > 0, "timeBinSize must be positive");
+		this.timeBinSize = timeBinSize;
+	}
+
+	@Override
+	public void handleEvent(QueuedAtChargerEvent event) {
+		queuedVehicles.put(event.getVehicleId(), event);
+		lastEventTime = event.getTime();
+	}
+
+	@Override
+	public void handleEvent(ChargingStartEvent event) {
+		QueuedAtChargerEvent queuedEvent = queuedVehicles.remove(event.getVehicleId());
+		double arrivalTime = queuedEvent == null ? event.getTime() : queuedEvent.getTime();
+		addWaitTime(event.getChargerId(), arrivalTime, event.getTime() - arrivalTime);
+		lastEventTime = event.getTime();
+	}
+
+	@Override
+	public void handleEvent(QuitQueueAtChargerEvent event) {
+		QueuedAtChargerEvent queuedEvent = queuedVehicles.remove(event.getVehicleId());
+		if (queuedEvent != null) {
+			addWaitTime(event.getChargerId(), queuedEvent.getTime(), event.getTime() - queuedEvent.getTime());
+		}
+		lastEventTime = event.getTime();
+	}
+
+	private void addWaitTime(Id<Charger> chargerId, double arrivalTime, double waitTime) {
+		observedWaitTimes.computeIfAbsent(chargerId, id -> new WaitTimeBins()).add(getTimeBin(arrivalTime), waitTime);
+	}
+
+	@Override
+	public void reset(int iteration) {
+		// vehicles still queued at the end of the mobsim: count the time waited until the last charging event
+		for (QueuedAtChargerEvent queuedEvent : queuedVehicles.values()) {
+			addWaitTime(queuedEvent.getChargerId(), queuedEvent.getTime(), lastEventTime - queuedEvent.getTime());
+		}
+
+		Map<Id<Charger>, double[]> averages = new HashMap<>();
+		observedWaitTimes.forEach((chargerId, bins) -> averages.put(chargerId, bins.getAverages()));
+		predictedWaitTimes = averages;
+
+		queuedVehicles.clear();
+		observedWaitTimes.clear();
+		lastEventTime = 0;
+	}
+
+	/**
+	 * Batch query for the candidate chargers of a charging stop.
+	 *
+	 * @return the predicted wait times at the given chargers for vehicles arriving at the given time (in the same order as
+	 * the chargers); 0 for chargers without observations at that time
+	 */
+	public double[] estimateWaitTimes(List<? extends ChargerSpecification> chargers, double arrivalTime) {
+		Map<Id<Charger>, double[]> predictions = predictedWaitTimes;
+		int timeBin = getTimeBin(arrivalTime);
+		double[] waitTimes = new double[chargers.size()];
+		for (int i = 0; i < waitTimes.length; i++) {
+			double[] averages = predictions.get(chargers.get(i).getId());
+			waitTimes[i] = averages != null && timeBin < averages.length ? averages[timeBin] : 0;
+		}
+		return waitTimes;
+	}
+
+	private int getTimeBin(double time) {
+		return Math.max(0, (int)(time / timeBinSize));
+	}
+
+	private static final class WaitTimeBins {
+		private double[] sums = new double[0];
+		private int[] counts = new int[0];
+
+		private void add(int timeBin, double waitTime) {
+			if (timeBin >= sums.length) {
+				sums = Arrays.copyOf(sums, timeBin + 1);
+				counts = Arrays.copyOf(counts, timeBin + 1);
+			}
+			sums[timeBin] += waitTime;
+			counts[timeBin]++;
+		}
+
+		private double[] getAverages() {
+			double[] averages = new double[sums.length];
+			for (int i = 0; i < averages.length; i++) {
+				averages[i] = counts[i] == 0 ? 0 : sums[i] / counts[i];
+			}
+			return averages;
+		}
+	}
+}
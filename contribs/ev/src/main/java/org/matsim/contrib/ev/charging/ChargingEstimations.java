@@ -38,8 +38,7 @@ public class ChargingEstimations {
 	}
 
 	public static double estimateTotalTimeToCharge(ChargingLogic logic) {
-		return estimateTotalTimeToCharge(logic.getChargingStrategy(),
-				Stream.concat(logic.getPluggedVehicles().stream(), logic.getQueuedVehicles().stream()));
+		return logic.estimateTotalTimeToCharge();
 	}
 
 	public static double estimateTotalEnergyToCharge(ChargingLogic logic) {
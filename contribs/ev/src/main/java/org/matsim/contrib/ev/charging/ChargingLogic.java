@@ -20,6 +20,7 @@
 package org.matsim.contrib.ev.charging;
 
 import java.util.Collection;
+import java.util.stream.Stream;
 
 import org.matsim.contrib.ev.fleet.ElectricVehicle;
 import org.matsim.contrib.ev.infrastructure.ChargerSpecification;
@@ -42,4 +43,12 @@ public interface ChargingLogic {
 	Collection<ElectricVehicle> getQueuedVehicles();
 
 	ChargingStrategy getChargingStrategy();
+
+	/**
+	 * @return estimated time needed to charge all plugged and queued vehicles
+	 */
+	default double estimateTotalTimeToCharge() {
+		return ChargingEstimations.estimateTotalTimeToCharge(getChargingStrategy(),
+				Stream.concat(getPluggedVehicles().stream(), getQueuedVehicles().stream()));
+	}
 }
@@ -47,6 +47,10 @@ public class ChargingModule extends AbstractModule {
 
 		bind(ChargingPower.Factory.class).toInstance(ev -> new FixedSpeedCharging(ev, 1));
 
+		bind(ChargerWaitTimes.class).toInstance(
+				new ChargerWaitTimes(getConfig().travelTimeCalculator().getTraveltimeBinSize()));
+		addEventHandlerBinding().to(ChargerWaitTimes.class);
+
 		installQSimModule(new AbstractQSimModule() {
 			@Override
 			protected void configureQSim() {
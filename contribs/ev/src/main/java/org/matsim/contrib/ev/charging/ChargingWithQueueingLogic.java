@@ -23,10 +23,8 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Queue;
 
 import org.matsim.api.core.v01.Id;
 import org.matsim.contrib.ev.fleet.ElectricVehicle;
@@ -35,15 +33,24 @@ import org.matsim.core.api.experimental.events.EventsManager;
 
 import com.google.common.base.Preconditions;
 
+/**
+ * Plugged and queued vehicles are kept in insertion-ordered hash maps, so the queue is served in the order of arrival
+ * while a vehicle can leave the queue in constant time. The estimated total time to charge is cached until the next
+ * charging step (or until vehicles are added or removed), so that many availability queries (e.g. for all chargers
+ * considered by a dispatcher) do not recompute it for each query.
+ */
 public class ChargingWithQueueingLogic implements ChargingLogic {
 	private final ChargerSpecification charger;
 	private final ChargingStrategy chargingStrategy;
 	private final EventsManager eventsManager;
 
 	private final Map<Id<ElectricVehicle>, ElectricVehicle> pluggedVehicles = new LinkedHashMap<>();
-	private final Queue<ElectricVehicle> queuedVehicles = new LinkedList<>();
+	private final Map<Id<ElectricVehicle>, ElectricVehicle> queuedVehicles = new LinkedHashMap<>();
 	private final Map<Id<ElectricVehicle>, ChargingListener> listeners = new LinkedHashMap<>();
 
+	// NaN if not up to date
+	private double estimatedTotalTimeToCharge = Double.NaN;
+
 	public ChargingWithQueueingLogic(ChargerSpecification charger, ChargingStrategy chargingStrategy,
 			EventsManager eventsManager) {
 		this.chargingStrategy = Objects.requireNonNull(chargingStrategy);
@@ -53,6 +60,7 @@ public class ChargingWithQueueingLogic implements ChargingLogic {
 
 	@Override
 	public void chargeVehicles(double chargePeriod, double now) {
+		estimatedTotalTimeToCharge = Double.NaN;
 		Iterator<ElectricVehicle> evIter = pluggedVehicles.values().iterator();
 		while (evIter.hasNext()) {
 			ElectricVehicle ev = evIter.next();
@@ -70,7 +78,7 @@ public class ChargingWithQueueingLogic implements ChargingLogic {
 
 		int queuedToPluggedCount = Math.min(queuedVehicles.size(), charger.getPlugCount() - pluggedVehicles.size());
 		for (int i = 0; i < queuedToPluggedCount; i++) {
-			plugVehicle(queuedVehicles.poll(), now);
+			plugVehicle(pollQueuedVehicle(), now);
 		}
 	}
 
@@ -81,6 +89,7 @@ public class ChargingWithQueueingLogic implements ChargingLogic {
 
 	@Override
 	public void addVehicle(ElectricVehicle ev, ChargingListener chargingListener, double now) {
+		estimatedTotalTimeToCharge = Double.NaN;
 		listeners.put(ev.getId(), chargingListener);
 		if (pluggedVehicles.size() < charger.getPlugCount()) {
 			plugVehicle(ev, now);
@@ -91,28 +100,38 @@ public class ChargingWithQueueingLogic implements ChargingLogic {
 
 	@Override
 	public void removeVehicle(ElectricVehicle ev, double now) {
+		estimatedTotalTimeToCharge = Double.NaN;
 		if (pluggedVehicles.remove(ev.getId()) != null) {// successfully removed
 			eventsManager.processEvent(
 					new ChargingEndEvent(now, charger.getId(), ev.getId(), ev.getBattery().getSoc()));
 			listeners.remove(ev.getId()).notifyChargingEnded(ev, now);
 
 			if (!queuedVehicles.isEmpty()) {
-				plugVehicle(queuedVehicles.poll(), now);
+				plugVehicle(pollQueuedVehicle(), now);
 			}
 		} else {
 			// make sure ev was in the queue
-			Preconditions.checkState(queuedVehicles.remove(ev),
+			Preconditions.checkState(queuedVehicles.remove(ev.getId()) != null,
 					"Vehicle (%s) is neither queued nor plugged at charger (%s)", ev.getId(), charger.getId());
 			eventsManager.processEvent(new QuitQueueAtChargerEvent(now, charger.getId(), ev.getId()));
 		}
 	}
 
 	private void queueVehicle(ElectricVehicle ev, double now) {
-		queuedVehicles.add(ev);
+		if (queuedVehicles.put(ev.getId(), ev) != null) {
+			throw new IllegalArgumentException();
+		}
 		eventsManager.processEvent(new QueuedAtChargerEvent(now, charger.getId(), ev.getId()));
 		listeners.get(ev.getId()).notifyVehicleQueued(ev, now);
 	}
 
+	private ElectricVehicle pollQueuedVehicle() {
+		Iterator<ElectricVehicle> queueIter = queuedVehicles.values().iterator();
+		ElectricVehicle ev = queueIter.next();
+		queueIter.remove();
+		return ev;
+	}
+
 	private void plugVehicle(ElectricVehicle ev, double now) {
 		if (pluggedVehicles.put(ev.getId(), ev) != null) {
 			throw new IllegalArgumentException();
@@ -131,7 +150,7 @@ public class ChargingWithQueueingLogic implements ChargingLogic {
 	}
 
 	private final Collection<ElectricVehicle> unmodifiableQueuedVehicles = Collections.unmodifiableCollection(
-			queuedVehicles);
+			queuedVehicles.values());
 
 	@Override
 	public Collection<ElectricVehicle> getQueuedVehicles() {
@@ -142,4 +161,12 @@ public class ChargingWithQueueingLogic implements ChargingLogic {
 	public ChargingStrategy getChargingStrategy() {
 		return chargingStrategy;
 	}
+
+	@Override
+	public double estimateTotalTimeToCharge() {
+		if (Double.isNaN(estimatedTotalTimeToCharge)) {
+			estimatedTotalTimeToCharge = ChargingLogic.super.estimateTotalTimeToCharge();
+		}
+		return estimatedTotalTimeToCharge;
+	}
 }
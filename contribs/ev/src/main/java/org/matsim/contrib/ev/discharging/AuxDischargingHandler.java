@@ -19,8 +19,7 @@
 
 package org.matsim.contrib.ev.discharging;
 
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.Arrays;
 
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.events.ActivityEndEvent;
@@ -28,8 +27,9 @@ import org.matsim.api.core.v01.events.ActivityStartEvent;
 import org.matsim.api.core.v01.events.handler.ActivityEndEventHandler;
 import org.matsim.api.core.v01.events.handler.ActivityStartEventHandler;
 import org.matsim.api.core.v01.network.Link;
-import org.matsim.api.core.v01.population.Person;
 import org.matsim.contrib.ev.EvConfigGroup;
+import org.matsim.contrib.ev.fleet.BatteryStates;
+import org.matsim.contrib.ev.fleet.ElectricFleet;
 import org.matsim.contrib.ev.fleet.ElectricVehicle;
 import org.matsim.core.events.MobsimScopeEventHandler;
 import org.matsim.core.mobsim.framework.events.MobsimAfterSimStepEvent;
@@ -43,6 +43,10 @@ import com.google.inject.Inject;
  * <p>
  * VehicleProvider is responsible to decide if AUX discharging applies to a given vehicle based on information from
  * ActivityStartEvent.
+ * <p>
+ * Only the vehicles being AUX-discharged are visited in each AUX discharge time step. They are kept in a dense array of
+ * vehicle indices (see {@link BatteryStates}). They are discharged sequentially on the mobsim thread, so
+ * {@link AuxEnergyConsumption} implementations do not need to be thread-safe.
  */
 public class AuxDischargingHandler
 		implements MobsimAfterSimStepListener, ActivityStartEventHandler, ActivityEndEventHandler,
@@ -58,49 +62,95 @@ public class AuxDischargingHandler
 		ElectricVehicle getVehicle(ActivityStartEvent event);
 	}
 
-	private static final class VehicleAndLink {
-		private final ElectricVehicle vehicle;
-		private final Id<Link> linkId;
-
-		private VehicleAndLink(ElectricVehicle vehicle, Id<Link> linkId) {
-			this.vehicle = vehicle;
-			this.linkId = linkId;
-		}
-	}
-
 	private final VehicleProvider vehicleProvider;
 	private final int auxDischargeTimeStep;
+	private final BatteryStates batteryStates;
 
-	private final ConcurrentMap<Id<Person>, VehicleAndLink> vehicles = new ConcurrentHashMap<>();
+	// by vehicle index
+	private final ElectricVehicle[] eVehicles;
+	private final Id<Link>[] linkIds;
+	private final int[] positions;// in dischargedVehicles, -1 if not discharged
 
+	private final int[] dischargedVehicles;
+	private int dischargedVehicleCount = 0;
+
+	// by Id<Person> index: vehicle index, -1 if none
+	private int[] personVehicles = new int[0];
+
+	@SuppressWarnings("unchecked")
 	@Inject
-	public AuxDischargingHandler(VehicleProvider vehicleProvider, EvConfigGroup evCfg) {
+	public AuxDischargingHandler(VehicleProvider vehicleProvider, EvConfigGroup evCfg, ElectricFleet fleet) {
 		this.vehicleProvider = vehicleProvider;
 		this.auxDischargeTimeStep = evCfg.getAuxDischargeTimeStep();
+		this.batteryStates = fleet.getBatteryStates();
+
+		int count = batteryStates.getVehicleCount();
+		eVehicles = new ElectricVehicle[count];
+		for (int i = 0; i < count; i++) {
+			eVehicles[i] = fleet.getElectricVehicles().get(batteryStates.getVehicleId(i));
+		}
+		linkIds = new Id[count];
+		positions = new int[count];
+		Arrays.fill(positions, -1);
+		dischargedVehicles = new int[count];
 	}
 
 	@Override
-	public void notifyMobsimAfterSimStep(@SuppressWarnings("rawtypes") MobsimAfterSimStepEvent e) {
+	public synchronized void notifyMobsimAfterSimStep(@SuppressWarnings("rawtypes") MobsimAfterSimStepEvent e) {
 		if (e.getSimulationTime() % auxDischargeTimeStep == 0) {
-			for (VehicleAndLink vehicleAndLink : vehicles.values()) {
-				ElectricVehicle ev = vehicleAndLink.vehicle;
-				double energy = ev.getAuxEnergyConsumption()
-						.calcEnergyConsumption(e.getSimulationTime(), auxDischargeTimeStep, vehicleAndLink.linkId);
-				ev.getBattery().changeSoc(-energy);
+			double time = e.getSimulationTime();
+			for (int p = 0; p < dischargedVehicleCount; p++) {
+				int v = dischargedVehicles[p];
+				double energy = eVehicles[v].getAuxEnergyConsumption()
+						.calcEnergyConsumption(time, auxDischargeTimeStep, linkIds[v]);
+				batteryStates.changeSoc(v, -energy);
 			}
 		}
 	}
 
 	@Override
-	public void handleEvent(ActivityStartEvent event) {
+	public synchronized void handleEvent(ActivityStartEvent event) {
 		ElectricVehicle electricVehicle = vehicleProvider.getVehicle(event);
 		if (electricVehicle != null) {
-			vehicles.put(event.getPersonId(), new VehicleAndLink(electricVehicle, event.getLinkId()));
+			int v = batteryStates.getIndex(electricVehicle.getId());
+			int personIndex = event.getPersonId().index();
+			if (personIndex >= personVehicles.length) {
+				int oldLength = personVehicles.length;
+				personVehicles = Arrays.copyOf(personVehicles, Math.max(personIndex + 1, 2 * oldLength));
+				Arrays.fill(personVehicles, oldLength, personVehicles.length, -1);
+			}
+			int previousVehicle = personVehicles[personIndex];
+			if (previousVehicle >= 0 && previousVehicle != v) {
+				stopDischarging(previousVehicle);
+			}
+			personVehicles[personIndex] = v;
+
+			linkIds[v] = event.getLinkId();
+			if (positions[v] < 0) {
+				positions[v] = dischargedVehicleCount;
+				dischargedVehicles[dischargedVehicleCount++] = v;
+			}
 		}
 	}
 
 	@Override
-	public void handleEvent(ActivityEndEvent event) {
-		vehicles.remove(event.getPersonId());
+	public synchronized void handleEvent(ActivityEndEvent event) {
+		int personIndex = event.getPersonId().index();
+		if (personIndex < personVehicles.length && personVehicles[personIndex] >= 0) {
+			stopDischarging(personVehicles[personIndex]);
+			personVehicles[personIndex] = -1;
+		}
+	}
+
+	private void stopDischarging(int v) {
+		int p = positions[v];
+		if (p >= 0) {
+			// move the last vehicle to the freed position
+			int last = dischargedVehicles[--dischargedVehicleCount];
+			dischargedVehicles[p] = last;
+			positions[last] = p;
+			positions[v] = -1;
+			linkIds[v] = null;
+		}
 	}
 }
@@ -19,6 +19,8 @@
 
 package org.matsim.contrib.ev.discharging;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -32,6 +34,7 @@ import org.matsim.api.core.v01.events.handler.VehicleLeavesTrafficEventHandler;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.contrib.ev.EvConfigGroup;
+import org.matsim.contrib.ev.fleet.BatteryStates;
 import org.matsim.contrib.ev.fleet.ElectricFleet;
 import org.matsim.contrib.ev.fleet.ElectricVehicle;
 import org.matsim.core.events.MobsimScopeEventHandler;
@@ -43,60 +46,79 @@ import com.google.inject.Inject;
  * Because in QSim and JDEQSim vehicles enter and leave traffic at the end of links, we skip the first link when
  * calculating the drive-related energy consumption. However, the time spent on the first link is used by the time-based
  * aux discharge process (see {@link AuxDischargingHandler}).
+ * <p>
+ * The drive state is kept in arrays addressed by the vehicle index of {@link BatteryStates}, and the SOC is changed
+ * directly in {@link BatteryStates}, so handling an event does not involve any map lookups or object allocations.
  */
 public class DriveDischargingHandler
 		implements LinkLeaveEventHandler, VehicleEntersTrafficEventHandler, VehicleLeavesTrafficEventHandler,
 		MobsimScopeEventHandler {
-	private static class EvDrive {
-		private final Id<Vehicle> vehicleId;
-		private final ElectricVehicle ev;
-		private double movedOverNodeTime;
-
-		public EvDrive(Id<Vehicle> vehicleId, ElectricVehicle ev) {
-			this.vehicleId = vehicleId;
-			this.ev = ev;
-			movedOverNodeTime = Double.NaN;
-		}
+	private final Network network;
+	private final BatteryStates batteryStates;
+	private final ElectricVehicle[] eVehicles;// by vehicle index
+	private final int[] vehicleIndices;// by Id<Vehicle> index, -1 if not an EV
 
-		private boolean isOnFirstLink() {
-			return Double.isNaN(movedOverNodeTime);
-		}
-	}
+	// by vehicle index: time of moving over the last node; NaN if on the first link or not driving
+	private final double[] movedOverNodeTimes;
+	private final boolean[] driving;
 
-	private final Network network;
-	private final Map<Id<ElectricVehicle>, ? extends ElectricVehicle> eVehicles;
-	private final Map<Id<Vehicle>, EvDrive> evDrives;
-	private final Map<Id<Link>, Double> energyConsumptionPerLink = new HashMap<>();
+	// by Id<Link> index
+	private double[] energyConsumptionPerLink = new double[0];
+	private final BitSet visitedLinks = new BitSet();
 
+	@SuppressWarnings("unchecked")
 	@Inject
 	public DriveDischargingHandler(ElectricFleet data, Network network, EvConfigGroup evCfg) {
 		this.network = network;
-		eVehicles = data.getElectricVehicles();
-		evDrives = new HashMap<>(eVehicles.size() / 10);
+		batteryStates = data.getBatteryStates();
+
+		int count = batteryStates.getVehicleCount();
+		eVehicles = new ElectricVehicle[count];
+		Id<Vehicle>[] vehicleIds = new Id[count];
+		for (int i = 0; i < count; i++) {
+			Id<ElectricVehicle> evId = batteryStates.getVehicleId(i);
+			eVehicles[i] = data.getElectricVehicles().get(evId);
+			vehicleIds[i] = Id.create(evId, Vehicle.class);
+		}
+		vehicleIndices = new int[Id.getNumberOfIds(Vehicle.class)];
+		Arrays.fill(vehicleIndices, -1);
+		for (int i = 0; i < count; i++) {
+			vehicleIndices[vehicleIds[i].index()] = i;
+		}
+
+		movedOverNodeTimes = new double[count];
+		Arrays.fill(movedOverNodeTimes, Double.NaN);
+		driving = new boolean[count];
+	}
+
+	private int getVehicleIndex(Id<Vehicle> vehicleId) {
+		int idIndex = vehicleId.index();
+		return idIndex < vehicleIndices.length ? vehicleIndices[idIndex] : -1;
 	}
 
 	@Override
 	public void handleEvent(VehicleEntersTrafficEvent event) {
-		Id<Vehicle> vehicleId = event.getVehicleId();
-		ElectricVehicle ev = eVehicles.get(vehicleId);
-		if (ev != null) {// handle only our EVs
-			evDrives.put(vehicleId, new EvDrive(vehicleId, ev));
+		int v = getVehicleIndex(event.getVehicleId());
+		if (v >= 0) {// handle only our EVs
+			driving[v] = true;
+			movedOverNodeTimes[v] = Double.NaN;
 		}
 	}
 
 	@Override
 	public void handleEvent(LinkLeaveEvent event) {
-		EvDrive evDrive = dischargeVehicle(event.getVehicleId(), event.getLinkId(), event.getTime());
-		if (evDrive != null) {
-			evDrive.movedOverNodeTime = event.getTime();
+		int v = dischargeVehicle(event.getVehicleId(), event.getLinkId(), event.getTime());
+		if (v >= 0) {
+			movedOverNodeTimes[v] = event.getTime();
 		}
 	}
 
 	@Override
 	public void handleEvent(VehicleLeavesTrafficEvent event) {
-		EvDrive evDrive = dischargeVehicle(event.getVehicleId(), event.getLinkId(), event.getTime());
-		if (evDrive != null) {
-			evDrives.remove(evDrive.vehicleId);
+		int v = dischargeVehicle(event.getVehicleId(), event.getLinkId(), event.getTime());
+		if (v >= 0) {
+			driving[v] = false;
+			movedOverNodeTimes[v] = Double.NaN;
 		}
 	}
 
@@ -104,25 +126,37 @@ public class DriveDischargingHandler
 	// (for instance, AUX discharging and battery charging modifies SOC outside event handling
 	// (as MobsimAfterSimStepListeners)
 	//TODO In the long term, it will be safer to move the discharging procedure to a MobsimAfterSimStepListener
-	private EvDrive dischargeVehicle(Id<Vehicle> vehicleId, Id<Link> linkId, double eventTime) {
-		EvDrive evDrive = evDrives.get(vehicleId);
-		if (evDrive != null && !evDrive.isOnFirstLink()) {// handle only our EVs, except for the first link
+	private int dischargeVehicle(Id<Vehicle> vehicleId, Id<Link> linkId, double eventTime) {
+		int v = getVehicleIndex(vehicleId);
+		if (v < 0 || !driving[v]) {
+			return -1;// handle only our EVs
+		}
+		if (!Double.isNaN(movedOverNodeTimes[v])) {// except for the first link
 			Link link = network.getLinks().get(linkId);
-			double tt = eventTime - evDrive.movedOverNodeTime;
-			ElectricVehicle ev = evDrive.ev;
+			double tt = eventTime - movedOverNodeTimes[v];
+			ElectricVehicle ev = eVehicles[v];
 			double energy = ev.getDriveEnergyConsumption().calcEnergyConsumption(link, tt, eventTime - tt)
 					+ ev.getAuxEnergyConsumption().calcEnergyConsumption(eventTime - tt, tt, linkId);
 			//Energy consumption might be negative on links with negative slope
-			ev.getBattery().changeSoc(-energy);
+			batteryStates.changeSoc(v, -energy);
 
 			//FIXME emit a DriveOnLinkEnergyConsumptionEvent instead of calculating it here...
-			double linkConsumption = energy + energyConsumptionPerLink.getOrDefault(linkId, 0.0);
-			energyConsumptionPerLink.put(linkId, linkConsumption);
+			int linkIndex = linkId.index();
+			if (linkIndex >= energyConsumptionPerLink.length) {
+				energyConsumptionPerLink = Arrays.copyOf(energyConsumptionPerLink,
+						Math.max(linkIndex + 1, Id.getNumberOfIds(Link.class)));
+			}
+			energyConsumptionPerLink[linkIndex] += energy;
+			visitedLinks.set(linkIndex);
 		}
-		return evDrive;
+		return v;
 	}
 
 	public Map<Id<Link>, Double> getEnergyConsumptionPerLink() {
-		return energyConsumptionPerLink;
+		Map<Id<Link>, Double> consumptions = new HashMap<>();
+		for (int i = visitedLinks.nextSetBit(0); i >= 0; i = visitedLinks.nextSetBit(i + 1)) {
+			consumptions.put(Id.get(i, Link.class), energyConsumptionPerLink[i]);
+		}
+		return consumptions;
 	}
 }
@@ -38,4 +38,13 @@ public interface DriveEnergyConsumption {
 	 * @return energy consumed by vehicle on link in J
 	 */
 	double calcEnergyConsumption(Link link, double travelTime, double linkEnterTime);
+
+	/**
+	 * @return true if the consumption depends only on the link and the travel time, but neither on the link enter time
+	 * nor on the vehicle (beyond its type), so that it can be precomputed and shared by all vehicles of the same type
+	 * (e.g. for routing)
+	 */
+	default boolean isTimeAndVehicleInvariant() {
+		return false;
+	}
 }
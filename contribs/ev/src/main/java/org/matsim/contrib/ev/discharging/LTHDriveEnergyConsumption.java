@@ -80,6 +80,11 @@ public class LTHDriveEnergyConsumption implements DriveEnergyConsumption {
 		this.crashIfOutOfBoundValue = crashIfOutOfBoundValue;
 	}
 
+	@Override
+	public boolean isTimeAndVehicleInvariant() {
+		return true;
+	}
+
 	@Override
 	public double calcEnergyConsumption(Link link, double travelTime, double linkEnterTime) {
 		double length = link.getLength();
@@ -74,4 +74,9 @@ public class OhdeSlaskiDriveEnergyConsumption implements DriveEnergyConsumption
 		int idx = (int)Math.round(avgSpeed * SPEED_STEPS_PER_UNIT);
 		return POWER[idx] * travelTime;
 	}
+
+	@Override
+	public boolean isTimeAndVehicleInvariant() {
+		return true;
+	}
 }
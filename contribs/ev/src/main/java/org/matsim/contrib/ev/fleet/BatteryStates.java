@@ -0,0 +1,154 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.ev.fleet;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.matsim.api.core.v01.Id;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+/**
+ * Capacities and SOCs of all batteries of a fleet, stored in primitive arrays addressed by the vehicle index (i.e. the
+ * position of the vehicle in the fleet). Batteries obtained via {@link #getBattery(int)} are views of these arrays, so
+ * that the state can be accessed per vehicle (through {@link Battery}) and in bulk (by index, e.g. for batched
+ * discharging or statistics) at the same time.
+ * <p>
+ * Vehicles with different indices can be updated concurrently.
+ */
+public final class BatteryStates {
+	private final Id<ElectricVehicle>[] vehicleIds;
+	private final int[] vehicleIndices;// by Id<ElectricVehicle> index, -1 if not in the fleet
+	private final double[] capacities;
+	private final double[] socs;
+
+	@SuppressWarnings("unchecked")
+	public BatteryStates(Collection<? extends ElectricVehicleSpecification> vehicleSpecifications) {
+		int count = vehicleSpecifications.size();
+		vehicleIds = new Id[count];
+		capacities = new double[count];
+		socs = new double[count];
+
+		int i = 0;
+		for (ElectricVehicleSpecification specification : vehicleSpecifications) {
+			vehicleIds[i] = specification.getId();
+			capacities[i] = specification.getBatteryCapacity();
+			socs[i] = specification.getInitialSoc();
+			i++;
+		}
+
+		vehicleIndices = new int[Id.getNumberOfIds(ElectricVehicle.class)];
+		Arrays.fill(vehicleIndices, -1);
+		for (i = 0; i < count; i++) {
+			vehicleIndices[vehicleIds[i].index()] = i;
+		}
+	}
+
+	public int getVehicleCount() {
+		return vehicleIds.length;
+	}
+
+	/**
+	 * @return index of the vehicle or -1 if the vehicle is not in the fleet
+	 */
+	public int getIndex(Id<ElectricVehicle> vehicleId) {
+		int idIndex = vehicleId.index();
+		return idIndex < vehicleIndices.length ? vehicleIndices[idIndex] : -1;
+	}
+
+	public Id<ElectricVehicle> getVehicleId(int index) {
+		return vehicleIds[index];
+	}
+
+	/**
+	 * @return Battery Capacity [J]
+	 */
+	public double getCapacity(int index) {
+		return capacities[index];
+	}
+
+	/**
+	 * @return Vehicle State of Charge [J]
+	 */
+	public double getSoc(int index) {
+		return socs[index];
+	}
+
+	/**
+	 * @param soc Vehicle State of Charge [J]
+	 */
+	public void setSoc(int index, double soc) {
+		Preconditions.checkArgument(soc >= 0 && soc <= capacities[index], "SoC outside allowed range: %s", soc);
+		socs[index] = soc;
+	}
+
+	/**
+	 * Changes SOC, making sure the charge level does not increase above the battery capacity or decrease below 0.
+	 *
+	 * @param energy change in energy [J], can be negative or positive
+	 */
+	public void changeSoc(int index, double energy) {
+		socs[index] = Math.max(0, Math.min(socs[index] + energy, capacities[index]));
+	}
+
+	public Battery getBattery(int index) {
+		Preconditions.checkElementIndex(index, vehicleIds.length);
+		return new BatteryView(index);
+	}
+
+	private final class BatteryView implements Battery {
+		private final int index;
+
+		private BatteryView(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public double getCapacity() {
+			return capacities[index];
+		}
+
+		@Override
+		public double getSoc() {
+			return socs[index];
+		}
+
+		@Override
+		public void setSoc(double soc) {
+			BatteryStates.this.setSoc(index, soc);
+		}
+
+		@Override
+		public void changeSoc(double energy) {
+			BatteryStates.this.changeSoc(index, energy);
+		}
+
+		@Override
+		public String toString() {
+			return MoreObjects.toStringHelper(this)
+					.add("capacity", getCapacity())
+					.add("soc", getSoc())
+					.toString();
+		}
+	}
+}
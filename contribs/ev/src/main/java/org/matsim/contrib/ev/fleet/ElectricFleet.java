@@ -33,4 +33,9 @@ import com.google.common.collect.ImmutableMap;
  */
 public interface ElectricFleet {
 	ImmutableMap<Id<ElectricVehicle>, ElectricVehicle> getElectricVehicles();
+
+	/**
+	 * @return battery states of all vehicles, indexed in the iteration order of {@link #getElectricVehicles()}
+	 */
+	BatteryStates getBatteryStates();
 }
@@ -20,6 +20,8 @@
 
 package org.matsim.contrib.ev.fleet;
 
+import java.util.Collection;
+
 import org.matsim.api.core.v01.Id;
 import org.matsim.contrib.ev.charging.ChargingPower;
 import org.matsim.contrib.ev.discharging.AuxEnergyConsumption;
@@ -31,12 +33,36 @@ public class ElectricFleets {
 	public static ElectricFleet createDefaultFleet(ElectricFleetSpecification fleetSpecification,
 			DriveEnergyConsumption.Factory driveConsumptionFactory, AuxEnergyConsumption.Factory auxConsumptionFactory,
 			ChargingPower.Factory chargingFactory) {
-		ImmutableMap<Id<ElectricVehicle>, ElectricVehicle> vehicles = fleetSpecification.getVehicleSpecifications()
-				.values()
-				.stream()
-				.map(s -> ElectricVehicleImpl.create(s, driveConsumptionFactory, auxConsumptionFactory,
-						chargingFactory))
-				.collect(ImmutableMap.toImmutableMap(ElectricVehicle::getId, v -> v));
-		return () -> vehicles;
+		Collection<ElectricVehicleSpecification> specifications = fleetSpecification.getVehicleSpecifications()
+				.values();
+		BatteryStates batteryStates = new BatteryStates(specifications);
+		ImmutableMap.Builder<Id<ElectricVehicle>, ElectricVehicle> vehicles = ImmutableMap.builder();
+		for (ElectricVehicleSpecification s : specifications) {
+			Battery battery = batteryStates.getBattery(batteryStates.getIndex(s.getId()));
+			vehicles.put(s.getId(), ElectricVehicleImpl.create(s, battery, driveConsumptionFactory,
+					auxConsumptionFactory, chargingFactory));
+		}
+		return new ElectricFleetImpl(vehicles.build(), batteryStates);
+	}
+
+	private static final class ElectricFleetImpl implements ElectricFleet {
+		private final ImmutableMap<Id<ElectricVehicle>, ElectricVehicle> vehicles;
+		private final BatteryStates batteryStates;
+
+		private ElectricFleetImpl(ImmutableMap<Id<ElectricVehicle>, ElectricVehicle> vehicles,
+				BatteryStates batteryStates) {
+			this.vehicles = vehicles;
+			this.batteryStates = batteryStates;
+		}
+
+		@Override
+		public ImmutableMap<Id<ElectricVehicle>, ElectricVehicle> getElectricVehicles() {
+			return vehicles;
+		}
+
+		@Override
+		public BatteryStates getBatteryStates() {
+			return batteryStates;
+		}
 	}
 }
@@ -34,7 +34,18 @@ public class ElectricVehicleImpl implements ElectricVehicle {
 	public static ElectricVehicle create(ElectricVehicleSpecification vehicleSpecification,
 			DriveEnergyConsumption.Factory driveFactory, AuxEnergyConsumption.Factory auxFactory,
 			ChargingPower.Factory chargingFactory) {
-		ElectricVehicleImpl ev = new ElectricVehicleImpl(vehicleSpecification);
+		return create(vehicleSpecification,
+				new BatteryImpl(vehicleSpecification.getBatteryCapacity(), vehicleSpecification.getInitialSoc()),
+				driveFactory, auxFactory, chargingFactory);
+	}
+
+	/**
+	 * @param battery battery initialised with the capacity and the initial SOC of the specification
+	 */
+	public static ElectricVehicle create(ElectricVehicleSpecification vehicleSpecification, Battery battery,
+			DriveEnergyConsumption.Factory driveFactory, AuxEnergyConsumption.Factory auxFactory,
+			ChargingPower.Factory chargingFactory) {
+		ElectricVehicleImpl ev = new ElectricVehicleImpl(vehicleSpecification, battery);
 		ev.driveEnergyConsumption = Objects.requireNonNull(driveFactory.create(ev));
 		ev.auxEnergyConsumption = Objects.requireNonNull(auxFactory.create(ev));
 		ev.chargingPower = Objects.requireNonNull(chargingFactory.create(ev));
@@ -48,9 +59,9 @@ public class ElectricVehicleImpl implements ElectricVehicle {
 	private AuxEnergyConsumption auxEnergyConsumption;
 	private ChargingPower chargingPower;
 
-	private ElectricVehicleImpl(ElectricVehicleSpecification vehicleSpecification) {
+	private ElectricVehicleImpl(ElectricVehicleSpecification vehicleSpecification, Battery battery) {
 		this.vehicleSpecification = vehicleSpecification;
-		battery = new BatteryImpl(vehicleSpecification.getBatteryCapacity(), vehicleSpecification.getInitialSoc());
+		this.battery = battery;
 	}
 
 	@Override
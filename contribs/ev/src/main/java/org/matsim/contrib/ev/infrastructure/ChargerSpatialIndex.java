@@ -0,0 +1,165 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.ev.infrastructure;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.contrib.common.collections.PartialSort;
+import org.matsim.core.utils.collections.QuadTree;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Spatial index of chargers (located at the coordinates of their links), with a separate quad tree for each charger
+ * (plug) type. Finding the k nearest chargers of the given types (and with at least the given plug power) visits only
+ * the chargers within a search radius that is doubled until enough chargers are found, instead of scanning the whole
+ * infrastructure.
+ */
+public final class ChargerSpatialIndex {
+	private static final class IndexedCharger {
+		private final ChargerSpecification charger;
+		private final double x;
+		private final double y;
+
+		private IndexedCharger(ChargerSpecification charger, Coord coord) {
+			this.charger = charger;
+			this.x = coord.getX();
+			this.y = coord.getY();
+		}
+
+		private double squaredDistance(double toX, double toY) {
+			double dx = toX - x;
+			double dy = toY - y;
+			return dx * dx + dy * dy;
+		}
+	}
+
+	private final Map<String, QuadTree<IndexedCharger>> quadTreesByChargerType = new HashMap<>();
+	private final Map<Id<Link>, List<ChargerSpecification>> chargersByLink = new HashMap<>();
+	private final double minX, minY, maxX, maxY;
+	private final double initialSearchRadius;
+
+	/**
+	 * @param linkProvider chargers located at links not provided (i.e. null) are not indexed
+	 */
+	public ChargerSpatialIndex(Collection<? extends ChargerSpecification> chargers,
+			Function<Id<Link>, Link> linkProvider) {
+		List<IndexedCharger> indexedChargers = new ArrayList<>(chargers.size());
+		for (ChargerSpecification charger : chargers) {
+			Link link = linkProvider.apply(charger.getLinkId());
+			if (link != null) {
+				indexedChargers.add(new IndexedCharger(charger, link.getCoord()));
+				chargersByLink.computeIfAbsent(link.getId(), id -> new ArrayList<>()).add(charger);
+			}
+		}
+
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for (IndexedCharger c : indexedChargers) {
+			minX = Math.min(minX, c.x);
+			minY = Math.min(minY, c.y);
+			maxX = Math.max(maxX, c.x);
+			maxY = Math.max(maxY, c.y);
+		}
+		if (indexedChargers.isEmpty()) {
+			minX = minY = maxX = maxY = 0;
+		}
+		this.minX = minX;
+		this.minY = minY;
+		this.maxX = Math.max(maxX, minX + 1);// avoid degenerated quad trees
+		this.maxY = Math.max(maxY, minY + 1);
+
+		for (IndexedCharger c : indexedChargers) {
+			quadTreesByChargerType.computeIfAbsent(c.charger.getChargerType(),
+					type -> new QuadTree<>(this.minX, this.minY, this.maxX, this.maxY)).put(c.x, c.y, c);
+		}
+
+		// roughly the distance between neighbouring chargers if they were spread uniformly
+		double area = (this.maxX - this.minX) * (this.maxY - this.minY);
+		initialSearchRadius = Math.max(1, Math.sqrt(area / Math.max(1, indexedChargers.size())));
+	}
+
+	/**
+	 * @return up to k nearest chargers (sorted by the straight-line distance) of the given types and with the plug power
+	 * not lower than minPlugPower
+	 */
+	public List<ChargerSpecification> findNearest(Coord coord, Collection<String> chargerTypes, double minPlugPower,
+			int k) {
+		Preconditions.checkArgument(k > 0, "k must be positive");
+		List<QuadTree<IndexedCharger>> quadTrees = new ArrayList<>();
+		for (String chargerType : new LinkedHashSet<>(chargerTypes)) {
+			QuadTree<IndexedCharger> quadTree = quadTreesByChargerType.get(chargerType);
+			if (quadTree != null) {
+				quadTrees.add(quadTree);
+			}
+		}
+		if (quadTrees.isEmpty()) {
+			return List.of();
+		}
+
+		double x = coord.getX();
+		double y = coord.getY();
+		// beyond this radius, all indexed chargers are within the disk
+		double maxSearchRadius = Math.sqrt(Math.max(sq(x - minX), sq(x - maxX)) + Math.max(sq(y - minY), sq(y - maxY)));
+		double radius = initialSearchRadius;
+		while (true) {
+			List<IndexedCharger> candidates = new ArrayList<>();
+			for (QuadTree<IndexedCharger> quadTree : quadTrees) {
+				for (IndexedCharger c : quadTree.getDisk(x, y, radius)) {
+					if (c.charger.getPlugPower() >= minPlugPower) {
+						candidates.add(c);
+					}
+				}
+			}
+
+			// the k nearest chargers are within the radius once there are at least k candidates in the disk
+			if (candidates.size() >= k || radius >= maxSearchRadius) {
+				return PartialSort.kSmallestElements(k, candidates.stream(),
+								(c1, c2) -> Double.compare(c1.squaredDistance(x, y), c2.squaredDistance(x, y)))
+						.stream()
+						.map(c -> c.charger)
+						.collect(Collectors.toList());
+			}
+			radius *= 2;
+		}
+	}
+
+	/**
+	 * @return the (indexed) chargers located at the given link
+	 */
+	public List<ChargerSpecification> getChargersAtLink(Id<Link> linkId) {
+		return chargersByLink.getOrDefault(linkId, List.of());
+	}
+
+	private static double sq(double v) {
+		return v * v;
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.ev.routing;
+
+import java.util.Arrays;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.contrib.ev.discharging.DriveEnergyConsumption;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Per-link drive energy consumption of one vehicle type, used for estimating the consumption along routes. Entries are
+ * addressed by the link {@link Id#index()} and computed lazily. Each entry remembers the travel time it was computed for,
+ * and is reused as long as the link travel time stays the same (i.e. within the same travel time bin, and across bins
+ * and iterations for uncongested links).
+ * <p>
+ * Only for consumption models that depend on nothing else than the link and the travel time (see
+ * {@link DriveEnergyConsumption#isTimeAndVehicleInvariant()}). Not thread-safe, each routing module keeps its own tables.
+ */
+final class DriveEnergyConsumptionTable {
+	private final DriveEnergyConsumption driveEnergyConsumption;
+
+	private double[] travelTimes;// NaN if not computed yet
+	private double[] consumptions;
+
+	DriveEnergyConsumptionTable(DriveEnergyConsumption driveEnergyConsumption) {
+		Preconditions.checkArgument(driveEnergyConsumption.isTimeAndVehicleInvariant(),
+				"The consumption must depend only on the link and the travel time");
+		this.driveEnergyConsumption = driveEnergyConsumption;
+		travelTimes = new double[0];
+		consumptions = new double[0];
+		ensureCapacity(Id.getNumberOfIds(Link.class));
+	}
+
+	DriveEnergyConsumption getDriveEnergyConsumption() {
+		return driveEnergyConsumption;
+	}
+
+	double calcEnergyConsumption(Link link, double travelTime) {
+		int idx = link.getId().index();
+		if (idx >= travelTimes.length) {
+			ensureCapacity(Id.getNumberOfIds(Link.class));
+		}
+		if (travelTimes[idx] != travelTime) {
+			// the link enter time is irrelevant
+			consumptions[idx] = driveEnergyConsumption.calcEnergyConsumption(link, travelTime, Double.NaN);
+			travelTimes[idx] = travelTime;
+		}
+		return consumptions[idx];
+	}
+
+	private void ensureCapacity(int size) {
+		int oldSize = travelTimes.length;
+		travelTimes = Arrays.copyOf(travelTimes, size);
+		consumptions = Arrays.copyOf(consumptions, size);
+		Arrays.fill(travelTimes, oldSize, size, Double.NaN);
+	}
+}
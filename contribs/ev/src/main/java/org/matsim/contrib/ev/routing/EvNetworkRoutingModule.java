@@ -19,7 +19,9 @@
 package org.matsim.contrib.ev.routing;
 
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -32,7 +34,9 @@ import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.PopulationFactory;
 import org.matsim.contrib.ev.EvConfigGroup;
+import org.matsim.contrib.ev.charging.ChargerWaitTimes;
 import org.matsim.contrib.ev.charging.VehicleChargingHandler;
 import org.matsim.contrib.ev.discharging.AuxEnergyConsumption;
 import org.matsim.contrib.ev.discharging.DriveEnergyConsumption;
@@ -40,63 +44,87 @@ import org.matsim.contrib.ev.fleet.ElectricFleetSpecification;
 import org.matsim.contrib.ev.fleet.ElectricVehicle;
 import org.matsim.contrib.ev.fleet.ElectricVehicleImpl;
 import org.matsim.contrib.ev.fleet.ElectricVehicleSpecification;
+import org.matsim.contrib.ev.infrastructure.ChargerSpatialIndex;
 import org.matsim.contrib.ev.infrastructure.ChargerSpecification;
-import org.matsim.contrib.ev.infrastructure.ChargingInfrastructureSpecification;
-import org.matsim.contrib.common.util.StraightLineKnnFinder;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
 import org.matsim.core.router.DefaultRoutingRequest;
 import org.matsim.core.router.LinkWrapperFacility;
 import org.matsim.core.router.RoutingModule;
 import org.matsim.core.router.RoutingRequest;
 import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.utils.geometry.CoordUtils;
 import org.matsim.facilities.Facility;
 
 /**
  * This network Routing module adds stages for re-charging into the Route.
  * This wraps a "computer science" {@link LeastCostPathCalculator}, which routes from a node to another node, into something that
  * routes from a {@link Facility} to another {@link Facility}, as we need in MATSim.
+ * <p>
+ * If the energy consumption along the least-cost route exceeds the (randomly drawn) usable energy, the route and its
+ * charging stops are planned together in a bounded time-vs-SoC search (see {@link TimeSocSearch}). Only if that search
+ * fails, the charging stops are placed along the least-cost route: at each stop, the charger is chosen among the nearest
+ * candidates based on the predicted wait time at the expected arrival (see {@link ChargerWaitTimes}) and the detour to
+ * the charger.
+ * <p>
+ * The consumption models are created for each routed vehicle. Drive consumption models that depend only on the link
+ * and the travel time (see {@link DriveEnergyConsumption#isTimeAndVehicleInvariant()}) are shared by all vehicles of the
+ * same type, and memoised in {@link DriveEnergyConsumptionTable}s. Since the module is used by a single thread, the
+ * tables and the search state are reused across all subsequent routing requests without synchronisation.
  *
  * @author jfbischoff
  */
 
 public final class EvNetworkRoutingModule implements RoutingModule {
+	private static final int CHARGER_CANDIDATES = 3;
 
 	private final String mode;
 
 	private final Network network;
 	private final RoutingModule delegate;
 	private final ElectricFleetSpecification electricFleet;
-	private final ChargingInfrastructureSpecification chargingInfrastructureSpecification;
+	private final ChargerSpatialIndex chargerIndex;
+	private final ChargerWaitTimes chargerWaitTimes;
 	private final Random random = MatsimRandom.getLocalInstance();
 	private final TravelTime travelTime;
+	private final PopulationFactory populationFactory;
 	private final DriveEnergyConsumption.Factory driveConsumptionFactory;
 	private final AuxEnergyConsumption.Factory auxConsumptionFactory;
 	private final String stageActivityModePrefix;
 	private final String vehicleSuffix;
 	private final EvConfigGroup evConfigGroup;
 
+	private final Map<String, DriveEnergyConsumptionTable> driveConsumptionTables = new HashMap<>();
+	private final TimeSocSearch timeSocSearch;
+
 	public EvNetworkRoutingModule(final String mode, final Network network, RoutingModule delegate,
 			ElectricFleetSpecification electricFleet,
-			ChargingInfrastructureSpecification chargingInfrastructureSpecification, TravelTime travelTime,
+			ChargerSpatialIndex chargerIndex, ChargerWaitTimes chargerWaitTimes, TravelTime travelTime,
+			TravelDisutility travelDisutility, PopulationFactory populationFactory,
 			DriveEnergyConsumption.Factory driveConsumptionFactory, AuxEnergyConsumption.Factory auxConsumptionFactory,
 			EvConfigGroup evConfigGroup) {
 		this.travelTime = travelTime;
+		this.populationFactory = populationFactory;
 		Gbl.assertNotNull(network);
 		this.delegate = delegate;
 		this.network = network;
 		this.mode = mode;
 		this.electricFleet = electricFleet;
-		this.chargingInfrastructureSpecification = chargingInfrastructureSpecification;
+		this.chargerIndex = chargerIndex;
+		this.chargerWaitTimes = chargerWaitTimes;
 		this.driveConsumptionFactory = driveConsumptionFactory;
 		this.auxConsumptionFactory = auxConsumptionFactory;
 		stageActivityModePrefix = mode + VehicleChargingHandler.CHARGING_IDENTIFIER;
 		this.evConfigGroup = evConfigGroup;
 		this.vehicleSuffix = mode.equals(TransportMode.car) ? "" : "_" + mode;
+		this.timeSocSearch = new TimeSocSearch(travelTime, travelDisutility, chargerIndex, chargerWaitTimes,
+				evConfigGroup.getMinimumChargeTime());
 	}
 
 	@Override
@@ -114,38 +142,47 @@ public final class EvNetworkRoutingModule implements RoutingModule {
 			Leg basicLeg = (Leg)basicRoute.get(0);
 			ElectricVehicleSpecification ev = electricFleet.getVehicleSpecifications().get(evId);
 
-			Map<Link, Double> estimatedEnergyConsumption = estimateConsumption(ev, basicLeg);
-			double estimatedOverallConsumption = estimatedEnergyConsumption.values()
-					.stream()
-					.mapToDouble(Number::doubleValue)
-					.sum();
+			NetworkRoute basicNetworkRoute = (NetworkRoute)basicLeg.getRoute();
+			List<Link> links = NetworkUtils.getLinks(network, basicNetworkRoute.getLinkIds());
+			TimeSocSearch.LinkEnergyConsumption consumption = createConsumption(ev);
+			double[] linkEnterTimes = new double[links.size()];
+			double[] estimatedEnergyConsumption = estimateConsumption(ev, consumption, links,
+					basicLeg.getDepartureTime().seconds(), linkEnterTimes);
+			double estimatedOverallConsumption = Arrays.stream(estimatedEnergyConsumption).sum();
 			double capacity = ev.getBatteryCapacity() * (0.8 + random.nextDouble() * 0.18);
 			double numberOfStops = Math.floor(estimatedOverallConsumption / capacity);
 			if (numberOfStops < 1) {
 				return basicRoute;
+			}
+
+			Link startLink = network.getLinks().get(basicNetworkRoute.getStartLinkId());
+			Link endLink = network.getLinks().get(basicNetworkRoute.getEndLinkId());
+			TimeSocSearch.Label destination = timeSocSearch.search(startLink, endLink.getFromNode(),
+					basicLeg.getDepartureTime().seconds(), capacity, ev.getChargerTypes(), consumption, person);
+			if (destination != null) {
+				return createStagedRoute(destination, endLink);
 			} else {
-				List<Link> stopLocations = new ArrayList<>();
+				List<Integer> stopLocations = new ArrayList<>();
 				double currentConsumption = 0;
-				for (Map.Entry<Link, Double> e : estimatedEnergyConsumption.entrySet()) {
-					currentConsumption += e.getValue();
+				for (int i = 0; i < links.size(); i++) {
+					currentConsumption += estimatedEnergyConsumption[i];
 					if (currentConsumption > capacity) {
-						stopLocations.add(e.getKey());
+						stopLocations.add(i);
 						currentConsumption = 0;
 					}
 				}
 				List<PlanElement> stagedRoute = new ArrayList<>();
 				Facility lastFrom = fromFacility;
 				double lastArrivaltime = departureTime;
-				for (Link stopLocation : stopLocations) {
-
-					StraightLineKnnFinder<Link, ChargerSpecification> straightLineKnnFinder = new StraightLineKnnFinder<>(
-							2, Link::getCoord, s -> network.getLinks().get(s.getLinkId()).getCoord());
-					List<ChargerSpecification> nearestChargers = straightLineKnnFinder.findNearest(stopLocation,
-							chargingInfrastructureSpecification.getChargerSpecifications()
-									.values()
-									.stream()
-									.filter(charger -> ev.getChargerTypes().contains(charger.getChargerType())));
-					ChargerSpecification selectedCharger = nearestChargers.get(random.nextInt(1));
+				double chargingDelay = 0;
+				for (int stopIndex : stopLocations) {
+					Link stopLocation = links.get(stopIndex);
+					List<ChargerSpecification> nearestChargers = chargerIndex.findNearest(stopLocation.getCoord(),
+							ev.getChargerTypes(), 0, CHARGER_CANDIDATES);
+					double expectedArrivalTime = linkEnterTimes[stopIndex] + chargingDelay;
+					double[] waitTimes = chargerWaitTimes.estimateWaitTimes(nearestChargers, expectedArrivalTime);
+					int selected = selectCharger(stopLocation, nearestChargers, waitTimes);
+					ChargerSpecification selectedCharger = nearestChargers.get(selected);
 					Link selectedChargerLink = network.getLinks().get(selectedCharger.getLinkId());
 					Facility nexttoFacility = new LinkWrapperFacility(selectedChargerLink);
 					if (nexttoFacility.getLinkId().equals(lastFrom.getLinkId())) {
@@ -160,8 +197,10 @@ public final class EvNetworkRoutingModule implements RoutingModule {
 							selectedChargerLink.getId(), stageActivityModePrefix);
 					double maxPowerEstimate = Math.min(selectedCharger.getPlugPower(), ev.getBatteryCapacity() / 3.6);
 					double estimatedChargingTime = (ev.getBatteryCapacity() * 1.5) / maxPowerEstimate;
-					chargeAct.setMaximumDuration(Math.max(evConfigGroup.getMinimumChargeTime(), estimatedChargingTime));
+					chargeAct.setMaximumDuration(
+							Math.max(evConfigGroup.getMinimumChargeTime(), estimatedChargingTime) + waitTimes[selected]);
 					lastArrivaltime += chargeAct.getMaximumDuration().seconds();
+					chargingDelay += chargeAct.getMaximumDuration().seconds();
 					stagedRoute.add(chargeAct);
 					lastFrom = nexttoFacility;
 				}
@@ -174,34 +213,127 @@ public final class EvNetworkRoutingModule implements RoutingModule {
 		}
 	}
 
-	private Map<Link, Double> estimateConsumption(ElectricVehicleSpecification ev, Leg basicLeg) {
-		Map<Link, Double> consumptions = new LinkedHashMap<>();
-		NetworkRoute route = (NetworkRoute)basicLeg.getRoute();
-		List<Link> links = NetworkUtils.getLinks(network, route.getLinkIds());
-		ElectricVehicle pseudoVehicle = ElectricVehicleImpl.create(ev, driveConsumptionFactory, auxConsumptionFactory,
-				v -> charger -> {
-					throw new UnsupportedOperationException();
-				});
-		DriveEnergyConsumption driveEnergyConsumption = pseudoVehicle.getDriveEnergyConsumption();
-		AuxEnergyConsumption auxEnergyConsumption = pseudoVehicle.getAuxEnergyConsumption();
-		double lastSoc = pseudoVehicle.getBattery().getSoc();
-		double linkEnterTime = basicLeg.getDepartureTime().seconds();
-		for (Link l : links) {
-			double travelT = travelTime.getLinkTravelTime(l, basicLeg.getDepartureTime().seconds(), null, null);
-
-			double consumption = driveEnergyConsumption.calcEnergyConsumption(l, travelT, linkEnterTime)
-					+ auxEnergyConsumption.calcEnergyConsumption(basicLeg.getDepartureTime().seconds(), travelT, l.getId());
-			pseudoVehicle.getBattery().changeSoc(-consumption);
-			double currentSoc = pseudoVehicle.getBattery().getSoc();
+	private List<PlanElement> createStagedRoute(TimeSocSearch.Label destination, Link endLink) {
+		List<TimeSocSearch.Label> labels = new ArrayList<>();
+		for (TimeSocSearch.Label label = destination; label != null; label = label.previous) {
+			labels.add(label);
+		}
+		Collections.reverse(labels);
+
+		List<PlanElement> stagedRoute = new ArrayList<>();
+		TimeSocSearch.Label legStart = labels.get(0);
+		List<Id<Link>> linkIds = new ArrayList<>();
+		for (TimeSocSearch.Label label : labels.subList(1, labels.size())) {
+			if (label.charger == null) {
+				linkIds.add(label.link.getId());
+				continue;
+			}
+			// the charger link is the end link of the leg, which ends at the from node of that link
+			linkIds.remove(linkIds.size() - 1);
+			TimeSocSearch.Label arrival = label.previous.previous;
+			stagedRoute.add(createLeg(legStart, linkIds, label.link, arrival));
+			Activity chargeAct = PopulationUtils.createStageActivityFromCoordLinkIdAndModePrefix(label.link.getCoord(),
+					label.link.getId(), stageActivityModePrefix);
+			chargeAct.setMaximumDuration(label.chargingDuration);
+			stagedRoute.add(chargeAct);
+			legStart = label;
+			linkIds = new ArrayList<>();
+		}
+		stagedRoute.add(createLeg(legStart, linkIds, endLink, destination));
+		return stagedRoute;
+	}
+
+	/**
+	 * @param departure label at the end of the start link of the leg
+	 * @param arrival   label at the start of the end link of the leg
+	 */
+	private Leg createLeg(TimeSocSearch.Label departure, List<Id<Link>> linkIds, Link endLink,
+			TimeSocSearch.Label arrival) {
+		double travelTime = arrival.time - departure.time;
+		NetworkRoute route = populationFactory.getRouteFactories()
+				.createRoute(NetworkRoute.class, departure.link.getId(), endLink.getId());
+		route.setLinkIds(departure.link.getId(), linkIds, endLink.getId());
+		route.setTravelTime(travelTime);
+		route.setTravelCost(arrival.cost - departure.cost);
+		route.setDistance(RouteUtils.calcDistance(route, 1.0, 1.0, network));
+		Leg leg = populationFactory.createLeg(mode);
+		leg.setRoute(route);
+		leg.setDepartureTime(departure.time);
+		leg.setTravelTime(travelTime);
+		return leg;
+	}
+
+	/**
+	 * @return index of the candidate charger with the lowest sum of the predicted wait time and the (straight-line)
+	 * detour from the stop location; the nearest one in case of ties
+	 */
+	private int selectCharger(Link stopLocation, List<ChargerSpecification> candidates, double[] waitTimes) {
+		int selected = 0;
+		double minCost = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < candidates.size(); i++) {
+			Link chargerLink = network.getLinks().get(candidates.get(i).getLinkId());
+			double detourTime = 2 * CoordUtils.calcEuclideanDistance(stopLocation.getCoord(), chargerLink.getCoord())
+					/ stopLocation.getFreespeed();
+			double cost = waitTimes[i] + detourTime;
+			if (cost < minCost) {
+				minCost = cost;
+				selected = i;
+			}
+		}
+		return selected;
+	}
+
+	/**
+	 * @param linkEnterTimes filled with the estimated enter times of the links
+	 */
+	private double[] estimateConsumption(ElectricVehicleSpecification ev, TimeSocSearch.LinkEnergyConsumption consumption,
+			List<Link> links, double departureTime, double[] linkEnterTimes) {
+		double[] consumptions = new double[links.size()];
+		double capacity = ev.getBatteryCapacity();
+		double soc = ev.getInitialSoc();
+		double linkEnterTime = departureTime;
+		for (int i = 0; i < consumptions.length; i++) {
+			Link l = links.get(i);
+			linkEnterTimes[i] = linkEnterTime;
+			double travelT = travelTime.getLinkTravelTime(l, linkEnterTime, null, null);
+
+			// SoC kept within [0, capacity] (as in Battery.changeSoc())
 			// to accomodate for ERS, where energy charge is directly implemented in the consumption model
-			double consumptionDiff = (lastSoc - currentSoc);
-			lastSoc = currentSoc;
-			consumptions.put(l, consumptionDiff);
+			double currentSoc = Math.max(0,
+					Math.min(soc - consumption.calcEnergyConsumption(l, travelT, linkEnterTime), capacity));
+			consumptions[i] = soc - currentSoc;
+			soc = currentSoc;
 			linkEnterTime += travelT;
 		}
 		return consumptions;
 	}
 
+	private TimeSocSearch.LinkEnergyConsumption createConsumption(ElectricVehicleSpecification ev) {
+		DriveEnergyConsumptionTable cachedTable = driveConsumptionTables.get(ev.getVehicleType());
+		DriveEnergyConsumption.Factory driveFactory = cachedTable != null ?
+				v -> cachedTable.getDriveEnergyConsumption() :
+				driveConsumptionFactory;
+		ElectricVehicle pseudoVehicle = ElectricVehicleImpl.create(ev, driveFactory, auxConsumptionFactory,
+				v -> charger -> {
+					throw new UnsupportedOperationException();
+				});
+		DriveEnergyConsumption driveConsumption = pseudoVehicle.getDriveEnergyConsumption();
+		AuxEnergyConsumption auxConsumption = pseudoVehicle.getAuxEnergyConsumption();
+
+		DriveEnergyConsumptionTable table = cachedTable;
+		if (table == null && driveConsumption.isTimeAndVehicleInvariant()) {
+			table = new DriveEnergyConsumptionTable(driveConsumption);
+			driveConsumptionTables.put(ev.getVehicleType(), table);
+		}
+		if (table == null) {
+			return (link, travelT, linkEnterTime) -> driveConsumption.calcEnergyConsumption(link, travelT, linkEnterTime)
+					+ auxConsumption.calcEnergyConsumption(linkEnterTime, travelT, link.getId());
+		}
+		DriveEnergyConsumptionTable driveConsumptionTable = table;
+		return (link, travelT, linkEnterTime) -> driveConsumptionTable.calcEnergyConsumption(link, travelT)
+				+ auxConsumption.calcEnergyConsumption(linkEnterTime, travelT, link.getId());
+	}
+
 	@Override
 	public String toString() {
 		return "[NetworkRoutingModule: mode=" + this.mode + "]";
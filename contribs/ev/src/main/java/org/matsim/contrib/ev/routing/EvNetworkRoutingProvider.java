@@ -8,9 +8,11 @@ import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.population.PopulationFactory;
 import org.matsim.contrib.ev.EvConfigGroup;
+import org.matsim.contrib.ev.charging.ChargerWaitTimes;
 import org.matsim.contrib.ev.discharging.AuxEnergyConsumption;
 import org.matsim.contrib.ev.discharging.DriveEnergyConsumption;
 import org.matsim.contrib.ev.fleet.ElectricFleetSpecification;
+import org.matsim.contrib.ev.infrastructure.ChargerSpatialIndex;
 import org.matsim.contrib.ev.infrastructure.ChargingInfrastructureSpecification;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
@@ -23,6 +25,7 @@ import org.matsim.core.router.SingleModeNetworksCache;
 import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 
 import com.google.inject.Inject;
@@ -62,6 +65,9 @@ public class EvNetworkRoutingProvider implements Provider<RoutingModule> {
 	@Inject
 	private ChargingInfrastructureSpecification chargingInfrastructureSpecification;
 
+	@Inject
+	private ChargerWaitTimes chargerWaitTimes;
+
 	@Inject
 	private DriveEnergyConsumption.Factory driveConsumptionFactory;
 
@@ -124,17 +130,21 @@ public class EvNetworkRoutingProvider implements Provider<RoutingModule> {
 			throw new RuntimeException("No TravelTime bound for mode " + routingMode + ".");
 		}
 
+		TravelDisutility travelDisutility = travelDisutilityFactory.createTravelDisutility(travelTime);
 		LeastCostPathCalculator routeAlgo = leastCostPathCalculatorFactory.createPathCalculator(filteredNetwork,
-				travelDisutilityFactory.createTravelDisutility(travelTime), travelTime);
+				travelDisutility, travelTime);
 
 		// the following again refers to the (transport)mode, since it will determine the mode of the leg on the network:
 		if (!plansCalcRouteConfigGroup.getAccessEgressType().equals(AccessEgressType.none)) {
 			throw new IllegalArgumentException("Bushwacking is not currently supported by the EV routing module");
 		} else {
+			var chargerIndex = new ChargerSpatialIndex(
+					chargingInfrastructureSpecification.getChargerSpecifications().values(),
+					filteredNetwork.getLinks()::get);
 			return new EvNetworkRoutingModule(mode, filteredNetwork,
 					DefaultRoutingModules.createPureNetworkRouter(mode, populationFactory, filteredNetwork, routeAlgo),
-					electricFleetSpecification, chargingInfrastructureSpecification, travelTime,
-					driveConsumptionFactory, auxConsumptionFactory, EvConfigGroup.get(config));
+					electricFleetSpecification, chargerIndex, chargerWaitTimes, travelTime, travelDisutility,
+					populationFactory, driveConsumptionFactory, auxConsumptionFactory, EvConfigGroup.get(config));
 		}
 	}
 }
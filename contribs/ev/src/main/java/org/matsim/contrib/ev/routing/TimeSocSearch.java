@@ -0,0 +1,209 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.ev.routing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.contrib.ev.charging.ChargerWaitTimes;
+import org.matsim.contrib.ev.infrastructure.ChargerSpatialIndex;
+import org.matsim.contrib.ev.infrastructure.ChargerSpecification;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Bounded multi-criteria (arrival time vs. SoC) search for routes with charging stops. Labels (time, SoC) are settled
+ * in the order of time, as in a time-dependent Dijkstra search. A label is discarded if another label at the same node
+ * is not later and has not less energy, or if the battery would be drained. After arriving at a link with a charger
+ * (of a type accepted by the vehicle), the vehicle may charge up to the usable energy, which takes the predicted wait
+ * time (see {@link ChargerWaitTimes}) plus the charging time at plug power. The first label settled at the destination
+ * node is the earliest arrival. Labels are also compared by their generalized cost (accumulated
+ * {@link TravelDisutility}, charging does not add to it) to break ties: among labels with the same time, the cheaper
+ * one is settled first, and among labels with the same time and SoC, only the cheapest one is kept.
+ * <p>
+ * The search is bounded by keeping at most {@link #MAX_LABELS_PER_NODE} labels per node, and by charging only if the
+ * SoC has dropped below {@link #CHARGING_SOC_SHARE} of the usable energy. The search state is reused across the
+ * searches, so an instance must not be used concurrently (each routing module has its own).
+ */
+final class TimeSocSearch {
+	static final int MAX_LABELS_PER_NODE = 4;
+	static final double CHARGING_SOC_SHARE = 0.5;
+
+	interface LinkEnergyConsumption {
+		/**
+		 * @return energy consumed by the vehicle on the link in J (drive and aux)
+		 */
+		double calcEnergyConsumption(Link link, double travelTime, double linkEnterTime);
+	}
+
+	static final class Label {
+		final Node node;
+		final Link link;// link via which the node has been reached (for the start label: the start link)
+		final Label previous;// null for the start label
+		final double time;
+		final double soc;
+		final double cost;// generalized cost (travel disutility) accumulated since departure
+		final ChargerSpecification charger;// not null if the vehicle has charged at the link
+		final double chargingDuration;// incl. the predicted wait time
+		private boolean dominated;
+
+		private Label(Node node, Link link, Label previous, double time, double soc, double cost,
+				ChargerSpecification charger, double chargingDuration) {
+			this.node = node;
+			this.link = link;
+			this.previous = previous;
+			this.time = time;
+			this.soc = soc;
+			this.cost = cost;
+			this.charger = charger;
+			this.chargingDuration = chargingDuration;
+		}
+
+		private boolean dominates(Label other) {
+			return time <= other.time && soc >= other.soc && (time < other.time || soc > other.soc
+					|| cost <= other.cost);
+		}
+	}
+
+	private final TravelTime travelTime;
+	private final TravelDisutility travelDisutility;
+	private final ChargerSpatialIndex chargerIndex;
+	private final ChargerWaitTimes chargerWaitTimes;
+	private final double minimumChargeTime;
+
+	// reused search state (labels by node index)
+	private List<Label>[] labels = newLabelArray(0);
+	private final List<Node> visitedNodes = new ArrayList<>();
+	private final PriorityQueue<Label> queue = new PriorityQueue<>(
+			Comparator.<Label>comparingDouble(label -> label.time).thenComparingDouble(label -> label.cost));
+
+	TimeSocSearch(TravelTime travelTime, TravelDisutility travelDisutility, ChargerSpatialIndex chargerIndex,
+			ChargerWaitTimes chargerWaitTimes, double minimumChargeTime) {
+		this.travelTime = travelTime;
+		this.travelDisutility = travelDisutility;
+		this.chargerIndex = chargerIndex;
+		this.chargerWaitTimes = chargerWaitTimes;
+		this.minimumChargeTime = minimumChargeTime;
+	}
+
+	/**
+	 * The vehicle starts with the usable energy at the end of the start link.
+	 *
+	 * @return the label at the destination node (follow {@link Label#previous} for the route), null if the destination
+	 * cannot be reached within the bounds of the search
+	 */
+	Label search(Link startLink, Node toNode, double departureTime, double usableEnergy,
+			Collection<String> chargerTypes, LinkEnergyConsumption consumption, Person person) {
+		if (labels.length < Id.getNumberOfIds(Node.class)) {
+			labels = newLabelArray(Id.getNumberOfIds(Node.class));
+		}
+		try {
+			add(new Label(startLink.getToNode(), startLink, null, departureTime, usableEnergy, 0, null, 0));
+			while (!queue.isEmpty()) {
+				Label label = queue.poll();
+				if (label.dominated) {
+					continue;
+				}
+				if (label.node == toNode) {
+					return label;
+				}
+				addChargingLabels(label, usableEnergy, chargerTypes);
+				for (Link link : label.node.getOutLinks().values()) {
+					double linkTravelTime = travelTime.getLinkTravelTime(link, label.time, person, null);
+					// SoC kept within [0, usableEnergy] (as in Battery.changeSoc())
+					double soc = Math.min(label.soc
+							- consumption.calcEnergyConsumption(link, linkTravelTime, label.time), usableEnergy);
+					if (soc >= 0) {
+						double cost = label.cost + travelDisutility.getLinkTravelDisutility(link, label.time, person,
+								null);
+						add(new Label(link.getToNode(), link, label, label.time + linkTravelTime, soc, cost, null, 0));
+					}
+				}
+			}
+			return null;
+		} finally {
+			queue.clear();
+			for (Node node : visitedNodes) {
+				labels[node.getId().index()] = null;
+			}
+			visitedNodes.clear();
+		}
+	}
+
+	private void addChargingLabels(Label label, double usableEnergy, Collection<String> chargerTypes) {
+		if (label.previous == null || label.charger != null || label.soc >= CHARGING_SOC_SHARE * usableEnergy) {
+			return;
+		}
+		List<ChargerSpecification> chargers = chargerIndex.getChargersAtLink(label.link.getId())
+				.stream()
+				.filter(charger -> chargerTypes.contains(charger.getChargerType()))
+				.collect(Collectors.toList());
+		if (chargers.isEmpty()) {
+			return;
+		}
+		double[] waitTimes = chargerWaitTimes.estimateWaitTimes(chargers, label.time);
+		for (int i = 0; i < waitTimes.length; i++) {
+			ChargerSpecification charger = chargers.get(i);
+			double chargingTime = Math.max(minimumChargeTime, (usableEnergy - label.soc) / charger.getPlugPower());
+			double duration = waitTimes[i] + chargingTime;
+			add(new Label(label.node, label.link, label, label.time + duration, usableEnergy, label.cost, charger,
+					duration));
+		}
+	}
+
+	private void add(Label label) {
+		int nodeIndex = label.node.getId().index();
+		List<Label> nodeLabels = labels[nodeIndex];
+		if (nodeLabels == null) {
+			nodeLabels = labels[nodeIndex] = new ArrayList<>(MAX_LABELS_PER_NODE);
+			visitedNodes.add(label.node);
+		}
+		for (Label other : nodeLabels) {
+			if (other.dominates(label)) {
+				return;
+			}
+		}
+		nodeLabels.removeIf(other -> {
+			if (label.dominates(other)) {
+				other.dominated = true;
+				return true;
+			}
+			return false;
+		});
+		if (nodeLabels.size() < MAX_LABELS_PER_NODE) {
+			nodeLabels.add(label);
+			queue.add(label);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<Label>[] newLabelArray(int size) {
+		return new List[size];
+	}
+}
@@ -20,15 +20,12 @@
 package org.matsim.contrib.ev.stats;
 
 import static com.google.common.collect.ImmutableList.toImmutableList;
-import static com.google.common.collect.ImmutableMap.toImmutableMap;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.matsim.contrib.ev.EvUnits;
+import org.matsim.contrib.ev.fleet.BatteryStates;
 import org.matsim.contrib.ev.fleet.ElectricFleet;
-import org.matsim.contrib.ev.fleet.ElectricVehicle;
 import org.matsim.contrib.common.timeprofile.TimeProfileCollector;
 import org.matsim.contrib.common.timeprofile.TimeProfileCollector.ProfileCalculator;
 import org.matsim.contrib.common.timeprofile.TimeProfiles;
@@ -36,6 +33,7 @@ import org.matsim.core.controler.MatsimServices;
 import org.matsim.core.mobsim.framework.listeners.MobsimListener;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 
@@ -58,15 +56,20 @@ public class IndividualSocTimeProfileCollectorProvider implements Provider<Mobsi
 	private static final int MAX_VEHICLE_COLUMNS = 50;
 
 	public static ProfileCalculator createIndividualSocCalculator(final ElectricFleet evFleet) {
-		int columns = Math.min(evFleet.getElectricVehicles().size(), MAX_VEHICLE_COLUMNS);
-		List<ElectricVehicle> allEvs = new ArrayList<>(evFleet.getElectricVehicles().values());
-		List<ElectricVehicle> selectedEvs = allEvs.stream().limit(columns).collect(Collectors.toList());
+		// the first vehicles of the fleet (vehicle indices: 0, 1, ...)
+		BatteryStates batteryStates = evFleet.getBatteryStates();
+		int columns = Math.min(batteryStates.getVehicleCount(), MAX_VEHICLE_COLUMNS);
+		ImmutableList<String> header = IntStream.range(0, columns)
+				.mapToObj(i -> batteryStates.getVehicleId(i) + "")
+				.collect(toImmutableList());
 
-		ImmutableList<String> header = selectedEvs.stream().map(ev -> ev.getId() + "").collect(toImmutableList());
-
-		return TimeProfiles.createProfileCalculator(header, () -> selectedEvs.stream()
-				.collect(toImmutableMap(ev -> ev.getId() + "",
-						ev -> EvUnits.J_to_kWh(ev.getBattery().getSoc()))));/*in [kWh]*/
+		return TimeProfiles.createProfileCalculator(header, () -> {
+			ImmutableMap.Builder<String, Double> builder = ImmutableMap.builder();
+			for (int i = 0; i < columns; i++) {
+				builder.put(header.get(i), EvUnits.J_to_kWh(batteryStates.getSoc(i)));/*in [kWh]*/
+			}
+			return builder.build();
+		});
 	}
 
 }
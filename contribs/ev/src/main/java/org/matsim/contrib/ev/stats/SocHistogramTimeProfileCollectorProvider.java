@@ -21,8 +21,8 @@ package org.matsim.contrib.ev.stats;
 
 import java.awt.Color;
 
+import org.matsim.contrib.ev.fleet.BatteryStates;
 import org.matsim.contrib.ev.fleet.ElectricFleet;
-import org.matsim.contrib.ev.fleet.ElectricVehicle;
 import org.matsim.contrib.common.histogram.UniformHistogram;
 import org.matsim.contrib.common.timeprofile.TimeProfileCharts;
 import org.matsim.contrib.common.timeprofile.TimeProfileCharts.ChartType;
@@ -71,10 +71,11 @@ public class SocHistogramTimeProfileCollectorProvider implements Provider<Mobsim
 	public static ProfileCalculator createSocHistogramCalculator(final ElectricFleet evFleet) {
 		ImmutableList<String> header = ImmutableList.of("0+", "0.1+", "0.2+", "0.3+", "0.4+", "0.5+", "0.6+", "0.7+",
 				"0.8+", "0.9+");
+		BatteryStates batteryStates = evFleet.getBatteryStates();
 		return TimeProfiles.createProfileCalculator(header, () -> {
 			UniformHistogram histogram = new UniformHistogram(0.1, header.size());
-			for (ElectricVehicle ev : evFleet.getElectricVehicles().values()) {
-				histogram.addValue(ev.getBattery().getSoc() / ev.getBattery().getCapacity());
+			for (int i = 0; i < batteryStates.getVehicleCount(); i++) {
+				histogram.addValue(batteryStates.getSoc(i) / batteryStates.getCapacity(i));
 			}
 
 			ImmutableMap.Builder<String, Double> builder = ImmutableMap.builder();
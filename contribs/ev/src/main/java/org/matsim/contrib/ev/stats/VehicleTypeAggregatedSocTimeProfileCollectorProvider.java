@@ -19,16 +19,14 @@
 
 package org.matsim.contrib.ev.stats;
 
-import static java.util.stream.Collectors.*;
-
-import java.util.LinkedHashSet;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 import org.matsim.contrib.ev.EvUnits;
+import org.matsim.contrib.ev.fleet.BatteryStates;
 import org.matsim.contrib.ev.fleet.ElectricFleet;
-import org.matsim.contrib.ev.fleet.ElectricVehicle;
 import org.matsim.contrib.common.timeprofile.TimeProfileCollector;
 import org.matsim.contrib.common.timeprofile.TimeProfileCollector.ProfileCalculator;
 import org.matsim.contrib.common.timeprofile.TimeProfiles;
@@ -59,28 +57,40 @@ public class VehicleTypeAggregatedSocTimeProfileCollectorProvider implements Pro
 	private static final String ALL_VEHICLES_ID = "all vehicles";
 
 	public static ProfileCalculator createIndividualSocCalculator(final ElectricFleet evFleet) {
+		BatteryStates batteryStates = evFleet.getBatteryStates();
+		int vehicleCount = batteryStates.getVehicleCount();
+
+		// vehicle types (in the order of their first appearance) and the type index of each vehicle
+		Map<String, Integer> typeIndices = new LinkedHashMap<>();
+		int[] vehicleTypeIndices = new int[vehicleCount];
+		for (int i = 0; i < vehicleCount; i++) {
+			String vehicleType = evFleet.getElectricVehicles().get(batteryStates.getVehicleId(i)).getVehicleType();
+			vehicleTypeIndices[i] = typeIndices.computeIfAbsent(vehicleType, t -> typeIndices.size());
+		}
+		int typeCount = typeIndices.size();
+		int[] typeCounts = new int[typeCount];
+		for (int i = 0; i < vehicleCount; i++) {
+			typeCounts[vehicleTypeIndices[i]]++;
+		}
 
-		Set<String> vehicleTypes = evFleet.getElectricVehicles()
-				.values()
-				.stream()
-				.map(ElectricVehicle::getVehicleType)
-				.collect(Collectors.toCollection(LinkedHashSet::new));
+		List<String> vehicleTypes = new ArrayList<>(typeIndices.keySet());
 		vehicleTypes.add(ALL_VEHICLES_ID);
 		ImmutableList<String> header = ImmutableList.copyOf(vehicleTypes);
 		return TimeProfiles.createProfileCalculator(header, () -> {
-			Map<String, Double> averageSocByType = evFleet.getElectricVehicles()
-					.values()
-					.stream()
-					.collect(groupingBy(ElectricVehicle::getVehicleType,
-							mapping(ev -> EvUnits.J_to_kWh(ev.getBattery().getSoc()), averagingDouble(soc -> soc))));
-			double averageSoc = evFleet.getElectricVehicles()
-					.values()
-					.stream()
-					.mapToDouble(ev -> EvUnits.J_to_kWh(ev.getBattery().getSoc()))
-					.average()
-					.getAsDouble();
-			averageSocByType.put(ALL_VEHICLES_ID, averageSoc);
-			return ImmutableMap.copyOf(averageSocByType);
+			double[] socSums = new double[typeCount];
+			double socSum = 0;
+			for (int i = 0; i < vehicleCount; i++) {
+				double soc = EvUnits.J_to_kWh(batteryStates.getSoc(i));
+				socSums[vehicleTypeIndices[i]] += soc;
+				socSum += soc;
+			}
+
+			ImmutableMap.Builder<String, Double> builder = ImmutableMap.builder();
+			for (int t = 0; t < typeCount; t++) {
+				builder.put(header.get(t), socSums[t] / typeCounts[t]);
+			}
+			builder.put(ALL_VEHICLES_ID, socSum / vehicleCount);
+			return builder.build();
 		});
 	}
 
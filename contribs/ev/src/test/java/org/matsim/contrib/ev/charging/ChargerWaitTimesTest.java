@@ -0,0 +1,86 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.ev.charging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.contrib.ev.fleet.ElectricVehicle;
+import org.matsim.contrib.ev.infrastructure.Charger;
+import org.matsim.contrib.ev.infrastructure.ChargerSpecification;
+import org.matsim.contrib.ev.infrastructure.ImmutableChargerSpecification;
+
+public class ChargerWaitTimesTest {
+	private final ChargerSpecification charger1 = charger("c1");
+	private final ChargerSpecification charger2 = charger("c2");
+	private final ChargerSpecification charger3 = charger("c3");
+
+	private final Id<ElectricVehicle> ev1 = Id.create("ev1", ElectricVehicle.class);
+	private final Id<ElectricVehicle> ev2 = Id.create("ev2", ElectricVehicle.class);
+	private final Id<ElectricVehicle> ev3 = Id.create("ev3", ElectricVehicle.class);
+
+	private final ChargerWaitTimes waitTimes = new ChargerWaitTimes(900);
+
+	@Test
+	public void estimateWaitTimes_fromPreviousIteration() {
+		// c1: one vehicle waits 600 s, one is plugged in immediately (both arrive in the first time bin)
+		waitTimes.handleEvent(new QueuedAtChargerEvent(100, charger1.getId(), ev1));
+		waitTimes.handleEvent(new ChargingStartEvent(200, charger1.getId(), ev2, "default", 0));
+		waitTimes.handleEvent(new ChargingStartEvent(700, charger1.getId(), ev1, "default", 0));
+		// c2: one vehicle quits the queue after 300 s (second time bin)
+		waitTimes.handleEvent(new QueuedAtChargerEvent(1000, charger2.getId(), ev3));
+		waitTimes.handleEvent(new QuitQueueAtChargerEvent(1300, charger2.getId(), ev3));
+
+		// nothing is predicted before the end of the first iteration
+		assertThat(waitTimes.estimateWaitTimes(List.of(charger1, charger2), 100)).containsExactly(0, 0);
+
+		waitTimes.reset(1);
+		assertThat(waitTimes.estimateWaitTimes(List.of(charger1, charger2, charger3), 100)).containsExactly(300, 0, 0);
+		assertThat(waitTimes.estimateWaitTimes(List.of(charger1, charger2, charger3), 1000)).containsExactly(0, 300, 0);
+		assertThat(waitTimes.estimateWaitTimes(List.of(charger2), 100000)).containsExactly(0);
+
+		// iteration without queues at c1
+		waitTimes.handleEvent(new ChargingStartEvent(100, charger1.getId(), ev1, "default", 0));
+		waitTimes.reset(2);
+		assertThat(waitTimes.estimateWaitTimes(List.of(charger1, charger2), 100)).containsExactly(0, 0);
+	}
+
+	@Test
+	public void estimateWaitTimes_stillQueuedAtTheEnd() {
+		waitTimes.handleEvent(new QueuedAtChargerEvent(100, charger1.getId(), ev1));
+		waitTimes.handleEvent(new ChargingStartEvent(500, charger2.getId(), ev2, "default", 0));
+		waitTimes.reset(1);
+		assertThat(waitTimes.estimateWaitTimes(List.of(charger1), 100)).containsExactly(400);
+	}
+
+	private static ChargerSpecification charger(String id) {
+		return ImmutableChargerSpecification.newBuilder()
+				.id(Id.create(id, Charger.class))
+				.linkId(Id.createLinkId("l_" + id))
+				.chargerType("default")
+				.plugPower(100)
+				.plugCount(1)
+				.build();
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.ev.fleet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+
+import com.google.common.collect.ImmutableList;
+
+public class BatteryStatesTest {
+	private final ElectricVehicleSpecification specA = specification("a", 100, 50);
+	private final ElectricVehicleSpecification specB = specification("b", 200, 200);
+
+	@Test
+	public void indices() {
+		BatteryStates states = new BatteryStates(List.of(specA, specB));
+		assertThat(states.getVehicleCount()).isEqualTo(2);
+		assertThat(states.getIndex(specA.getId())).isEqualTo(0);
+		assertThat(states.getIndex(specB.getId())).isEqualTo(1);
+		assertThat(states.getVehicleId(1)).isEqualTo(specB.getId());
+		assertThat(states.getIndex(Id.create("not_in_fleet", ElectricVehicle.class))).isEqualTo(-1);
+	}
+
+	@Test
+	public void batteryViews() {
+		BatteryStates states = new BatteryStates(List.of(specA, specB));
+		Battery batteryA = states.getBattery(0);
+		assertThat(batteryA.getCapacity()).isEqualTo(100);
+		assertThat(batteryA.getSoc()).isEqualTo(50);
+
+		// changes via the view are visible in the arrays and vice versa
+		batteryA.changeSoc(-20);
+		assertThat(states.getSoc(0)).isEqualTo(30);
+		states.changeSoc(0, 100);
+		assertThat(batteryA.getSoc()).isEqualTo(100);// capped at capacity
+		states.changeSoc(0, -1000);
+		assertThat(batteryA.getSoc()).isEqualTo(0);
+
+		assertThat(states.getSoc(1)).isEqualTo(200);// not affected
+		assertThatThrownBy(() -> batteryA.setSoc(101)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private static ElectricVehicleSpecification specification(String id, double capacity, double soc) {
+		return ImmutableElectricVehicleSpecification.newBuilder()
+				.id(Id.create(id, ElectricVehicle.class))
+				.vehicleType("vt")
+				.chargerTypes(ImmutableList.of("ct"))
+				.batteryCapacity(capacity)
+				.initialSoc(soc)
+				.build();
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.ev.infrastructure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+
+public class ChargerSpatialIndexTest {
+	private final Network network = NetworkUtils.createNetwork();
+
+	{
+		// link coords: at the link centres, i.e. x = 50, 150, ..., 950
+		createLinks(10);
+	}
+
+	private final ChargerSpecification fastAt0 = charger("fastAt0", 0, "fast", 100);
+	private final ChargerSpecification slowAt1 = charger("slowAt1", 1, "slow", 10);
+	private final ChargerSpecification fastAt5 = charger("fastAt5", 5, "fast", 50);
+	private final ChargerSpecification fastAt9 = charger("fastAt9", 9, "fast", 100);
+	private final ChargerSpecification unknownLink = ImmutableChargerSpecification.newBuilder()
+			.id(Id.create("unknownLink", Charger.class))
+			.linkId(Id.createLinkId("unknown"))
+			.chargerType("fast")
+			.plugPower(100)
+			.plugCount(1)
+			.build();
+
+	private final ChargerSpatialIndex index = new ChargerSpatialIndex(
+			List.of(fastAt0, slowAt1, fastAt5, fastAt9, unknownLink), network.getLinks()::get);
+
+	@Test
+	public void findNearest_byType() {
+		assertThat(index.findNearest(new Coord(150, 0), List.of("fast"), 0, 2)).containsExactly(fastAt0, fastAt5);
+		assertThat(index.findNearest(new Coord(150, 0), List.of("fast", "slow"), 0, 2)).containsExactly(slowAt1,
+				fastAt0);
+		assertThat(index.findNearest(new Coord(150, 0), List.of("other"), 0, 2)).isEmpty();
+	}
+
+	@Test
+	public void findNearest_byPower() {
+		assertThat(index.findNearest(new Coord(450, 0), List.of("fast"), 60, 1)).containsExactly(fastAt0);
+		assertThat(index.findNearest(new Coord(450, 0), List.of("fast"), 0, 1)).containsExactly(fastAt5);
+	}
+
+	@Test
+	public void findNearest_fewerThanK() {
+		// far away from all chargers: the search radius is extended until all of them are covered
+		assertThat(index.findNearest(new Coord(100000, 100000), List.of("fast", "slow"), 0, 10)).containsExactly(
+				fastAt9, fastAt5, slowAt1, fastAt0);
+	}
+
+	private void createLinks(int count) {
+		Node from = NetworkUtils.createAndAddNode(network, Id.createNodeId("n0"), new Coord(0, 0));
+		for (int i = 0; i < count; i++) {
+			Node to = NetworkUtils.createAndAddNode(network, Id.createNodeId("n" + (i + 1)), new Coord(100 * (i + 1), 0));
+			NetworkUtils.createAndAddLink(network, Id.createLinkId("l" + i), from, to, 100, 10, 1000, 1);
+			from = to;
+		}
+	}
+
+	private ChargerSpecification charger(String id, int linkIdx, String type, double power) {
+		return ImmutableChargerSpecification.newBuilder()
+				.id(Id.create(id, Charger.class))
+				.linkId(Id.createLinkId("l" + linkIdx))
+				.chargerType(type)
+				.plugPower(power)
+				.plugCount(1)
+				.build();
+	}
+}
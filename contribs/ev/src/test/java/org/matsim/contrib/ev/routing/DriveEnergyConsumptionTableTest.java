@@ -0,0 +1,90 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.ev.routing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.ev.discharging.DriveEnergyConsumption;
+import org.matsim.core.network.NetworkUtils;
+
+public class DriveEnergyConsumptionTableTest {
+	private final Network network = NetworkUtils.createNetwork();
+	private final Node nodeA = NetworkUtils.createAndAddNode(network, Id.createNodeId("A"), new Coord(0, 0));
+	private final Node nodeB = NetworkUtils.createAndAddNode(network, Id.createNodeId("B"), new Coord(1000, 0));
+	private final Link linkAB = NetworkUtils.createAndAddLink(network, Id.createLinkId("AB"), nodeA, nodeB, 1000, 10,
+			1000, 1);
+	private final Link linkBA = NetworkUtils.createAndAddLink(network, Id.createLinkId("BA"), nodeB, nodeA, 2000, 10,
+			1000, 1);
+
+	private int calcCount = 0;
+
+	// 1 J per metre and per second
+	private final DriveEnergyConsumptionTable table = new DriveEnergyConsumptionTable(new DriveEnergyConsumption() {
+		@Override
+		public double calcEnergyConsumption(Link link, double travelTime, double linkEnterTime) {
+			calcCount++;
+			return link.getLength() + travelTime;
+		}
+
+		@Override
+		public boolean isTimeAndVehicleInvariant() {
+			return true;
+		}
+	});
+
+	@Test
+	public void calcEnergyConsumption_computedOncePerTravelTime() {
+		assertThat(table.calcEnergyConsumption(linkAB, 100)).isEqualTo(1100);
+		assertThat(table.calcEnergyConsumption(linkBA, 200)).isEqualTo(2200);
+		assertThat(calcCount).isEqualTo(2);
+
+		// same travel times
+		assertThat(table.calcEnergyConsumption(linkAB, 100)).isEqualTo(1100);
+		assertThat(table.calcEnergyConsumption(linkBA, 200)).isEqualTo(2200);
+		assertThat(calcCount).isEqualTo(2);
+
+		// travel time changed
+		assertThat(table.calcEnergyConsumption(linkAB, 150)).isEqualTo(1150);
+		assertThat(calcCount).isEqualTo(3);
+	}
+
+	@Test
+	public void create_timeDependentConsumption() {
+		assertThatThrownBy(() -> new DriveEnergyConsumptionTable((link, travelTime, enterTime) -> 0)).isInstanceOf(
+				IllegalArgumentException.class);
+	}
+
+	@Test
+	public void calcEnergyConsumption_linkCreatedAfterTable() {
+		Link linkAA = NetworkUtils.createAndAddLink(network, Id.createLinkId("AA_" + getClass().getName()), nodeA,
+				nodeA, 500, 10, 1000, 1);
+		assertThat(table.calcEnergyConsumption(linkAA, 50)).isEqualTo(550);
+		assertThat(table.calcEnergyConsumption(linkAA, 50)).isEqualTo(550);
+		assertThat(calcCount).isEqualTo(1);
+	}
+}
@@ -0,0 +1,173 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.ev.routing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.contrib.ev.EvConfigGroup;
+import org.matsim.contrib.ev.charging.ChargerWaitTimes;
+import org.matsim.contrib.ev.charging.VehicleChargingHandler;
+import org.matsim.contrib.ev.fleet.ElectricFleetSpecificationImpl;
+import org.matsim.contrib.ev.fleet.ElectricVehicle;
+import org.matsim.contrib.ev.fleet.ElectricVehicleSpecification;
+import org.matsim.contrib.ev.fleet.ImmutableElectricVehicleSpecification;
+import org.matsim.contrib.ev.infrastructure.Charger;
+import org.matsim.contrib.ev.infrastructure.ChargerSpatialIndex;
+import org.matsim.contrib.ev.infrastructure.ImmutableChargerSpecification;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.router.DefaultRoutingModules;
+import org.matsim.core.router.DefaultRoutingRequest;
+import org.matsim.core.router.LinkWrapperFacility;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
+import org.matsim.core.router.speedy.SpeedyDijkstraFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+import com.google.common.collect.ImmutableList;
+
+public class EvNetworkRoutingModuleTest {
+	private final Network network = NetworkUtils.createNetwork();
+	private final Node nodeW = createNode("W", -2000);
+	private final Node nodeX = createNode("X", -1000);
+	private final Node nodeA = createNode("A", 0);
+	private final Node nodeB = createNode("B", 1000);
+	private final Node nodeC = createNode("C", 2000);
+	private final Node nodeD = createNode("D", 3000);
+
+	// 100 s per link
+	private final Link linkWX = createLink(nodeW, nodeX);
+	private final Link linkXA = createLink(nodeX, nodeA);
+	private final Link linkAB = createLink(nodeA, nodeB);
+	private final Link linkBC = createLink(nodeB, nodeC);
+	private final Link linkCD = createLink(nodeC, nodeD);
+
+	private final TravelTime travelTime = (link, time, person, vehicle) -> link.getLength() / link.getFreespeed();
+	private final TravelDisutility travelDisutility = new OnlyTimeDependentTravelDisutility(travelTime);
+	private final PopulationFactory populationFactory = PopulationUtils.getFactory();
+
+	// the usable energy is randomly drawn from [2000, 2450] J, so B (2000 m from X) can be reached without charging,
+	// but C (3000 m from X) cannot
+	private final ElectricVehicleSpecification ev = ImmutableElectricVehicleSpecification.newBuilder()
+			.id(Id.create("evRouting_person", ElectricVehicle.class))
+			.vehicleType(ElectricVehicleSpecification.DEFAULT_VEHICLE_TYPE)
+			.chargerTypes(ImmutableList.of("default"))
+			.initialSoc(2500)
+			.batteryCapacity(2500)
+			.build();
+
+	// charging always takes the minimum charge time
+	private final ImmutableChargerSpecification chargerAtAB = ImmutableChargerSpecification.newBuilder()
+			.id(Id.create("evRouting_chargerAtAB", Charger.class))
+			.linkId(linkAB.getId())
+			.chargerType("default")
+			.plugPower(1e6)
+			.plugCount(1)
+			.build();
+
+	@Test
+	public void calcRoute_withChargingStop() {
+		List<? extends PlanElement> route = createRoutingModule().calcRoute(
+				DefaultRoutingRequest.withoutAttributes(new LinkWrapperFacility(linkWX), new LinkWrapperFacility(linkCD),
+						0, populationFactory.createPerson(Id.createPersonId("evRouting_person"))));
+		assertThat(route).hasSize(3);
+
+		// the leg ends at the charger link (not traversed, so its travel time is not included)
+		Leg toCharger = (Leg)route.get(0);
+		assertLeg(toCharger, 0, 100);
+		NetworkRoute toChargerRoute = (NetworkRoute)toCharger.getRoute();
+		assertThat(toChargerRoute.getStartLinkId()).isEqualTo(linkWX.getId());
+		assertThat(toChargerRoute.getLinkIds()).containsExactly(linkXA.getId());
+		assertThat(toChargerRoute.getEndLinkId()).isEqualTo(linkAB.getId());
+		assertThat(toChargerRoute.getTravelCost()).isEqualTo(100);
+		assertThat(toChargerRoute.getDistance()).isEqualTo(2000);
+
+		Activity charging = (Activity)route.get(1);
+		assertThat(charging.getType()).isEqualTo(PlanCalcScoreConfigGroup.createStageActivityType(
+				TransportMode.car + VehicleChargingHandler.CHARGING_IDENTIFIER));
+		assertThat(charging.getLinkId()).isEqualTo(linkAB.getId());
+		assertThat(charging.getMaximumDuration().seconds()).isEqualTo(600);
+
+		// departure after traversing the charger link (at 200 s) and charging
+		Leg toDestination = (Leg)route.get(2);
+		assertLeg(toDestination, 800, 100);
+		NetworkRoute toDestinationRoute = (NetworkRoute)toDestination.getRoute();
+		assertThat(toDestinationRoute.getStartLinkId()).isEqualTo(linkAB.getId());
+		assertThat(toDestinationRoute.getLinkIds()).containsExactly(linkBC.getId());
+		assertThat(toDestinationRoute.getEndLinkId()).isEqualTo(linkCD.getId());
+		assertThat(toDestinationRoute.getTravelCost()).isEqualTo(100);
+		assertThat(toDestinationRoute.getDistance()).isEqualTo(2000);
+	}
+
+	@Test
+	public void calcRoute_withoutChargingStop() {
+		List<? extends PlanElement> route = createRoutingModule().calcRoute(
+				DefaultRoutingRequest.withoutAttributes(new LinkWrapperFacility(linkWX), new LinkWrapperFacility(linkBC),
+						0, populationFactory.createPerson(Id.createPersonId("evRouting_person"))));
+		assertThat(route).hasSize(1);
+		assertLeg((Leg)route.get(0), 0, 200);
+	}
+
+	private void assertLeg(Leg leg, double departureTime, double travelTime) {
+		assertThat(leg.getMode()).isEqualTo(TransportMode.car);
+		assertThat(leg.getDepartureTime().seconds()).isEqualTo(departureTime);
+		assertThat(leg.getTravelTime().seconds()).isEqualTo(travelTime);
+		assertThat(leg.getRoute().getTravelTime().seconds()).isEqualTo(travelTime);
+	}
+
+	private EvNetworkRoutingModule createRoutingModule() {
+		var fleet = new ElectricFleetSpecificationImpl();
+		fleet.addVehicleSpecification(ev);
+		var evConfigGroup = new EvConfigGroup();
+		evConfigGroup.setMinimumChargeTime(600);
+		var routeAlgo = new SpeedyDijkstraFactory().createPathCalculator(network, travelDisutility, travelTime);
+		return new EvNetworkRoutingModule(TransportMode.car, network,
+				DefaultRoutingModules.createPureNetworkRouter(TransportMode.car, populationFactory, network, routeAlgo),
+				fleet, new ChargerSpatialIndex(List.of(chargerAtAB), network.getLinks()::get),
+				new ChargerWaitTimes(900), travelTime, travelDisutility, populationFactory,
+				electricVehicle -> (link, linkTravelTime, linkEnterTime) -> link.getLength(),// 1 J per metre
+				electricVehicle -> (beginTime, duration, linkId) -> 0, evConfigGroup);
+	}
+
+	private Node createNode(String id, double x) {
+		return NetworkUtils.createAndAddNode(network, Id.createNodeId("evRouting_" + id), new Coord(x, 0));
+	}
+
+	private Link createLink(Node from, Node to) {
+		return NetworkUtils.createAndAddLink(network, Id.createLinkId(from.getId() + "_" + to.getId()), from, to, 1000,
+				10, 1000, 1);
+	}
+}
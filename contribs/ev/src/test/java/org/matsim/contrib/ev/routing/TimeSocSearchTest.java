@@ -0,0 +1,166 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.ev.routing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.contrib.ev.charging.ChargerWaitTimes;
+import org.matsim.contrib.ev.charging.ChargingStartEvent;
+import org.matsim.contrib.ev.charging.QueuedAtChargerEvent;
+import org.matsim.contrib.ev.fleet.ElectricVehicle;
+import org.matsim.contrib.ev.infrastructure.Charger;
+import org.matsim.contrib.ev.infrastructure.ChargerSpatialIndex;
+import org.matsim.contrib.ev.infrastructure.ChargerSpecification;
+import org.matsim.contrib.ev.infrastructure.ImmutableChargerSpecification;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+public class TimeSocSearchTest {
+	private final Network network = NetworkUtils.createNetwork();
+	private final Node nodeX = createNode("X", -1000);
+	private final Node nodeA = createNode("A", 0);
+	private final Node nodeB = createNode("B", 1000);
+	private final Node nodeC = createNode("C", 2000);
+	private final Node nodeD = createNode("D", 3000);
+
+	// 100 s per link
+	private final Link linkXA = createLink(nodeX, nodeA);
+	private final Link linkAB = createLink(nodeA, nodeB);
+	private final Link linkBC = createLink(nodeB, nodeC);
+	private final Link linkCD = createLink(nodeC, nodeD);
+
+	private final TravelTime travelTime = (link, time, person, vehicle) -> link.getLength() / link.getFreespeed();
+	private final TravelDisutility travelDisutility = new OnlyTimeDependentTravelDisutility(travelTime);
+
+	// 1 J per metre
+	private final TimeSocSearch.LinkEnergyConsumption consumption = (link, travelTime, linkEnterTime) -> link.getLength();
+
+	private final ChargerSpecification chargerAtBC = ImmutableChargerSpecification.newBuilder()
+			.id(Id.create("chargerAtBC", Charger.class))
+			.linkId(linkBC.getId())
+			.chargerType("default")
+			.plugPower(10)
+			.plugCount(1)
+			.build();
+
+	private final ChargerWaitTimes chargerWaitTimes = new ChargerWaitTimes(900);
+
+	@Test
+	public void search_withoutCharging() {
+		TimeSocSearch.Label destination = createSearch(List.of()).search(linkXA, nodeC, 0, 2500, List.of("default"),
+				consumption, null);
+		assertThat(destination.time).isEqualTo(200);
+		assertThat(destination.soc).isEqualTo(500);
+		assertThat(destination.link).isEqualTo(linkBC);
+		assertThat(destination.previous.link).isEqualTo(linkAB);
+	}
+
+	@Test
+	public void search_withCharging() {
+		TimeSocSearch.Label destination = createSearch(List.of(chargerAtBC)).search(linkXA, nodeD, 0, 2500,
+				List.of("default"), consumption, null);
+
+		// charging 2000 J at 10 W after arriving at C with 500 J (at 200 s)
+		assertThat(destination.time).isEqualTo(200 + 200 + 100);
+		assertThat(destination.soc).isEqualTo(1500);
+		TimeSocSearch.Label charging = destination.previous;
+		assertThat(charging.charger).isEqualTo(chargerAtBC);
+		assertThat(charging.link).isEqualTo(linkBC);
+		assertThat(charging.chargingDuration).isEqualTo(200);
+	}
+
+	@Test
+	public void search_withPredictedWaitTime() {
+		chargerWaitTimes.handleEvent(
+				new QueuedAtChargerEvent(100, chargerAtBC.getId(), Id.create("ev", ElectricVehicle.class)));
+		chargerWaitTimes.handleEvent(new ChargingStartEvent(400, chargerAtBC.getId(),
+				Id.create("ev", ElectricVehicle.class), "default", 0));
+		chargerWaitTimes.reset(1);
+
+		TimeSocSearch.Label destination = createSearch(List.of(chargerAtBC)).search(linkXA, nodeD, 0, 2500,
+				List.of("default"), consumption, null);
+		assertThat(destination.time).isEqualTo(200 + 300 + 200 + 100);
+		assertThat(destination.previous.chargingDuration).isEqualTo(500);
+	}
+
+	@Test
+	public void search_unreachable() {
+		TimeSocSearch search = createSearch(List.of(chargerAtBC));
+		// no charger of this type
+		assertThat(search.search(linkXA, nodeD, 0, 2500, List.of("other"), consumption, null)).isNull();
+		// the search state is reset after each search
+		assertThat(search.search(linkXA, nodeD, 0, 2500, List.of("default"), consumption, null)).isNotNull();
+	}
+
+	@Test
+	public void search_sameTime_lowerCostPreferred() {
+		// as fast as AB, but cheaper
+		Link cheaperLinkAB = NetworkUtils.createAndAddLink(network, Id.createLinkId("timeSoc_cheaperAB"), nodeA, nodeB,
+				1000, 10, 1000, 1);
+		TravelDisutility disutility = new TravelDisutility() {
+			@Override
+			public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+				return link == cheaperLinkAB ? 50 : 100;
+			}
+
+			@Override
+			public double getLinkMinimumTravelDisutility(Link link) {
+				return link == cheaperLinkAB ? 50 : 100;
+			}
+		};
+
+		TimeSocSearch.Label destination = createSearch(List.of(), disutility).search(linkXA, nodeC, 0, 2500,
+				List.of("default"), consumption, null);
+		assertThat(destination.time).isEqualTo(200);
+		assertThat(destination.cost).isEqualTo(150);
+		assertThat(destination.previous.link).isEqualTo(cheaperLinkAB);
+	}
+
+	private TimeSocSearch createSearch(List<ChargerSpecification> chargers) {
+		return createSearch(chargers, travelDisutility);
+	}
+
+	private TimeSocSearch createSearch(List<ChargerSpecification> chargers, TravelDisutility disutility) {
+		return new TimeSocSearch(travelTime, disutility, new ChargerSpatialIndex(chargers, network.getLinks()::get),
+				chargerWaitTimes, 0);
+	}
+
+	private Node createNode(String id, double x) {
+		return NetworkUtils.createAndAddNode(network, Id.createNodeId("timeSoc_" + id), new Coord(x, 0));
+	}
+
+	private Link createLink(Node from, Node to) {
+		return NetworkUtils.createAndAddLink(network, Id.createLinkId(from.getId() + "_" + to.getId()), from, to, 1000,
+				10, 1000, 1);
+	}
+}
@@ -33,6 +33,8 @@ public class BarrierContext {
                 }
             }
         }
+        //build eagerly since the tree is queried concurrently when computing the receiver point corrections
+        this.noiseBarriers.build();
     }
 
 
@@ -45,6 +47,7 @@ public class BarrierContext {
                 logger.warn("Could not add noise barrier " + barrier.getId() + " to quad tree. Ignoring it.");
             }
         }
+        this.noiseBarriers.build();
     }
 
     public Collection<NoiseBarrier> query(Envelope envelopeInternal) {
@@ -0,0 +1,138 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.noise;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+
+/**
+ * Keeps the link emissions and the resulting receiver point immissions of each time bin across iterations, so that
+ * only the immissions at receiver points influenced by links whose emission has changed by more than a threshold need
+ * to be recomputed (see {@link NoiseConfigGroup#getIncrementalImmissionThreshold()}).
+ * <p>
+ * For each time bin, all immissions are computed from the <i>reference</i> link emissions. The reference emission of
+ * a link is replaced by the current one only if they differ by more than the threshold, so the error of each link
+ * contribution is bounded by the threshold and does not accumulate over iterations.
+ * <p>
+ * If the causing agents are computed, the emissions in dB(A) (also with one more vehicle of each type) of a link are
+ * replaced together with its energetic emission. The isolated immissions computed from the reference emissions (see
+ * {@link #getReferenceEmissions(double)}) are thus consistent with the resulting immissions, and the damages and tolls
+ * allocated to the causing links have the same error bound.
+ */
+final class IncrementalNoiseImmissions {
+	private static final Logger log = Logger.getLogger(IncrementalNoiseImmissions.class);
+
+	private final NoiseInfluenceMatrix influenceMatrix;
+	private final double threshold;
+	private final int[][] rowsByLink;
+
+	// by time bin end time
+	private final Map<Double, NoiseLinkEmissions> referenceLinkEmissions = new HashMap<>();
+	private final Map<Double, double[]> immissions = new HashMap<>();
+
+	IncrementalNoiseImmissions(NoiseInfluenceMatrix influenceMatrix, double threshold) {
+		this.influenceMatrix = influenceMatrix;
+		this.threshold = threshold;
+		this.rowsByLink = influenceMatrix.getRowsByLink(Id.getNumberOfIds(Link.class));
+	}
+
+	/**
+	 * Updates the reference emissions of the time bin with the current link emissions and recomputes the affected
+	 * immissions.
+	 *
+	 * @return the immissions at the receiver points (by row of the influence matrix) in dB(A)
+	 */
+	double[] calculateImmissions(double timeBinEndTime, NoiseLinkEmissions linkEmissions, double minimumContribution) {
+		NoiseLinkEmissions reference = referenceLinkEmissions.get(timeBinEndTime);
+		double[] rowImmissions = immissions.get(timeBinEndTime);
+		if (reference == null) {
+			reference = linkEmissions.copy(linkEmissions.getLinkCount());
+			rowImmissions = new double[influenceMatrix.getRowCount()];
+			calculateImmissions(reference.getEnergeticEmissions(), minimumContribution, rowImmissions, null);
+			referenceLinkEmissions.put(timeBinEndTime, reference);
+			immissions.put(timeBinEndTime, rowImmissions);
+			return rowImmissions;
+		}
+
+		if (reference.getLinkCount() < linkEmissions.getLinkCount()) {
+			// links created after the previous computation
+			reference = reference.copy(linkEmissions.getLinkCount());
+			referenceLinkEmissions.put(timeBinEndTime, reference);
+		}
+
+		double[] referenceEnergetic = reference.getEnergeticEmissions();
+		double[] currentEnergetic = linkEmissions.getEnergeticEmissions();
+		boolean[] affectedRows = new boolean[influenceMatrix.getRowCount()];
+		int changedLinks = 0;
+		for (int linkIndex = 0; linkIndex < currentEnergetic.length; linkIndex++) {
+			if (isChanged(referenceEnergetic[linkIndex], currentEnergetic[linkIndex])) {
+				reference.setLinkEmissions(linkIndex, linkEmissions);
+				if (linkIndex < rowsByLink.length) {
+					for (int row : rowsByLink[linkIndex]) {
+						affectedRows[row] = true;
+					}
+				}
+				changedLinks++;
+			}
+		}
+		int affectedRowCount = calculateImmissions(referenceEnergetic, minimumContribution, rowImmissions, affectedRows);
+		log.info("Emissions changed on " + changedLinks + " links; recomputed the immissions at " + affectedRowCount
+				+ " of " + rowImmissions.length + " receiver points.");
+		return rowImmissions;
+	}
+
+	/**
+	 * @return the reference emissions from which the immissions of the time bin have been computed, null if the time
+	 * bin has not been computed yet
+	 */
+	NoiseLinkEmissions getReferenceEmissions(double timeBinEndTime) {
+		return referenceLinkEmissions.get(timeBinEndTime);
+	}
+
+	private int calculateImmissions(double[] energeticLinkEmissions, double minimumContribution,
+			double[] rowImmissions, boolean[] affectedRows) {
+		int[] rows = IntStream.range(0, rowImmissions.length)
+				.filter(row -> affectedRows == null || affectedRows[row])
+				.toArray();
+		Arrays.stream(rows)
+				.parallel()
+				.forEach(row -> rowImmissions[row] = influenceMatrix.calculateImmission(row, energeticLinkEmissions,
+						minimumContribution));
+		return rows.length;
+	}
+
+	private boolean isChanged(double reference, double current) {
+		if (reference == current) {
+			return false;
+		}
+		if (reference == 0 || current == 0) {
+			// link becomes silent or loud
+			return true;
+		}
+		return Math.abs(10 * Math.log10(current / reference)) > threshold;
+	}
+}
@@ -86,6 +86,7 @@ public final class NoiseConfigGroup extends ReflectiveConfigGroup {
 	private static final String NOISE_COMPUTATION_METHOD = "noiseComputationMethod";
 	private static final String USE_DEM = "useDGM";
 	private static final String DEM_FILE = "DGMFile";
+	private static final String INCREMENTAL_IMMISSION_THRESHOLD = "incrementalImmissionThreshold";
 
 	public NoiseConfigGroup() {
 		super(GROUP_NAME);
@@ -151,6 +152,8 @@ public final class NoiseConfigGroup extends ReflectiveConfigGroup {
     }
 
     private NoiseComputationMethod noiseComputationMethod = NoiseComputationMethod.RLS90;
+
+	private double incrementalImmissionThreshold = 0.;
     
     // ########################################################################################################
 	
@@ -212,6 +215,11 @@ public final class NoiseConfigGroup extends ReflectiveConfigGroup {
 
         comments.put(NOISE_COMPUTATION_METHOD, "Specifies the computation method of different guidelines: " + Arrays.toString(NoiseComputationMethod.values()));
 
+		comments.put(INCREMENTAL_IMMISSION_THRESHOLD, "Set to a value > 0 [in dB(A)] to update the noise immissions incrementally across iterations: "
+				+ "In each time bin, the immissions are only recomputed at receiver points within the relevant radius of links whose emission has changed by more than this value "
+				+ "(compared to the emission used for the previous computation). Default: 0.0 (= immissions are recomputed from scratch in each iteration). "
+				+ "If 'computeCausingAgents' is set to 'true', the damages and tolls are allocated based on the same link emissions as the immissions.");
+
 		return comments;
 	}
 
@@ -798,4 +806,14 @@ public final class NoiseConfigGroup extends ReflectiveConfigGroup {
 	public void setNoiseComputationMethod(NoiseComputationMethod noiseComputationMethod) {
 		this.noiseComputationMethod = noiseComputationMethod;
 	}
+
+	@StringGetter(INCREMENTAL_IMMISSION_THRESHOLD)
+	public double getIncrementalImmissionThreshold() {
+		return this.incrementalImmissionThreshold;
+	}
+
+	@StringSetter(INCREMENTAL_IMMISSION_THRESHOLD)
+	public void setIncrementalImmissionThreshold(double incrementalImmissionThreshold) {
+		this.incrementalImmissionThreshold = incrementalImmissionThreshold;
+	}
 }
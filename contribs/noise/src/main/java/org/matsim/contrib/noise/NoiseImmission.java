@@ -27,4 +27,48 @@ public interface NoiseImmission {
     double calculateCorrection(double projectedDistance, NoiseReceiverPoint nrp, Link candidateLink);
 
     void setCurrentRp(NoiseReceiverPoint nrp);
+
+    /**
+     * Converts a correction term returned by {@link #calculateCorrection} into the factor by which the energetic
+     * emission level (10^(0.1 * emission)) of the link is weighted at the receiver point. Used to precompute the
+     * {@link NoiseInfluenceMatrix}.
+     * @param correction the correction term, by default in dB(A)
+     */
+    default double toEnergeticFactor(double correction) {
+        return Math.pow(10, 0.1 * correction);
+    }
+
+    /**
+     * @return the energetic link contribution up to which a link is not considered for the immission
+     * at a receiver point (by default 1, i.e. isolated link immissions of 0 dB(A) or less are ignored).
+     */
+    default double getMinimumEnergeticContribution() {
+        return 1;
+    }
+
+    /**
+     * Calculates the isolated immission of a link at a receiver point. Used to allocate the damages to the causing
+     * links (see {@link NoiseInfluenceMatrix#setIsolatedImmissions}).
+     * @param energeticFactor the factor returned by {@link #toEnergeticFactor} for the link-receiver point relation
+     * @param emission the link emission in dB(A), 0 if there is no traffic
+     * @return the isolated immission in dB(A)
+     */
+    default double calculateIsolatedLinkImmission(double energeticFactor, double emission) {
+        if (emission == 0.) {
+            return 0.;
+        }
+        return Math.max(0., 10 * Math.log10(energeticFactor * Math.pow(10, 0.1 * emission)));
+    }
+
+    /**
+     * Same as {@link #calculateIsolatedLinkImmission}, but with one more vehicle (of a given type) on the link.
+     * @param emissionPlusOneVehicle the link emission with one more vehicle in dB(A)
+     */
+    default double calculateIsolatedLinkImmissionPlusOneVehicle(double energeticFactor, double emission,
+            double emissionPlusOneVehicle) {
+        if (emissionPlusOneVehicle == 0.) {
+            return 0.;
+        }
+        return Math.max(0., 10 * Math.log10(energeticFactor * Math.pow(10, 0.1 * emissionPlusOneVehicle)));
+    }
 }
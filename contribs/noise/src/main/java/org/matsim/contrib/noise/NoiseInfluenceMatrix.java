@@ -0,0 +1,196 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.noise;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import gnu.trove.map.TObjectDoubleMap;
+import gnu.trove.map.hash.TObjectDoubleHashMap;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+
+/**
+ * Sparse receiver point x link influence matrix in the compressed sparse row (CSR) format. Row {@code i} holds the
+ * links relevant for the i-th receiver point, addressed by {@link Id#index()}, together with the factors by which
+ * their energetic emission levels contribute to the immission at that point. All the time-independent corrections
+ * (distance, angle, shielding, reflections etc.) are baked into these factors once the matrix is built, so the
+ * immissions of a time interval are obtained by a single sparse matrix-vector product over the link emissions.
+ * Likewise, the isolated link immissions needed to allocate the damages to the causing links are obtained from the
+ * rows.
+ */
+final class NoiseInfluenceMatrix {
+	private final NoiseReceiverPoint[] receiverPoints;
+	private final int[] rowStarts;// row i: [rowStarts[i], rowStarts[i + 1])
+	private final int[] linkIndices;
+	private final double[] factors;
+
+	/**
+	 * Builds the matrix (in parallel) from the link corrections that have already been set for the receiver points.
+	 *
+	 * @param ignoredLinkIds links that never contribute to the immissions (e.g. tunnels)
+	 */
+	static NoiseInfluenceMatrix create(Collection<NoiseReceiverPoint> receiverPoints, NoiseImmission immission,
+			Set<Id<Link>> ignoredLinkIds) {
+		NoiseReceiverPoint[] rps = receiverPoints.toArray(new NoiseReceiverPoint[0]);
+		int[][] rowLinkIndices = new int[rps.length][];
+		double[][] rowFactors = new double[rps.length][];
+		IntStream.range(0, rps.length).parallel().forEach(row -> {
+			NoiseReceiverPoint rp = rps[row];
+			int[] indices = rp.getRelevantLinks()
+					.stream()
+					.filter(linkId -> !ignoredLinkIds.contains(linkId))
+					.mapToInt(Id::index)
+					.sorted()
+					.toArray();
+			double[] factors = new double[indices.length];
+			for (int k = 0; k < indices.length; k++) {
+				factors[k] = immission.toEnergeticFactor(rp.getLinkCorrection(Id.get(indices[k], Link.class)));
+			}
+			rowLinkIndices[row] = indices;
+			rowFactors[row] = factors;
+		});
+
+		int[] rowStarts = new int[rps.length + 1];
+		for (int row = 0; row < rps.length; row++) {
+			rowStarts[row + 1] = rowStarts[row] + rowLinkIndices[row].length;
+		}
+		int[] linkIndices = new int[rowStarts[rps.length]];
+		double[] factors = new double[rowStarts[rps.length]];
+		for (int row = 0; row < rps.length; row++) {
+			System.arraycopy(rowLinkIndices[row], 0, linkIndices, rowStarts[row], rowLinkIndices[row].length);
+			System.arraycopy(rowFactors[row], 0, factors, rowStarts[row], rowFactors[row].length);
+		}
+		return new NoiseInfluenceMatrix(rps, rowStarts, linkIndices, factors);
+	}
+
+	private NoiseInfluenceMatrix(NoiseReceiverPoint[] receiverPoints, int[] rowStarts, int[] linkIndices,
+			double[] factors) {
+		this.receiverPoints = receiverPoints;
+		this.rowStarts = rowStarts;
+		this.linkIndices = linkIndices;
+		this.factors = factors;
+	}
+
+	int getRowCount() {
+		return receiverPoints.length;
+	}
+
+	NoiseReceiverPoint getReceiverPoint(int row) {
+		return receiverPoints[row];
+	}
+
+	int getNonZeroCount() {
+		return linkIndices.length;
+	}
+
+	/**
+	 * @return for each link (by {@link Id#index()} below {@code linkCount}), the (sorted) rows it contributes to,
+	 * i.e. the transposed sparsity pattern
+	 */
+	int[][] getRowsByLink(int linkCount) {
+		int[] counts = new int[linkCount];
+		for (int linkIndex : linkIndices) {
+			if (linkIndex < linkCount) {
+				counts[linkIndex]++;
+			}
+		}
+		int[][] rowsByLink = new int[linkCount][];
+		for (int linkIndex = 0; linkIndex < linkCount; linkIndex++) {
+			rowsByLink[linkIndex] = new int[counts[linkIndex]];
+			counts[linkIndex] = 0;
+		}
+		for (int row = 0; row < receiverPoints.length; row++) {
+			for (int k = rowStarts[row], end = rowStarts[row + 1]; k < end; k++) {
+				int linkIndex = linkIndices[k];
+				if (linkIndex < linkCount) {
+					rowsByLink[linkIndex][counts[linkIndex]++] = row;
+				}
+			}
+		}
+		return rowsByLink;
+	}
+
+	/**
+	 * @param energeticLinkEmissions  10^(0.1 * emission) for each link (by {@link Id#index()}); 0 for silent links
+	 * @param minimumContribution link contributions not larger than this value are ignored
+	 * @return the resulting immission at the receiver point in dB(A), or 0 if no link contributes
+	 */
+	double calculateImmission(int row, double[] energeticLinkEmissions, double minimumContribution) {
+		double sum = 0;
+		for (int k = rowStarts[row], end = rowStarts[row + 1]; k < end; k++) {
+			double contribution = factors[k] * energeticLinkEmissions[linkIndices[k]];
+			if (contribution > minimumContribution) {
+				sum += contribution;
+			}
+		}
+		return sum > 0 ? 10 * Math.log10(sum) : 0;
+	}
+
+	/**
+	 * Sets the isolated immissions of the links at the receiver point (also with one more vehicle of each type).
+	 *
+	 * @param linkEmissions               emission in dB(A) for each link (by {@link Id#index()}); 0 for silent links
+	 * @param linkEmissionsPlusOneVehicle emission in dB(A) with one more vehicle of a given type for each link
+	 */
+	void setIsolatedImmissions(int row, double[] linkEmissions,
+			Map<NoiseVehicleType, double[]> linkEmissionsPlusOneVehicle, NoiseImmission immission) {
+		int start = rowStarts[row];
+		int end = rowStarts[row + 1];
+		TObjectDoubleMap<Id<Link>> isolatedImmissions = new TObjectDoubleHashMap<>(end - start);
+		Map<NoiseVehicleType, TObjectDoubleMap<Id<Link>>> isolatedImmissionsPlusOneVehicle = new HashMap<>();
+		for (NoiseVehicleType type : linkEmissionsPlusOneVehicle.keySet()) {
+			isolatedImmissionsPlusOneVehicle.put(type, new TObjectDoubleHashMap<>(end - start));
+		}
+
+		for (int k = start; k < end; k++) {
+			int linkIndex = linkIndices[k];
+			Id<Link> linkId = Id.get(linkIndex, Link.class);
+			double emission = linkEmissions[linkIndex];
+			double isolatedImmission = immission.calculateIsolatedLinkImmission(factors[k], emission);
+			isolatedImmissions.put(linkId, isolatedImmission);
+
+			for (Map.Entry<NoiseVehicleType, double[]> e : linkEmissionsPlusOneVehicle.entrySet()) {
+				double isolatedImmissionPlusOne = immission.calculateIsolatedLinkImmissionPlusOneVehicle(factors[k],
+						emission, e.getValue()[linkIndex]);
+				if (isolatedImmissionPlusOne < isolatedImmission) {
+					throw new RuntimeException("noise immission: " + isolatedImmission + " - noise immission plus one "
+							+ e.getKey().getId() + isolatedImmissionPlusOne + ". This should not happen. Aborting...");
+				}
+				isolatedImmissionsPlusOneVehicle.get(e.getKey()).put(linkId, isolatedImmissionPlusOne);
+			}
+		}
+		receiverPoints[row].setLinkId2IsolatedImmission(isolatedImmissions);
+		receiverPoints[row].setLinkId2IsolatedImmissionPlusOneVehicle(isolatedImmissionsPlusOneVehicle);
+	}
+
+	@Override
+	public String toString() {
+		return "NoiseInfluenceMatrix [receiverPoints=" + receiverPoints.length + ", nonZeros=" + linkIndices.length
+				+ ", maxRowLength=" + IntStream.range(0, receiverPoints.length)
+				.map(row -> rowStarts[row + 1] - rowStarts[row])
+				.max()
+				.orElse(0) + "]";
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+package org.matsim.contrib.noise;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+
+/**
+ * The emissions of all links in one time bin, by {@link Id#index()} of the link: the energetic emissions (10^(0.1 *
+ * emission), 0 for silent and tunnel links) which determine the resulting immissions and, if the causing agents are
+ * computed, the emissions in dB(A) (also with one more vehicle of each type) which determine the isolated immissions
+ * of each link.
+ */
+final class NoiseLinkEmissions {
+
+	private final double[] energeticEmissions;
+	private final double[] emissions;
+	private final Map<NoiseVehicleType, double[]> emissionsPlusOneVehicle;
+
+	/**
+	 * @param emissions null if the isolated immissions are not needed
+	 * @param emissionsPlusOneVehicle null if the isolated immissions are not needed
+	 */
+	NoiseLinkEmissions(double[] energeticEmissions, double[] emissions,
+			Map<NoiseVehicleType, double[]> emissionsPlusOneVehicle) {
+		this.energeticEmissions = energeticEmissions;
+		this.emissions = emissions;
+		this.emissionsPlusOneVehicle = emissionsPlusOneVehicle;
+	}
+
+	double[] getEnergeticEmissions() {
+		return energeticEmissions;
+	}
+
+	double[] getEmissions() {
+		return emissions;
+	}
+
+	Map<NoiseVehicleType, double[]> getEmissionsPlusOneVehicle() {
+		return emissionsPlusOneVehicle;
+	}
+
+	int getLinkCount() {
+		return energeticEmissions.length;
+	}
+
+	/**
+	 * @return a deep copy, extended with silent links up to the given link count
+	 */
+	NoiseLinkEmissions copy(int linkCount) {
+		Map<NoiseVehicleType, double[]> plusOneVehicle = null;
+		if (emissionsPlusOneVehicle != null) {
+			plusOneVehicle = new HashMap<>();
+			for (Map.Entry<NoiseVehicleType, double[]> e : emissionsPlusOneVehicle.entrySet()) {
+				plusOneVehicle.put(e.getKey(), Arrays.copyOf(e.getValue(), linkCount));
+			}
+		}
+		return new NoiseLinkEmissions(Arrays.copyOf(energeticEmissions, linkCount),
+				emissions == null ? null : Arrays.copyOf(emissions, linkCount), plusOneVehicle);
+	}
+
+	/**
+	 * Replaces all emissions of the given link by the ones of the other link emissions.
+	 */
+	void setLinkEmissions(int linkIndex, NoiseLinkEmissions other) {
+		energeticEmissions[linkIndex] = other.energeticEmissions[linkIndex];
+		if (emissions != null) {
+			emissions[linkIndex] = other.emissions[linkIndex];
+		}
+		if (emissionsPlusOneVehicle != null) {
+			for (Map.Entry<NoiseVehicleType, double[]> e : emissionsPlusOneVehicle.entrySet()) {
+				e.getValue()[linkIndex] = other.emissionsPlusOneVehicle.get(e.getKey())[linkIndex];
+			}
+		}
+	}
+}
@@ -53,6 +53,9 @@ public class NoiseReceiverPoint extends ReceiverPoint {
 	private boolean initialized = false;
 
 	private TObjectDoubleMap<Id<Link>> linkId2Correction = null;
+	// once initialized, the corrections are kept in these (more compact) arrays, sorted by link index
+	private int[] relevantLinkIndices = null;
+	private double[] linkCorrections = null;
 	private TObjectDoubleMap<Id<Link>> linkId2IsolatedImmission = null;
 
 	// time-specific information
@@ -88,6 +91,13 @@ public class NoiseReceiverPoint extends ReceiverPoint {
 	}
 
 	Collection<Id<Link>> getRelevantLinks() {
+		if(relevantLinkIndices != null) {
+			List<Id<Link>> relevantLinks = new ArrayList<>(relevantLinkIndices.length);
+			for (int linkIndex : relevantLinkIndices) {
+				relevantLinks.add(Id.get(linkIndex, Link.class));
+			}
+			return relevantLinks;
+		}
 		if(linkId2Correction == null) {
 			return Collections.emptySet();
 		} else {
@@ -98,11 +108,22 @@ public class NoiseReceiverPoint extends ReceiverPoint {
 	synchronized void setLinkId2Correction(Id<Link> linkId, double correction) {
 		if(linkId2Correction== null) {
 			linkId2Correction = new TObjectDoubleHashMap<>();
+			if(relevantLinkIndices != null) {
+				for (int k = 0; k < relevantLinkIndices.length; k++) {
+					linkId2Correction.put(Id.get(relevantLinkIndices[k], Link.class), linkCorrections[k]);
+				}
+				relevantLinkIndices = null;
+				linkCorrections = null;
+			}
 		}
 		this.linkId2Correction.put(linkId, correction);
 	}
 
 	double getLinkCorrection(Id<Link> linkId) {
+		if(relevantLinkIndices != null) {
+			int k = Arrays.binarySearch(relevantLinkIndices, linkId.index());
+			return k >= 0 ? linkCorrections[k] : 0;
+		}
 		if(linkId2Correction == null) {
 			return 0;
 		}
@@ -219,8 +240,20 @@ public class NoiseReceiverPoint extends ReceiverPoint {
 		return 10 * Math.log10(1./3. * aggregatedImmissionTerm1619);
 	}
 
-	void setInitialized() {
+	/**
+	 * Marks the correction terms as complete. They are then moved from the hash map into sorted arrays, which need a
+	 * fraction of the memory (the receiver points of a city-wide grid hold millions of correction terms).
+	 */
+	synchronized void setInitialized() {
 		this.initialized = true;
+		if(linkId2Correction != null) {
+			relevantLinkIndices = linkId2Correction.keySet().stream().mapToInt(Id::index).sorted().toArray();
+			linkCorrections = new double[relevantLinkIndices.length];
+			for (int k = 0; k < relevantLinkIndices.length; k++) {
+				linkCorrections[k] = linkId2Correction.get(Id.get(relevantLinkIndices[k], Link.class));
+			}
+			linkId2Correction = null;
+		}
 	}
 
 	boolean isInitialized() {
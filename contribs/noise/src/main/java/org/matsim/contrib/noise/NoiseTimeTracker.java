@@ -44,7 +44,7 @@ import org.matsim.vehicles.Vehicle;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
 
 /**
  * A handler which computes noise emissions, immisions, affected agent units and damages for each receiver point and time interval.
@@ -75,6 +75,9 @@ class NoiseTimeTracker implements VehicleEntersTrafficEventHandler, PersonEnters
 	private final Set<NoiseVehicleType> vehicleTypes;
 	private String networkModesToIgnore;
 
+	private NoiseInfluenceMatrix influenceMatrix;
+	private IncrementalNoiseImmissions incrementalImmissions;
+
 	@Inject
 	NoiseTimeTracker(NoiseContext context, NoiseEmission emission, NoiseImmission immissionModule,
 					 NoiseDamageCalculation damageCalculation, NoiseVehicleIdentifier vehicleIdentifier,
@@ -89,36 +92,45 @@ class NoiseTimeTracker implements VehicleEntersTrafficEventHandler, PersonEnters
 		setRelevantLinkInfo();
 	}
 
+	/**
+	 * Computes the (time-independent) link corrections for all receiver points in parallel and stores them in the
+	 * {@link NoiseInfluenceMatrix}. The receiver points are processed in parallel (and not their links) since the
+	 * immission module may keep a per-thread state for the current receiver point (e.g. the visible reflection facades).
+	 * Tunnel links are left out of the matrix, as they never contribute to the immissions.
+	 */
 	private void setRelevantLinkInfo() {
 		MemoryObserver.start(60);
 		Counter cnt = new Counter("set relevant link-info # ");
 		final NoiseConfigGroup noiseParams = noiseContext.getNoiseParams();
-		for(NoiseReceiverPoint nrp: noiseContext.getGrid().getReceiverPoints().values()) {
+		noiseContext.getGrid().getReceiverPoints().values().parallelStream().forEach(nrp -> {
 			if(!nrp.isInitialized()) {
 				// get the zone grid cell around the receiver point
 				Set<Id<Link>> potentialLinks = noiseContext.getPotentialLinks(nrp);
 				immissionModule.setCurrentRp(nrp);
 
-					// go through these potential relevant link Ids
-				Set<Id<Link>> relevantLinkIds = ConcurrentHashMap.newKeySet();
-				potentialLinks.parallelStream().forEach(linkId -> {
-					if (!(relevantLinkIds.contains(linkId))) {
-						Link candidateLink = noiseContext.getScenario().getNetwork().getLinks().get(linkId);
-						double projectedDistance = CoordUtils.distancePointLinesegment(candidateLink.getFromNode().getCoord(), candidateLink.getToNode().getCoord(), nrp.getCoord());
-						if (projectedDistance < noiseParams.getRelevantRadius()) {
-							relevantLinkIds.add(linkId);
-							double correction = immissionModule.calculateCorrection(projectedDistance, nrp, candidateLink);
-							nrp.setLinkId2Correction(linkId, correction);
-						}
+				// go through these potential relevant link Ids
+				for (Id<Link> linkId : potentialLinks) {
+					Link candidateLink = noiseContext.getScenario().getNetwork().getLinks().get(linkId);
+					double projectedDistance = CoordUtils.distancePointLinesegment(candidateLink.getFromNode().getCoord(), candidateLink.getToNode().getCoord(), nrp.getCoord());
+					if (projectedDistance < noiseParams.getRelevantRadius()) {
+						double correction = immissionModule.calculateCorrection(projectedDistance, nrp, candidateLink);
+						nrp.setLinkId2Correction(linkId, correction);
 					}
-				});
+				}
 				nrp.setInitialized();
 			}
-
-			noiseContext.getReceiverPoints().put(nrp.getId(), nrp);
 			cnt.incCounter();
+		});
+		for(NoiseReceiverPoint nrp: noiseContext.getGrid().getReceiverPoints().values()) {
+			noiseContext.getReceiverPoints().put(nrp.getId(), nrp);
 		}
 		cnt.printCounter();
+		influenceMatrix = NoiseInfluenceMatrix.create(noiseContext.getReceiverPoints().values(), immissionModule,
+				noiseParams.getTunnelLinkIDsSet());
+		log.info("Created " + influenceMatrix);
+		if (noiseParams.getIncrementalImmissionThreshold() > 0.) {
+			incrementalImmissions = new IncrementalNoiseImmissions(influenceMatrix, noiseParams.getIncrementalImmissionThreshold());
+		}
 		MemoryObserver.stop();
 	}
 
@@ -252,20 +264,84 @@ class NoiseTimeTracker implements VehicleEntersTrafficEventHandler, PersonEnters
 	 */
 	private void calculateNoiseImmissionsAndDamages() {
 		Counter cnt = new Counter("process noise receiver point # ");
-		this.noiseContext.getReceiverPoints().values().parallelStream().forEach( rp -> {
-			immissionModule.calculateImmission(rp, this.noiseContext.getCurrentTimeBinEndTime());
+		// the isolated immissions of each link are needed to allocate the damages to the causing links/vehicles
+		final boolean computeCausingAgents = this.noiseContext.getNoiseParams().isComputeCausingAgents();
+		final double minimumContribution = immissionModule.getMinimumEnergeticContribution();
+		final double currentTimeBinEndTime = this.noiseContext.getCurrentTimeBinEndTime();
+		NoiseLinkEmissions currentLinkEmissions = new NoiseLinkEmissions(calculateEnergeticLinkEmissions(),
+				computeCausingAgents ? calculateLinkEmissions() : null,
+				computeCausingAgents ? calculateLinkEmissionsPlusOneVehicle() : null);
+
+		// the resulting immissions: sparse matrix-vector product over the energetic link emissions
+		final double[] immissions;
+		final NoiseLinkEmissions linkEmissions;
+		if (incrementalImmissions != null) {
+			immissions = incrementalImmissions.calculateImmissions(currentTimeBinEndTime, currentLinkEmissions, minimumContribution);
+			// the isolated immissions have to be computed from the same emissions as the resulting immissions
+			linkEmissions = incrementalImmissions.getReferenceEmissions(currentTimeBinEndTime);
+		} else {
+			immissions = null;
+			linkEmissions = currentLinkEmissions;
+		}
+		final double[] energeticLinkEmissions = linkEmissions.getEnergeticEmissions();
+
+		IntStream.range(0, influenceMatrix.getRowCount()).parallel().forEach(row -> {
+			NoiseReceiverPoint rp = influenceMatrix.getReceiverPoint(row);
+			double immission = immissions != null ? immissions[row] :
+					influenceMatrix.calculateImmission(row, energeticLinkEmissions, minimumContribution);
+			rp.setCurrentImmission(immission, currentTimeBinEndTime);
+
+			// without affected agents, there are no damages to be allocated
+			boolean allocateDamages = computeCausingAgents && !rp.getPersonId2actInfos().isEmpty();
+			if (allocateDamages) {
+				influenceMatrix.setIsolatedImmissions(row, linkEmissions.getEmissions(),
+						linkEmissions.getEmissionsPlusOneVehicle(), immissionModule);
+			}
 			damageCalculation.calculateDamages(rp);
-            cnt.incCounter();
+			cnt.incCounter();
 
-            //free up memory
-            rp.setLinkId2IsolatedImmission(null);
-            rp.setLinkId2IsolatedImmissionPlusOneVehicle(null);
+			if (allocateDamages) {
+				//free up memory
+				rp.setLinkId2IsolatedImmission(null);
+				rp.setLinkId2IsolatedImmissionPlusOneVehicle(null);
+			}
 		});
 		cnt.printCounter();
 		log.info("Done processing receiver points.");
 		damageCalculation.finishNoiseDamageCosts();
 	}
 
+	private double[] calculateEnergeticLinkEmissions() {
+		double[] energeticLinkEmissions = new double[Id.getNumberOfIds(Link.class)];
+		for (NoiseLink noiseLink : this.noiseContext.getNoiseLinks().values()) {
+			double emission = noiseLink.getEmission();
+			if (emission != 0. && !this.noiseContext.getNoiseParams().getTunnelLinkIDsSet().contains(noiseLink.getId())) {
+				energeticLinkEmissions[noiseLink.getId().index()] = Math.pow(10, 0.1 * emission);
+			}
+		}
+		return energeticLinkEmissions;
+	}
+
+	private double[] calculateLinkEmissions() {
+		double[] linkEmissions = new double[Id.getNumberOfIds(Link.class)];
+		for (NoiseLink noiseLink : this.noiseContext.getNoiseLinks().values()) {
+			linkEmissions[noiseLink.getId().index()] = noiseLink.getEmission();
+		}
+		return linkEmissions;
+	}
+
+	private Map<NoiseVehicleType, double[]> calculateLinkEmissionsPlusOneVehicle() {
+		Map<NoiseVehicleType, double[]> linkEmissionsPlusOneVehicle = new HashMap<>();
+		for (NoiseVehicleType type : vehicleTypes) {
+			double[] linkEmissions = new double[Id.getNumberOfIds(Link.class)];
+			for (NoiseLink noiseLink : this.noiseContext.getNoiseLinks().values()) {
+				linkEmissions[noiseLink.getId().index()] = noiseLink.getEmissionPlusOneVehicle(type);
+			}
+			linkEmissionsPlusOneVehicle.put(type, linkEmissions);
+		}
+		return linkEmissionsPlusOneVehicle;
+	}
+
 	void computeFinalTimeIntervals() {
 		while (this.noiseContext.getCurrentTimeBinEndTime() <= Math.max(24. * 3600., this.noiseContext.getScenario().getConfig().qsim().getEndTime().orElse(0))) {
 			processTimeBin();			
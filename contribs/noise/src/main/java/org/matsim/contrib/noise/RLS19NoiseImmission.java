@@ -103,6 +103,36 @@ public class RLS19NoiseImmission implements NoiseImmission {
         reflection.setCurrentReceiver(nrp);
     }
 
+    @Override
+    public double toEnergeticFactor(double correction) {
+        //the section corrections are already summed up energetically
+        return correction;
+    }
+
+    @Override
+    public double getMinimumEnergeticContribution() {
+        return 0;
+    }
+
+    @Override
+    public double calculateIsolatedLinkImmission(double energeticFactor, double emission) {
+        if (emission == 0.) {
+            return 0.;
+        }
+        double noiseImmission = Math.pow(10, 0.1 * emission) * energeticFactor;
+        // unlike RLS-90, isolated immissions below 0 dB(A) are kept
+        return noiseImmission > 0. ? 10 * Math.log10(noiseImmission) : 0.;
+    }
+
+    @Override
+    public double calculateIsolatedLinkImmissionPlusOneVehicle(double energeticFactor, double emission,
+                                                               double emissionPlusOneVehicle) {
+        if (emission == 0.) {
+            return 0.;
+        }
+        return Math.max(0., 10 * Math.log10(Math.pow(10, 0.1 * emissionPlusOneVehicle) * energeticFactor));
+    }
+
     private double getSectionsCorrection(NoiseReceiverPoint nrp, Link link) {
 
         Coordinate nrpCoordinate = CoordUtils.createGeotoolsCoordinate(nrp.getCoord());
@@ -20,8 +20,9 @@ public class ReflectionContext {
 
     private final static Logger logger = Logger.getLogger(org.matsim.contrib.noise.ShieldingContext.class);
 
-    private Set<LineSegment> visibleEdges;
-    private Coordinate receiver;
+    //per thread, so that the corrections of several receiver points can be computed in parallel
+    private final ThreadLocal<Set<LineSegment>> visibleEdges = new ThreadLocal<>();
+    private final ThreadLocal<Coordinate> receiver = new ThreadLocal<>();
 
     private BarrierContext barrierContext;
     private GeometryFactory geomFactory = new GeometryFactory();
@@ -37,12 +38,12 @@ public class ReflectionContext {
     }
 
     void setCurrentReceiver(NoiseReceiverPoint nrp) {
-        receiver = new Coordinate(nrp.getCoord().getX(), nrp.getCoord().getY());
+        Coordinate receiver = new Coordinate(nrp.getCoord().getX(), nrp.getCoord().getY());
 
         final Collection<NoiseBarrier> candidates =
                 barrierContext.query(new GeometryFactory().createPoint(receiver).buffer(200).getEnvelopeInternal());
 
-        visibleEdges = new HashSet<>();
+        Set<LineSegment> visibleEdges = new HashSet<>();
 
         for (NoiseBarrier noiseBarrier : candidates) {
             if (noiseBarrier.getGeometry().contains(geomFactory.createPoint(receiver))) {
@@ -56,6 +57,8 @@ public class ReflectionContext {
             }
             visibleEdges.addAll(findVisibleEdgesOfPolygon(edges, receiver));
         }
+        this.receiver.set(receiver);
+        this.visibleEdges.set(visibleEdges);
     }
 
 
@@ -116,6 +119,7 @@ public class ReflectionContext {
     }
 
     Set<ReflectionTuple> getReflections(LineSegment originalLink) {
+        final Coordinate receiver = this.receiver.get();
         if (receiver == null) {
             return Collections.emptySet();
         }
@@ -123,7 +127,7 @@ public class ReflectionContext {
         final LineString temp = originalLink.toGeometry(geomFactory);
 
         Set<ReflectionTuple> reflections = new HashSet<>();
-        for (LineSegment facade : visibleEdges) {
+        for (LineSegment facade : visibleEdges.get()) {
             if (hit(facade, originalLink)) {
                 final AffineTransformation transformation = AffineTransformation.reflectionInstance(facade.p0.x, facade.p0.y, facade.p1.x, facade.p1.y);
 
@@ -158,7 +162,8 @@ public class ReflectionContext {
     }
 
     double getMultipleReflectionCorrection(LineSegment segment) {
-        if(this.receiver.x == 1420 && this.receiver.y == 20) {
+        final Coordinate receiver = this.receiver.get();
+        if(receiver.x == 1420 && receiver.y == 20) {
             System.out.println("jo");
         }
         final Coordinate coordinate = segment.midPoint();
@@ -0,0 +1,113 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.noise;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+
+public class IncrementalNoiseImmissionsTest {
+	private final Id<Link> link1 = Id.createLinkId("incremental_link1");
+	private final Id<Link> link2 = Id.createLinkId("incremental_link2");
+
+	@Test
+	public void calculateImmissions() {
+		NoiseReceiverPoint rp1 = new NoiseReceiverPoint(Id.create("rp1", ReceiverPoint.class), new Coord(0, 0));
+		rp1.setLinkId2Correction(link1, 0);
+		NoiseReceiverPoint rp2 = new NoiseReceiverPoint(Id.create("rp2", ReceiverPoint.class), new Coord(0, 0));
+		rp2.setLinkId2Correction(link2, 0);
+		var matrix = NoiseInfluenceMatrix.create(List.of(rp1, rp2), new NoiseInfluenceMatrixTest.TestImmission(), Set.of());
+		var incremental = new IncrementalNoiseImmissions(matrix, 0.1);
+
+		// first iteration: computed from scratch
+		double[] immissions = incremental.calculateImmissions(3600, emissions(60, 50), 1);
+		Assert.assertArrayEquals(new double[] { 60, 50 }, immissions, 1e-10);
+
+		// link1 changes below the threshold, link2 above it
+		immissions = incremental.calculateImmissions(3600, emissions(60.05, 53), 1);
+		Assert.assertArrayEquals(new double[] { 60, 53 }, immissions, 1e-10);
+
+		// another time bin is computed from scratch
+		immissions = incremental.calculateImmissions(7200, emissions(60.05, 53), 1);
+		Assert.assertArrayEquals(new double[] { 60.05, 53 }, immissions, 1e-10);
+
+		// the changes of link1 are compared with the reference emission (60 dB), so they do not go unnoticed
+		immissions = incremental.calculateImmissions(3600, emissions(60.15, 53), 1);
+		Assert.assertArrayEquals(new double[] { 60.15, 53 }, immissions, 1e-10);
+
+		// link2 becomes silent
+		immissions = incremental.calculateImmissions(3600, emissions(60.15, 0), 1);
+		Assert.assertArrayEquals(new double[] { 60.15, 0 }, immissions, 1e-10);
+	}
+
+	@Test
+	public void referenceEmissions_withCausingAgents() {
+		NoiseReceiverPoint rp1 = new NoiseReceiverPoint(Id.create("rp1", ReceiverPoint.class), new Coord(0, 0));
+		rp1.setLinkId2Correction(link1, 0);
+		rp1.setLinkId2Correction(link2, 0);
+		var matrix = NoiseInfluenceMatrix.create(List.of(rp1), new NoiseInfluenceMatrixTest.TestImmission(), Set.of());
+		var incremental = new IncrementalNoiseImmissions(matrix, 0.1);
+		Assert.assertNull(incremental.getReferenceEmissions(3600));
+
+		incremental.calculateImmissions(3600, emissionsWithPlusOneVehicle(60, 50), 1);
+		NoiseLinkEmissions reference = incremental.getReferenceEmissions(3600);
+		Assert.assertEquals(60, reference.getEmissions()[link1.index()], 1e-10);
+		Assert.assertEquals(51, reference.getEmissionsPlusOneVehicle().get(RLS90VehicleType.car)[link1.index()], 1e-10);
+
+		// link1 changes below the threshold: all its reference emissions are kept, so the isolated immissions (and the
+		// damages allocated to link1) are consistent with the resulting immissions; link2 changes above the threshold
+		incremental.calculateImmissions(3600, emissionsWithPlusOneVehicle(60.05, 53), 1);
+		reference = incremental.getReferenceEmissions(3600);
+		Assert.assertEquals(60, reference.getEmissions()[link1.index()], 1e-10);
+		Assert.assertEquals(51, reference.getEmissionsPlusOneVehicle().get(RLS90VehicleType.car)[link1.index()], 1e-10);
+		Assert.assertEquals(53, reference.getEmissions()[link2.index()], 1e-10);
+		Assert.assertEquals(54, reference.getEmissionsPlusOneVehicle().get(RLS90VehicleType.car)[link2.index()], 1e-10);
+		Assert.assertEquals(Math.pow(10, 5.3), reference.getEnergeticEmissions()[link2.index()], 1e-3);
+	}
+
+	private NoiseLinkEmissions emissions(double emission1, double emission2) {
+		return new NoiseLinkEmissions(energeticEmissions(emission1, emission2), null, null);
+	}
+
+	private NoiseLinkEmissions emissionsWithPlusOneVehicle(double emission1, double emission2) {
+		double[] emissions = new double[Id.getNumberOfIds(Link.class)];
+		emissions[link1.index()] = emission1;
+		emissions[link2.index()] = emission2;
+		double[] emissionsPlusOneVehicle = new double[Id.getNumberOfIds(Link.class)];
+		emissionsPlusOneVehicle[link1.index()] = emission1 + 1;
+		emissionsPlusOneVehicle[link2.index()] = emission2 + 1;
+		return new NoiseLinkEmissions(energeticEmissions(emission1, emission2), emissions,
+				Map.of(RLS90VehicleType.car, emissionsPlusOneVehicle));
+	}
+
+	private double[] energeticEmissions(double emission1, double emission2) {
+		double[] emissions = new double[Id.getNumberOfIds(Link.class)];
+		emissions[link1.index()] = emission1 == 0 ? 0 : Math.pow(10, 0.1 * emission1);
+		emissions[link2.index()] = emission2 == 0 ? 0 : Math.pow(10, 0.1 * emission2);
+		return emissions;
+	}
+}
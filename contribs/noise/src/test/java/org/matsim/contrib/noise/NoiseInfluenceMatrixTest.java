@@ -0,0 +1,160 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.noise;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+
+public class NoiseInfluenceMatrixTest {
+	private final Id<Link> link1 = Id.createLinkId("matrix_link1");
+	private final Id<Link> link2 = Id.createLinkId("matrix_link2");
+	private final Id<Link> link3 = Id.createLinkId("matrix_link3");
+
+	@Test
+	public void calculateImmission_correctionsInDecibels() {
+		NoiseReceiverPoint rp1 = receiverPoint("rp1");
+		rp1.setLinkId2Correction(link1, -3);
+		rp1.setLinkId2Correction(link2, -20);
+		rp1.setLinkId2Correction(link3, -5);
+		NoiseReceiverPoint rp2 = receiverPoint("rp2");
+		rp2.setLinkId2Correction(link2, 40);
+		NoiseReceiverPoint rp3 = receiverPoint("rp3");
+
+		var matrix = NoiseInfluenceMatrix.create(List.of(rp1, rp2, rp3), new TestImmission(), Set.of());
+		Assert.assertEquals(3, matrix.getRowCount());
+		Assert.assertEquals(4, matrix.getNonZeroCount());
+
+		// link1: 60 dB, link2: 10 dB, link3: silent
+		double[] emissions = energeticEmissions(60, 10, 0);
+		// link2 (-10 dB) is ignored, link3 has no traffic
+		Assert.assertEquals(57, matrix.calculateImmission(0, emissions, 1), 1e-10);
+		Assert.assertEquals(50, matrix.calculateImmission(1, emissions, 1), 1e-10);
+		Assert.assertEquals(0, matrix.calculateImmission(2, emissions, 1), 0);
+
+		emissions = energeticEmissions(60, 70, 0);
+		Assert.assertEquals(10 * Math.log10(Math.pow(10, 5.7) + Math.pow(10, 5)), matrix.calculateImmission(0, emissions, 1), 1e-10);
+	}
+
+	@Test
+	public void calculateImmission_energeticCorrections() {
+		NoiseReceiverPoint rp = receiverPoint("rp");
+		rp.setLinkId2Correction(link1, 0.5);
+		rp.setLinkId2Correction(link2, 0.001);
+
+		var matrix = NoiseInfluenceMatrix.create(List.of(rp), new TestImmission() {
+			@Override
+			public double toEnergeticFactor(double correction) {
+				return correction;
+			}
+		}, Set.of());
+
+		// both links contribute (even though link2 is below 0 dB)
+		double[] emissions = energeticEmissions(60, 20, 0);
+		Assert.assertEquals(10 * Math.log10(0.5 * Math.pow(10, 6) + 0.001 * Math.pow(10, 2)), matrix.calculateImmission(0, emissions, 0), 1e-10);
+	}
+
+	@Test
+	public void create_fromInitializedReceiverPoints() {
+		NoiseReceiverPoint rp = receiverPoint("rp");
+		rp.setLinkId2Correction(link2, -20);
+		rp.setLinkId2Correction(link1, -3);
+		// the corrections are moved to compact arrays
+		rp.setInitialized();
+		Assert.assertEquals(Set.of(link1, link2), Set.copyOf(rp.getRelevantLinks()));
+		Assert.assertEquals(-3, rp.getLinkCorrection(link1), 0);
+		Assert.assertEquals(-20, rp.getLinkCorrection(link2), 0);
+		Assert.assertEquals(0, rp.getLinkCorrection(link3), 0);
+
+		var matrix = NoiseInfluenceMatrix.create(List.of(rp), new TestImmission(), Set.of());
+		Assert.assertEquals(57, matrix.calculateImmission(0, energeticEmissions(60, 10, 0), 1), 1e-10);
+
+		// corrections can still be added
+		rp.setLinkId2Correction(link3, -5);
+		Assert.assertEquals(-3, rp.getLinkCorrection(link1), 0);
+		Assert.assertEquals(-5, rp.getLinkCorrection(link3), 0);
+	}
+
+	@Test
+	public void setIsolatedImmissions() {
+		NoiseReceiverPoint rp = receiverPoint("rp");
+		rp.setLinkId2Correction(link1, -3);
+		rp.setLinkId2Correction(link2, -20);
+		rp.setLinkId2Correction(link3, -5);
+
+		// link3 is a tunnel
+		var matrix = NoiseInfluenceMatrix.create(List.of(rp), new TestImmission(), Set.of(link3));
+		Assert.assertEquals(2, matrix.getNonZeroCount());
+
+		// link1: 60 dB (61 dB with one more car), link2: 10 dB (15 dB with one more car)
+		double[] emissions = emissions(60, 10, 70);
+		double[] emissionsPlusOneCar = emissions(61, 15, 71);
+		matrix.setIsolatedImmissions(0, emissions, Map.of(RLS90VehicleType.car, emissionsPlusOneCar), new TestImmission());
+
+		Assert.assertEquals(2, rp.getLinkId2IsolatedImmission().size());
+		Assert.assertEquals(57, rp.getLinkId2IsolatedImmission().get(link1), 1e-10);
+		Assert.assertEquals(0, rp.getLinkId2IsolatedImmission().get(link2), 0);// -10 dB
+		Assert.assertEquals(58, rp.getLinkId2IsolatedImmissionPlusOneVehicle().get(RLS90VehicleType.car).get(link1), 1e-10);
+		Assert.assertEquals(0, rp.getLinkId2IsolatedImmissionPlusOneVehicle().get(RLS90VehicleType.car).get(link2), 0);// -5 dB
+	}
+
+	private double[] emissions(double emission1, double emission2, double emission3) {
+		double[] emissions = new double[Id.getNumberOfIds(Link.class)];
+		emissions[link1.index()] = emission1;
+		emissions[link2.index()] = emission2;
+		emissions[link3.index()] = emission3;
+		return emissions;
+	}
+
+	private double[] energeticEmissions(double emission1, double emission2, double emission3) {
+		double[] emissions = new double[Id.getNumberOfIds(Link.class)];
+		emissions[link1.index()] = emission1 == 0 ? 0 : Math.pow(10, 0.1 * emission1);
+		emissions[link2.index()] = emission2 == 0 ? 0 : Math.pow(10, 0.1 * emission2);
+		emissions[link3.index()] = emission3 == 0 ? 0 : Math.pow(10, 0.1 * emission3);
+		return emissions;
+	}
+
+	private static NoiseReceiverPoint receiverPoint(String id) {
+		return new NoiseReceiverPoint(Id.create(id, ReceiverPoint.class), new Coord(0, 0));
+	}
+
+	static class TestImmission implements NoiseImmission {
+		@Override
+		public void calculateImmission(NoiseReceiverPoint rp, double currentTimeBinEndTime) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public double calculateCorrection(double projectedDistance, NoiseReceiverPoint nrp, Link candidateLink) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void setCurrentRp(NoiseReceiverPoint nrp) {
+		}
+	}
+}
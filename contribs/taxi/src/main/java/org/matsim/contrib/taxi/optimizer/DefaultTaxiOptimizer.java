@@ -33,12 +33,14 @@ import org.matsim.contrib.taxi.passenger.TaxiRequest;
 import org.matsim.contrib.taxi.run.TaxiConfigGroup;
 import org.matsim.contrib.taxi.scheduler.TaxiScheduler;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
 import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeCleanupListener;
 
 /**
  * @author michalm
  */
-public class DefaultTaxiOptimizer implements TaxiOptimizer {
+public class DefaultTaxiOptimizer implements TaxiOptimizer, MobsimBeforeCleanupListener {
 	private final Fleet fleet;
 	private final TaxiScheduler scheduler;
 
@@ -91,6 +93,14 @@ public class DefaultTaxiOptimizer implements TaxiOptimizer {
 		}
 	}
 
+	@Override
+	public void notifyMobsimBeforeCleanup(MobsimBeforeCleanupEvent e) {
+		// the request inserter is not a QSim component itself, but may hold resources (e.g. threads)
+		if (requestInserter instanceof MobsimBeforeCleanupListener) {
+			((MobsimBeforeCleanupListener)requestInserter).notifyMobsimBeforeCleanup(e);
+		}
+	}
+
 	public static boolean isNewDecisionEpoch(@SuppressWarnings("rawtypes") MobsimBeforeSimStepEvent e,
 			int epochLength) {
 		return e.getSimulationTime() % epochLength == 0;
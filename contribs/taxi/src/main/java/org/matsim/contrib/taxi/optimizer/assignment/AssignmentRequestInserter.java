@@ -20,6 +20,7 @@ package org.matsim.contrib.taxi.optimizer.assignment;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.contrib.dvrp.fleet.Fleet;
@@ -27,9 +28,12 @@ import org.matsim.contrib.taxi.optimizer.BestDispatchFinder.Dispatch;
 import org.matsim.contrib.taxi.optimizer.UnplannedRequestInserter;
 import org.matsim.contrib.taxi.optimizer.VehicleData;
 import org.matsim.contrib.taxi.optimizer.assignment.VehicleAssignmentProblem.AssignmentCost;
+import org.matsim.contrib.taxi.optimizer.assignment.VehicleAssignmentProblem.AssignmentSolver;
 import org.matsim.contrib.taxi.passenger.TaxiRequest;
 import org.matsim.contrib.taxi.scheduler.TaxiScheduler;
 import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeCleanupListener;
 import org.matsim.core.router.speedy.SpeedyALTFactory;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.TravelDisutility;
@@ -38,7 +42,7 @@ import org.matsim.core.router.util.TravelTime;
 /**
  * @author michalm
  */
-public class AssignmentRequestInserter implements UnplannedRequestInserter {
+public class AssignmentRequestInserter implements UnplannedRequestInserter, MobsimBeforeCleanupListener {
 	private final Fleet fleet;
 	private final TaxiScheduler scheduler;
 	private final MobsimTimer timer;
@@ -47,22 +51,30 @@ public class AssignmentRequestInserter implements UnplannedRequestInserter {
 	private final VehicleAssignmentProblem<TaxiRequest> assignmentProblem;
 	private final TaxiToRequestAssignmentCostProvider assignmentCostProvider;
 
+	// SPARSE_AUCTION only: dedicated pool (instead of the common one) for computing the bids in parallel
+	private final ForkJoinPool auctionPool;
+
 	public AssignmentRequestInserter(Fleet fleet, Network network, MobsimTimer timer, TravelTime travelTime,
-			TravelDisutility travelDisutility, TaxiScheduler scheduler, AssignmentTaxiOptimizerParams params) {
+			TravelDisutility travelDisutility, TaxiScheduler scheduler, AssignmentTaxiOptimizerParams params,
+			int numberOfThreads) {
 		this(fleet, timer, network, travelTime, travelDisutility, scheduler, params,
-				new SpeedyALTFactory().createPathCalculator(network, travelDisutility, travelTime));
+				new SpeedyALTFactory().createPathCalculator(network, travelDisutility, travelTime), numberOfThreads);
 	}
 
 	public AssignmentRequestInserter(Fleet fleet, MobsimTimer timer, Network network, TravelTime travelTime,
 			TravelDisutility travelDisutility, TaxiScheduler scheduler, AssignmentTaxiOptimizerParams params,
-			LeastCostPathCalculator router) {
+			LeastCostPathCalculator router, int numberOfThreads) {
 		this.fleet = fleet;
 		this.scheduler = scheduler;
 		this.timer = timer;
 		this.params = params;
 
+		auctionPool = params.getAssignmentSolver() == AssignmentSolver.SPARSE_AUCTION && numberOfThreads > 1 ?
+				new ForkJoinPool(numberOfThreads) :
+				null;
 		assignmentProblem = new VehicleAssignmentProblem<>(network, travelTime, travelDisutility, router,
-				params.getNearestRequestsLimit(), params.getNearestVehiclesLimit());
+				params.getNearestRequestsLimit(), params.getNearestVehiclesLimit(), params.getAssignmentSolver(),
+				params.getNullPathCost(), auctionPool);
 
 		assignmentCostProvider = new TaxiToRequestAssignmentCostProvider(params);
 	}
@@ -88,6 +100,13 @@ public class AssignmentRequestInserter implements UnplannedRequestInserter {
 		}
 	}
 
+	@Override
+	public void notifyMobsimBeforeCleanup(MobsimBeforeCleanupEvent e) {
+		if (auctionPool != null) {
+			auctionPool.shutdown();
+		}
+	}
+
 	private VehicleData initVehicleData(AssignmentRequestData rData) {
 		long idleVehs = fleet.getVehicles().values().stream().filter(scheduler.getScheduleInquiry()::isIdle).count();
 		double vehPlanningHorizon = idleVehs < rData.getUrgentReqCount() ?
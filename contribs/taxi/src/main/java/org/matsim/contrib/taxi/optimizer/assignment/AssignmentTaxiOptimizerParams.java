@@ -26,6 +26,7 @@ import jakarta.validation.constraints.Positive;
 
 import org.matsim.contrib.taxi.optimizer.AbstractTaxiOptimizerParams;
 import org.matsim.contrib.taxi.optimizer.assignment.TaxiToRequestAssignmentCostProvider.Mode;
+import org.matsim.contrib.taxi.optimizer.assignment.VehicleAssignmentProblem.AssignmentSolver;
 import org.matsim.core.config.Config;
 
 public final class AssignmentTaxiOptimizerParams extends AbstractTaxiOptimizerParams {
@@ -88,6 +89,17 @@ public final class AssignmentTaxiOptimizerParams extends AbstractTaxiOptimizerPa
 	@Positive
 	private double nullPathCost = 48 * 3600;
 
+	public static final String ASSIGNMENT_SOLVER = "assignmentSolver";
+	static final String ASSIGNMENT_SOLVER_EXP = "Specifies the algorithm used to solve the assignment problem."
+			+ " HUNGARIAN operates on the full (dense) cost matrix, which is O(n^3) in time and O(n^2) in memory."
+			+ " SPARSE_AUCTION considers only the pairs limited by 'nearestRequestsLimit' and 'nearestVehiclesLimit'"
+			+ " (all other pairs remain unassigned in the current step), runs in parallel (on a dedicated pool with"
+			+ " 'numberOfThreads' of the taxi config group) and is warm-started with the request prices from the"
+			+ " previous step. Recommended for thousands of vehicles and requests."
+			+ " The default value is HUNGARIAN.";
+	@NotNull
+	private AssignmentSolver assignmentSolver = AssignmentSolver.HUNGARIAN;
+
 	@Positive
 	private int reoptimizationTimeStep = 10;
 
@@ -114,6 +126,7 @@ public final class AssignmentTaxiOptimizerParams extends AbstractTaxiOptimizerPa
 		map.put(NEAREST_REQUESTS_LIMIT, NEAREST_REQUESTS_LIMIT_EXP);
 		map.put(NEAREST_VEHICLES_LIMIT, NEAREST_VEHICLES_LIMIT_EXP);
 		map.put(NULL_PATH_COST, NULL_PATH_COST_EXP);
+		map.put(ASSIGNMENT_SOLVER, ASSIGNMENT_SOLVER_EXP);
 		return map;
 	}
 
@@ -213,6 +226,22 @@ public final class AssignmentTaxiOptimizerParams extends AbstractTaxiOptimizerPa
 		this.nullPathCost = nullPathCost;
 	}
 
+	/**
+	 * @return {@value #ASSIGNMENT_SOLVER_EXP}
+	 */
+	@StringGetter(ASSIGNMENT_SOLVER)
+	public AssignmentSolver getAssignmentSolver() {
+		return assignmentSolver;
+	}
+
+	/**
+	 * @param assignmentSolver {@value #ASSIGNMENT_SOLVER_EXP}
+	 */
+	@StringSetter(ASSIGNMENT_SOLVER)
+	public void setAssignmentSolver(AssignmentSolver assignmentSolver) {
+		this.assignmentSolver = assignmentSolver;
+	}
+
 	@StringGetter(REOPTIMIZATION_TIME_STEP)
 	public int getReoptimizationTimeStep() {
 		return reoptimizationTimeStep;
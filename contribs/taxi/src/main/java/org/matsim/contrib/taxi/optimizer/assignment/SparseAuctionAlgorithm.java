@@ -0,0 +1,273 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.taxi.optimizer.assignment;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Auction algorithm (D.P. Bertsekas) for sparse assignment problems, i.e. where each worker (row) can be assigned only
+ * to some jobs (columns), e.g. to the k nearest ones. Unlike {@link HungarianAlgorithm}, a worker may remain unassigned
+ * (even if there are enough jobs), which costs {@code unassignedCost}. The same cost is paid for each unassigned job.
+ * <p>
+ * To always have a perfect matching, the problem is extended to a symmetric one: each worker {@code i} gets a dummy job
+ * (cost {@code unassignedCost}) and each job {@code j} gets a dummy worker, which can take job {@code j} (cost
+ * {@code unassignedCost}) or the dummy job of any worker connected to {@code j} (cost 0). The extended problem is
+ * solved by the (Jacobi) forward auction with epsilon-scaling. In each round, all unassigned workers compute their bids
+ * (in parallel, if a pool is given); then the highest bid for each job wins. Ties are broken in favour of the bidder
+ * that comes first in the list of bidders of this round. This list is built sequentially (initially ordered by worker
+ * index, then outbid workers followed by the previous owners of the won jobs), so the result does not depend on thread
+ * scheduling. For the final epsilon {@code 1/(n+1)} (n - size of the extended problem), the total
+ * cost exceeds the optimum by less than 1 (e.g. 1 second if costs are times in seconds).
+ * <p>
+ * The job prices can be carried over to the next (similar) problem to warm-start the auction.
+ */
+public class SparseAuctionAlgorithm {
+	public static final int UNASSIGNED = -1;
+
+	private static final double EPSILON_SCALING_FACTOR = 5;
+	private static final int MIN_PARALLEL_BIDDERS = 256;
+
+	private final int workerCount;
+	private final int jobCount;
+	private final int size;// of the extended problem
+
+	// CSR (compressed sparse rows) representation of the extended problem
+	private final int[] rowStarts;
+	private final int[] edgeColumns;
+	private final double[] edgeCosts;
+
+	private final double unassignedCost;
+	private final double costRange;
+	private final double finalEpsilon;
+
+	/**
+	 * Edges of worker {@code i} are stored at indices {@code [workerEdgeStarts[i], workerEdgeStarts[i + 1])} of
+	 * {@code edgeJobs} and {@code edgeCosts}.
+	 */
+	public SparseAuctionAlgorithm(int jobCount, int[] workerEdgeStarts, int[] edgeJobs, double[] edgeCosts,
+			double unassignedCost) {
+		this.workerCount = workerEdgeStarts.length - 1;
+		this.jobCount = jobCount;
+		this.size = workerCount + jobCount;
+		this.unassignedCost = unassignedCost;
+
+		int edgeCount = workerEdgeStarts[workerCount];
+		Preconditions.checkArgument(edgeJobs.length >= edgeCount && edgeCosts.length >= edgeCount);
+
+		double minCost = Math.min(0, unassignedCost);
+		double maxCost = Math.max(0, unassignedCost);
+		int[] jobDegrees = new int[jobCount];
+		for (int e = 0; e < edgeCount; e++) {
+			Preconditions.checkArgument(Double.isFinite(edgeCosts[e]), "Edge cost must be finite");
+			jobDegrees[edgeJobs[e]]++;
+			minCost = Math.min(minCost, edgeCosts[e]);
+			maxCost = Math.max(maxCost, edgeCosts[e]);
+		}
+		costRange = maxCost - minCost;
+		finalEpsilon = 1. / (size + 1);
+
+		// rows: workers, then dummy workers (of jobs); columns: jobs, then dummy jobs (of workers)
+		rowStarts = new int[size + 1];
+		this.edgeColumns = new int[2 * edgeCount + size];
+		this.edgeCosts = new double[2 * edgeCount + size];
+
+		int next = 0;
+		for (int i = 0; i < workerCount; i++) {
+			rowStarts[i] = next;
+			for (int e = workerEdgeStarts[i]; e < workerEdgeStarts[i + 1]; e++) {
+				this.edgeColumns[next] = edgeJobs[e];
+				this.edgeCosts[next++] = edgeCosts[e];
+			}
+			this.edgeColumns[next] = jobCount + i;// own dummy job
+			this.edgeCosts[next++] = unassignedCost;
+		}
+
+		int[] dummyWorkerNext = new int[jobCount];
+		for (int j = 0; j < jobCount; j++) {
+			rowStarts[workerCount + j] = next;
+			this.edgeColumns[next] = j;// job j remains unassigned
+			this.edgeCosts[next++] = unassignedCost;
+			dummyWorkerNext[j] = next;
+			next += jobDegrees[j];
+		}
+		rowStarts[size] = next;
+
+		for (int i = 0; i < workerCount; i++) {
+			for (int e = workerEdgeStarts[i]; e < workerEdgeStarts[i + 1]; e++) {
+				int k = dummyWorkerNext[edgeJobs[e]]++;
+				this.edgeColumns[k] = jobCount + i;// takes the dummy job of worker i (which takes job j)
+				this.edgeCosts[k] = 0;
+			}
+		}
+	}
+
+	/**
+	 * @param jobPrices initial job prices (e.g. from the previous problem; or zeros), updated by the auction
+	 * @param warmStart if true, the initial prices are assumed to be nearly optimal, so the auction starts with a small
+	 *                  epsilon
+	 * @return assigned job for each worker (or {@link #UNASSIGNED})
+	 */
+	public int[] execute(double[] jobPrices, boolean warmStart) {
+		return execute(jobPrices, warmStart, null);
+	}
+
+	/**
+	 * @param pool pool for computing the bids in parallel (or {@code null} to compute them sequentially)
+	 * @see #execute(double[], boolean)
+	 */
+	public int[] execute(double[] jobPrices, boolean warmStart, ForkJoinPool pool) {
+		Preconditions.checkArgument(jobPrices.length == jobCount);
+		double[] prices = Arrays.copyOf(jobPrices, size);// dummy jobs start at 0
+		if (warmStart) {
+			initDummyJobPrices(prices);
+		}
+		int[] rowAssignments = new int[size];
+		int[] columnOwners = new int[size];
+
+		double epsilon = Math.max(finalEpsilon, warmStart ?
+				Math.min(costRange, finalEpsilon * EPSILON_SCALING_FACTOR * EPSILON_SCALING_FACTOR) :
+				costRange / EPSILON_SCALING_FACTOR);
+		while (true) {
+			runAuction(prices, epsilon, rowAssignments, columnOwners, pool);
+			if (epsilon <= finalEpsilon) {
+				break;
+			}
+			epsilon = Math.max(finalEpsilon, epsilon / EPSILON_SCALING_FACTOR);
+		}
+
+		System.arraycopy(prices, 0, jobPrices, 0, jobCount);
+		int[] workerAssignments = new int[workerCount];
+		for (int i = 0; i < workerCount; i++) {
+			workerAssignments[i] = rowAssignments[i] < jobCount ? rowAssignments[i] : UNASSIGNED;
+		}
+		return workerAssignments;
+	}
+
+	// dummy job prices are not carried over (workers change), but starting from 0 would cause a long price war
+	// between the dummy workers, so they are set close to the prices at which dummy workers are indifferent
+	private void initDummyJobPrices(double[] prices) {
+		for (int i = 0; i < workerCount; i++) {
+			double minJobPrice = Double.POSITIVE_INFINITY;
+			for (int e = rowStarts[i]; e < rowStarts[i + 1]; e++) {
+				if (edgeColumns[e] < jobCount) {
+					minJobPrice = Math.min(minJobPrice, prices[edgeColumns[e]]);
+				}
+			}
+			if (minJobPrice < Double.POSITIVE_INFINITY) {
+				prices[jobCount + i] = unassignedCost + minJobPrice;
+			}
+		}
+	}
+
+	private void runAuction(double[] prices, double epsilon, int[] rowAssignments, int[] columnOwners,
+			ForkJoinPool pool) {
+		Arrays.fill(rowAssignments, UNASSIGNED);
+		Arrays.fill(columnOwners, UNASSIGNED);
+
+		int[] bidColumns = new int[size];
+		double[] bidPrices = new double[size];
+		int[] bestBidders = new int[size];
+		Arrays.fill(bestBidders, UNASSIGNED);
+		int[] biddenColumns = new int[size];
+
+		int[] bidders = IntStream.range(0, size).toArray();
+		int bidderCount = size;
+		int[] nextBidders = new int[size];
+
+		while (bidderCount > 0) {
+			final int[] currentBidders = bidders;
+			final int currentBidderCount = bidderCount;
+			if (pool != null && bidderCount >= MIN_PARALLEL_BIDDERS) {
+				// a parallel stream runs in the pool it is started from
+				pool.submit(() -> IntStream.range(0, currentBidderCount)
+						.parallel()
+						.forEach(k -> calcBid(currentBidders[k], prices, epsilon, bidColumns, bidPrices))).join();
+			} else {
+				for (int k = 0; k < bidderCount; k++) {
+					calcBid(bidders[k], prices, epsilon, bidColumns, bidPrices);
+				}
+			}
+
+			int biddenColumnCount = 0;
+			for (int k = 0; k < bidderCount; k++) {
+				int i = bidders[k];
+				int j = bidColumns[i];
+				if (bestBidders[j] == UNASSIGNED) {
+					biddenColumns[biddenColumnCount++] = j;
+					bestBidders[j] = i;
+				} else if (bidPrices[i] > bidPrices[bestBidders[j]]) {
+					bestBidders[j] = i;
+				}
+			}
+
+			int nextBidderCount = 0;
+			for (int k = 0; k < bidderCount; k++) {
+				int i = bidders[k];
+				if (bestBidders[bidColumns[i]] != i) {
+					nextBidders[nextBidderCount++] = i;// outbid
+				}
+			}
+			for (int c = 0; c < biddenColumnCount; c++) {
+				int j = biddenColumns[c];
+				int winner = bestBidders[j];
+				int previousOwner = columnOwners[j];
+				if (previousOwner != UNASSIGNED) {
+					rowAssignments[previousOwner] = UNASSIGNED;
+					nextBidders[nextBidderCount++] = previousOwner;
+				}
+				columnOwners[j] = winner;
+				rowAssignments[winner] = j;
+				prices[j] = bidPrices[winner];
+				bestBidders[j] = UNASSIGNED;
+			}
+
+			int[] tmp = bidders;
+			bidders = nextBidders;
+			nextBidders = tmp;
+			bidderCount = nextBidderCount;
+		}
+	}
+
+	private void calcBid(int row, double[] prices, double epsilon, int[] bidColumns, double[] bidPrices) {
+		int bestColumn = UNASSIGNED;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		double secondBestValue = Double.NEGATIVE_INFINITY;
+		for (int e = rowStarts[row]; e < rowStarts[row + 1]; e++) {
+			int column = edgeColumns[e];
+			double value = -edgeCosts[e] - prices[column];
+			if (value > bestValue) {
+				secondBestValue = bestValue;
+				bestValue = value;
+				bestColumn = column;
+			} else if (value > secondBestValue) {
+				secondBestValue = value;
+			}
+		}
+
+		// each row has at least one edge; if there is only one, the price can be raised arbitrarily
+		double increment = secondBestValue == Double.NEGATIVE_INFINITY ? costRange : bestValue - secondBestValue;
+		bidColumns[row] = bestColumn;
+		bidPrices[row] = prices[bestColumn] + increment + epsilon;
+	}
+}
@@ -20,7 +20,10 @@
 package org.matsim.contrib.taxi.optimizer.assignment;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import org.matsim.api.core.v01.IdMap;
 import org.matsim.api.core.v01.network.Link;
@@ -50,6 +53,15 @@ public class VehicleAssignmentProblem<D> {
 		double calc(VehicleData.Entry departure, DestEntry<D> dest, PathData pathData);
 	}
 
+	public enum AssignmentSolver {
+		HUNGARIAN, // dense cost matrix (pairs not calculated due to kNN filtering get the null path cost)
+		SPARSE_AUCTION // only pairs calculated due to kNN filtering (see SparseAuctionAlgorithm)
+	}
+
+	private interface PathDataConsumer {
+		void accept(int v, int d, PathData pathData);
+	}
+
 	private final TravelTime travelTime;
 	private final LeastCostPathCalculator router;
 
@@ -58,6 +70,13 @@ public class VehicleAssignmentProblem<D> {
 	private final StraightLineKnnFinder<VehicleData.Entry, DestEntry<D>> destinationFinder;
 	private final StraightLineKnnFinder<DestEntry<D>, VehicleData.Entry> vehicleFinder;
 
+	private final AssignmentSolver solver;
+	private final double unassignedPenalty;
+	private final ForkJoinPool auctionPool;
+
+	// SPARSE_AUCTION: prices of the destinations from the previous call (used for warm-starting)
+	private Map<D, Double> destinationPrices = new HashMap<>();
+
 	private AssignmentCost<D> assignmentCost;
 	private VehicleData vData;
 	private AssignmentDestinationData<D> dData;
@@ -69,8 +88,24 @@ public class VehicleAssignmentProblem<D> {
 
 	public VehicleAssignmentProblem(Network network, TravelTime travelTime, TravelDisutility travelDisutility,
 			LeastCostPathCalculator router, int nearestDestinationLimit, int nearestVehicleLimit) {
+		this(network, travelTime, travelDisutility, router, nearestDestinationLimit, nearestVehicleLimit,
+				AssignmentSolver.HUNGARIAN, Double.NaN, null);
+	}
+
+	/**
+	 * @param unassignedPenalty (SPARSE_AUCTION only) added to the max assignment cost to get the cost of leaving a
+	 *                          vehicle or a destination unassigned
+	 * @param auctionPool       (SPARSE_AUCTION only) pool for running the auction in parallel (or {@code null}); it
+	 *                          is not shut down by this class
+	 */
+	public VehicleAssignmentProblem(Network network, TravelTime travelTime, TravelDisutility travelDisutility,
+			LeastCostPathCalculator router, int nearestDestinationLimit, int nearestVehicleLimit,
+			AssignmentSolver solver, double unassignedPenalty, ForkJoinPool auctionPool) {
 		this.travelTime = travelTime;
 		this.router = router;
+		this.solver = solver;
+		this.unassignedPenalty = unassignedPenalty;
+		this.auctionPool = auctionPool;
 
 		IdMap<Node, Node> nodeMap = new IdMap<>(Node.class);
 		nodeMap.putAll(network.getNodes());
@@ -93,25 +128,94 @@ public class VehicleAssignmentProblem<D> {
 		this.dData = dData;
 		this.assignmentCost = assignmentCost;
 
+		if (solver == AssignmentSolver.SPARSE_AUCTION) {
+			return findSparseAssignments();
+		}
+
 		PathData[][] pathDataMatrix = createPathDataMatrix();
 		double[][] costMatrix = createCostMatrix(pathDataMatrix);
 		int[] assignments = new HungarianAlgorithm(costMatrix).execute();
 		return createDispatches(assignments, pathDataMatrix, travelTime);
 	}
 
+	private List<Dispatch<D>> findSparseAssignments() {
+		// paths are calculated only for the kNN pairs, so only these pairs are included in the problem
+		// (except for unreachable pairs, i.e. with infinite costs)
+		List<List<DestEntry<D>>> vehicleDests = new ArrayList<>(vData.getSize());
+		List<List<PathData>> vehiclePaths = new ArrayList<>(vData.getSize());
+		List<List<Double>> vehicleCosts = new ArrayList<>(vData.getSize());
+		for (int v = 0; v < vData.getSize(); v++) {
+			vehicleDests.add(new ArrayList<>());
+			vehiclePaths.add(new ArrayList<>());
+			vehicleCosts.add(new ArrayList<>());
+		}
+		calcPaths((v, d, pathData) -> {
+			DestEntry<D> dest = dData.getEntry(d);
+			double cost = assignmentCost.calc(vData.getEntry(v), dest, pathData);
+			if (Double.isFinite(cost)) {
+				vehicleDests.get(v).add(dest);
+				vehiclePaths.get(v).add(pathData);
+				vehicleCosts.get(v).add(cost);
+			}
+		});
+
+		int[] edgeStarts = new int[vData.getSize() + 1];
+		for (int v = 0; v < vData.getSize(); v++) {
+			edgeStarts[v + 1] = edgeStarts[v] + vehicleDests.get(v).size();
+		}
+		int[] edgeDests = new int[edgeStarts[vData.getSize()]];
+		double[] edgeCosts = new double[edgeDests.length];
+		double maxCost = 0;
+		for (int v = 0; v < vData.getSize(); v++) {
+			for (int i = 0; i < vehicleDests.get(v).size(); i++) {
+				int e = edgeStarts[v] + i;
+				edgeDests[e] = vehicleDests.get(v).get(i).idx;
+				edgeCosts[e] = vehicleCosts.get(v).get(i);
+				maxCost = Math.max(maxCost, edgeCosts[e]);
+			}
+		}
+
+		// warm start: the open requests keep their prices from the previous call
+		double[] prices = new double[dData.getSize()];
+		boolean warmStart = false;
+		for (int d = 0; d < dData.getSize(); d++) {
+			Double price = destinationPrices.get(dData.getEntry(d).destination);
+			if (price != null) {
+				prices[d] = price;
+				warmStart = true;
+			}
+		}
+
+		int[] assignments = new SparseAuctionAlgorithm(dData.getSize(), edgeStarts, edgeDests, edgeCosts,
+				maxCost + unassignedPenalty).execute(prices, warmStart, auctionPool);
+
+		Map<D, Double> newDestinationPrices = new HashMap<>();
+		for (int d = 0; d < dData.getSize(); d++) {
+			newDestinationPrices.put(dData.getEntry(d).destination, prices[d]);
+		}
+		destinationPrices = newDestinationPrices;
+
+		List<Dispatch<D>> dispatches = new ArrayList<>();
+		for (int v = 0; v < assignments.length; v++) {
+			int d = assignments[v];
+			if (d == SparseAuctionAlgorithm.UNASSIGNED) {
+				continue;
+			}
+			VehicleData.Entry departure = vData.getEntry(v);
+			DestEntry<D> dest = dData.getEntry(d);
+			PathData pathData = vehiclePaths.get(v).get(vehicleDests.get(v).indexOf(dest));
+			dispatches.add(new Dispatch<>(departure.vehicle, dest.destination,
+					VrpPaths.createPath(departure.link, dest.link, departure.time, pathData, travelTime)));
+		}
+		return dispatches;
+	}
+
 	// private static int calcPathsForVehiclesCount = 0;
 	// private static int calcPathsForDestinationsCount = 0;
 
 	private PathData[][] createPathDataMatrix() {
 		PathData[][] pathDataMatrix = new PathData[vData.getSize()][dData.getSize()];
-
-		if (dData.getSize() > vData.getSize()) {
-			calcPathsForVehicles(pathDataMatrix);
-			// calcPathsForVehiclesCount++;
-		} else {
-			calcPathsForDestinations(pathDataMatrix);
-			// calcPathsForDestinationsCount++;
-		}
+		calcPaths((v, d, pathData) -> pathDataMatrix[v][d] = pathData);
 
 		// if ( (calcPathsForDestinationsCount + calcPathsForVehiclesCount) % 100 == 0) {
 		// System.err.println("PathsForDestinations = " + calcPathsForDestinationsCount
@@ -123,7 +227,17 @@ public class VehicleAssignmentProblem<D> {
 		return pathDataMatrix;
 	}
 
-	private void calcPathsForVehicles(PathData[][] pathDataMatrix) {
+	private void calcPaths(PathDataConsumer consumer) {
+		if (dData.getSize() > vData.getSize()) {
+			calcPathsForVehicles(consumer);
+			// calcPathsForVehiclesCount++;
+		} else {
+			calcPathsForDestinations(consumer);
+			// calcPathsForDestinationsCount++;
+		}
+	}
+
+	private void calcPathsForVehicles(PathDataConsumer consumer) {
 		for (int v = 0; v < vData.getSize(); v++) {
 			VehicleData.Entry departure = vData.getEntry(v);
 
@@ -134,14 +248,13 @@ public class VehicleAssignmentProblem<D> {
 			PathData[] paths = pathSearch.calcPathDataArray(departure.link, toLinks, departure.time, true);
 
 			for (int i = 0; i < filteredDests.size(); i++) {
-				int d = filteredDests.get(i).idx;
-				pathDataMatrix[v][d] = paths[i];
+				consumer.accept(v, filteredDests.get(i).idx, paths[i]);
 			}
 		}
 	}
 
 	// TODO does not support adv reqs
-	private void calcPathsForDestinations(PathData[][] pathDataMatrix) {
+	private void calcPathsForDestinations(PathDataConsumer consumer) {
 		for (int d = 0; d < dData.getSize(); d++) {
 			DestEntry<D> dest = dData.getEntry(d);
 
@@ -152,8 +265,7 @@ public class VehicleAssignmentProblem<D> {
 			PathData[] paths = pathSearch.calcPathDataArray(dest.link, toLinks, dest.time, false);
 
 			for (int i = 0; i < filteredVehs.size(); i++) {
-				int v = filteredVehs.get(i).idx;
-				pathDataMatrix[v][d] = paths[i];
+				consumer.accept(filteredVehs.get(i).idx, d, paths[i]);
 			}
 		}
 	}
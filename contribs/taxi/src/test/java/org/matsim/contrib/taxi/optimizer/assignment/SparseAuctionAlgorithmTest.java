@@ -0,0 +1,135 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.taxi.optimizer.assignment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+import static org.matsim.contrib.taxi.optimizer.assignment.SparseAuctionAlgorithm.UNASSIGNED;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+public class SparseAuctionAlgorithmTest {
+	private static final double UNASSIGNED_COST = 100_000;
+
+	@Test
+	public void denseProblem_sameCostAsHungarian() {
+		Random random = new Random(42);
+		for (int[] size : new int[][] { { 10, 10 }, { 30, 20 }, { 20, 300 }, { 300, 400 } }) {
+			int workers = size[0];
+			int jobs = size[1];
+			double[][] costMatrix = new double[workers][jobs];
+			for (double[] row : costMatrix) {
+				Arrays.setAll(row, j -> random.nextInt(3600));
+			}
+
+			int[] hungarianAssignments = new HungarianAlgorithm(costMatrix).execute();
+			int[] auctionAssignments = createDenseAuction(costMatrix).execute(new double[jobs], false);
+
+			assertThat(countAssigned(auctionAssignments)).isEqualTo(Math.min(workers, jobs));
+			assertThat(auctionAssignments).doesNotHaveDuplicates();
+			assertThat(calcCost(costMatrix, auctionAssignments)).isCloseTo(calcCost(costMatrix, hungarianAssignments),
+					offset(1.));
+		}
+	}
+
+	@Test
+	public void warmStart_sameCost() {
+		Random random = new Random(7);
+		double[][] costMatrix = new double[100][120];
+		for (double[] row : costMatrix) {
+			Arrays.setAll(row, j -> random.nextInt(3600));
+		}
+		var auction = createDenseAuction(costMatrix);
+		double[] prices = new double[120];
+		int[] coldAssignments = auction.execute(prices, false);
+		int[] warmAssignments = auction.execute(prices, true);
+		assertThat(calcCost(costMatrix, warmAssignments)).isCloseTo(calcCost(costMatrix, coldAssignments),
+				offset(1.));
+	}
+
+	@Test
+	public void parallel_sameAssignmentsAsSequential() {
+		// enough workers for computing the bids in parallel; many equal costs to have ties
+		Random random = new Random(11);
+		double[][] costMatrix = new double[600][500];
+		for (double[] row : costMatrix) {
+			Arrays.setAll(row, j -> random.nextInt(10));
+		}
+		var auction = createDenseAuction(costMatrix);
+		int[] sequentialAssignments = auction.execute(new double[500], false);
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (int run = 0; run < 3; run++) {
+				assertThat(auction.execute(new double[500], false, pool)).containsExactly(sequentialAssignments);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void sparseProblem() {
+		// worker 0: jobs 0 and 1; worker 1: job 0; worker 2: no jobs
+		int[] edgeStarts = { 0, 2, 3, 3 };
+		int[] edgeJobs = { 0, 1, 0 };
+		double[] edgeCosts = { 10, 20, 15 };
+
+		int[] assignments = new SparseAuctionAlgorithm(3, edgeStarts, edgeJobs, edgeCosts, UNASSIGNED_COST).execute(
+				new double[3], false);
+
+		// assigning worker 1 to job 0 (and worker 0 to job 1) maximises the number of assignments
+		assertThat(assignments).containsExactly(1, 0, UNASSIGNED);
+	}
+
+	private static SparseAuctionAlgorithm createDenseAuction(double[][] costMatrix) {
+		int workers = costMatrix.length;
+		int jobs = costMatrix[0].length;
+		int[] edgeStarts = new int[workers + 1];
+		int[] edgeJobs = new int[workers * jobs];
+		double[] edgeCosts = new double[workers * jobs];
+		for (int i = 0; i < workers; i++) {
+			edgeStarts[i + 1] = edgeStarts[i] + jobs;
+			for (int j = 0; j < jobs; j++) {
+				edgeJobs[i * jobs + j] = j;
+				edgeCosts[i * jobs + j] = costMatrix[i][j];
+			}
+		}
+		return new SparseAuctionAlgorithm(jobs, edgeStarts, edgeJobs, edgeCosts, UNASSIGNED_COST);
+	}
+
+	private static long countAssigned(int[] assignments) {
+		return Arrays.stream(assignments).filter(j -> j != UNASSIGNED).count();
+	}
+
+	private static double calcCost(double[][] costMatrix, int[] assignments) {
+		double cost = 0;
+		for (int i = 0; i < assignments.length; i++) {
+			if (assignments[i] != UNASSIGNED && assignments[i] < costMatrix[i].length) {
+				cost += costMatrix[i][assignments[i]];
+			}
+		}
+		return cost;
+	}
+}
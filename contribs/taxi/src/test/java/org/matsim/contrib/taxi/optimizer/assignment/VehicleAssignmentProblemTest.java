@@ -0,0 +1,114 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.taxi.optimizer.assignment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicle;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicleImpl;
+import org.matsim.contrib.dvrp.fleet.ImmutableDvrpVehicleSpecification;
+import org.matsim.contrib.dvrp.router.TimeAsTravelDisutility;
+import org.matsim.contrib.dvrp.trafficmonitoring.QSimFreeSpeedTravelTime;
+import org.matsim.contrib.dvrp.util.LinkTimePair;
+import org.matsim.contrib.taxi.optimizer.BestDispatchFinder.Dispatch;
+import org.matsim.contrib.taxi.optimizer.VehicleData;
+import org.matsim.contrib.taxi.optimizer.assignment.AssignmentDestinationData.DestEntry;
+import org.matsim.contrib.taxi.optimizer.assignment.VehicleAssignmentProblem.AssignmentSolver;
+import org.matsim.contrib.taxi.scheduler.TaxiScheduleInquiry;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.util.TravelTime;
+
+import com.google.common.collect.ImmutableList;
+
+public class VehicleAssignmentProblemTest {
+	private final Network network = NetworkUtils.createNetwork();
+	private final Node nodeA = NetworkUtils.createAndAddNode(network, Id.createNodeId("A"), new Coord(0, 0));
+	private final Node nodeB = NetworkUtils.createAndAddNode(network, Id.createNodeId("B"), new Coord(1000, 0));
+	private final Node nodeC = NetworkUtils.createAndAddNode(network, Id.createNodeId("C"), new Coord(2000, 0));
+	private final Node nodeD = NetworkUtils.createAndAddNode(network, Id.createNodeId("D"), new Coord(3000, 0));
+
+	private final Link linkAB = NetworkUtils.createAndAddLink(network, Id.createLinkId("AB"), nodeA, nodeB, 1000, 15,
+			1000, 1);
+	private final Link linkBA = NetworkUtils.createAndAddLink(network, Id.createLinkId("BA"), nodeB, nodeA, 1000, 15,
+			1000, 1);
+	// not connected to AB and BA
+	private final Link linkCD = NetworkUtils.createAndAddLink(network, Id.createLinkId("CD"), nodeC, nodeD, 1000, 15,
+			1000, 1);
+
+	private final TravelTime travelTime = new QSimFreeSpeedTravelTime(1);
+
+	// all vehicles are idle and can depart immediately from their current links
+	private final TaxiScheduleInquiry scheduleInquiry = new TaxiScheduleInquiry(null, null) {
+		@Override
+		public boolean isIdle(DvrpVehicle vehicle) {
+			return true;
+		}
+
+		@Override
+		public LinkTimePair getImmediateDiversionOrEarliestIdleness(DvrpVehicle vehicle) {
+			return new LinkTimePair(vehicle.getStartLink(), 0);
+		}
+	};
+
+	@Test
+	public void sparseAuction_unreachableDestination_pathsForVehicles() {
+		// more destinations than vehicles: paths are searched forward from the vehicles
+		List<Dispatch<String>> dispatches = findSparseAssignments(createVehicleData(1));
+		assertThat(dispatches).hasSize(1);
+		assertThat(dispatches.get(0).destination).isEqualTo("reachable");
+	}
+
+	@Test
+	public void sparseAuction_unreachableDestination_pathsForDestinations() {
+		// as many destinations as vehicles: paths are searched backward from the destinations
+		List<Dispatch<String>> dispatches = findSparseAssignments(createVehicleData(2));
+		assertThat(dispatches).hasSize(1);
+		assertThat(dispatches.get(0).destination).isEqualTo("reachable");
+	}
+
+	private VehicleData createVehicleData(int vehicleCount) {
+		return new VehicleData(0, scheduleInquiry, Stream.iterate(0, i -> i + 1)
+				.limit(vehicleCount)
+				.map(i -> new DvrpVehicleImpl(ImmutableDvrpVehicleSpecification.newBuilder()
+						.id(Id.create("taxi" + i, DvrpVehicle.class))
+						.serviceBeginTime(0)
+						.serviceEndTime(3600)
+						.startLinkId(linkAB.getId())
+						.capacity(1)
+						.build(), linkAB)));
+	}
+
+	private List<Dispatch<String>> findSparseAssignments(VehicleData vData) {
+		var dData = new AssignmentDestinationData<>(ImmutableList.of(new DestEntry<>(0, "reachable", linkBA, 0),
+				new DestEntry<>(1, "unreachable", linkCD, 0)));
+		var problem = new VehicleAssignmentProblem<String>(network, travelTime, new TimeAsTravelDisutility(travelTime),
+				null, -1, -1, AssignmentSolver.SPARSE_AUCTION, 1000, null);
+		return problem.findAssignments(vData, dData, (departure, dest, pathData) -> pathData.getTravelTime());
+	}
+}
@@ -63,6 +63,9 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final String WRITE_EVENTS_INTERVAL = "writeEventsInterval";
 	private static final String WRITE_PLANS_INTERVAL = "writePlansInterval";
 	private static final String WRITE_TRIPS_INTERVAL = "writeTripsInterval";
+	private static final String WRITE_CHECKPOINT_INTERVAL = "writeCheckpointInterval";
+	private static final String RESTART_FROM_CHECKPOINT = "restartFromCheckpoint";
+	private static final String CHECKPOINT_DIRECTORY = "checkpointDirectory";
 	private static final String OVERWRITE_FILE = "overwriteFiles";
 	private static final String CREATE_GRAPHS = "createGraphs";
 	private static final String DUMP_DATA_AT_END = "dumpDataAtEnd";
@@ -88,6 +91,9 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private int writeEventsInterval= 50;
 	private int writePlansInterval= 50;
 	private int writeTripsInterval = 50;
+	private int writeCheckpointInterval = 0;
+	private String restartFromCheckpoint = null;
+	private String checkpointDirectory = null;
 	private String mobsim = MobsimType.qsim.toString();
 	private int writeSnapshotsInterval = 1;
 	private boolean createGraphs = true;
@@ -112,6 +118,12 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
                 "to a file. `0' disables trips writing completely.");
 		map.put(WRITE_PLANS_INTERVAL, "iterationNumber % writePlansInterval == 0 defines (hopefully) in which iterations plans are " +
                 "written to a file. `0' disables plans writing completely.  Some plans in early iterations are always written");
+		map.put(WRITE_CHECKPOINT_INTERVAL, "iterationNumber % writeCheckpointInterval == 0 defines after which iterations a checkpoint is written, " +
+				"from which the run can be continued with `" + RESTART_FROM_CHECKPOINT + "'. Only the latest checkpoint is kept. `0' disables checkpoints completely.");
+		map.put(RESTART_FROM_CHECKPOINT, "Path to a checkpoint file written by a previous run of the same scenario and config. If set, the run continues with the " +
+				"iteration after the one the checkpoint was written in. Mind that `" + OVERWRITE_FILE + "' must not delete the directory containing the checkpoint.");
+		map.put(CHECKPOINT_DIRECTORY, "Directory the checkpoints are written to. Must not be within the output directory, as that one may be deleted when " +
+				"the run is restarted. Default: the output directory with the suffix `_checkpoint', e.g. `output_checkpoint' for `output'.");
 		map.put(LINKTOLINK_ROUTING_ENABLED, "Default=false. If enabled, the router takes travel times needed for turning moves into account."
 		        + " Cannot be used if the (Fast)AStarLandmarks routing or TravelTimeCalculator.separateModes is enabled.");
 		map.put(FIRST_ITERATION, "Default=0. First Iteration of a simulation.");
@@ -332,6 +344,36 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 		this.writePlansInterval = writePlansInterval;
 	}
 	
+	@StringGetter( WRITE_CHECKPOINT_INTERVAL )
+	public int getWriteCheckpointInterval() {
+		return this.writeCheckpointInterval;
+	}
+
+	@StringSetter( WRITE_CHECKPOINT_INTERVAL )
+	public void setWriteCheckpointInterval(final int writeCheckpointInterval) {
+		this.writeCheckpointInterval = writeCheckpointInterval;
+	}
+
+	@StringGetter( RESTART_FROM_CHECKPOINT )
+	public String getRestartFromCheckpoint() {
+		return this.restartFromCheckpoint;
+	}
+
+	@StringSetter( RESTART_FROM_CHECKPOINT )
+	public void setRestartFromCheckpoint(final String restartFromCheckpoint) {
+		this.restartFromCheckpoint = restartFromCheckpoint;
+	}
+
+	@StringGetter( CHECKPOINT_DIRECTORY )
+	public String getCheckpointDirectory() {
+		return this.checkpointDirectory;
+	}
+
+	@StringSetter( CHECKPOINT_DIRECTORY )
+	public void setCheckpointDirectory(final String checkpointDirectory) {
+		this.checkpointDirectory = checkpointDirectory;
+	}
+
 	@StringGetter( WRITE_SNAPSHOTS_INTERVAL )
 	public int getWriteSnapshotsInterval() {
 		return writeSnapshotsInterval;
@@ -22,6 +22,7 @@ package org.matsim.core.config.groups;
 
 import java.util.Map;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.PositiveOrZero;
 import org.apache.log4j.Logger;
 import org.matsim.core.config.ReflectiveConfigGroup;
@@ -38,6 +39,7 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 	@Override public Map<String, String> getComments() {
 		Map<String,String> map = super.getComments();
 		map.put(NUMBER_OF_THREADS, NUMBER_OF_THREADS_CMT ) ;
+		map.put(NUMBER_OF_COMPRESSION_THREADS, NUMBER_OF_COMPRESSION_THREADS_CMT ) ;
 		return map ;
 	}
 
@@ -93,6 +95,28 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		this.numberOfThreads = numberOfThreads;
 	}
 	// ---
+	public static final int DEFAULT_NUMBER_OF_COMPRESSION_THREADS = 1;
+	@Positive
+	private int numberOfCompressionThreads = DEFAULT_NUMBER_OF_COMPRESSION_THREADS;
+	private static final String NUMBER_OF_COMPRESSION_THREADS = "numberOfCompressionThreads";
+	private static final String NUMBER_OF_COMPRESSION_THREADS_CMT = "Number of threads used for compressing and decompressing "
+			+ "(e.g. gzip or zstd) output and input files while the controler runs.  With the default of 1, "
+			+ "all compression is done sequentially and the output is byte-identical to that of older versions.";
+	/**
+	 * @return {@link #NUMBER_OF_COMPRESSION_THREADS_CMT}
+	 */
+	@StringGetter( NUMBER_OF_COMPRESSION_THREADS )
+	public int getNumberOfCompressionThreads() {
+		return this.numberOfCompressionThreads;
+	}
+	/**
+	 * @param numberOfCompressionThreads -- {@link #NUMBER_OF_COMPRESSION_THREADS_CMT}
+	 */
+	@StringSetter( NUMBER_OF_COMPRESSION_THREADS )
+	public void setNumberOfCompressionThreads(final int numberOfCompressionThreads) {
+		this.numberOfCompressionThreads = numberOfCompressionThreads;
+	}
+	// ---
 	private String coordinateSystem = "Atlantis" ;
 	// see https://matsim.atlassian.net/browse/MATSIM-898
 	private static final String COORDINATE_SYSTEM = "coordinateSystem";
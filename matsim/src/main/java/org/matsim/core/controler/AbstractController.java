@@ -22,8 +22,10 @@ package org.matsim.core.controler;
 import org.apache.log4j.Logger;
 import org.matsim.analysis.IterationStopWatch;
 import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.controler.listener.ControlerListener;
 import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.utils.io.IOUtils;
 import org.matsim.core.utils.io.UncheckedIOException;
 import org.matsim.utils.MemoryObserver;
 
@@ -77,8 +79,9 @@ import org.matsim.utils.MemoryObserver;
                 loadCoreListeners();
                 controlerListenerManagerImpl.fireControlerStartupEvent();
                 ControlerUtils.checkConfigConsistencyAndWriteToLog(config, "config dump before iterations start");
+                int firstIteration = restoreState(config);
                 prepareForSim();
-                doIterations(config);
+                doIterations(config, firstIteration);
             }
 
             @Override
@@ -86,7 +89,13 @@ import org.matsim.utils.MemoryObserver;
                 controlerListenerManagerImpl.fireControlerShutdownEvent(unexpected, thisIteration == null ? -1 : thisIteration);
             }
         };
-        MatsimRuntimeModifications.run(runnable);
+        IOUtils.setCompressionThreads(config.global().getNumberOfCompressionThreads());
+        try {
+            MatsimRuntimeModifications.run(runnable);
+        } finally {
+            // do not leak the setting into subsequent runs within the same JVM
+            IOUtils.setCompressionThreads(GlobalConfigGroup.DEFAULT_NUMBER_OF_COMPRESSION_THREADS);
+        }
         OutputDirectoryLogging.closeOutputDirLogging();
         MemoryObserver.stop();
     }
@@ -99,6 +108,16 @@ import org.matsim.utils.MemoryObserver;
     
     protected abstract void prepareForMobsim() ;
 
+    /**
+     * Restores the state of a previous run if the run is continued from there, e.g. from a checkpoint.  This is called after
+     * the startup listeners and before {@link #prepareForSim()}.
+     *
+     * @return the iteration to start with
+     */
+    protected int restoreState(Config config) {
+        return config.controler().getFirstIteration();
+    }
+
     /**
      * Stopping criterion for iterations.  Design thoughts:<ul>
      * <li> AbstractController only controls process, not content.  Stopping iterations controls process based on content.
@@ -110,8 +129,8 @@ import org.matsim.utils.MemoryObserver;
 	protected abstract boolean mayTerminateAfterIteration(int iteration);
 	protected abstract boolean shouldTerminate(int iteration);
 
-    private void doIterations(Config config) throws MatsimRuntimeModifications.UnexpectedShutdownException {
-    	int iteration = config.controler().getFirstIteration();
+    private void doIterations(Config config, int firstIteration) throws MatsimRuntimeModifications.UnexpectedShutdownException {
+    	int iteration = firstIteration;
     	
     	// Special case if lastIteration == -1 -> Do not run any Mobsim
     	boolean doTerminate = config.controler().getLastIteration() < iteration;
@@ -92,6 +92,7 @@ public abstract class AbstractModule implements Module {
 
 	private Multibinder<SnapshotWriter> snapshotWriterMultibinder;
 	private MapBinder<Class<?>, AttributeConverter<?>> attributeConverterMapBinder;
+	private MapBinder<String, Checkpointable> checkpointableMapBinder;
 	private Multibinder<AbstractQSimModule> qsimModulesMultibinder;
 
 	@Inject
@@ -125,6 +126,7 @@ public abstract class AbstractModule implements Module {
 						new TypeLiteral<Class<?>>(){},
 						new TypeLiteral<AttributeConverter<?>>() {} );
 		this.qsimModulesMultibinder = Multibinder.newSetBinder(this.binder, AbstractQSimModule.class);
+		this.checkpointableMapBinder = MapBinder.newMapBinder(this.binder, String.class, Checkpointable.class);
 		this.install();
 	}
 
@@ -184,6 +186,15 @@ public abstract class AbstractModule implements Module {
 	protected final LinkedBindingBuilder<AttributeConverter<?>> addAttributeConverterBinding(final Class<?> clazz ) {
 		return attributeConverterMapBinder.addBinding( clazz );
 	}
+
+	/**
+	 * Registers state that needs to be stored in checkpoints, see {@link Checkpointable}.
+	 *
+	 * @param name a unique name of the state within the checkpoint
+	 */
+	protected final LinkedBindingBuilder<Checkpointable> addCheckpointableBinding(final String name) {
+		return checkpointableMapBinder.addBinding(name);
+	}
 	/**
 	 * @deprecated better use {@link #addTravelDisutilityFactoryBinding(String)}.
 	 */
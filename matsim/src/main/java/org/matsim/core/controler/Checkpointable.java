@@ -1,10 +1,10 @@
 /* *********************************************************************** *
  * project: org.matsim.*
- * MapBasedDataContainerProvider.java
+ * Checkpointable.java
  *                                                                         *
  * *********************************************************************** *
  *                                                                         *
- * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
  *                   LICENSE and WARRANTY file.                            *
  * email           : info at matsim dot org                                *
  *                                                                         *
@@ -18,32 +18,33 @@
  *                                                                         *
  * *********************************************************************** */
 
-package org.matsim.withinday.trafficmonitoring;
+package org.matsim.core.controler;
 
-import java.util.Map;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
-import org.matsim.api.core.v01.Id;
-import org.matsim.api.core.v01.network.Link;
-import org.matsim.withinday.trafficmonitoring.WithinDayTravelTime.TravelTimeInfo;
+/**
+ * State of a component that is carried over from one iteration to the next one
+ * and thus is needed to continue a run from a checkpoint with the same results
+ * as if the run had not been interrupted.
+ * <p></p>
+ * Implementations are registered with {@link AbstractModule#addCheckpointableBinding(String)}.
+ * The checkpoint is written after the iteration ended, and restored after the
+ * startup listeners were called, i.e. before the first iteration of the restarted
+ * run.
+ */
+public interface Checkpointable {
 
-public class MapBasedTravelTimeInfoProvider implements TravelTimeInfoProvider {
+	/**
+	 * Writes the current state to the given stream. This is called on the controler
+	 * thread, the state may be modified again as soon as this method returns.
+	 */
+	void writeCheckpoint(OutputStream out) throws IOException;
 
-	private final Map<Id<Link>, TravelTimeInfo> linkData;
-	
-	public MapBasedTravelTimeInfoProvider(Map<Id<Link>, TravelTimeInfo> linkData) {
-		this.linkData = linkData;
-	}
-	
-	@Override 
-	public TravelTimeInfo getTravelTimeInfo(final Id<Link> linkId) {
-		TravelTimeInfo data = this.linkData.get(linkId);
-		return data;
-	}
-		
-	@Override
-	public TravelTimeInfo getTravelTimeInfo(Link link) {
-		Id<Link> linkId = link.getId();
-		return this.getTravelTimeInfo(linkId);
-	}
-	
-}
\ No newline at end of file
+	/**
+	 * Restores the state from the data written by {@link #writeCheckpoint(OutputStream)}.
+	 */
+	void readCheckpoint(InputStream in) throws IOException;
+
+}
@@ -22,6 +22,7 @@
 
 package org.matsim.core.controler;
 
+import com.google.inject.Singleton;
 import org.matsim.analysis.IterationTravelStatsModule;
 import org.matsim.analysis.LegHistogramModule;
 import org.matsim.analysis.LegTimesModule;
@@ -56,7 +57,9 @@ public final class ControlerDefaultsModule extends AbstractModule {
         install(new StrategyManagerModule());
         install(new TimeInterpretationModule());
         if (getConfig().replanningAnnealer().isActivateAnnealingModule()) {
+            bind(ReplanningAnnealer.class).in(Singleton.class);
             addControlerListenerBinding().to(ReplanningAnnealer.class);
+            addCheckpointableBinding("replanningAnnealer").to(ReplanningAnnealer.class);
         }
 
         // I think that the ones coming here are all for analysis only, and thus not central to the iterations. kai, apr'18
@@ -46,6 +46,7 @@ class NewControler extends AbstractController implements ControlerI {
 	private final PlansScoring plansScoring;
 	private final TerminationCriterion terminationCriterion;
 	private final DumpDataAtEnd dumpDataAtEnd;
+	private final Checkpointing checkpointing;
 	private final Set<ControlerListener> controlerListenersDeclaredByModules;
 	private final ControlerConfigGroup controlerConfigGroup;
 	private final OutputDirectoryHierarchy outputDirectoryHierarchy;
@@ -57,7 +58,7 @@ class NewControler extends AbstractController implements ControlerI {
 			 PlansScoring plansScoring, TerminationCriterion terminationCriterion, DumpDataAtEnd dumpDataAtEnd,
 			 Set<ControlerListener> controlerListenersDeclaredByModules, ControlerConfigGroup controlerConfigGroup,
 			 OutputDirectoryHierarchy outputDirectoryHierarchy
-			, PrepareForMobsim prepareForMobsim
+			, PrepareForMobsim prepareForMobsim, Checkpointing checkpointing
  ) {
 		super(controlerListenerManager, stopWatch, matsimServices);
 		this.config = config;
@@ -71,6 +72,7 @@ class NewControler extends AbstractController implements ControlerI {
 		this.plansScoring = plansScoring;
 		this.terminationCriterion = terminationCriterion;
 		this.dumpDataAtEnd = dumpDataAtEnd;
+		this.checkpointing = checkpointing;
 		this.controlerListenersDeclaredByModules = controlerListenersDeclaredByModules;
 		this.controlerConfigGroup = controlerConfigGroup;
 		this.outputDirectoryHierarchy = outputDirectoryHierarchy;
@@ -93,6 +95,9 @@ class NewControler extends AbstractController implements ControlerI {
 		 * IMPORTANT: The execution order is reverse to the order the listeners
 		 * are added to the list.
 		 */
+		this.addCoreControlerListener(this.checkpointing);
+		// (writes the checkpoint after all other core listeners are done with the iteration)
+
 		if (controlerConfigGroup.getDumpDataAtEnd()) {
 			this.addCoreControlerListener(this.dumpDataAtEnd);
 		}
@@ -108,6 +113,11 @@ class NewControler extends AbstractController implements ControlerI {
 		}
 	}
 
+	@Override
+	protected final int restoreState(Config config) {
+		return this.checkpointing.restoreFromCheckpoint();
+	}
+
 	@Override
 	protected final void prepareForSim() {
 		this.prepareForSim.run();
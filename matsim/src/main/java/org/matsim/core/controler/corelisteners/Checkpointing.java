@@ -1,10 +1,10 @@
 /* *********************************************************************** *
  * project: org.matsim.*
- * TravelTimeInfoProvider.java
+ * Checkpointing.java
  *                                                                         *
  * *********************************************************************** *
  *                                                                         *
- * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
  *                   LICENSE and WARRANTY file.                            *
  * email           : info at matsim dot org                                *
  *                                                                         *
@@ -18,17 +18,23 @@
  *                                                                         *
  * *********************************************************************** */
 
-package org.matsim.withinday.trafficmonitoring;
+package org.matsim.core.controler.corelisteners;
 
-import org.matsim.api.core.v01.Id;
-import org.matsim.api.core.v01.network.Link;
-import org.matsim.withinday.trafficmonitoring.WithinDayTravelTime.TravelTimeInfo;
+import org.matsim.core.controler.Checkpointable;
+import org.matsim.core.controler.listener.ControlerListener;
+
+/**
+ * Writes the state of all registered {@link Checkpointable}s to checkpoints,
+ * and restores it when a run is restarted from such a checkpoint.
+ */
+public interface Checkpointing extends ControlerListener {
+
+	/**
+	 * Restores the state from the checkpoint given by
+	 * {@link org.matsim.core.config.groups.ControlerConfigGroup#getRestartFromCheckpoint()}, if any.
+	 *
+	 * @return the iteration to continue with, i.e. the first iteration if there is no checkpoint to restart from
+	 */
+	int restoreFromCheckpoint();
 
-public interface TravelTimeInfoProvider {
-	
-	/*package*/ TravelTimeInfo getTravelTimeInfo(final Id<Link> linkId);
-	
-	/*package*/ TravelTimeInfo getTravelTimeInfo(final Link link);
-	// needs to be available separately since sometimes calling
-	// with the link argument is faster. kai, dec'17
 }
@@ -0,0 +1,364 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CheckpointingImpl.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.controler.corelisteners;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import org.apache.log4j.Logger;
+import org.matsim.analysis.IterationStopWatch;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigGroup;
+import org.matsim.core.controler.Checkpointable;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.events.ShutdownEvent;
+import org.matsim.core.controler.listener.IterationEndsListener;
+import org.matsim.core.controler.listener.ShutdownListener;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes checkpoints after every n-th iteration
+ * ({@link org.matsim.core.config.groups.ControlerConfigGroup#getWriteCheckpointInterval()}),
+ * and restores the state from a checkpoint if the run is restarted
+ * ({@link org.matsim.core.config.groups.ControlerConfigGroup#getRestartFromCheckpoint()}).
+ * <br>
+ * The state of all {@link Checkpointable}s is copied to memory on the controler
+ * thread at the end of the iteration; the (compressed) file is then written in the
+ * background while the next iteration runs.  The file is first written under a
+ * temporary name and renamed when it is complete, so that a run that is killed while
+ * writing does not leave a broken checkpoint behind.  Checkpoints are written to
+ * {@link org.matsim.core.config.groups.ControlerConfigGroup#getCheckpointDirectory()}, outside of
+ * the output directory, so that they survive if the restarted run deletes the output directory.
+ * <br>
+ * The file consists of a header (iteration and random seed) and one section per
+ * {@link Checkpointable}, identified by the name it was bound with.
+ */
+@Singleton
+final class CheckpointingImpl implements Checkpointing, IterationEndsListener, ShutdownListener {
+
+	private static final Logger log = Logger.getLogger(CheckpointingImpl.class);
+
+	static final String FILENAME = "checkpoint.bin.gz";
+	private static final String TEMPORARY_FILENAME = "checkpoint.incomplete.bin.gz";
+
+	private static final int MAGIC = 0x4d415443; // "MATC"
+	private static final int VERSION = 1;
+
+	private final Config config;
+	private final OutputDirectoryHierarchy controlerIO;
+	private final IterationStopWatch stopwatch;
+	private final Provider<Map<String, Checkpointable>> checkpointables;
+
+	private ExecutorService writer = null;
+	private Future<?> pendingWrite = null;
+
+	@Inject
+	CheckpointingImpl(Config config, OutputDirectoryHierarchy controlerIO, IterationStopWatch stopwatch,
+			Provider<Map<String, Checkpointable>> checkpointables) {
+		// (the checkpointables are only instantiated when needed, some of them register themselves as event handlers)
+		this.config = config;
+		this.controlerIO = controlerIO;
+		this.stopwatch = stopwatch;
+		this.checkpointables = checkpointables;
+	}
+
+	@Override
+	public int restoreFromCheckpoint() {
+		String filename = this.config.controler().getRestartFromCheckpoint();
+		if (filename == null || filename.isEmpty()) {
+			return this.config.controler().getFirstIteration();
+		}
+		log.info("restoring state from checkpoint " + filename + "...");
+		Map<String, Checkpointable> checkpointables = this.checkpointables.get();
+		Set<String> restored = new HashSet<>();
+		int iteration;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(IOUtils.getInputStream(
+				ConfigGroup.getInputFileURL(this.config.getContext(), filename))))) {
+			if (in.readInt() != MAGIC) {
+				throw new RuntimeException(filename + " is not a checkpoint file.");
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new RuntimeException("Checkpoint file version " + version + " is not supported.");
+			}
+			iteration = in.readInt();
+			long randomSeed = in.readLong();
+			if (randomSeed != this.config.global().getRandomSeed()) {
+				log.warn("The checkpoint was written with random seed " + randomSeed + ", but the config specifies "
+						+ this.config.global().getRandomSeed() + ". The results will differ from the ones of the original run.");
+			}
+			int sections = in.readInt();
+			for (int i = 0; i < sections; i++) {
+				String name = in.readUTF();
+				SectionInputStream section = new SectionInputStream(in, in.readLong());
+				Checkpointable checkpointable = checkpointables.get(name);
+				if (checkpointable == null) {
+					log.warn("checkpoint contains state of " + name + ", but there is no such checkpointable. Skipping it.");
+				} else {
+					checkpointable.readCheckpoint(section);
+					restored.add(name);
+				}
+				section.skipRemaining();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		for (String name : checkpointables.keySet()) {
+			if (!restored.contains(name)) {
+				log.warn("checkpoint does not contain the state of " + name + ".");
+			}
+		}
+		log.info("restored state after iteration " + iteration + ", continuing with iteration " + (iteration + 1) + ".");
+		return iteration + 1;
+	}
+
+	@Override
+	public void notifyIterationEnds(IterationEndsEvent event) {
+		int interval = this.config.controler().getWriteCheckpointInterval();
+		if (interval <= 0 || event.getIteration() % interval != 0) {
+			return;
+		}
+		awaitPendingWrite();
+
+		this.stopwatch.beginOperation("checkpoint");
+		Map<String, SectionBuffer> sections = new LinkedHashMap<>();
+		try {
+			for (Map.Entry<String, Checkpointable> e : new TreeMap<>(this.checkpointables.get()).entrySet()) {
+				SectionBuffer buffer = new SectionBuffer();
+				e.getValue().writeCheckpoint(buffer);
+				sections.put(e.getKey(), buffer);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		this.stopwatch.endOperation("checkpoint");
+
+		if (this.writer == null) {
+			if (getCheckpointDirectory().getAbsoluteFile().toPath().startsWith(new File(this.controlerIO.getOutputPath()).getAbsoluteFile().toPath())) {
+				log.warn("Checkpoints are written within the output directory, they will be lost if the restarted run deletes it.");
+			}
+			this.writer = Executors.newSingleThreadExecutor(r -> {
+				Thread thread = new Thread(r, "CheckpointWriter");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		final int iteration = event.getIteration();
+		final long randomSeed = this.config.global().getRandomSeed();
+		this.pendingWrite = this.writer.submit(() -> {
+			write(iteration, randomSeed, sections);
+			return null;
+		});
+	}
+
+	@Override
+	public void notifyShutdown(ShutdownEvent event) {
+		awaitPendingWrite();
+		if (this.writer != null) {
+			this.writer.shutdown();
+		}
+	}
+
+	private void awaitPendingWrite() {
+		if (this.pendingWrite == null) {
+			return;
+		}
+		try {
+			this.pendingWrite.get();
+		} catch (ExecutionException e) {
+			log.error("Could not write checkpoint.", e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		this.pendingWrite = null;
+	}
+
+	private void write(int iteration, long randomSeed, Map<String, SectionBuffer> sections) throws IOException {
+		File directory = getCheckpointDirectory();
+		Files.createDirectories(directory.toPath());
+		File file = new File(directory, FILENAME);
+		File temporaryFile = new File(directory, TEMPORARY_FILENAME);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				IOUtils.getOutputStream(IOUtils.getFileUrl(temporaryFile.getPath()), false)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(iteration);
+			out.writeLong(randomSeed);
+			out.writeInt(sections.size());
+			for (Map.Entry<String, SectionBuffer> e : sections.entrySet()) {
+				out.writeUTF(e.getKey());
+				out.writeLong(e.getValue().size());
+				e.getValue().writeTo(out);
+			}
+		}
+		Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		log.info("checkpoint of iteration " + iteration + " written to " + file);
+	}
+
+	File getCheckpointDirectory() {
+		String directory = this.config.controler().getCheckpointDirectory();
+		if (directory == null || directory.isEmpty()) {
+			return new File(this.controlerIO.getOutputPath() + "_checkpoint");
+		}
+		return new File(directory);
+	}
+
+	/**
+	 * An in-memory buffer that, unlike {@link java.io.ByteArrayOutputStream}, is not limited to 2 GB.
+	 * Closing it has no effect, as for {@link java.io.ByteArrayOutputStream}.
+	 */
+	private static final class SectionBuffer extends OutputStream {
+
+		private static final int CHUNK_SIZE = 1024 * 1024;
+
+		private final List<byte[]> chunks = new ArrayList<>();
+		private byte[] current = null;
+		private int position = CHUNK_SIZE;
+		private long size = 0;
+
+		@Override
+		public void write(int b) {
+			if (this.position == CHUNK_SIZE) {
+				nextChunk();
+			}
+			this.current[this.position++] = (byte) b;
+			this.size++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			while (len > 0) {
+				if (this.position == CHUNK_SIZE) {
+					nextChunk();
+				}
+				int n = Math.min(len, CHUNK_SIZE - this.position);
+				System.arraycopy(b, off, this.current, this.position, n);
+				this.position += n;
+				this.size += n;
+				off += n;
+				len -= n;
+			}
+		}
+
+		private void nextChunk() {
+			this.current = new byte[CHUNK_SIZE];
+			this.chunks.add(this.current);
+			this.position = 0;
+		}
+
+		long size() {
+			return this.size;
+		}
+
+		void writeTo(OutputStream out) throws IOException {
+			long remaining = this.size;
+			for (byte[] chunk : this.chunks) {
+				int n = (int) Math.min(remaining, CHUNK_SIZE);
+				out.write(chunk, 0, n);
+				remaining -= n;
+			}
+		}
+	}
+
+	/**
+	 * Gives access to one section of the checkpoint, without closing the underlying stream.
+	 */
+	private static final class SectionInputStream extends InputStream {
+
+		private final InputStream in;
+		private long remaining;
+
+		SectionInputStream(InputStream in, long length) {
+			this.in = in;
+			this.remaining = length;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (this.remaining <= 0) {
+				return -1;
+			}
+			int b = this.in.read();
+			if (b >= 0) {
+				this.remaining--;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (this.remaining <= 0) {
+				return -1;
+			}
+			int n = this.in.read(b, off, (int) Math.min(len, this.remaining));
+			if (n > 0) {
+				this.remaining -= n;
+			}
+			return n;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return (int) Math.min(this.in.available(), this.remaining);
+		}
+
+		void skipRemaining() throws IOException {
+			while (this.remaining > 0) {
+				long n = this.in.skip(this.remaining);
+				if (n <= 0) {
+					if (this.in.read() < 0) {
+						throw new IOException("Unexpected end of checkpoint file.");
+					}
+					n = 1;
+				}
+				this.remaining -= n;
+			}
+		}
+
+		@Override
+		public void close() {
+			// the remaining sections are read from the same stream
+		}
+	}
+}
@@ -0,0 +1,343 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PopulationCheckpoint.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.controler.corelisteners;
+
+import com.google.inject.Inject;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.controler.Checkpointable;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactories;
+import org.matsim.core.utils.misc.OptionalTime;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.vehicles.Vehicle;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores the plans (including their scores) and the attributes of all persons in
+ * the checkpoint.  On restore, the plans of the existing persons are replaced, so
+ * that components holding references to the persons remain valid.
+ * <br>
+ * Unlike the plans file, all times, coordinates, scores and route properties are stored
+ * in binary form with full precision, so that a run continued from the checkpoint gets
+ * exactly the same plans as the interrupted one.  Only attributes that can be written to
+ * the plans file are restored, i.e. those of the standard types and those with an
+ * {@link AttributeConverter}.
+ */
+/*package*/ final class PopulationCheckpoint implements Checkpointable {
+
+	private static final byte ACTIVITY = 0;
+	private static final byte LEG = 1;
+
+	private static final byte NO_COORD = 0;
+	private static final byte COORD_2D = 2;
+	private static final byte COORD_3D = 3;
+
+	@Inject private Population population;
+
+	@Inject
+	private Map<Class<?>, AttributeConverter<?>> attributeConverters = Collections.emptyMap();
+
+	@Override
+	public void writeCheckpoint(OutputStream out) throws IOException {
+		ObjectAttributesConverter converter = new ObjectAttributesConverter(this.attributeConverters);
+		DataOutputStream dout = new DataOutputStream(new BufferedOutputStream(out));
+		dout.writeInt(this.population.getPersons().size());
+		for (Person person : this.population.getPersons().values()) {
+			writeString(dout, person.getId().toString());
+			writeAttributes(dout, person.getAttributes(), converter);
+			dout.writeInt(person.getPlans().size());
+			dout.writeInt(person.getPlans().indexOf(person.getSelectedPlan()));
+			for (Plan plan : person.getPlans()) {
+				writePlan(dout, plan, converter);
+			}
+		}
+		dout.flush();
+	}
+
+	@Override
+	public void readCheckpoint(InputStream in) throws IOException {
+		ObjectAttributesConverter converter = new ObjectAttributesConverter(this.attributeConverters);
+		PopulationFactory factory = this.population.getFactory();
+		DataInputStream din = new DataInputStream(new BufferedInputStream(in));
+		int persons = din.readInt();
+		List<Person> restoredPersons = new ArrayList<>(persons);
+		for (int i = 0; i < persons; i++) {
+			Person restoredPerson = factory.createPerson(Id.createPersonId(readString(din)));
+			readAttributes(din, restoredPerson.getAttributes(), converter);
+			int plans = din.readInt();
+			int selected = din.readInt();
+			for (int j = 0; j < plans; j++) {
+				restoredPerson.addPlan(readPlan(din, factory, converter));
+			}
+			restoredPerson.setSelectedPlan(selected < 0 ? null : restoredPerson.getPlans().get(selected));
+			restoredPersons.add(restoredPerson);
+		}
+
+		Map<Id<Person>, Person> restoredById = new HashMap<>();
+		for (Person restoredPerson : restoredPersons) {
+			restoredById.put(restoredPerson.getId(), restoredPerson);
+		}
+		for (Person person : new ArrayList<>(this.population.getPersons().values())) {
+			if (!restoredById.containsKey(person.getId())) {
+				this.population.removePerson(person.getId());
+			}
+		}
+		for (Person restoredPerson : restoredPersons) {
+			Person person = this.population.getPersons().get(restoredPerson.getId());
+			if (person == null) {
+				this.population.addPerson(restoredPerson);
+				continue;
+			}
+			for (Plan plan : new ArrayList<>(person.getPlans())) {
+				person.removePlan(plan);
+			}
+			for (Plan plan : new ArrayList<>(restoredPerson.getPlans())) {
+				person.addPlan(plan);
+			}
+			person.setSelectedPlan(restoredPerson.getSelectedPlan());
+			restoredPerson.getAttributes().getAsMap().forEach(person.getAttributes()::putAttribute);
+		}
+	}
+
+	private static void writePlan(DataOutputStream dout, Plan plan, ObjectAttributesConverter converter) throws IOException {
+		dout.writeBoolean(plan.getScore() != null);
+		if (plan.getScore() != null) {
+			dout.writeDouble(plan.getScore());
+		}
+		writeString(dout, plan.getType());
+		writeAttributes(dout, plan.getAttributes(), converter);
+		dout.writeInt(plan.getPlanElements().size());
+		for (PlanElement pe : plan.getPlanElements()) {
+			if (pe instanceof Activity) {
+				dout.writeByte(ACTIVITY);
+				writeActivity(dout, (Activity) pe, converter);
+			} else if (pe instanceof Leg) {
+				dout.writeByte(LEG);
+				writeLeg(dout, (Leg) pe, converter);
+			} else {
+				throw new IllegalArgumentException("Unsupported plan element " + pe.getClass().getName());
+			}
+		}
+	}
+
+	private static Plan readPlan(DataInputStream din, PopulationFactory factory, ObjectAttributesConverter converter) throws IOException {
+		Plan plan = factory.createPlan();
+		plan.setScore(din.readBoolean() ? din.readDouble() : null);
+		plan.setType(readString(din));
+		readAttributes(din, plan.getAttributes(), converter);
+		int elements = din.readInt();
+		for (int i = 0; i < elements; i++) {
+			byte type = din.readByte();
+			if (type == ACTIVITY) {
+				plan.addActivity(readActivity(din, factory, converter));
+			} else if (type == LEG) {
+				plan.addLeg(readLeg(din, factory, converter));
+			} else {
+				throw new IOException("Unexpected plan element type " + type + " in checkpoint.");
+			}
+		}
+		return plan;
+	}
+
+	private static void writeActivity(DataOutputStream dout, Activity act, ObjectAttributesConverter converter) throws IOException {
+		writeString(dout, act.getType());
+		writeId(dout, act.getLinkId());
+		writeId(dout, act.getFacilityId());
+		Coord coord = act.getCoord();
+		if (coord == null) {
+			dout.writeByte(NO_COORD);
+		} else {
+			dout.writeByte(coord.hasZ() ? COORD_3D : COORD_2D);
+			dout.writeDouble(coord.getX());
+			dout.writeDouble(coord.getY());
+			if (coord.hasZ()) {
+				dout.writeDouble(coord.getZ());
+			}
+		}
+		writeTime(dout, act.getStartTime());
+		writeTime(dout, act.getMaximumDuration());
+		writeTime(dout, act.getEndTime());
+		writeAttributes(dout, act.getAttributes(), converter);
+	}
+
+	private static Activity readActivity(DataInputStream din, PopulationFactory factory, ObjectAttributesConverter converter) throws IOException {
+		String type = readString(din);
+		String linkId = readString(din);
+		Activity act = factory.createActivityFromLinkId(type, linkId == null ? null : Id.createLinkId(linkId));
+		String facilityId = readString(din);
+		if (facilityId != null) {
+			act.setFacilityId(Id.create(facilityId, ActivityFacility.class));
+		}
+		byte coord = din.readByte();
+		if (coord == COORD_2D) {
+			act.setCoord(new Coord(din.readDouble(), din.readDouble()));
+		} else if (coord == COORD_3D) {
+			act.setCoord(new Coord(din.readDouble(), din.readDouble(), din.readDouble()));
+		}
+		readTime(din).ifDefinedOrElse(act::setStartTime, act::setStartTimeUndefined);
+		readTime(din).ifDefinedOrElse(act::setMaximumDuration, act::setMaximumDurationUndefined);
+		readTime(din).ifDefinedOrElse(act::setEndTime, act::setEndTimeUndefined);
+		readAttributes(din, act.getAttributes(), converter);
+		return act;
+	}
+
+	private static void writeLeg(DataOutputStream dout, Leg leg, ObjectAttributesConverter converter) throws IOException {
+		writeString(dout, leg.getMode());
+		writeTime(dout, leg.getDepartureTime());
+		writeTime(dout, leg.getTravelTime());
+		writeAttributes(dout, leg.getAttributes(), converter);
+		Route route = leg.getRoute();
+		dout.writeBoolean(route != null);
+		if (route != null) {
+			writeString(dout, route.getRouteType());
+			writeId(dout, route.getStartLinkId());
+			writeId(dout, route.getEndLinkId());
+			writeTime(dout, route.getTravelTime());
+			dout.writeDouble(route.getDistance());
+			writeString(dout, route.getRouteDescription());
+			if (route instanceof NetworkRoute) {
+				writeId(dout, ((NetworkRoute) route).getVehicleId());
+				dout.writeDouble(((NetworkRoute) route).getTravelCost());
+			}
+		}
+	}
+
+	private static Leg readLeg(DataInputStream din, PopulationFactory factory, ObjectAttributesConverter converter) throws IOException {
+		Leg leg = factory.createLeg(readString(din));
+		readTime(din).ifDefinedOrElse(leg::setDepartureTime, leg::setDepartureTimeUndefined);
+		readTime(din).ifDefinedOrElse(leg::setTravelTime, leg::setTravelTimeUndefined);
+		readAttributes(din, leg.getAttributes(), converter);
+		if (din.readBoolean()) {
+			RouteFactories routeFactories = factory.getRouteFactories();
+			Class<? extends Route> routeClass = routeFactories.getRouteClassForType(readString(din));
+			String startLinkId = readString(din);
+			String endLinkId = readString(din);
+			Route route = routeFactories.createRoute(routeClass,
+					startLinkId == null ? null : Id.create(startLinkId, Link.class),
+					endLinkId == null ? null : Id.create(endLinkId, Link.class));
+			readTime(din).ifDefinedOrElse(route::setTravelTime, route::setTravelTimeUndefined);
+			route.setDistance(din.readDouble());
+			String description = readString(din);
+			if (description != null) {
+				route.setRouteDescription(description);
+			}
+			if (route instanceof NetworkRoute) {
+				String vehicleId = readString(din);
+				((NetworkRoute) route).setVehicleId(vehicleId == null ? null : Id.create(vehicleId, Vehicle.class));
+				((NetworkRoute) route).setTravelCost(din.readDouble());
+			}
+			leg.setRoute(route);
+		}
+		return leg;
+	}
+
+	private static void writeAttributes(DataOutputStream dout, Attributes attributes, ObjectAttributesConverter converter) throws IOException {
+		List<String[]> converted = new ArrayList<>(attributes.size());
+		for (Map.Entry<String, Object> e : attributes.getAsMap().entrySet()) {
+			String value = converter.convertToString(e.getValue());
+			if (value != null) {
+				converted.add(new String[] { e.getKey(), e.getValue().getClass().getName(), value });
+			}
+		}
+		dout.writeInt(converted.size());
+		for (String[] attribute : converted) {
+			writeString(dout, attribute[0]);
+			writeString(dout, attribute[1]);
+			writeString(dout, attribute[2]);
+		}
+	}
+
+	private static void readAttributes(DataInputStream din, Attributes attributes, ObjectAttributesConverter converter) throws IOException {
+		int size = din.readInt();
+		for (int i = 0; i < size; i++) {
+			String name = readString(din);
+			String className = readString(din);
+			Object value = converter.convert(className, readString(din));
+			if (value != null) {
+				attributes.putAttribute(name, value);
+			}
+		}
+	}
+
+	private static void writeTime(DataOutputStream dout, OptionalTime time) throws IOException {
+		dout.writeBoolean(time.isDefined());
+		if (time.isDefined()) {
+			dout.writeDouble(time.seconds());
+		}
+	}
+
+	private static OptionalTime readTime(DataInputStream din) throws IOException {
+		return din.readBoolean() ? OptionalTime.defined(din.readDouble()) : OptionalTime.undefined();
+	}
+
+	private static void writeId(DataOutputStream dout, Id<?> id) throws IOException {
+		writeString(dout, id == null ? null : id.toString());
+	}
+
+	/*
+	 * Unlike DataOutputStream.writeUTF, not limited to 64 kB, which long network routes may exceed.
+	 */
+	private static void writeString(DataOutputStream dout, String s) throws IOException {
+		if (s == null) {
+			dout.writeInt(-1);
+			return;
+		}
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		dout.writeInt(bytes.length);
+		dout.write(bytes);
+	}
+
+	private static String readString(DataInputStream din) throws IOException {
+		int length = din.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		din.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -25,6 +25,7 @@ import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 import org.apache.log4j.Logger;
@@ -378,4 +379,8 @@ public class GenericStrategyManager<PL extends BasicPlan, AG extends HasPlansAnd
 		return getStrategyWeights( subpopulation ).unmodifiableWeights;
 	}
 
+	final Set<String> getSubpopulations() {
+		return Collections.unmodifiableSet( weightsPerSubpopulation.keySet() );
+	}
+
 }
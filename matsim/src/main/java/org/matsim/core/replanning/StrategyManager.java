@@ -28,22 +28,31 @@ import org.matsim.core.api.internal.MatsimManager;
 import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.config.groups.PlansConfigGroup;
 import org.matsim.core.config.groups.StrategyConfigGroup;
+import org.matsim.core.controler.Checkpointable;
 import org.matsim.core.replanning.selectors.PlanSelector;
 import org.matsim.core.replanning.selectors.WorstPlanForRemovalSelector;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Manages and applies strategies to agents for re-planning.
+ * <br>
+ * The current weights of the strategies are part of the checkpoints (see {@link Checkpointable}), as they may
+ * have been changed by other listeners during the iterations.
  *
  * @author mrieser
  * @author kai
  */
 @Singleton
-public class StrategyManager implements MatsimManager {
+public class StrategyManager implements MatsimManager, Checkpointable {
 
 	private static final Logger log = Logger.getLogger(StrategyManager.class);
 
@@ -301,4 +310,44 @@ public class StrategyManager implements MatsimManager {
 	public final List<Double> getWeights(final String subpopulation) {
 		return delegate.getWeights(subpopulation);
 	}
+
+	@Override
+	public void writeCheckpoint(OutputStream out) throws IOException {
+		DataOutputStream dout = new DataOutputStream(out);
+		dout.writeInt(delegate.getSubpopulations().size());
+		for (String subpopulation : delegate.getSubpopulations()) {
+			dout.writeBoolean(subpopulation != null);
+			if (subpopulation != null) {
+				dout.writeUTF(subpopulation);
+			}
+			List<Double> weights = getWeights(subpopulation);
+			dout.writeInt(weights.size());
+			for (double weight : weights) {
+				dout.writeDouble(weight);
+			}
+		}
+		dout.flush();
+	}
+
+	/**
+	 * Restores the weights of the strategies.  The strategies themselves are not part of the checkpoint, they are identified by
+	 * their position, which is given by the order of the strategy settings in the config.
+	 */
+	@Override
+	public void readCheckpoint(InputStream in) throws IOException {
+		DataInputStream din = new DataInputStream(in);
+		int subpopulations = din.readInt();
+		for (int i = 0; i < subpopulations; i++) {
+			String subpopulation = din.readBoolean() ? din.readUTF() : null;
+			List<GenericPlanStrategy<Plan, Person>> strategies = getStrategies(subpopulation);
+			int size = din.readInt();
+			if (size != strategies.size()) {
+				throw new IllegalStateException("The checkpoint contains " + size + " strategies for subpopulation " + subpopulation
+						+ ", but " + strategies.size() + " are defined. Were the strategy settings changed?");
+			}
+			for (int j = 0; j < size; j++) {
+				delegate.changeWeightOfStrategy(strategies.get(j), subpopulation, din.readDouble());
+			}
+		}
+	}
 }
@@ -49,6 +49,7 @@ public class StrategyManagerModule extends AbstractModule {
 		// plan strategies can be looked up under their names (*))
 		
 		bind(StrategyManager.class).in(Singleton.class);
+		addCheckpointableBinding("strategyManager").to(StrategyManager.class);
 		bind(ReplanningContext.class).to(ReplanningContextImpl.class).asEagerSingleton();
 		
 		MapBinder<StrategyConfigGroup.StrategySettings, PlanStrategy> planStrategyMapBinder = MapBinder.newMapBinder(binder(), StrategyConfigGroup.StrategySettings.class, PlanStrategy.class);
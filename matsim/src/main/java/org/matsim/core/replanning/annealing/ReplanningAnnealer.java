@@ -20,7 +20,11 @@
 package org.matsim.core.replanning.annealing;
 
 import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -37,6 +41,7 @@ import org.matsim.api.core.v01.population.Plan;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.config.groups.StrategyConfigGroup;
+import org.matsim.core.controler.Checkpointable;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.core.controler.events.IterationStartsEvent;
 import org.matsim.core.controler.events.StartupEvent;
@@ -54,7 +59,7 @@ import org.matsim.core.utils.io.IOUtils;
  * @author fouriep, davig, jbischoff
  */
 
-public class ReplanningAnnealer implements IterationStartsListener, StartupListener {
+public class ReplanningAnnealer implements IterationStartsListener, StartupListener, Checkpointable {
 
 	private static final Logger log = Logger.getLogger(ReplanningAnnealer.class);
 	private static final String ANNEAL_FILENAME = "annealingRates.txt";
@@ -116,6 +121,26 @@ public class ReplanningAnnealer implements IterationStartsListener, StartupListe
 
 	}
 
+	@Override
+	public void writeCheckpoint(OutputStream out) throws IOException {
+		DataOutputStream dout = new DataOutputStream(out);
+		dout.writeInt(this.currentValues.size());
+		for (Map.Entry<AnnealParameterOption, Double> e : this.currentValues.entrySet()) {
+			dout.writeUTF(e.getKey().name());
+			dout.writeDouble(e.getValue());
+		}
+		dout.flush();
+	}
+
+	@Override
+	public void readCheckpoint(InputStream in) throws IOException {
+		DataInputStream din = new DataInputStream(in);
+		int size = din.readInt();
+		for (int i = 0; i < size; i++) {
+			this.currentValues.put(AnnealParameterOption.valueOf(din.readUTF()), din.readDouble());
+		}
+	}
+
 	@Override
 	public void notifyIterationStarts(IterationStartsEvent event) {
 		this.currentIter = event.getIteration() - this.config.controler().getFirstIteration();
@@ -19,6 +19,10 @@ import com.google.common.base.Preconditions;
  * <p>
  * The implementation does not allocate any memory in the {@link #calculate(int, double, Person, Vehicle)} method. All required memory is pre-allocated in the constructor. This makes the
  * implementation NOT thread-safe.
+ * <p>
+ * The node data is not cleared before each calculation. Instead, each node is stamped with the id of the calculation that visited it last (as in {@link SpeedyDijkstra}),
+ * so a search that is terminated early by a {@link StopCriterion} only costs as much as the part of the graph it has actually explored. Nodes not visited by the latest
+ * calculation are reported as unreachable.
  *
  * @author mrieser / Simunto, sponsored by SBB Swiss Federal Railways
  */
@@ -27,8 +31,11 @@ public class LeastCostPathTree {
     private final SpeedyGraph graph;
     private final TravelTime tt;
     private final TravelDisutility td;
+    private int currentIteration = Integer.MIN_VALUE;
+    private final int[] iterationIds;
     private final double[] data; // 3 entries per node: time, cost, distance
     private final int[] comingFrom;
+    private final int[] usedLink;
     private final SpeedyGraph.LinkIterator outLI;
     private final SpeedyGraph.LinkIterator inLI;
     private final NodeMinHeap pq;
@@ -38,8 +45,10 @@ public class LeastCostPathTree {
         this.tt = tt;
         this.td = td;
         this.data = new double[graph.nodeCount * 3];
+        this.iterationIds = new int[graph.nodeCount];
         this.comingFrom = new int[graph.nodeCount];
-        this.pq = new NodeMinHeap(graph.nodeCount, this::getCost, this::setCost);
+        this.usedLink = new int[graph.nodeCount];
+        this.pq = new NodeMinHeap(graph.nodeCount, this::getCostRaw, this::setCost);
         this.outLI = graph.getOutLinkIterator();
         this.inLI = graph.getInLinkIterator();
     }
@@ -49,20 +58,18 @@ public class LeastCostPathTree {
     }
 
     public void calculate(int startNode, double startTime, Person person, Vehicle vehicle, StopCriterion stopCriterion) {
-        Arrays.fill(this.data, Double.POSITIVE_INFINITY);
-        Arrays.fill(this.comingFrom, -1);
-
+        startIteration();
         setData(startNode, 0, startTime, 0);
+        setComingFrom(startNode, -1, -1);
 
-        this.pq.clear();
         this.pq.insert(startNode);
 
         while (!this.pq.isEmpty()) {
             final int nodeIdx = this.pq.poll();
             double currTime = getTimeRaw(nodeIdx);
             Preconditions.checkState(currTime != Double.POSITIVE_INFINITY, "Undefined Time");
-            double currCost = getCost(nodeIdx);
-            double currDistance = getDistance(nodeIdx);
+            double currCost = getCostRaw(nodeIdx);
+            double currDistance = getDistanceRaw(nodeIdx);
 
             if (stopCriterion.stop(nodeIdx, currTime, currCost, currDistance, startTime)) {
                 break;
@@ -78,17 +85,18 @@ public class LeastCostPathTree {
                 double newTime = currTime + travelTime;
                 double newCost = currCost + this.td.getLinkTravelDisutility(link, currTime, person, vehicle);
 
-                double oldCost = getCost(toNode);
-                if (Double.isFinite(oldCost)) {
+                if (this.iterationIds[toNode] == this.currentIteration) {
+                    // this node was already visited in this calculation
+                    double oldCost = getCostRaw(toNode);
                     if (newCost < oldCost) {
                         this.pq.decreaseKey(toNode, newCost);
                         setData(toNode, newCost, newTime, currDistance + link.getLength());
-                        this.comingFrom[toNode] = nodeIdx;
+                        setComingFrom(toNode, nodeIdx, linkIdx);
                     }
                 } else {
                     setData(toNode, newCost, newTime, currDistance + link.getLength());
+                    setComingFrom(toNode, nodeIdx, linkIdx);
                     this.pq.insert(toNode);
-                    this.comingFrom[toNode] = nodeIdx;
                 }
             }
         }
@@ -99,20 +107,18 @@ public class LeastCostPathTree {
     }
 
     public void calculateBackwards(int arrivalNode, double arrivalTime, Person person, Vehicle vehicle, StopCriterion stopCriterion) {
-        Arrays.fill(this.data, Double.POSITIVE_INFINITY);
-        Arrays.fill(this.comingFrom, -1);
-
+        startIteration();
         setData(arrivalNode, 0, arrivalTime, 0);
+        setComingFrom(arrivalNode, -1, -1);
 
-        this.pq.clear();
         this.pq.insert(arrivalNode);
 
         while (!this.pq.isEmpty()) {
             final int nodeIdx = this.pq.poll();
             double currTime = getTimeRaw(nodeIdx);
             Preconditions.checkState(currTime != Double.POSITIVE_INFINITY, "Undefined Time");
-            double currCost = getCost(nodeIdx);
-            double currDistance = getDistance(nodeIdx);
+            double currCost = getCostRaw(nodeIdx);
+            double currDistance = getDistanceRaw(nodeIdx);
 
             if (stopCriterion.stop(nodeIdx, arrivalTime, currCost, currDistance, currTime)) {
                 break;
@@ -128,23 +134,42 @@ public class LeastCostPathTree {
                 double newTime = currTime - travelTime;
                 double newCost = currCost + this.td.getLinkTravelDisutility(link, currTime, person, vehicle);
 
-                double oldCost = getCost(fromNode);
-                if (Double.isFinite(oldCost)) {
+                if (this.iterationIds[fromNode] == this.currentIteration) {
+                    // this node was already visited in this calculation
+                    double oldCost = getCostRaw(fromNode);
                     if (newCost < oldCost) {
                         this.pq.decreaseKey(fromNode, newCost);
                         setData(fromNode, newCost, newTime, currDistance + link.getLength());
-                        this.comingFrom[fromNode] = nodeIdx;
+                        setComingFrom(fromNode, nodeIdx, linkIdx);
                     }
                 } else {
                     setData(fromNode, newCost, newTime, currDistance + link.getLength());
+                    setComingFrom(fromNode, nodeIdx, linkIdx);
                     this.pq.insert(fromNode);
-                    this.comingFrom[fromNode] = nodeIdx;
                 }
             }
         }
     }
 
+    private void startIteration() {
+        this.currentIteration++;
+        if (this.currentIteration == Integer.MAX_VALUE) {
+            // reset iteration as we overflow
+            Arrays.fill(this.iterationIds, this.currentIteration);
+            this.currentIteration = Integer.MIN_VALUE;
+        }
+        this.pq.clear();
+    }
+
+    private boolean isVisited(int nodeIndex) {
+        return this.iterationIds[nodeIndex] == this.currentIteration;
+    }
+
     public double getCost(int nodeIndex) {
+        return isVisited(nodeIndex) ? getCostRaw(nodeIndex) : Double.POSITIVE_INFINITY;
+    }
+
+    private double getCostRaw(int nodeIndex) {
         return this.data[nodeIndex * 3];
     }
 
@@ -153,6 +178,9 @@ public class LeastCostPathTree {
     }
 
     public OptionalTime getTime(int nodeIndex) {
+        if (!isVisited(nodeIndex)) {
+            return OptionalTime.undefined();
+        }
         double time = getTimeRaw(nodeIndex);
         if (Double.isInfinite(time)) {
             return OptionalTime.undefined();
@@ -161,6 +189,10 @@ public class LeastCostPathTree {
     }
 
     public double getDistance(int nodeIndex) {
+        return isVisited(nodeIndex) ? getDistanceRaw(nodeIndex) : Double.POSITIVE_INFINITY;
+    }
+
+    private double getDistanceRaw(int nodeIndex) {
         return this.data[nodeIndex * 3 + 2];
     }
 
@@ -173,10 +205,29 @@ public class LeastCostPathTree {
         this.data[index] = cost;
         this.data[index + 1] = time;
         this.data[index + 2] = distance;
+        this.iterationIds[nodeIndex] = this.currentIteration;
+    }
+
+    private void setComingFrom(int nodeIndex, int fromNodeIndex, int linkIndex) {
+        this.comingFrom[nodeIndex] = fromNodeIndex;
+        this.usedLink[nodeIndex] = linkIndex;
     }
 
     public int getComingFrom(int nodeIndex) {
-        return this.comingFrom[nodeIndex];
+        return isVisited(nodeIndex) ? this.comingFrom[nodeIndex] : -1;
+    }
+
+    /**
+     * @return the link over which the node has been reached (the in-link in forward search, the out-link in backward search), or {@code null} for the start node and
+     * nodes not visited by the latest calculation. Unlike looking up the link between the node and {@link #getComingFrom(int)}, it is unambiguous if there are
+     * several links between the same pair of nodes.
+     */
+    public Link getComingFromLink(int nodeIndex) {
+        if (!isVisited(nodeIndex)) {
+            return null;
+        }
+        int linkIndex = this.usedLink[nodeIndex];
+        return linkIndex < 0 ? null : this.graph.getLink(linkIndex);
     }
 
     public interface StopCriterion {
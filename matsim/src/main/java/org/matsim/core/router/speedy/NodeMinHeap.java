@@ -45,13 +45,8 @@ class NodeMinHeap {
 	}
 
 	void decreaseKey(int node, double cost) {
-		int i;
-		for (i = 0; i < this.size; i++) {
-			if (this.heap[i] == node) {
-				break;
-			}
-		}
-		if (this.costGetter.getCost(this.heap[i]) < cost) {
+		int i = this.pos[node];
+		if (this.costGetter.getCost(node) < cost) {
 			throw new IllegalArgumentException("existing cost is already smaller than new cost.");
 		}
 
@@ -41,6 +41,7 @@ import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
 import org.matsim.core.api.experimental.events.handler.VehicleArrivesAtFacilityEventHandler;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.controler.Checkpointable;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.router.util.LinkToLinkTravelTime;
 import org.matsim.core.router.util.TravelTime;
@@ -49,6 +50,13 @@ import org.matsim.core.utils.collections.Tuple;
 import org.matsim.vehicles.Vehicle;
 import org.matsim.vehicles.VehicleType;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -65,13 +73,15 @@ import java.util.concurrent.ConcurrentHashMap;
  * use {@link TravelTimeDataHashMap},}
  * as that one does not use any memory to time bins where no traffic occurred. By default,
  * {@link TravelTimeDataArray} is used.
+ * <br>
+ * The collected data can be stored in and restored from checkpoints, see {@link Checkpointable}.
  *
  * @author dgrether
  * @author mrieser
  */
 public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEventHandler,
 									     VehicleEntersTrafficEventHandler, VehicleLeavesTrafficEventHandler, VehicleArrivesAtFacilityEventHandler,
-									     VehicleAbortsEventHandler {
+									     VehicleAbortsEventHandler, Checkpointable {
 	private static final Logger log = Logger.getLogger(TravelTimeCalculator.class);
 
 	private static final String ERROR_STUCK_AND_LINKTOLINK = "Using the stuck feature with turning move travel times is not available. As the next link of a stucked" +
@@ -547,6 +557,66 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		};
 	}
 
+	@Override
+	public void writeCheckpoint(OutputStream out) throws IOException {
+		DataOutputStream dout = new DataOutputStream(new BufferedOutputStream(out));
+		dout.writeInt(this.numSlots);
+		dout.writeInt(this.timeSlice);
+		dout.writeBoolean(this.calculateLinkTravelTimes);
+		if (this.calculateLinkTravelTimes) {
+			dout.writeInt(this.linkData.size());
+			for (Map.Entry<Id<Link>, TravelTimeData> e : this.linkData.entrySet()) {
+				dout.writeUTF(e.getKey().toString());
+				dout.writeBoolean(e.getValue().isNeedingConsolidation());
+				e.getValue().writeData(dout);
+			}
+		}
+		dout.writeBoolean(this.calculateLinkToLinkTravelTimes);
+		if (this.calculateLinkToLinkTravelTimes) {
+			dout.writeInt(this.linkToLinkData.size());
+			for (Map.Entry<Tuple<Id<Link>, Id<Link>>, TravelTimeData> e : this.linkToLinkData.entrySet()) {
+				dout.writeUTF(e.getKey().getFirst().toString());
+				dout.writeUTF(e.getKey().getSecond().toString());
+				dout.writeBoolean(e.getValue().isNeedingConsolidation());
+				e.getValue().writeData(dout);
+			}
+		}
+		dout.flush();
+	}
+
+	@Override
+	public void readCheckpoint(InputStream in) throws IOException {
+		DataInputStream din = new DataInputStream(new BufferedInputStream(in));
+		int numSlots = din.readInt();
+		int timeSlice = din.readInt();
+		if (numSlots != this.numSlots || timeSlice != this.timeSlice) {
+			throw new IllegalStateException("The checkpoint was written with " + numSlots + " time bins of " + timeSlice
+					+ " seconds, but the travel time calculator uses " + this.numSlots + " time bins of " + this.timeSlice + " seconds.");
+		}
+		this.reset(0);
+		if (din.readBoolean()) {
+			int size = din.readInt();
+			for (int i = 0; i < size; i++) {
+				Id<Link> linkId = Id.createLinkId(din.readUTF());
+				boolean needsConsolidation = din.readBoolean();
+				TravelTimeData data = this.dataContainerProvider.getTravelTimeData(linkId, true);
+				data.readData(din);
+				data.setNeedsConsolidation(needsConsolidation);
+			}
+		}
+		if (din.readBoolean()) {
+			int size = din.readInt();
+			for (int i = 0; i < size; i++) {
+				Id<Link> fromLinkId = Id.createLinkId(din.readUTF());
+				Id<Link> toLinkId = Id.createLinkId(din.readUTF());
+				boolean needsConsolidation = din.readBoolean();
+				TravelTimeData data = this.getLinkToLinkTravelTimeData(new Tuple<>(fromLinkId, toLinkId));
+				data.readData(din);
+				data.setNeedsConsolidation(needsConsolidation);
+			}
+		}
+	}
+
 	@Deprecated // use builder.configure(config) instead.  kai, feb'19
 	public void setTtDataFactory( TravelTimeDataFactory ttDataFactory ){
 		// yyyyyy this is currently here for a test, but should be removed.  kai, feb'19
@@ -65,6 +65,9 @@ public class TravelTimeCalculatorModule extends AbstractModule {
 				// generate and bind the observer:
 				bind(TravelTimeCalculator.class).annotatedWith(Names.named(mode)).toProvider(new SingleModeTravelTimeCalculatorProvider(mode)).in(Singleton.class);
 
+				// the observed travel times are used for the replanning after a restart from a checkpoint:
+				addCheckpointableBinding("travelTimes." + mode).to(Key.get(TravelTimeCalculator.class, Names.named(mode)));
+
 				// bind the observer to travel time provider (for router):
 				addTravelTimeBinding(mode).toProvider(new Provider<TravelTime>() {
 					@Inject Injector injector;
@@ -85,6 +88,7 @@ public class TravelTimeCalculatorModule extends AbstractModule {
 			
 			// bind the TravelTimeCalculator, which is the observer and aggregator:
 			bind(TravelTimeCalculator.class).in(Singleton.class);
+			addCheckpointableBinding("travelTimes").to(TravelTimeCalculator.class);
 			
 			// bind the TravelTime objects.  In this case, this just passes on the same information from TravelTimeCalculator to each individual mode:
 			if (getConfig().travelTimeCalculator().isCalculateLinkTravelTimes()) {
@@ -20,6 +20,10 @@
 
 package org.matsim.core.trafficmonitoring;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 abstract class TravelTimeData {
 	// yyyy My (relative strong) intuition would be that the methods of this should accept time in seconds, and do the conversion to bins internally.  Otherwise, we bind the
 	// information of TravelTimeData to uniform time slices forever.  kai, feb'19
@@ -59,6 +63,14 @@ abstract class TravelTimeData {
 	 */
 	abstract double getTravelTime(final int timeSlot, final double now);
 
+	/**
+	 * Writes the raw data of all time slots, such that {@link #readData(DataInput)} restores
+	 * exactly the same state (used for checkpoints).
+	 */
+	abstract void writeData(final DataOutput out) throws IOException;
+
+	abstract void readData(final DataInput in) throws IOException;
+
 	void setNeedsConsolidation( boolean flag ) {
 		this.needsConsolidation = flag ;
 	}
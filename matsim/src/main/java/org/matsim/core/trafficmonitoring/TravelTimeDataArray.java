@@ -22,6 +22,9 @@ package org.matsim.core.trafficmonitoring;
 
 import org.matsim.api.core.v01.network.Link;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Arrays;
 
 /**
@@ -117,6 +120,33 @@ class TravelTimeDataArray extends TravelTimeData {
 		return freespeed;
 	}
 
+	@Override
+	void writeData(final DataOutput out) throws IOException {
+		// only write the time slots that were actually used, the others are restored by resetTravelTimes()
+		long empty = encode(0, -1.0);
+		int used = 0;
+		for (long val : this.data) {
+			if (val != empty) used++;
+		}
+		out.writeInt(used);
+		for (int i = 0; i < this.data.length; i++) {
+			if (this.data[i] != empty) {
+				out.writeInt(i);
+				out.writeLong(this.data[i]);
+			}
+		}
+	}
+
+	@Override
+	void readData(final DataInput in) throws IOException {
+		resetTravelTimes();
+		int used = in.readInt();
+		for (int i = 0; i < used; i++) {
+			int timeSlot = in.readInt();
+			this.data[timeSlot] = in.readLong();
+		}
+	}
+
 	/* package-private for debugging */ String cntToString(){
 		StringBuilder strb = new StringBuilder().append( "cnt=[ " );
 		for( int ii = 0 ; ii < this.data.length ; ii++ ){
@@ -20,6 +20,9 @@
 
 package org.matsim.core.trafficmonitoring;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -85,6 +88,28 @@ class TravelTimeDataHashMap extends TravelTimeData {
 		return ts.timeSum / ts.cnt;
 	}
 
+	@Override
+	void writeData(final DataOutput out) throws IOException {
+		out.writeInt(this.travelTimes.size());
+		for (Map.Entry<Integer, TimeStruct> e : this.travelTimes.entrySet()) {
+			out.writeInt(e.getKey());
+			out.writeInt(e.getValue().cnt);
+			out.writeDouble(e.getValue().timeSum);
+		}
+	}
+
+	@Override
+	void readData(final DataInput in) throws IOException {
+		this.travelTimes.clear();
+		int size = in.readInt();
+		for (int i = 0; i < size; i++) {
+			int timeSlice = in.readInt();
+			int cnt = in.readInt();
+			double timeSum = in.readDouble();
+			this.travelTimes.put(IntegerCache.getInteger(timeSlice), new TimeStruct(timeSum, cnt));
+		}
+	}
+
 	private static class TimeStruct {
 		public double timeSum;
 		public int cnt;
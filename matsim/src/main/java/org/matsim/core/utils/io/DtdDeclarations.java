@@ -0,0 +1,264 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DtdDeclarations.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The parts of a DTD that influence the content reported by a non-validating
+ * parser: default values and types of attributes, internal general entities, and which
+ * elements have element-only content (whitespace within such elements is
+ * ignorable and not reported as character data). Everything else (parameter
+ * entities, notations, the actual content models) is ignored. External general entities are recorded with an empty replacement
+ * text, as MatsimXmlParser does not resolve them.
+ */
+final class DtdDeclarations {
+
+	static final String CDATA = "CDATA";
+
+	static final DtdDeclarations EMPTY = new DtdDeclarations(Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap(),
+			Collections.emptySet());
+
+	private final Map<String, List<String[]>> attributeDefaults;
+	private final Map<String, Map<String, String>> attributeTypes;
+	private final Map<String, String> entities;
+	private final Set<String> elementsWithElementContent;
+
+	private DtdDeclarations(Map<String, List<String[]>> attributeDefaults, Map<String, Map<String, String>> attributeTypes,
+			Map<String, String> entities, Set<String> elementsWithElementContent) {
+		this.attributeDefaults = attributeDefaults;
+		this.attributeTypes = attributeTypes;
+		this.entities = entities;
+		this.elementsWithElementContent = elementsWithElementContent;
+	}
+
+	/**
+	 * @return <code>true</code> if the element is declared to only contain other elements (or nothing)
+	 */
+	boolean hasElementContent(String element) {
+		return this.elementsWithElementContent.contains(element);
+	}
+
+	/**
+	 * @return pairs of attribute name and default value declared for the given element
+	 */
+	List<String[]> getAttributeDefaults(String element) {
+		return this.attributeDefaults.getOrDefault(element, Collections.emptyList());
+	}
+
+	/**
+	 * @return the attribute type as reported by SAX (enumerations as <code>NMTOKEN</code>), or <code>CDATA</code> if the
+	 * attribute is not declared
+	 */
+	String getAttributeType(String element, String attribute) {
+		Map<String, String> types = this.attributeTypes.get(element);
+		return types == null ? CDATA : types.getOrDefault(attribute, CDATA);
+	}
+
+	/**
+	 * @return the replacement text of the given general entity, or <code>null</code> if it is not declared
+	 */
+	String getEntity(String name) {
+		return this.entities.get(name);
+	}
+
+	/**
+	 * Combines two sets of declarations. As in XML, the first declaration of an
+	 * attribute or entity is binding, so the declarations of <code>this</code>
+	 * take precedence (e.g. those of the internal subset over those of the
+	 * external DTD).
+	 */
+	DtdDeclarations merge(DtdDeclarations other) {
+		if (other.isEmpty()) {
+			return this;
+		}
+		if (this.isEmpty()) {
+			return other;
+		}
+		Map<String, List<String[]>> defaults = new HashMap<>(other.attributeDefaults);
+		this.attributeDefaults.forEach((element, attributes) -> {
+			List<String[]> merged = new ArrayList<>(attributes);
+			for (String[] attribute : defaults.getOrDefault(element, Collections.emptyList())) {
+				if (merged.stream().noneMatch(a -> a[0].equals(attribute[0]))) {
+					merged.add(attribute);
+				}
+			}
+			defaults.put(element, merged);
+		});
+		Map<String, Map<String, String>> types = new HashMap<>(other.attributeTypes);
+		this.attributeTypes.forEach((element, attributes) -> {
+			Map<String, String> merged = new HashMap<>(types.getOrDefault(element, Collections.emptyMap()));
+			merged.putAll(attributes);
+			types.put(element, merged);
+		});
+		Map<String, String> entities = new HashMap<>(other.entities);
+		entities.putAll(this.entities);
+		Set<String> elementsWithElementContent = new HashSet<>(other.elementsWithElementContent);
+		elementsWithElementContent.addAll(this.elementsWithElementContent);
+		return new DtdDeclarations(defaults, types, entities, elementsWithElementContent);
+	}
+
+	private boolean isEmpty() {
+		return this.attributeDefaults.isEmpty() && this.attributeTypes.isEmpty() && this.entities.isEmpty()
+				&& this.elementsWithElementContent.isEmpty();
+	}
+
+	static DtdDeclarations parse(String dtd) {
+		Map<String, List<String[]>> defaults = new HashMap<>();
+		Map<String, Map<String, String>> types = new HashMap<>();
+		Map<String, String> entities = new HashMap<>();
+		Set<String> elementsWithElementContent = new HashSet<>();
+
+		int pos = 0;
+		while (true) {
+			int start = dtd.indexOf('<', pos);
+			if (start < 0 || start + 1 >= dtd.length()) {
+				break;
+			}
+			if (dtd.startsWith("<!--", start)) {
+				int end = dtd.indexOf("-->", start + 4);
+				pos = end < 0 ? dtd.length() : end + 3;
+			} else if (dtd.startsWith("<?", start)) {
+				int end = dtd.indexOf("?>", start + 2);
+				pos = end < 0 ? dtd.length() : end + 2;
+			} else {
+				int end = findDeclarationEnd(dtd, start);
+				List<String> tokens = new ArrayList<>();
+				List<Boolean> quoted = new ArrayList<>();
+				tokenize(dtd, start + 2, end, tokens, quoted);
+				if (!tokens.isEmpty()) {
+					String keyword = tokens.get(0);
+					if (keyword.equals("ATTLIST")) {
+						parseAttributeList(tokens, quoted, defaults, types);
+					} else if (keyword.equals("ENTITY")) {
+						parseEntity(tokens, quoted, entities);
+					} else if (keyword.equals("ELEMENT") && tokens.size() >= 3) {
+						String contentModel = tokens.get(2);
+						if (contentModel.equals("EMPTY") || (contentModel.startsWith("(") && !contentModel.contains("#PCDATA"))) {
+							elementsWithElementContent.add(tokens.get(1));
+						}
+					}
+				}
+				pos = end + 1;
+			}
+		}
+		return new DtdDeclarations(defaults, types, entities, elementsWithElementContent);
+	}
+
+	private static void parseAttributeList(List<String> tokens, List<Boolean> quoted, Map<String, List<String[]>> defaults,
+			Map<String, Map<String, String>> types) {
+		if (tokens.size() < 2) {
+			return;
+		}
+		List<String[]> attributes = defaults.computeIfAbsent(tokens.get(1), k -> new ArrayList<>());
+		Map<String, String> attributeTypes = types.computeIfAbsent(tokens.get(1), k -> new HashMap<>());
+		int i = 2;
+		while (i + 2 < tokens.size()) {
+			String name = tokens.get(i++);
+			String type = tokens.get(i++);
+			// as in SAX, enumerations are reported as NMTOKEN
+			attributeTypes.putIfAbsent(name, type.startsWith("(") ? "NMTOKEN" : type);
+			if (type.equals("NOTATION") && i < tokens.size()) {
+				i++; // the list of notations
+			}
+			if (i >= tokens.size()) {
+				break;
+			}
+			String defaultDeclaration = tokens.get(i++);
+			String value = null;
+			if (quoted.get(i - 1)) {
+				value = defaultDeclaration;
+			} else if (defaultDeclaration.equals("#FIXED") && i < tokens.size()) {
+				value = tokens.get(i++);
+			}
+			if (value != null && attributes.stream().noneMatch(a -> a[0].equals(name))) {
+				attributes.add(new String[] { name, value });
+			}
+		}
+	}
+
+	private static void parseEntity(List<String> tokens, List<Boolean> quoted, Map<String, String> entities) {
+		if (tokens.size() < 3 || tokens.get(1).equals("%")) {
+			return; // parameter entities are only relevant for the DTD itself
+		}
+		String name = tokens.get(1);
+		if (!entities.containsKey(name)) {
+			entities.put(name, quoted.get(2) ? tokens.get(2) : "");
+		}
+	}
+
+	private static int findDeclarationEnd(String dtd, int start) {
+		char quote = 0;
+		for (int i = start + 2; i < dtd.length(); i++) {
+			char c = dtd.charAt(i);
+			if (quote != 0) {
+				if (c == quote) {
+					quote = 0;
+				}
+			} else if (c == '"' || c == '\'') {
+				quote = c;
+			} else if (c == '>') {
+				return i;
+			}
+		}
+		return dtd.length();
+	}
+
+	private static void tokenize(String dtd, int start, int end, List<String> tokens, List<Boolean> quoted) {
+		int i = start;
+		while (i < end) {
+			char c = dtd.charAt(i);
+			if (Character.isWhitespace(c)) {
+				i++;
+			} else if (c == '"' || c == '\'') {
+				int close = dtd.indexOf(c, i + 1);
+				if (close < 0 || close > end) {
+					close = end;
+				}
+				tokens.add(dtd.substring(i + 1, close));
+				quoted.add(Boolean.TRUE);
+				i = close + 1;
+			} else if (c == '(') {
+				int close = dtd.indexOf(')', i);
+				if (close < 0 || close > end) {
+					close = end - 1;
+				}
+				tokens.add(dtd.substring(i, close + 1).replaceAll("\\s", ""));
+				quoted.add(Boolean.FALSE);
+				i = close + 1;
+			} else {
+				int j = i;
+				while (j < end && !Character.isWhitespace(dtd.charAt(j)) && dtd.charAt(j) != '"' && dtd.charAt(j) != '\'' && dtd.charAt(j) != '(') {
+					j++;
+				}
+				tokens.add(dtd.substring(i, j));
+				quoted.add(Boolean.FALSE);
+				i = j;
+			}
+		}
+	}
+}
@@ -117,6 +117,15 @@ import java.util.zip.GZIPOutputStream;
  * <li><code>*.zst</code>: ZStandard compression</li>
  * </ul>
  *
+ * By default, compression and decompression run on the calling thread. Use
+ * {@link #setCompressionThreads(int)} to enable multi-threaded compression:
+ * GZIP files are then written as a series of independently compressed members
+ * (see {@link ParallelGZIPOutputStream}) which can be read by any GZIP
+ * implementation, but are decompressed in parallel by MATSim. ZStandard files
+ * are compressed with multiple zstd workers. For all other formats, and for
+ * GZIP files written by other tools, decompression is done ahead on a
+ * background thread.
+ *
  * <h2>Encryption</h2>
  *
  * Files ending with {@code .enc} are assumed to be encrypted and will be handled with {@link CipherUtils}.
@@ -179,6 +188,28 @@ PR ist hier: https://github.com/matsim-org/matsim/pull/646
 	// Logger
 	private final static Logger logger = Logger.getLogger(IOUtils.class);
 
+	// set from the global config by the controler for the duration of a run
+	private static volatile int compressionThreads = 1;
+
+	/**
+	 * Sets the number of threads used to compress and decompress files. With the
+	 * default of 1, all compression is done sequentially on the calling thread.
+	 * <p>
+	 * This is a JVM-wide setting. Within a controler run, it is taken from
+	 * {@link org.matsim.core.config.groups.GlobalConfigGroup#getNumberOfCompressionThreads()}
+	 * and reset to 1 at the end of the run.
+	 */
+	public static void setCompressionThreads(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Number of compression threads must be positive, but is " + threads);
+		}
+		compressionThreads = threads;
+	}
+
+	public static int getCompressionThreads() {
+		return compressionThreads;
+	}
+
 	/**
 	 * This function takes a path and tries to find the file in the file system or
 	 * in the resource path. The order of resolution is as follows:
@@ -277,10 +308,11 @@ PR ist hier: https://github.com/matsim-org/matsim/pull/646
 				inputStream = CipherUtils.getDecryptedInput(inputStream);
 
 			CompressionType compression = getCompression(url);
+			int threads = compressionThreads;
 			if (compression != null) {
 				switch (compression) {
 					case GZIP:
-						inputStream = new GZIPInputStream(inputStream);
+						inputStream = threads > 1 ? ParallelGZIPInputStream.open(inputStream, threads) : new GZIPInputStream(inputStream);
 						break;
 					case LZ4:
 						inputStream = new LZ4FrameInputStream(inputStream);
@@ -292,6 +324,9 @@ PR ist hier: https://github.com/matsim-org/matsim/pull/646
 						inputStream = new ZstdInputStream(inputStream);
 						break;
 				}
+				if (threads > 1 && compression != CompressionType.GZIP) {
+					inputStream = new ReadAheadInputStream(inputStream, 16);
+				}
 			}
 
 			return new UnicodeInputStream(new BufferedInputStream(inputStream));
@@ -345,11 +380,12 @@ PR ist hier: https://github.com/matsim-org/matsim/pull/646
 			}
 
 			OutputStream outputStream = new FileOutputStream(file, append);
+			int threads = compressionThreads;
 
 			if (compression != null) {
 				switch (compression) {
 					case GZIP:
-						outputStream = new GZIPOutputStream(outputStream);
+						outputStream = threads > 1 ? new ParallelGZIPOutputStream(outputStream, threads) : new GZIPOutputStream(outputStream);
 						break;
 					case LZ4:
 						outputStream = new LZ4FrameOutputStream(outputStream);
@@ -358,7 +394,11 @@ PR ist hier: https://github.com/matsim-org/matsim/pull/646
 						outputStream = new CompressorStreamFactory().createCompressorOutputStream(CompressorStreamFactory.BZIP2, outputStream);
 						break;
 					case ZSTD:
-						outputStream = new ZstdOutputStream(outputStream, 6);
+						ZstdOutputStream zstdOutputStream = new ZstdOutputStream(outputStream, 6);
+						if (threads > 1) {
+							zstdOutputStream.setWorkers(threads);
+						}
+						outputStream = zstdOutputStream;
 						break;
 				}
 			}
@@ -29,12 +29,20 @@ import org.xml.sax.helpers.DefaultHandler;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.GZIPInputStream;
 
 /**
@@ -43,6 +51,13 @@ import java.util.zip.GZIPInputStream;
  * to implement a custom parser.<br>
  * The parser implements a custom <code>EntityResolver</code> to look for DTDs in the MATSim world.
  * <p></p>
+ * If validation is disabled, byte streams in UTF-8 (or an ASCII-compatible single-byte encoding) are parsed with a
+ * faster, non-validating pull parser ({@link MatsimXmlPullParser}) instead of SAX. It calls {@link #startTag} and
+ * {@link #endTag} the same way and reports well-formedness errors through {@link #fatalError}, but decodes attribute
+ * values only when they are requested. Inputs given only by a relative or plain-path system id are always parsed with
+ * SAX. SAX can be used for all inputs with {@link #setUseFastParser} or the system property
+ * <code>matsim.fastXmlParser=false</code>.
+ * <p></p>
  * Notes:<ul>
  * <li> If implementing classes want to override the final methods, the will have to resort to delegation.   
  * </ul>
@@ -53,6 +68,8 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 
 	private static final Logger log = Logger.getLogger(MatsimXmlParser.class);
 
+	private static final Map<String, DtdDeclarations> dtdDeclarationsCache = new ConcurrentHashMap<>();
+
 	private final Stack<StringBuffer> buffers = new Stack<>();
 	private final Stack<String> theContext = new Stack<>();
 
@@ -65,6 +82,8 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 	
 	private boolean preferLocalDtds = false;
 
+	private boolean useFastParser = true;
+
 	private String doctype = null;
 	/**
 	 * As the mechanism implemented in InputSource is not really working for error handling
@@ -80,6 +99,20 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 		if (localDtd != null) {
 			this.preferLocalDtds = Boolean.parseBoolean(localDtd);
 		}
+		String fastParser = System.getProperty("matsim.fastXmlParser");
+		if (fastParser != null) {
+			this.useFastParser = Boolean.parseBoolean(fastParser);
+		}
+	}
+
+	/**
+	 * Sets, if non-validating parsing of byte streams should use {@link MatsimXmlPullParser} instead of SAX. Enabled by
+	 * default, can also be disabled with <code>-Dmatsim.fastXmlParser=false</code>. Has no effect on validating parsing.
+	 *
+	 * @param useFastParser Whether the pull parser should be used.
+	 */
+	public final void setUseFastParser(final boolean useFastParser) {
+		this.useFastParser = useFastParser;
 	}
 
 	/**
@@ -146,7 +179,12 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 	public final void readFile(final String filename) throws UncheckedIOException {
 		log.info("starting to parse xml from file " + filename + " ...");
 		this.theSource = filename;
-		parse(new InputSource(IOUtils.getBufferedReader(filename)));
+		if (this.useFastParser && !this.isValidating) {
+			// the fast parser works on the bytes directly
+			parse(new InputSource(IOUtils.getInputStream(IOUtils.resolveFileOrResource(filename))));
+		} else {
+			parse(new InputSource(IOUtils.getBufferedReader(filename)));
+		}
 	}
 
 	@Override
@@ -177,30 +215,66 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 
 	public final void parse(final InputSource input) throws UncheckedIOException {
 		try {
-			SAXParserFactory factory = SAXParserFactory.newInstance();
-			factory.setValidating(this.isValidating);
-			factory.setNamespaceAware(this.isNamespaceAware);
-			factory.setFeature("http://xml.org/sax/features/external-general-entities", false); // prevent XEE attack: https://en.wikipedia.org/wiki/XML_external_entity_attack
-			if (this.isValidating) {
-				// enable optional support for XML Schemas
-				factory.setFeature("http://apache.org/xml/features/validation/schema", true);
-				SAXParser parser = factory.newSAXParser();
-				XMLReader reader = parser.getXMLReader();
-				reader.setContentHandler(this);
-//				reader.setErrorHandler(getErrorHandler());      // (**)
-//				reader.setEntityResolver(getEntityResolver()); // (**)
-				reader.setErrorHandler(this);
-				reader.setEntityResolver(this);
-				reader.parse(input);
-			} else {
-				SAXParser parser = factory.newSAXParser();
-				parser.parse(input, this);
+			URL systemUrl = input.getByteStream() == null ? toAbsoluteUrl(input.getSystemId()) : null;
+			// relative or plain-path systemIds are left to SAX, which resolves them
+			if (this.useFastParser && !this.isValidating && input.getCharacterStream() == null
+					&& (input.getByteStream() != null || systemUrl != null)) {
+				InputStream stream = input.getByteStream() != null ? input.getByteStream() : systemUrl.openStream();
+				BufferedInputStream buffered = new BufferedInputStream(stream);
+				byte[] head = new byte[1024];
+				buffered.mark(head.length);
+				int length = Math.max(0, buffered.readNBytes(head, 0, head.length));
+				buffered.reset();
+				if (MatsimXmlPullParser.isSupported(head, length)) {
+					try (buffered) {
+						new MatsimXmlPullParser(this, this.isNamespaceAware).parse(buffered);
+					}
+					return;
+				}
+				InputSource bufferedInput = new InputSource(buffered);
+				bufferedInput.setSystemId(input.getSystemId());
+				parseWithSax(bufferedInput);
+				return;
 			}
+			parseWithSax(input);
 		} catch (SAXException | ParserConfigurationException | IOException e) {
 			throw new UncheckedIOException(e);
 		}
 	}
 
+	private static URL toAbsoluteUrl(final String systemId) {
+		if (systemId == null) {
+			return null;
+		}
+		try {
+			return new URI(systemId).toURL();
+		} catch (URISyntaxException | IllegalArgumentException | MalformedURLException e) {
+			return null; // not an absolute URL
+		}
+	}
+
+	private void parseWithSax(final InputSource input) throws SAXException, ParserConfigurationException, IOException {
+		SAXParserFactory factory = SAXParserFactory.newInstance();
+		factory.setValidating(this.isValidating);
+		factory.setNamespaceAware(this.isNamespaceAware);
+		factory.setFeature("http://xml.org/sax/features/external-general-entities", false); // prevent XEE attack: https://en.wikipedia.org/wiki/XML_external_entity_attack
+		if (this.isValidating) {
+			// enable optional support for XML Schemas
+			factory.setFeature("http://apache.org/xml/features/validation/schema", true);
+			SAXParser parser = factory.newSAXParser();
+			XMLReader reader = parser.getXMLReader();
+			reader.setContentHandler(this);
+//				reader.setErrorHandler(getErrorHandler());      // (**)
+//				reader.setEntityResolver(getEntityResolver()); // (**)
+			reader.setErrorHandler(this);
+			reader.setEntityResolver(this);
+			reader.parse(input);
+		} else {
+			SAXParser parser = factory.newSAXParser();
+			parser.parse(input, this);
+		}
+	}
+
 	// the following may be useful.  But it is nowhere used, so I am not sure if we fully understand its longterm maintenance implications, 
 	// so I rather comment it out. If it is needed somewhere, just comment it back in (and probably (**) above) 
 	// and leave a comment.  kai, jul'16
@@ -272,6 +346,57 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 		return source;
     }
 
+	/**
+	 * Called by {@link MatsimXmlPullParser} for the DOCTYPE declaration. Sets the doctype like {@link #resolveEntity}
+	 * does, and returns the declarations of the DTD relevant for non-validating parsing. DTDs are only read once
+	 * per JVM, preferring local copies. DTDs that cannot be found are not cached, so they are looked up again next time.
+	 */
+	/* package */ final DtdDeclarations resolveDtdDeclarations(final String publicId, final String systemId) {
+		int index = systemId.replace('\\', '/').lastIndexOf('/');
+		String shortSystemId = systemId.substring(index + 1);
+		if (this.doctype == null) {
+			setDoctype(shortSystemId);
+		}
+
+		DtdDeclarations declarations = dtdDeclarationsCache.get(systemId);
+		if (declarations != null) {
+			return declarations;
+		}
+		InputSource source = findDtdInLocalFilesystem(shortSystemId);
+		if (source == null) {
+			source = findDtdInClasspath(shortSystemId);
+		}
+		if (source == null) {
+			source = findDtdInDefaultLocation(shortSystemId);
+		}
+		if (source == null) {
+			source = findDtdInRemoteLocation(systemId);
+		}
+		if (source == null) {
+			log.warn("Could neither get the DTD from the web nor a local one, attribute default values are not available. " + systemId);
+			return DtdDeclarations.EMPTY;
+		}
+		try (InputStream stream = source.getByteStream() != null ? source.getByteStream() : new FileInputStream(source.getSystemId())) {
+			declarations = DtdDeclarations.parse(new String(stream.readAllBytes(), StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		DtdDeclarations cached = dtdDeclarationsCache.putIfAbsent(systemId, declarations);
+		return cached != null ? cached : declarations;
+	}
+
+	/* package */ final void handleStartTag(final String tag, final Attributes atts) {
+		this.buffers.push(new StringBuffer());
+		this.startTag(tag, atts, this.theContext);
+		this.theContext.push(tag);
+	}
+
+	/* package */ final void handleEndTag(final String tag) {
+		this.theContext.pop();
+		StringBuffer buffer = this.buffers.pop();
+		this.endTag(tag, buffer.toString(), this.theContext);
+	}
+
 	private static InputSource findDtdInRemoteLocation(final String fullSystemId) {
 		log.info("Trying to load " + fullSystemId + ". In some cases (e.g. network interface up but no connection), this may take a bit.");
 		try {
@@ -343,9 +468,7 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 		// I have not good intuition if making this one non-final might be ok.  kai, jul'16
 
 		String tag = (uri.length() == 0) ? qName : localName;
-		this.buffers.push(new StringBuffer());
-		this.startTag(tag, atts, this.theContext);
-		this.theContext.push(tag);
+		handleStartTag(tag, atts);
 	}
 
 	@Override
@@ -353,9 +476,7 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 		// I have not good intuition if making this one non-final might be ok.  kai, jul'16
 		
 		String tag = (uri.length() == 0) ? qName : localName;
-		this.theContext.pop();
-		StringBuffer buffer = this.buffers.pop();
-		this.endTag(tag, buffer.toString(), this.theContext);
+		handleEndTag(tag);
 	}
 
 	/* implement ErrorHandler */
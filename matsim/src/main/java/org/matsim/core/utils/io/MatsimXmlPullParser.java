@@ -0,0 +1,894 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * MatsimXmlPullParser.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A non-validating, streaming XML parser feeding a {@link MatsimXmlParser}.
+ *
+ * The input is read through an NIO channel into a byte buffer and scanned
+ * directly on the bytes. Tag and attribute names are interned in a small table,
+ * so no <code>String</code> is created for them after their first occurrence.
+ * Attribute values are only decoded when they are requested from the
+ * {@link Attributes}. As with SAX, the {@link Attributes} object is reused and
+ * only valid during the <code>startTag</code> call.
+ *
+ * Supported is the subset of XML used by MATSim files: elements, attributes,
+ * character data, CDATA sections, comments, processing instructions, the
+ * predefined and character entities, and a DOCTYPE declaration. The DTD is
+ * only read for attribute default values and types, internal entities and ignorable whitespace (see
+ * {@link DtdDeclarations}). The input must use UTF-8 or an ASCII-compatible
+ * single-byte encoding, see {@link #isSupported(byte[], int)}.
+ *
+ * Well-formedness errors are reported like SAX does, as a {@link SAXParseException}
+ * with line and column number passed to {@link MatsimXmlParser#fatalError}. The
+ * column is counted in bytes, which only differs from SAX for non-ASCII lines.
+ */
+final class MatsimXmlPullParser {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final Pattern ENCODING_PATTERN = Pattern.compile("encoding\\s*=\\s*[\"']([A-Za-z0-9._:-]+)[\"']");
+	private static final Pattern DOCTYPE_PATTERN = Pattern.compile(
+			"<!DOCTYPE\\s+[^\\s\\[>]+(?:\\s+(?:SYSTEM\\s+(\"[^\"]*\"|'[^']*')|PUBLIC\\s+(\"[^\"]*\"|'[^']*')\\s+(\"[^\"]*\"|'[^']*')))?", Pattern.DOTALL);
+
+	private static final byte[] COMMENT_START = "<!--".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] COMMENT_END = "-->".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] CDATA_START = "<![CDATA[".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] CDATA_END = "]]>".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] PI_END = "?>".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] DOCTYPE_START = "<!DOCTYPE".getBytes(StandardCharsets.US_ASCII);
+
+	private final MatsimXmlParser handler;
+	private final boolean namespaceAware;
+	private final NameTable names = new NameTable();
+	private final Map<String, String> localNames = new HashMap<>();
+	private final LazyAttributes attributes = new LazyAttributes();
+	private final List<String> openElements = new ArrayList<>();
+	private boolean rootElementSeen = false;
+
+	private ReadableByteChannel channel;
+	private ByteBuffer byteBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+	private byte[] buf = this.byteBuffer.array();
+	private int pos = 0;
+	private int limit = 0;
+	private long consumed = 0;
+	private int line = 1;
+	private long lineStart = 0;
+	private boolean eof = false;
+
+	private Charset charset = StandardCharsets.UTF_8;
+	private DtdDeclarations declarations = DtdDeclarations.EMPTY;
+	private char[] chars = new char[1024];
+
+	MatsimXmlPullParser(MatsimXmlParser handler, boolean namespaceAware) {
+		this.handler = handler;
+		this.namespaceAware = namespaceAware;
+	}
+
+	/**
+	 * Checks the beginning of a document for an encoding that cannot be handled
+	 * by this parser, i.e. anything but UTF-8 and ASCII-compatible single-byte
+	 * encodings.
+	 */
+	static boolean isSupported(byte[] head, int length) {
+		if (length >= 2 && (head[0] == 0 || head[1] == 0 || (head[0] == (byte) 0xfe && head[1] == (byte) 0xff) || (head[0] == (byte) 0xff && head[1] == (byte) 0xfe))) {
+			return false; // UTF-16 or UTF-32
+		}
+		String start = new String(head, 0, length, StandardCharsets.ISO_8859_1);
+		int declarationEnd = start.indexOf("?>");
+		if (!start.contains("<?xml") || declarationEnd < 0) {
+			return true;
+		}
+		Matcher matcher = ENCODING_PATTERN.matcher(start.substring(0, declarationEnd));
+		if (!matcher.find()) {
+			return true;
+		}
+		String encoding = matcher.group(1).toUpperCase(Locale.ROOT);
+		return encoding.equals("UTF-8") || encoding.equals("UTF8") || encoding.equals("US-ASCII") || encoding.equals("ASCII")
+				|| encoding.startsWith("ISO-8859-") || encoding.startsWith("WINDOWS-125");
+	}
+
+	void parse(InputStream stream) throws SAXException, IOException {
+		this.channel = Channels.newChannel(stream);
+		this.handler.startDocument();
+
+		if (need(3) && this.buf[this.pos] == (byte) 0xef && this.buf[this.pos + 1] == (byte) 0xbb && this.buf[this.pos + 2] == (byte) 0xbf) {
+			this.pos += 3; // UTF-8 byte order mark
+		}
+
+		try {
+			while (this.pos < this.limit || fill()) {
+				if (this.buf[this.pos] == '<') {
+					parseMarkup();
+				} else {
+					parseText();
+				}
+			}
+			if (!this.rootElementSeen) {
+				throw error("Premature end of file.");
+			}
+			if (!this.openElements.isEmpty()) {
+				throw error("XML document structures must start and end within the same entity, unclosed element " + this.openElements.get(this.openElements.size() - 1));
+			}
+		} catch (ParseError e) {
+			this.handler.fatalError(e.exception); // reports and rethrows, as with SAX
+		}
+		this.handler.endDocument();
+	}
+
+	/* buffer management */
+
+	/**
+	 * Reads more data into the buffer. Moves the unconsumed data to the start
+	 * of the buffer first (and grows the buffer if required), so all indices
+	 * relative to <code>pos</code> stay valid, but absolute indices do not.
+	 *
+	 * @return <code>false</code> if the end of the input was reached and no more data could be read
+	 */
+	private boolean fill() throws IOException {
+		if (this.eof) {
+			return false;
+		}
+		this.attributes.materialize();
+		if (this.pos > 0) {
+			countLines(this.pos);
+			System.arraycopy(this.buf, this.pos, this.buf, 0, this.limit - this.pos);
+			this.consumed += this.pos;
+			this.limit -= this.pos;
+			this.pos = 0;
+		}
+		if (this.limit == this.buf.length) {
+			this.buf = Arrays.copyOf(this.buf, this.buf.length * 2);
+			this.byteBuffer = ByteBuffer.wrap(this.buf);
+		}
+		this.byteBuffer.limit(this.buf.length);
+		this.byteBuffer.position(this.limit);
+		int n;
+		do {
+			n = this.channel.read(this.byteBuffer);
+		} while (n == 0);
+		if (n < 0) {
+			this.eof = true;
+			return false;
+		}
+		this.limit += n;
+		return true;
+	}
+
+	/**
+	 * Makes sure at least <code>count</code> bytes are available after <code>pos</code>.
+	 */
+	private boolean need(int count) throws IOException {
+		while (this.limit - this.pos < count) {
+			if (!fill()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the index relative to <code>pos</code> of the given byte sequence, starting the search at <code>from</code>
+	 */
+	private int find(byte[] sequence, int from) throws IOException {
+		int i = from;
+		while (true) {
+			int last = this.limit - this.pos - sequence.length;
+			for (; i <= last; i++) {
+				if (this.buf[this.pos + i] == sequence[0] && matches(this.pos + i, sequence)) {
+					return i;
+				}
+			}
+			if (!fill()) {
+				throw error("Unexpected end of document, missing " + new String(sequence, StandardCharsets.US_ASCII));
+			}
+		}
+	}
+
+	/**
+	 * @return the index relative to <code>pos</code> of the first '&gt;' not enclosed in quotes
+	 */
+	private int findTagEnd() throws IOException {
+		int i = 1;
+		byte quote = 0;
+		while (true) {
+			for (int available = this.limit - this.pos; i < available; i++) {
+				byte b = this.buf[this.pos + i];
+				if (quote != 0) {
+					if (b == quote) {
+						quote = 0;
+					}
+				} else if (b == '"' || b == '\'') {
+					quote = b;
+				} else if (b == '>') {
+					return i;
+				}
+			}
+			if (!fill()) {
+				throw error("Unexpected end of document within tag");
+			}
+		}
+	}
+
+	private boolean matches(int index, byte[] sequence) {
+		if (index + sequence.length > this.limit) {
+			return false;
+		}
+		for (int i = 0; i < sequence.length; i++) {
+			if (this.buf[index + i] != sequence[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/* markup */
+
+	private void parseMarkup() throws IOException, SAXException {
+		if (!need(2)) {
+			throw error("Unexpected end of document");
+		}
+		byte next = this.buf[this.pos + 1];
+		if (next == '/') {
+			parseEndTag();
+		} else if (next == '?') {
+			parseProcessingInstruction();
+		} else if (next == '!') {
+			need(CDATA_START.length);
+			if (matches(this.pos, COMMENT_START)) {
+				int end = find(COMMENT_END, COMMENT_START.length); // may move pos
+				this.pos += end + COMMENT_END.length;
+			} else if (matches(this.pos, CDATA_START)) {
+				if (this.openElements.isEmpty()) {
+					throw errorOutsideRootElement();
+				}
+				int end = find(CDATA_END, CDATA_START.length);
+				emitCharacters(decode(this.pos + CDATA_START.length, this.pos + end, false, false));
+				this.pos += end + CDATA_END.length;
+			} else if (matches(this.pos, DOCTYPE_START)) {
+				if (this.rootElementSeen) {
+					throw errorOutsideRootElement();
+				}
+				parseDoctype();
+			} else {
+				throw error("Unsupported markup declaration");
+			}
+		} else {
+			parseStartTag();
+		}
+	}
+
+	private void parseStartTag() throws IOException, SAXException {
+		if (this.rootElementSeen && this.openElements.isEmpty()) {
+			throw errorOutsideRootElement();
+		}
+		int end = findTagEnd();
+		int start = this.pos;
+		int tagEnd = start + end;
+		boolean isEmptyElement = this.buf[tagEnd - 1] == '/';
+		int attributesEnd = isEmptyElement ? tagEnd - 1 : tagEnd;
+
+		int p = start + 1;
+		int nameEnd = scanName(p, attributesEnd);
+		if (nameEnd == p) {
+			throw error("Element name expected");
+		}
+		String qName = this.names.get(this.buf, p, nameEnd - p, this.charset);
+
+		this.attributes.reset();
+		p = nameEnd;
+		while (true) {
+			p = skipWhitespace(p, attributesEnd);
+			if (p >= attributesEnd) {
+				break;
+			}
+			int attributeNameEnd = scanName(p, attributesEnd);
+			if (attributeNameEnd == p) {
+				throw error("Attribute name expected in element " + qName);
+			}
+			String attributeName = this.names.get(this.buf, p, attributeNameEnd - p, this.charset);
+			p = skipWhitespace(attributeNameEnd, attributesEnd);
+			if (p >= attributesEnd || this.buf[p] != '=') {
+				throw error("Attribute name \"" + attributeName + "\" associated with element \"" + qName + "\" must be followed by the '=' character");
+			}
+			p = skipWhitespace(p + 1, attributesEnd);
+			if (p >= attributesEnd || (this.buf[p] != '"' && this.buf[p] != '\'')) {
+				throw error("Open quote is expected for attribute \"" + attributeName + "\" associated with element \"" + qName + "\"");
+			}
+			byte quote = this.buf[p];
+			int valueStart = p + 1;
+			int valueEnd = valueStart;
+			boolean needsProcessing = false;
+			while (valueEnd < attributesEnd && this.buf[valueEnd] != quote) {
+				byte b = this.buf[valueEnd];
+				if (b == '&' || b == '\t' || b == '\n' || b == '\r') {
+					needsProcessing = true;
+				} else if (b == '<') {
+					throw error("The value of attribute \"" + attributeName + "\" must not contain the '<' character");
+				}
+				valueEnd++;
+			}
+			if (valueEnd >= attributesEnd) {
+				throw error("Attribute value of \"" + attributeName + "\" is not terminated");
+			}
+			p = valueEnd + 1;
+			if (p < attributesEnd && this.buf[p] != ' ' && this.buf[p] != '\t' && this.buf[p] != '\n' && this.buf[p] != '\r') {
+				throw error("Element type \"" + qName + "\" must be followed by either attribute specifications, \">\" or \"/>\".");
+			}
+			if (this.namespaceAware && (attributeName.equals("xmlns") || attributeName.startsWith("xmlns:"))) {
+				continue; // namespace declarations are not reported as attributes, as in SAX
+			}
+			if (this.attributes.contains(attributeName)) {
+				throw error("Attribute \"" + attributeName + "\" was already specified for element \"" + qName + "\".");
+			}
+			this.attributes.add(attributeName, this.declarations.getAttributeType(qName, attributeName), valueStart, valueEnd,
+					needsProcessing);
+		}
+		// entity references are checked right away, so malformed ones are reported even if the value is never requested
+		this.attributes.resolveEntities();
+		for (String[] attributeDefault : this.declarations.getAttributeDefaults(qName)) {
+			if (this.attributes.getIndex(attributeDefault[0]) < 0) {
+				this.attributes.addLiteral(attributeDefault[0],
+						this.declarations.getAttributeType(qName, attributeDefault[0]), attributeDefault[1]);
+			}
+		}
+
+		String tag = this.namespaceAware ? getLocalName(qName) : qName;
+		this.openElements.add(qName);
+		this.rootElementSeen = true;
+		this.handler.handleStartTag(tag, this.attributes);
+		this.pos = tagEnd + 1;
+		if (isEmptyElement) {
+			this.openElements.remove(this.openElements.size() - 1);
+			this.handler.handleEndTag(tag);
+		}
+	}
+
+	private void parseEndTag() throws IOException, SAXException {
+		int end = findTagEnd();
+		int p = this.pos + 2;
+		int nameEnd = scanName(p, this.pos + end);
+		String qName = this.names.get(this.buf, p, nameEnd - p, this.charset);
+		if (skipWhitespace(nameEnd, this.pos + end) != this.pos + end) {
+			throw error("The end-tag for element type \"" + qName + "\" must end with a '>' delimiter");
+		}
+		if (this.openElements.isEmpty() || !this.openElements.get(this.openElements.size() - 1).equals(qName)) {
+			throw error("The end-tag for element type \"" + qName + "\" does not match the start-tag");
+		}
+		this.openElements.remove(this.openElements.size() - 1);
+		this.pos += end + 1;
+		this.handler.handleEndTag(this.namespaceAware ? getLocalName(qName) : qName);
+	}
+
+	private void parseProcessingInstruction() throws IOException {
+		int end = find(PI_END, 2);
+		String instruction = new String(this.buf, this.pos + 2, end - 2, StandardCharsets.ISO_8859_1);
+		if (this.consumed + this.pos <= 3 && instruction.startsWith("xml") && (instruction.length() == 3 || Character.isWhitespace(instruction.charAt(3)))) {
+			Matcher matcher = ENCODING_PATTERN.matcher(instruction);
+			if (matcher.find()) {
+				this.charset = Charset.forName(matcher.group(1));
+			}
+		}
+		this.pos += end + PI_END.length;
+	}
+
+	private void parseDoctype() throws IOException {
+		// find the end of the declaration, taking an internal subset into account
+		int i = DOCTYPE_START.length;
+		int subsetStart = -1;
+		int subsetEnd = -1;
+		byte quote = 0;
+		while (true) {
+			if (this.pos + i >= this.limit && !fill()) {
+				throw error("Unexpected end of document within DOCTYPE");
+			}
+			byte b = this.buf[this.pos + i];
+			if (quote != 0) {
+				if (b == quote) {
+					quote = 0;
+				}
+			} else if (b == '"' || b == '\'') {
+				quote = b;
+			} else if (b == '[' && subsetStart < 0) {
+				subsetStart = i + 1;
+				subsetEnd = find(new byte[] { ']' }, subsetStart);
+				i = subsetEnd;
+			} else if (b == '>') {
+				break;
+			}
+			i++;
+		}
+		String declaration = new String(this.buf, this.pos, subsetStart < 0 ? i : subsetStart, this.charset);
+		String internalSubset = subsetStart < 0 ? null : new String(this.buf, this.pos + subsetStart, subsetEnd - subsetStart, this.charset);
+		this.pos += i + 1;
+
+		String publicId = null;
+		String systemId = null;
+		Matcher matcher = DOCTYPE_PATTERN.matcher(declaration);
+		if (matcher.find()) {
+			if (matcher.group(1) != null) {
+				systemId = unquote(matcher.group(1));
+			} else if (matcher.group(3) != null) {
+				publicId = unquote(matcher.group(2));
+				systemId = unquote(matcher.group(3));
+			}
+		}
+		DtdDeclarations external = systemId == null ? DtdDeclarations.EMPTY : this.handler.resolveDtdDeclarations(publicId, systemId);
+		this.declarations = internalSubset == null ? external : DtdDeclarations.parse(internalSubset).merge(external);
+	}
+
+	private static String unquote(String quoted) {
+		return quoted.substring(1, quoted.length() - 1);
+	}
+
+	/* character data */
+
+	private void parseText() throws IOException, SAXException {
+		int i = 0;
+		int firstNonWhitespace = -1;
+		while (true) {
+			int available = this.limit - this.pos;
+			for (; i < available; i++) {
+				byte c = this.buf[this.pos + i];
+				if (c == '<') {
+					break;
+				}
+				if (firstNonWhitespace < 0 && c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+					firstNonWhitespace = i;
+				}
+			}
+			if (i < available || !fill()) {
+				break;
+			}
+		}
+		if (this.openElements.isEmpty()) {
+			if (firstNonWhitespace >= 0) {
+				this.pos += firstNonWhitespace;
+				throw error(this.rootElementSeen ? "Content is not allowed in trailing section." : "Content is not allowed in prolog.");
+			}
+		} else {
+			// whitespace in elements with element-only content is ignorable, SAX does not report it as characters either
+			boolean isIgnorable = firstNonWhitespace < 0 && this.declarations.hasElementContent(this.openElements.get(this.openElements.size() - 1));
+			if (!isIgnorable) {
+				emitText(this.pos, this.pos + i);
+			}
+		}
+		this.pos += i;
+	}
+
+	private void emitText(int start, int end) throws SAXException {
+		int length = end - start;
+		if (this.chars.length < length) {
+			this.chars = new char[Math.max(length, 2 * this.chars.length)];
+		}
+		// fast path for plain ASCII text, which covers the whitespace between the tags
+		for (int i = 0; i < length; i++) {
+			byte b = this.buf[start + i];
+			if (b < 0 || b == '&' || b == '\r') {
+				emitCharacters(decode(start, end, true, false));
+				return;
+			}
+			this.chars[i] = (char) b;
+		}
+		this.handler.characters(this.chars, 0, length);
+	}
+
+	private void emitCharacters(String text) throws SAXException {
+		int length = text.length();
+		if (this.chars.length < length) {
+			this.chars = new char[Math.max(length, 2 * this.chars.length)];
+		}
+		text.getChars(0, length, this.chars, 0);
+		this.handler.characters(this.chars, 0, length);
+	}
+
+	/**
+	 * Decodes the given bytes, normalizes line breaks and optionally resolves
+	 * entity references and normalizes attribute value whitespace.
+	 */
+	private String decode(int start, int end, boolean resolveEntities, boolean isAttributeValue) {
+		String raw = new String(this.buf, start, end - start, this.charset);
+		if (raw.indexOf('\r') < 0 && (!resolveEntities || raw.indexOf('&') < 0) && (!isAttributeValue || (raw.indexOf('\n') < 0 && raw.indexOf('\t') < 0))) {
+			return raw;
+		}
+		StringBuilder result = new StringBuilder(raw.length());
+		for (int i = 0; i < raw.length(); i++) {
+			char c = raw.charAt(i);
+			if (c == '\r') {
+				if (i + 1 < raw.length() && raw.charAt(i + 1) == '\n') {
+					i++;
+				}
+				result.append(isAttributeValue ? ' ' : '\n');
+			} else if (isAttributeValue && (c == '\n' || c == '\t')) {
+				result.append(' ');
+			} else if (c == '&' && resolveEntities) {
+				int semicolon = raw.indexOf(';', i);
+				if (semicolon < 0) {
+					throw error("The entity name must immediately be followed by the ';' delimiter");
+				}
+				appendEntity(result, raw.substring(i + 1, semicolon));
+				i = semicolon;
+			} else {
+				result.append(c);
+			}
+		}
+		return result.toString();
+	}
+
+	private void appendEntity(StringBuilder result, String name) {
+		switch (name) {
+			case "lt": result.append('<'); return;
+			case "gt": result.append('>'); return;
+			case "amp": result.append('&'); return;
+			case "quot": result.append('"'); return;
+			case "apos": result.append('\''); return;
+			default:
+		}
+		if (name.startsWith("#")) {
+			try {
+				int codePoint = name.startsWith("#x") ? Integer.parseInt(name.substring(2), 16) : Integer.parseInt(name.substring(1));
+				result.appendCodePoint(codePoint);
+				return;
+			} catch (IllegalArgumentException e) {
+				throw error("Invalid character reference &" + name + ";");
+			}
+		}
+		String replacement = this.declarations.getEntity(name);
+		if (replacement == null) {
+			throw error("The entity \"" + name + "\" was referenced, but not declared.");
+		}
+		result.append(replacement);
+	}
+
+	/* helpers */
+
+	private int scanName(int p, int end) {
+		while (p < end) {
+			byte b = this.buf[p];
+			if (b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '=' || b == '/' || b == '>') {
+				break;
+			}
+			p++;
+		}
+		return p;
+	}
+
+	private int skipWhitespace(int p, int end) {
+		while (p < end) {
+			byte b = this.buf[p];
+			if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+				break;
+			}
+			p++;
+		}
+		return p;
+	}
+
+	private String getLocalName(String qName) {
+		int colon = qName.indexOf(':');
+		if (colon < 0) {
+			return qName;
+		}
+		return this.localNames.computeIfAbsent(qName, n -> n.substring(colon + 1));
+	}
+
+	/**
+	 * Counts the line breaks in the buffer up to <code>end</code>, before these bytes are discarded.
+	 */
+	private void countLines(int end) {
+		for (int i = 0; i < end; i++) {
+			if (this.buf[i] == '\n') {
+				this.line++;
+				this.lineStart = this.consumed + i + 1;
+			}
+		}
+	}
+
+	/**
+	 * @return an error located at the construct starting at <code>pos</code>
+	 */
+	private ParseError error(String message) {
+		int errorLine = this.line;
+		long errorLineStart = this.lineStart;
+		for (int i = 0; i < this.pos && i < this.limit; i++) {
+			if (this.buf[i] == '\n') {
+				errorLine++;
+				errorLineStart = this.consumed + i + 1;
+			}
+		}
+		int column = (int) (this.consumed + this.pos - errorLineStart) + 1;
+		return new ParseError(new SAXParseException(message, null, null, errorLine, column));
+	}
+
+	private ParseError errorOutsideRootElement() {
+		return error(this.rootElementSeen ? "The markup in the document following the root element must be well-formed."
+				: "The markup in the document preceding the root element must be well-formed.");
+	}
+
+	/**
+	 * Carries a {@link SAXParseException} out of methods that cannot throw checked exceptions, e.g. {@link Attributes#getValue}.
+	 */
+	private static final class ParseError extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+		private final SAXParseException exception;
+
+		ParseError(SAXParseException exception) {
+			super(exception.getMessage(), exception);
+			this.exception = exception;
+		}
+	}
+
+	/**
+	 * A hash table mapping byte sequences to (interned) strings, so that names
+	 * only need to be decoded the first time they are encountered.
+	 */
+	private static final class NameTable {
+		private byte[][] keys = new byte[256][];
+		private int[] hashes = new int[256];
+		private String[] values = new String[256];
+		private int size = 0;
+
+		String get(byte[] b, int offset, int length, Charset charset) {
+			int hash = 1;
+			for (int i = 0; i < length; i++) {
+				hash = 31 * hash + b[offset + i];
+			}
+			int mask = this.keys.length - 1;
+			int index = (hash ^ (hash >>> 16)) & mask;
+			byte[] key;
+			while ((key = this.keys[index]) != null) {
+				if (this.hashes[index] == hash && Arrays.equals(key, 0, key.length, b, offset, offset + length)) {
+					return this.values[index];
+				}
+				index = (index + 1) & mask;
+			}
+			String value = new String(b, offset, length, charset).intern();
+			this.keys[index] = Arrays.copyOfRange(b, offset, offset + length);
+			this.hashes[index] = hash;
+			this.values[index] = value;
+			if (++this.size * 2 > this.keys.length) {
+				rehash();
+			}
+			return value;
+		}
+
+		private void rehash() {
+			byte[][] oldKeys = this.keys;
+			int[] oldHashes = this.hashes;
+			String[] oldValues = this.values;
+			this.keys = new byte[oldKeys.length * 2][];
+			this.hashes = new int[oldKeys.length * 2];
+			this.values = new String[oldKeys.length * 2];
+			int mask = this.keys.length - 1;
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != null) {
+					int index = (oldHashes[i] ^ (oldHashes[i] >>> 16)) & mask;
+					while (this.keys[index] != null) {
+						index = (index + 1) & mask;
+					}
+					this.keys[index] = oldKeys[i];
+					this.hashes[index] = oldHashes[i];
+					this.values[index] = oldValues[i];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Attributes referencing the value bytes in the parser's buffer. Values are
+	 * decoded on first access. Values of attributes not declared as CDATA are
+	 * additionally normalized (leading and trailing spaces removed, sequences of
+	 * spaces collapsed), as SAX does after having read the declaration.
+	 */
+	private final class LazyAttributes implements Attributes {
+		private int length = 0;
+		private String[] qNames = new String[16];
+		private String[] types = new String[16];
+		private int[] starts = new int[16];
+		private int[] ends = new int[16];
+		private boolean[] needsProcessing = new boolean[16];
+		private String[] values = new String[16];
+
+		void reset() {
+			Arrays.fill(this.values, 0, this.length, null);
+			this.length = 0;
+		}
+
+		void add(String qName, String type, int start, int end, boolean needsProcessing) {
+			if (this.length == this.qNames.length) {
+				int capacity = 2 * this.length;
+				this.qNames = Arrays.copyOf(this.qNames, capacity);
+				this.types = Arrays.copyOf(this.types, capacity);
+				this.starts = Arrays.copyOf(this.starts, capacity);
+				this.ends = Arrays.copyOf(this.ends, capacity);
+				this.needsProcessing = Arrays.copyOf(this.needsProcessing, capacity);
+				this.values = Arrays.copyOf(this.values, capacity);
+			}
+			this.qNames[this.length] = qName;
+			this.types[this.length] = type;
+			this.starts[this.length] = start;
+			this.ends[this.length] = end;
+			this.needsProcessing[this.length] = needsProcessing;
+			this.values[this.length] = null;
+			this.length++;
+		}
+
+		boolean contains(String qName) {
+			for (int i = 0; i < this.length; i++) {
+				if (this.qNames[i] == qName) { // names are interned
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Decodes the values containing entity references.
+		 */
+		void resolveEntities() {
+			for (int i = 0; i < this.length; i++) {
+				if (this.needsProcessing[i] && this.values[i] == null) {
+					for (int b = this.starts[i]; b < this.ends[i]; b++) {
+						if (MatsimXmlPullParser.this.buf[b] == '&') {
+							getValue(i);
+							break;
+						}
+					}
+				}
+			}
+		}
+
+		void addLiteral(String qName, String type, String value) {
+			add(qName, type, 0, 0, false);
+			this.values[this.length - 1] = isCdata(type) ? value : normalize(value);
+		}
+
+		/**
+		 * Decodes all values that were not yet requested, as the buffer is about to change.
+		 */
+		void materialize() {
+			for (int i = 0; i < this.length; i++) {
+				getValue(i);
+			}
+		}
+
+		@Override
+		public int getLength() {
+			return this.length;
+		}
+
+		@Override
+		public String getURI(int index) {
+			return index >= 0 && index < this.length ? "" : null;
+		}
+
+		@Override
+		public String getLocalName(int index) {
+			return index >= 0 && index < this.length ? MatsimXmlPullParser.this.getLocalName(this.qNames[index]) : null;
+		}
+
+		@Override
+		public String getQName(int index) {
+			return index >= 0 && index < this.length ? this.qNames[index] : null;
+		}
+
+		@Override
+		public String getType(int index) {
+			return index >= 0 && index < this.length ? this.types[index] : null;
+		}
+
+		@Override
+		public String getValue(int index) {
+			if (index < 0 || index >= this.length) {
+				return null;
+			}
+			String value = this.values[index];
+			if (value == null) {
+				value = this.needsProcessing[index]
+						? decode(this.starts[index], this.ends[index], true, true)
+						: new String(MatsimXmlPullParser.this.buf, this.starts[index], this.ends[index] - this.starts[index], MatsimXmlPullParser.this.charset);
+				if (!isCdata(this.types[index])) {
+					value = normalize(value);
+				}
+				this.values[index] = value;
+			}
+			return value;
+		}
+
+		private boolean isCdata(String type) {
+			return type == DtdDeclarations.CDATA || type.equals(DtdDeclarations.CDATA);
+		}
+
+		private String normalize(String value) {
+			StringBuilder normalized = new StringBuilder(value.length());
+			for (int i = 0; i < value.length(); i++) {
+				char c = value.charAt(i);
+				if (c != ' ' || (normalized.length() > 0 && normalized.charAt(normalized.length() - 1) != ' ')) {
+					normalized.append(c);
+				}
+			}
+			int end = normalized.length();
+			if (end > 0 && normalized.charAt(end - 1) == ' ') {
+				normalized.setLength(end - 1);
+			}
+			return normalized.toString();
+		}
+
+		@Override
+		public int getIndex(String uri, String localName) {
+			for (int i = 0; i < this.length; i++) {
+				if (getLocalName(i).equals(localName)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		public int getIndex(String qName) {
+			for (int i = 0; i < this.length; i++) {
+				if (this.qNames[i].equals(qName)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		public String getType(String uri, String localName) {
+			return getType(getIndex(uri, localName));
+		}
+
+		@Override
+		public String getType(String qName) {
+			return getType(getIndex(qName));
+		}
+
+		@Override
+		public String getValue(String uri, String localName) {
+			return getValue(getIndex(uri, localName));
+		}
+
+		@Override
+		public String getValue(String qName) {
+			return getValue(getIndex(qName));
+		}
+	}
+}
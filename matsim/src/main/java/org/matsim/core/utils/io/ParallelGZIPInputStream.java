@@ -0,0 +1,169 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelGZIPInputStream.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Decompresses GZIP files written by {@link ParallelGZIPOutputStream} on
+ * several threads. The members of the file are located using the member size
+ * stored in the header's extra field and inflated in parallel, while the
+ * consuming thread reads the already inflated members in order.
+ *
+ * If a member without this extra field is encountered (e.g. because the file
+ * was written by another tool, or other data was appended to the file), the
+ * remaining data is decompressed sequentially, but still ahead of the reading
+ * thread.
+ *
+ * Use {@link #open(InputStream, int)} to get a suitable stream for any GZIP
+ * input.
+ */
+final class ParallelGZIPInputStream extends ReadAheadInputStream {
+
+	private final ExecutorService executor;
+
+	private ParallelGZIPInputStream(InputStream in, int threads) {
+		super(in, 2 * threads);
+		this.executor = Executors.newFixedThreadPool(threads, r -> {
+			Thread thread = new Thread(r, "ParallelGZIPInputStream");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Returns a stream decompressing the given GZIP input. Files written by
+	 * {@link ParallelGZIPOutputStream} are decompressed in parallel using the
+	 * given number of threads, all other files are decompressed sequentially
+	 * on a background thread.
+	 */
+	static InputStream open(InputStream in, int threads) throws IOException {
+		BufferedInputStream buffered = new BufferedInputStream(in, ReadAheadInputStream.CHUNK_SIZE);
+		byte[] header = new byte[ParallelGZIPOutputStream.HEADER_LENGTH];
+		buffered.mark(header.length);
+		int length = readFully(buffered, header, 0, header.length);
+		buffered.reset();
+
+		if (ParallelGZIPOutputStream.getMemberSize(header, length) > 0) {
+			return new ParallelGZIPInputStream(buffered, threads);
+		}
+		return new ReadAheadInputStream(new GZIPInputStream(buffered, ReadAheadInputStream.CHUNK_SIZE), 16);
+	}
+
+	@Override
+	protected void readAhead() throws IOException, InterruptedException {
+		byte[] header = new byte[ParallelGZIPOutputStream.HEADER_LENGTH];
+		while (!isClosed()) {
+			int length = readFully(this.in, header, 0, header.length);
+			if (length == 0) {
+				return;
+			}
+			int memberSize = ParallelGZIPOutputStream.getMemberSize(header, length);
+			if (memberSize < 0) {
+				readAheadSequentially(header, length);
+				return;
+			}
+			byte[] member = Arrays.copyOf(header, memberSize);
+			int remaining = memberSize - header.length;
+			if (readFully(this.in, member, header.length, remaining) != remaining) {
+				throw new EOFException("Unexpected end of GZIP member");
+			}
+			enqueue(this.executor.submit(() -> inflate(member)));
+		}
+	}
+
+	private void readAheadSequentially(byte[] header, int length) throws IOException, InterruptedException {
+		InputStream rest = new SequenceInputStream(new ByteArrayInputStream(header, 0, length), this.in);
+		try (GZIPInputStream gzip = new GZIPInputStream(rest, CHUNK_SIZE)) {
+			while (!isClosed()) {
+				byte[] chunk = new byte[CHUNK_SIZE];
+				int n = readFully(gzip, chunk, 0, CHUNK_SIZE);
+				if (n == 0) {
+					return;
+				}
+				enqueue(CompletableFuture.completedFuture(n == CHUNK_SIZE ? chunk : Arrays.copyOf(chunk, n)));
+			}
+		}
+	}
+
+	private static byte[] inflate(byte[] member) throws IOException {
+		int dataEnd = member.length - ParallelGZIPOutputStream.TRAILER_LENGTH;
+		int expectedCrc = ParallelGZIPOutputStream.readIntLE(member, dataEnd);
+		int size = ParallelGZIPOutputStream.readIntLE(member, dataEnd + 4);
+		if (size < 0) {
+			throw new ZipException("Invalid GZIP member size");
+		}
+		if (size == 0) {
+			return new byte[0];
+		}
+
+		byte[] data = new byte[size];
+		Inflater inflater = new Inflater(true);
+		try {
+			inflater.setInput(member, ParallelGZIPOutputStream.HEADER_LENGTH, dataEnd - ParallelGZIPOutputStream.HEADER_LENGTH);
+			int position = 0;
+			while (!inflater.finished()) {
+				int n = inflater.inflate(data, position, size - position);
+				if (n == 0 && (inflater.needsInput() || inflater.needsDictionary() || position == size)) {
+					throw new ZipException("Corrupt GZIP member");
+				}
+				position += n;
+			}
+			if (position != size) {
+				throw new ZipException("Corrupt GZIP member (wrong size)");
+			}
+		} catch (DataFormatException e) {
+			throw new ZipException(e.getMessage());
+		} finally {
+			inflater.end();
+		}
+
+		CRC32 crc = new CRC32();
+		crc.update(data, 0, size);
+		if ((int) crc.getValue() != expectedCrc) {
+			throw new ZipException("Corrupt GZIP member (wrong CRC)");
+		}
+		return data;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			super.close();
+		} finally {
+			this.executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,261 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelGZIPOutputStream.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A GZIP output stream that compresses the data in blocks on several threads,
+ * similar to <a href="https://zlib.net/pigz/">pigz</a>.
+ *
+ * Every block is written as a complete GZIP member. Concatenated members are a
+ * valid GZIP file, so the output can be read with any GZIP implementation,
+ * including {@link java.util.zip.GZIPInputStream}. In addition, each member
+ * header contains an extra field with the compressed size of the member, which
+ * allows {@link ParallelGZIPInputStream} to split the file into members without
+ * inflating it and to decompress the members in parallel.
+ *
+ * Like {@link java.util.zip.GZIPOutputStream}, {@link #flush()} only writes the
+ * blocks that are already completely filled.
+ */
+final class ParallelGZIPOutputStream extends OutputStream {
+
+	static final int BLOCK_SIZE = 1024 * 1024;
+
+	// header: magic (2), method (1), flags (1), mtime (4), xfl (1), os (1), xlen (2), subfield id (2), subfield len (2), member size (4)
+	static final int HEADER_LENGTH = 20;
+	static final int TRAILER_LENGTH = 8;
+
+	private static final byte FLAG_EXTRA = 0x04;
+	private static final byte SUBFIELD_ID1 = 'M';
+	private static final byte SUBFIELD_ID2 = 'P';
+
+	private final OutputStream out;
+	private final ExecutorService executor;
+	private final int maxPendingBlocks;
+	private final int level;
+	private final Deque<Future<Member>> pending = new ArrayDeque<>();
+
+	private byte[] block = new byte[BLOCK_SIZE];
+	private int blockLength = 0;
+	private boolean anyMemberWritten = false;
+	private boolean closed = false;
+
+	ParallelGZIPOutputStream(OutputStream out, int threads) {
+		this(out, threads, Deflater.DEFAULT_COMPRESSION);
+	}
+
+	ParallelGZIPOutputStream(OutputStream out, int threads, int level) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Number of threads must be positive, but is " + threads);
+		}
+		this.out = out;
+		this.level = level;
+		this.maxPendingBlocks = 2 * threads;
+		this.executor = Executors.newFixedThreadPool(threads, r -> {
+			Thread thread = new Thread(r, "ParallelGZIPOutputStream");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		ensureOpen();
+		this.block[this.blockLength++] = (byte) b;
+		if (this.blockLength == BLOCK_SIZE) {
+			submitBlock();
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		ensureOpen();
+		while (len > 0) {
+			int n = Math.min(len, BLOCK_SIZE - this.blockLength);
+			System.arraycopy(b, off, this.block, this.blockLength, n);
+			this.blockLength += n;
+			off += n;
+			len -= n;
+			if (this.blockLength == BLOCK_SIZE) {
+				submitBlock();
+			}
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		while (!this.pending.isEmpty() && this.pending.peekFirst().isDone()) {
+			writeMember(this.pending.pollFirst());
+		}
+		this.out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (this.closed) {
+			return;
+		}
+		try {
+			if (this.blockLength > 0 || !this.anyMemberWritten) {
+				submitBlock();
+			}
+			while (!this.pending.isEmpty()) {
+				writeMember(this.pending.pollFirst());
+			}
+		} finally {
+			this.closed = true;
+			this.executor.shutdownNow();
+			this.out.close();
+		}
+	}
+
+	private void ensureOpen() throws IOException {
+		if (this.closed) {
+			throw new IOException("Stream closed");
+		}
+	}
+
+	private void submitBlock() throws IOException {
+		final byte[] data = this.block;
+		final int length = this.blockLength;
+		this.pending.addLast(this.executor.submit(() -> compress(data, length, this.level)));
+		this.anyMemberWritten = true;
+		this.block = new byte[BLOCK_SIZE];
+		this.blockLength = 0;
+
+		while (this.pending.size() > this.maxPendingBlocks) {
+			writeMember(this.pending.pollFirst());
+		}
+	}
+
+	private void writeMember(Future<Member> future) throws IOException {
+		try {
+			Member member = future.get();
+			this.out.write(member.data, 0, member.length);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		}
+	}
+
+	private static Member compress(byte[] data, int length, int level) {
+		Deflater deflater = new Deflater(level, true);
+		try {
+			deflater.setInput(data, 0, length);
+			deflater.finish();
+
+			byte[] buffer = new byte[HEADER_LENGTH + length + (length >> 8) + 64 + TRAILER_LENGTH];
+			int position = HEADER_LENGTH;
+			while (!deflater.finished()) {
+				if (position == buffer.length) {
+					buffer = Arrays.copyOf(buffer, buffer.length * 2);
+				}
+				position += deflater.deflate(buffer, position, buffer.length - position);
+			}
+			if (buffer.length < position + TRAILER_LENGTH) {
+				buffer = Arrays.copyOf(buffer, position + TRAILER_LENGTH);
+			}
+
+			CRC32 crc = new CRC32();
+			crc.update(data, 0, length);
+			int memberSize = position + TRAILER_LENGTH;
+
+			buffer[0] = (byte) 0x1f;
+			buffer[1] = (byte) 0x8b;
+			buffer[2] = Deflater.DEFLATED;
+			buffer[3] = FLAG_EXTRA;
+			writeIntLE(buffer, 4, 0); // mtime
+			buffer[8] = 0; // xfl
+			buffer[9] = (byte) 0xff; // os: unknown
+			writeShortLE(buffer, 10, 8); // xlen
+			buffer[12] = SUBFIELD_ID1;
+			buffer[13] = SUBFIELD_ID2;
+			writeShortLE(buffer, 14, 4);
+			writeIntLE(buffer, 16, memberSize);
+
+			writeIntLE(buffer, position, (int) crc.getValue());
+			writeIntLE(buffer, position + 4, length);
+			return new Member(buffer, memberSize);
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Returns the size of the GZIP member starting with the given header, if the
+	 * member was written by this class, or <code>-1</code> otherwise.
+	 */
+	static int getMemberSize(byte[] header, int length) {
+		if (length < HEADER_LENGTH
+				|| header[0] != (byte) 0x1f || header[1] != (byte) 0x8b
+				|| header[2] != Deflater.DEFLATED || header[3] != FLAG_EXTRA
+				|| readShortLE(header, 10) != 8
+				|| header[12] != SUBFIELD_ID1 || header[13] != SUBFIELD_ID2
+				|| readShortLE(header, 14) != 4) {
+			return -1;
+		}
+		int size = readIntLE(header, 16);
+		return size < HEADER_LENGTH + TRAILER_LENGTH ? -1 : size;
+	}
+
+	static int readShortLE(byte[] b, int offset) {
+		return (b[offset] & 0xff) | ((b[offset + 1] & 0xff) << 8);
+	}
+
+	static int readIntLE(byte[] b, int offset) {
+		return readShortLE(b, offset) | (readShortLE(b, offset + 2) << 16);
+	}
+
+	private static void writeShortLE(byte[] b, int offset, int value) {
+		b[offset] = (byte) value;
+		b[offset + 1] = (byte) (value >>> 8);
+	}
+
+	private static void writeIntLE(byte[] b, int offset, int value) {
+		writeShortLE(b, offset, value);
+		writeShortLE(b, offset + 2, value >>> 16);
+	}
+
+	private static final class Member {
+		final byte[] data;
+		final int length;
+
+		Member(byte[] data, int length) {
+			this.data = data;
+			this.length = length;
+		}
+	}
+}
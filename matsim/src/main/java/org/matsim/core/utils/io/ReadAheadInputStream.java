@@ -0,0 +1,193 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ReadAheadInputStream.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Reads an input stream on a background thread and hands the data over to the
+ * consuming thread in chunks. Wrapping a decompressing stream with this class
+ * lets decompression run concurrently to the parsing of the data.
+ *
+ * Subclasses may override {@link #readAhead()} to produce the chunks in a
+ * different way, e.g. by decompressing several blocks in parallel. The chunks
+ * are consumed in the order in which they were enqueued.
+ */
+class ReadAheadInputStream extends InputStream {
+
+	static final int CHUNK_SIZE = 64 * 1024;
+
+	private static final byte[] EMPTY = new byte[0];
+	private static final Future<byte[]> END = CompletableFuture.completedFuture(null);
+
+	protected final InputStream in;
+	private final BlockingQueue<Future<byte[]>> queue;
+	private Thread thread = null;
+
+	private byte[] current = EMPTY;
+	private int position = 0;
+	private boolean eof = false;
+	private volatile boolean closed = false;
+
+	ReadAheadInputStream(InputStream in, int capacity) {
+		this.in = in;
+		this.queue = new ArrayBlockingQueue<>(capacity);
+	}
+
+	/**
+	 * Produces the chunks of data and passes them to {@link #enqueue(Future)}.
+	 * Runs on the background thread and must return once the end of the stream
+	 * is reached.
+	 */
+	protected void readAhead() throws IOException, InterruptedException {
+		while (!this.closed) {
+			byte[] chunk = new byte[CHUNK_SIZE];
+			int length = readFully(this.in, chunk, 0, CHUNK_SIZE);
+			if (length == 0) {
+				return;
+			}
+			enqueue(CompletableFuture.completedFuture(length == CHUNK_SIZE ? chunk : Arrays.copyOf(chunk, length)));
+			if (length < CHUNK_SIZE) {
+				return;
+			}
+		}
+	}
+
+	protected final void enqueue(Future<byte[]> chunk) throws InterruptedException {
+		this.queue.put(chunk);
+	}
+
+	protected final boolean isClosed() {
+		return this.closed;
+	}
+
+	private void run() {
+		try {
+			readAhead();
+			enqueue(END);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException | RuntimeException e) {
+			CompletableFuture<byte[]> failure = new CompletableFuture<>();
+			failure.completeExceptionally(e);
+			try {
+				enqueue(failure);
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void nextChunk() throws IOException {
+		if (this.thread == null) {
+			this.thread = new Thread(this::run, getClass().getSimpleName());
+			this.thread.setDaemon(true);
+			this.thread.start();
+		}
+		try {
+			byte[] chunk = this.queue.take().get();
+			if (chunk == null) {
+				this.eof = true;
+			} else {
+				this.current = chunk;
+				this.position = 0;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	@Override
+	public int read() throws IOException {
+		byte[] b = new byte[1];
+		int n = read(b, 0, 1);
+		return n < 0 ? -1 : (b[0] & 0xff);
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (this.closed) {
+			throw new IOException("Stream closed");
+		}
+		if (len == 0) {
+			return 0;
+		}
+		while (this.position == this.current.length) {
+			if (this.eof) {
+				return -1;
+			}
+			nextChunk();
+		}
+		int n = Math.min(len, this.current.length - this.position);
+		System.arraycopy(this.current, this.position, b, off, n);
+		this.position += n;
+		return n;
+	}
+
+	@Override
+	public int available() {
+		return this.current.length - this.position;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		if (this.thread != null) {
+			this.thread.interrupt();
+		}
+		this.in.close();
+	}
+
+	/**
+	 * Reads until either <code>len</code> bytes are read or the end of the stream
+	 * is reached.
+	 *
+	 * @return the number of bytes actually read
+	 */
+	static int readFully(InputStream in, byte[] b, int off, int len) throws IOException {
+		int total = 0;
+		while (total < len) {
+			int n = in.read(b, off + total, len - total);
+			if (n < 0) {
+				break;
+			}
+			total += n;
+		}
+		return total;
+	}
+}
@@ -23,6 +23,7 @@ package org.matsim.withinday.mobsim;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -73,6 +74,13 @@ public class WithinDayEngine implements MobsimEngine, ActivityEndReschedulerProv
 	private ParallelDuringActivityReplanner parallelDuringActivityReplanner;
 	private ParallelDuringLegReplanner parallelDuringLegReplanner;
 	
+	private final int numberOfThreads;
+	/*
+	 * The replanners are never run at the same time, therefore they share one pool.
+	 * It only exists while the mobsim is running.
+	 */
+	private ForkJoinPool pool = null;
+	
 	private Map<WithinDayDuringActivityReplannerFactory, Tuple<Double, Double>> duringActivityReplannerFactory;
 	private Map<WithinDayDuringLegReplannerFactory, Tuple<Double, Double>> duringLegReplannerFactory;
 	
@@ -86,9 +94,10 @@ public class WithinDayEngine implements MobsimEngine, ActivityEndReschedulerProv
 		this.duringLegReplannerFactory = new LinkedHashMap<>();
 
 		log.info("Initialize Parallel Replanning Modules");
-		this.parallelInitialReplanner = new ParallelInitialReplanner(globalConfigGroup.getNumberOfThreads(), eventsManager);
-		this.parallelDuringActivityReplanner = new ParallelDuringActivityReplanner(globalConfigGroup.getNumberOfThreads(), eventsManager);
-		this.parallelDuringLegReplanner = new ParallelDuringLegReplanner(globalConfigGroup.getNumberOfThreads(), eventsManager);
+		this.numberOfThreads = Math.max(globalConfigGroup.getNumberOfThreads(), 1);
+		this.parallelInitialReplanner = new ParallelInitialReplanner(this.numberOfThreads, eventsManager);
+		this.parallelDuringActivityReplanner = new ParallelDuringActivityReplanner(this.numberOfThreads, eventsManager);
+		this.parallelDuringLegReplanner = new ParallelDuringLegReplanner(this.numberOfThreads, eventsManager);
 
 		log.info("Initialize Replanning Modules");
 		this.initialReplanningModule = new InitialReplanningModule(parallelInitialReplanner);
@@ -154,6 +163,14 @@ public class WithinDayEngine implements MobsimEngine, ActivityEndReschedulerProv
 		this.duringLegReplannerFactory.put(factory, tuple);
 	}
 
+	/**
+	 * @return the wall clock time in seconds spent for within-day replanning in the last time step
+	 */
+	public double getLastStepReplanningWallTime() {
+		return this.parallelInitialReplanner.getLastStepWallTime() + this.parallelDuringActivityReplanner.getLastStepWallTime()
+				+ this.parallelDuringLegReplanner.getLastStepWallTime();
+	}
+
 	@Override
 	public void doSimStep(double time) {
 	
@@ -187,9 +204,11 @@ public class WithinDayEngine implements MobsimEngine, ActivityEndReschedulerProv
 
 	@Override
 	public void onPrepareSim() {
-		this.parallelInitialReplanner.onPrepareSim();
-		this.parallelDuringActivityReplanner.onPrepareSim();
-		this.parallelDuringLegReplanner.onPrepareSim();
+		shutdownPool();
+		this.pool = new ForkJoinPool(this.numberOfThreads);
+		this.parallelInitialReplanner.onPrepareSim(this.pool);
+		this.parallelDuringActivityReplanner.onPrepareSim(this.pool);
+		this.parallelDuringLegReplanner.onPrepareSim(this.pool);
 		
 		// reset all replanners
 		this.parallelInitialReplanner.resetReplanners();
@@ -204,6 +223,14 @@ public class WithinDayEngine implements MobsimEngine, ActivityEndReschedulerProv
 		this.parallelInitialReplanner.afterSim();
 		this.parallelDuringActivityReplanner.afterSim();
 		this.parallelDuringLegReplanner.afterSim();
+		shutdownPool();
+	}
+
+	private void shutdownPool() {
+		if (this.pool != null) {
+			this.pool.shutdown();
+			this.pool = null;
+		}
 	}
 
 	@Override
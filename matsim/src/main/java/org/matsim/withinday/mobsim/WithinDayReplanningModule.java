@@ -23,12 +23,10 @@ package org.matsim.withinday.mobsim;
 import java.util.Set;
 
 import org.matsim.api.core.v01.Id;
-import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.withinday.replanning.identifiers.interfaces.AgentSelector;
 import org.matsim.withinday.replanning.parallel.ParallelReplanner;
 import org.matsim.withinday.replanning.replanners.interfaces.WithinDayReplanner;
 import org.matsim.withinday.replanning.replanners.interfaces.WithinDayReplannerFactory;
-import org.matsim.withinday.replanning.replanners.tools.ReplanningTask;
 
 public abstract class WithinDayReplanningModule<T extends WithinDayReplannerFactory<? extends AgentSelector>> {
 
@@ -40,15 +38,18 @@ public abstract class WithinDayReplanningModule<T extends WithinDayReplannerFact
 			Id<WithinDayReplanner> id = factory.getId();
 			
 			for (AgentSelector identifier : identifiers) {
-				for (MobsimAgent withinDayAgent : identifier.getAgentsToReplan(time)) {					
-					ReplanningTask replanningTask = new ReplanningTask(withinDayAgent, id);
-					this.parallelReplanner.addReplanningTask(replanningTask);
-				}
+				this.parallelReplanner.addAgentsToReplan(id, identifier.getAgentsToReplan(time));
 			}
 		}
 		
 		this.parallelReplanner.run(time);
 	}
-	
+
+	/**
+	 * @return the wall clock time in seconds spent for replanning in the last time step
+	 */
+	public double getLastStepWallTime() {
+		return this.parallelReplanner.getLastStepWallTime();
+	}
 
 }
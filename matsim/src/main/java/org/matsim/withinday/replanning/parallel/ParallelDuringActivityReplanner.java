@@ -25,7 +25,7 @@ import org.matsim.withinday.replanning.replanners.interfaces.WithinDayDuringActi
 import org.matsim.withinday.replanning.replanners.interfaces.WithinDayDuringActivityReplannerFactory;
 
 /**
- * A class for running {@link WithinDayDuringActivityReplanner} in parallel using threads.
+ * A class for running {@link WithinDayDuringActivityReplanner} in parallel on a ForkJoinPool.
  *
  * @author Christoph Dobler
  */
@@ -25,7 +25,7 @@ import org.matsim.withinday.replanning.replanners.interfaces.WithinDayDuringLegR
 import org.matsim.withinday.replanning.replanners.interfaces.WithinDayDuringLegReplannerFactory;
 
 /**
- * A class for running {@link WithinDayDuringLegReplanner} in parallel using threads.
+ * A class for running {@link WithinDayDuringLegReplanner} in parallel on a ForkJoinPool.
  *
  * @author Christoph Dobler
  */
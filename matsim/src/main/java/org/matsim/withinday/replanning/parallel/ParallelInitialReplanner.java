@@ -25,7 +25,7 @@ import org.matsim.withinday.replanning.replanners.interfaces.WithinDayInitialRep
 import org.matsim.withinday.replanning.replanners.interfaces.WithinDayInitialReplannerFactory;
 
 /**
- * A class for running {@link WithinDayInitialReplanner} in parallel using threads.
+ * A class for running {@link WithinDayInitialReplanner} in parallel on a ForkJoinPool.
  *
  * @author Christoph Dobler
  */
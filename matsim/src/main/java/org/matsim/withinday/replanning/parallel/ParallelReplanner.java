@@ -20,19 +20,28 @@
 
 package org.matsim.withinday.replanning.parallel;
 
-import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.BrokenBarrierException;
-import java.util.concurrent.CyclicBarrier;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.utils.misc.Counter;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.withinday.events.ReplanningEvent;
 import org.matsim.withinday.replanning.identifiers.interfaces.AgentSelector;
 import org.matsim.withinday.replanning.replanners.interfaces.WithinDayReplanner;
 import org.matsim.withinday.replanning.replanners.interfaces.WithinDayReplannerFactory;
@@ -42,68 +51,85 @@ import org.matsim.withinday.replanning.replanners.tools.ReplanningTask;
  * Abstract class that contains the basic elements that are needed
  * to do parallel replanning within the QSim.
  *
- * Features like the creation of parallel running threads and the
- * split up of the replanning actions have to be implemented in
- * the subclasses.
+ * The agents to replan are collected per WithinDayReplanner during a time 
+ * step and replanned as one batch on a ForkJoinPool when run(time) is called.
+ * The pool only exists while the mobsim is running: it is either created in
+ * onPrepareSim() and shut down in afterSim(), or handed in by the caller
+ * (e.g. shared by the replanners of a WithinDayEngine), who then also has
+ * to shut it down. The batch is split recursively, so idle workers steal 
+ * the remaining parts of the batch from busy ones. The batches of different
+ * WithinDayReplanners are processed one after another, so two different
+ * replanners never replan the same agent at the same time.
+ *
+ * Replanners (and the TripRouters etc. they hold) are not thread-safe. 
+ * Therefore, each part of a batch borrows an instance of the replanner from
+ * a pool and returns it afterwards. Instances are re-used over all time steps
+ * of an iteration, so typically there is one instance per worker thread.
  */
 public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? extends AgentSelector>> { 
 
 	private final static Logger log = Logger.getLogger(ParallelReplanner.class);
 
 	/*
-	 * All replanners from the same type can either share one queue that contains all 
-	 * ReplanningTasks or use a separate queue per replanner object. A shared queue
-	 * should result in a better load balancing but also might become a bottleneck when
-	 * many threads are accessing it at the same time. When using a shared queue, a 
-	 * LinkedBlockingQueue is used. Otherwise, each replanner uses a LinkedList.
-	 * Both approaches should produce the same simulation results.
+	 * Minimal number of agents that are replanned by a single task. Smaller 
+	 * batches are not split up any further.
 	 */
-	private final boolean shareReplannerQueue = true;
+	private static final int MIN_BATCH_SIZE = 8;
 	
 	protected final EventsManager eventsManager;
-	protected int numOfThreads;
+	protected final int numOfThreads;
+	private ForkJoinPool pool = null;
+	private boolean ownsPool = false;
 	
 	protected Set<T> replannerFactories = new LinkedHashSet<T>();
-	protected ReplanningRunnable[] replanningRunnables;
 	protected String replannerName;
-	protected int roundRobin = 0;
-	private int lastRoundRobin = 0;
-	protected AtomicBoolean hadException;
-	protected ExceptionHandler uncaughtExceptionHandler;
-	protected CyclicBarrier timeStepStartBarrier;
-	protected CyclicBarrier betweenReplannerBarrier;
-	protected CyclicBarrier timeStepEndBarrier;
+
+	/*
+	 * Agents to replan in the current time step, ordered by the id of the
+	 * replanner (as it has been done by the former thread based implementation).
+	 */
+	private final Map<Id<WithinDayReplanner>, List<MobsimAgent>> agentsToReplan = new TreeMap<>();
+	private final Map<Id<WithinDayReplanner>, T> factoriesById = new ConcurrentHashMap<>();
+	private final Map<Id<WithinDayReplanner>, Deque<WithinDayReplanner<? extends AgentSelector>>> replanners = new ConcurrentHashMap<>();
+	private Counter counter;
 	
 	protected boolean simIsRunning = false;
+
+	private long lastStepWallTime = 0;
+	private long totalWallTime = 0;
+	private int lastStepReplannedAgents = 0;
 	
 	public ParallelReplanner(int numOfThreads, EventsManager eventsManager) {
-		this.setNumberOfThreads(numOfThreads);
+		this.numOfThreads = checkNumberOfThreads(numOfThreads);
 		this.eventsManager = eventsManager;
 	}
 	
 	public final void init(String replannerName) {
-		
 		this.replannerName = replannerName;
-		
-		replanningRunnables = new InternalReplanningRunnable[numOfThreads];
-
-		this.timeStepStartBarrier = new CyclicBarrier(numOfThreads + 1);
-		this.betweenReplannerBarrier = new CyclicBarrier(numOfThreads);
-		this.timeStepEndBarrier = new CyclicBarrier(numOfThreads + 1);
-
-		// Do initial Setup of the Runnables
-		for (int i = 0; i < numOfThreads; i++) {
-			ReplanningRunnable replanningRunnable = new InternalReplanningRunnable(replannerName + " Thread" + i + " replanned plans: ");
-			replanningRunnable.setCyclicTimeStepStartBarrier(this.timeStepStartBarrier);
-			replanningRunnable.setBetweenReplannerBarrier(betweenReplannerBarrier);
-			replanningRunnable.setCyclicTimeStepEndBarrier(this.timeStepEndBarrier);
-			replanningRunnable.setEventsManager(eventsManager);
-			
-			replanningRunnables[i] = replanningRunnable;
-		}
+		this.counter = new Counter(replannerName + " replanned plans: ");
 	}
 
+	/**
+	 * Prepares the replanning for a mobsim run, using a pool that is created here
+	 * and shut down in {@link #afterSim()}.
+	 */
 	public final void onPrepareSim() {
+		onPrepareSim(new ForkJoinPool(this.numOfThreads), true);
+	}
+
+	/**
+	 * Prepares the replanning for a mobsim run, using the given pool. The pool may be shared
+	 * with other ParallelReplanners since they are not run at the same time. It is not shut
+	 * down by this class.
+	 */
+	public final void onPrepareSim(ForkJoinPool sharedPool) {
+		onPrepareSim(sharedPool, false);
+	}
+
+	private void onPrepareSim(ForkJoinPool forkJoinPool, boolean ownsForkJoinPool) {
+		shutdownPool();
+		this.pool = forkJoinPool;
+		this.ownsPool = ownsForkJoinPool;
 		
 		/*
 		 * Moved this here from addWithinDayReplannerFactory(...).
@@ -112,57 +138,11 @@ public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? ex
 		 * cdobler, jul'13
 		 */
 		for (T factory : this.replannerFactories) {
-			if (shareReplannerQueue) {
-				Queue<ReplanningTask> queue = new LinkedBlockingQueue<ReplanningTask>();
-				for (ReplanningRunnable replanningRunnable : this.replanningRunnables) {
-					WithinDayReplanner<? extends AgentSelector> newInstance = factory.createReplanner();
-					replanningRunnable.addWithinDayReplanner(newInstance, queue);
-				}
-			} else {
-				for (ReplanningRunnable replanningRunnable : this.replanningRunnables) {
-					WithinDayReplanner<? extends AgentSelector> newInstance = factory.createReplanner();
-					replanningRunnable.addWithinDayReplanner(newInstance, new LinkedList<ReplanningTask>());
-				}
-			}			
+			createReplanners(factory);
 		}
 		
-		this.hadException = new AtomicBoolean(false);
-		this.uncaughtExceptionHandler = new ExceptionHandler(this.hadException, this.timeStepStartBarrier, 
-				this.betweenReplannerBarrier, this.timeStepEndBarrier);
-		
-		Thread[] replanningThreads = new Thread[numOfThreads];
-		
-		// initialize threads
-		for (int i = 0; i < numOfThreads; i++) {
-			Thread replanningThread = new Thread(replanningRunnables[i]);
-			Thread.setDefaultUncaughtExceptionHandler(this.uncaughtExceptionHandler);
-			replanningThread.setName(replannerName + i);
-			replanningThreads[i] = replanningThread;
-		}
-		
-		// finalize thread setup and start them
-		for (int i = 0; i < numOfThreads; i++) {
-			replanningRunnables[i].beforeSim();
-			Thread replanningThread = replanningThreads[i];
-			replanningThread.setDaemon(true);
-			replanningThread.start();
-		}
-
+		this.totalWallTime = 0;
 		this.simIsRunning = true;
-		
-		/*
-		 * After initialization the threads are waiting at the
-		 * TimeStepEndBarrier. We trigger this Barrier once so
-		 * they wait at the TimeStepStartBarrier what has to be
-		 * their state if the run() method is called.
-		 */
-		try {
-			this.timeStepEndBarrier.await();
-		} catch (InterruptedException e) {
-			throw new RuntimeException(e);
-		} catch (BrokenBarrierException e) {
-			throw new RuntimeException(e);
-		}
 	}
 	
 	/*
@@ -170,116 +150,93 @@ public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? ex
 	 * "as it is"...
 	 */
 	public final void run(double time) {
-		// no Agents to Replan
-		if (lastRoundRobin == roundRobin) return;
-		else lastRoundRobin = roundRobin;
-
-		/*
-		 * If an exception occurred, at least one of the events replanning threads
-		 * has crashed. Therefore the remaining threads would get stuck at the
-		 * CyclicBarrier.
-		 */
-		if (hadException.get()) {
-			return;
-		}
+		long start = System.nanoTime();
+		int replannedAgents = 0;
 		
-		try {
-			// set current time
-			for (ReplanningRunnable replanningRunnable : replanningRunnables) {
-				replanningRunnable.setTime(time);
-			}
-
-			this.timeStepStartBarrier.await();
-
-			this.timeStepEndBarrier.await();
+		for (Entry<Id<WithinDayReplanner>, List<MobsimAgent>> entry : this.agentsToReplan.entrySet()) {
+			List<MobsimAgent> agents = entry.getValue();
+			if (agents.isEmpty()) continue;
 
-		} catch (InterruptedException e) {
-			throw new RuntimeException(e);
-		} catch (BrokenBarrierException e) {
-	      	throw new RuntimeException(e);
+			T factory = this.factoriesById.get(entry.getKey());
+			if (factory == null) {
+				log.error("WithinDayReplanner is null!");
+				agents.clear();
+				continue;
+			}
+			if (this.pool == null) {
+				throw new IllegalStateException(this.replannerName + " has to be prepared by onPrepareSim() before agents can be replanned.");
+			}
+			
+			int batchSize = Math.max(MIN_BATCH_SIZE, agents.size() / (4 * this.numOfThreads));
+			this.pool.invoke(new ReplanningAction(factory, agents, 0, agents.size(), batchSize, time));
+			replannedAgents += agents.size();
+			agents.clear();
 		}
+		
+		this.lastStepReplannedAgents = replannedAgents;
+		this.lastStepWallTime = replannedAgents == 0 ? 0 : System.nanoTime() - start;
+		this.totalWallTime += this.lastStepWallTime;
 	}
 
 	public final void afterSim() {
 
 		this.simIsRunning = false;
 		
-		if (this.hadException.get()) {
-			throw new RuntimeException("Exception while replanning. " +
-					"Cannot guarantee that all replanning operations have been fully processed.");
+		if (this.totalWallTime > 0) {
+			log.info(this.replannerName + " spent " + Time.writeTime(this.totalWallTime / 1e9, Time.TIMEFORMAT_HHMMSSDOTSS) 
+				+ " replanning agents.");
 		}
 		
-		// reset counters
-		roundRobin = 0;
-		lastRoundRobin = 0;
-		
 		/*
-		 * Calling the afterSim Method of the QSimEngineThreads
-		 * will set their simulationRunning flag to false.
+		 * Remove replanners - now they are re-created from scratch
+		 * for each iteration.
+		 * cdobler, jul'13
 		 */
-		for (ReplanningRunnable runnable : this.replanningRunnables) {
-			runnable.afterSim();
-			
-			/*
-			 * Remove replanners from the runnables - now they are re-created from scratch
-			 * for each iteration.
-			 * cdobler, jul'13
-			 */
-			for (T factory : this.replannerFactories) {
-				runnable.removeWithinDayReplanner(factory.getId());
-			}
+		this.replanners.clear();
+		for (List<MobsimAgent> agents : this.agentsToReplan.values()) {
+			agents.clear();
 		}
+		
+		shutdownPool();
+	}
 
-		/*
-		 * Triggering the startBarrier of the QSimEngineThreads.
-		 * They will check whether the Simulation is still running.
-		 * It is not, so the Threads will stop running.
-		 */
-		try {
-			this.timeStepStartBarrier.await();
-		} catch (InterruptedException e) {
-			throw new RuntimeException(e);
-		} catch (BrokenBarrierException e) {
-			throw new RuntimeException(e);
+	private void shutdownPool() {
+		if (this.ownsPool) {
+			this.pool.shutdown();
 		}
+		this.pool = null;
+		this.ownsPool = false;
 	}
 	
 	public final void addWithinDayReplannerFactory(T factory) {
 		this.replannerFactories.add(factory);
+		this.factoriesById.put(factory.getId(), factory);
+		this.agentsToReplan.computeIfAbsent(factory.getId(), id -> new ArrayList<>());
 		
 		/*
 		 * This is necessary for timed within-day replanners. They are added while the
-		 * simulation is already running. Theirfore, now Queue<ReplanningTask> is created
+		 * simulation is already running. Therefore, their replanners are not created
 		 * in the onPrepare() method.
 		 * cdobler, dec'13
 		 */
 		if (simIsRunning) {
-			if (shareReplannerQueue) {
-				Queue<ReplanningTask> queue = new LinkedBlockingQueue<ReplanningTask>();
-				for (ReplanningRunnable replanningRunnable : this.replanningRunnables) {
-					WithinDayReplanner<? extends AgentSelector> newInstance = factory.createReplanner();
-					replanningRunnable.addWithinDayReplanner(newInstance, queue);
-				}
-			} else {
-				for (ReplanningRunnable replanningRunnable : this.replanningRunnables) {
-					WithinDayReplanner<? extends AgentSelector> newInstance = factory.createReplanner();
-					replanningRunnable.addWithinDayReplanner(newInstance, new LinkedList<ReplanningTask>());
-				}
-			}						
+			createReplanners(factory);
 		}
 	}
 
 	public final void removeWithinDayReplannerFactory(T factory) {
 		this.replannerFactories.remove(factory);
-		
-		for (ReplanningRunnable replanningRunnable : this.replanningRunnables) {
-			replanningRunnable.removeWithinDayReplanner(factory.getId());
-		}
+		this.factoriesById.remove(factory.getId());
+		this.agentsToReplan.remove(factory.getId());
+		this.replanners.remove(factory.getId());
 	}
 	
 	public final void resetReplanners() {
-		for (ReplanningRunnable replanningRunnable : this.replanningRunnables) {
-			replanningRunnable.resetReplanners();
+		this.counter.reset();
+		for (Deque<WithinDayReplanner<? extends AgentSelector>> instances : this.replanners.values()) {
+			for (WithinDayReplanner<? extends AgentSelector> withinDayReplanner : instances) {
+				withinDayReplanner.reset();
+			}
 		}
 	}
 	
@@ -287,13 +244,73 @@ public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? ex
 		return Collections.unmodifiableSet(this.replannerFactories);
 	}
 
-	public final void addReplanningTask(ReplanningTask replanningTask) {	
-		this.replanningRunnables[this.roundRobin % this.numOfThreads].addReplanningTask(replanningTask);
-		this.roundRobin++;
+	public final void addReplanningTask(ReplanningTask replanningTask) {
+		List<MobsimAgent> agents = this.agentsToReplan.get(replanningTask.getWithinDayReplannerId());
+		if (agents != null) {
+			agents.add(replanningTask.getAgentToReplan());
+		}
+	}
+
+	/**
+	 * Adds agents that are replanned by the given replanner in the next call of {@link #run(double)}.
+	 */
+	public final void addAgentsToReplan(Id<WithinDayReplanner> withinDayReplannerId, Collection<? extends MobsimAgent> agents) {
+		List<MobsimAgent> batch = this.agentsToReplan.get(withinDayReplannerId);
+		if (batch != null) {
+			batch.addAll(agents);
+		}
+	}
+
+	/**
+	 * @return the wall clock time in seconds spent for replanning in the last call of {@link #run(double)}
+	 */
+	public final double getLastStepWallTime() {
+		return this.lastStepWallTime / 1e9;
+	}
+
+	/**
+	 * @return the wall clock time in seconds spent for replanning in the current iteration
+	 */
+	public final double getTotalWallTime() {
+		return this.totalWallTime / 1e9;
+	}
+
+	/**
+	 * @return the number of agents that were replanned in the last call of {@link #run(double)}
+	 */
+	public final int getLastStepReplannedAgents() {
+		return this.lastStepReplannedAgents;
+	}
+
+	private void createReplanners(T factory) {
+		Deque<WithinDayReplanner<? extends AgentSelector>> instances = new ConcurrentLinkedDeque<>();
+		for (int i = 0; i < this.numOfThreads; i++) {
+			instances.add(factory.createReplanner());
+		}
+		this.replanners.put(factory.getId(), instances);
+	}
+
+	private WithinDayReplanner<? extends AgentSelector> borrowReplanner(T factory) {
+		Deque<WithinDayReplanner<? extends AgentSelector>> instances = this.replanners.computeIfAbsent(factory.getId(), id -> new ConcurrentLinkedDeque<>());
+		WithinDayReplanner<? extends AgentSelector> withinDayReplanner = instances.pollFirst();
+		if (withinDayReplanner == null) {
+			// more tasks are running at the same time than expected, e.g. because the pool has added compensation threads
+			synchronized (factory) {
+				withinDayReplanner = factory.createReplanner();
+			}
+		}
+		return withinDayReplanner;
+	}
+
+	private void returnReplanner(WithinDayReplanner<? extends AgentSelector> withinDayReplanner) {
+		Deque<WithinDayReplanner<? extends AgentSelector>> instances = this.replanners.get(withinDayReplanner.getId());
+		if (instances != null) {
+			instances.addFirst(withinDayReplanner);
+		}
 	}
 
-	private final void setNumberOfThreads(int numberOfThreads) {
-		numOfThreads = Math.max(numberOfThreads, 1); // it should be at least 1 here; we allow 0 in other places for "no threads"
+	private static int checkNumberOfThreads(int numberOfThreads) {
+		int numOfThreads = Math.max(numberOfThreads, 1); // it should be at least 1 here; we allow 0 in other places for "no threads"
 
 		log.info("Using " + numOfThreads + " threads for parallel within-day replanning.");
 
@@ -304,50 +321,78 @@ public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? ex
 		if (numOfThreads > Runtime.getRuntime().availableProcessors()) {
 			log.warn("The number of parallel running replanning threads is bigger than the number of available CPUs/Cores!");
 		}
+		return numOfThreads;
 	}
 		
 	/*
-	 * The thread class that really handles the replanning.
+	 * Replans a range of a batch of agents. Ranges that are larger than the
+	 * batch size are split in halves, which can be stolen by other workers.
 	 */
-	/*package*/ static final class InternalReplanningRunnable extends ReplanningRunnable {		
-		
-		public InternalReplanningRunnable(String counterText) {
-			super(counterText);
-		}
-				
-	}	// InternalReplanningThread
-	
-	/**
-	 * @author mrieser
-	 */
-	private static class ExceptionHandler implements UncaughtExceptionHandler {
-
-		private final AtomicBoolean hadException;
-		private final CyclicBarrier timeStepStartBarrier;
-		private final CyclicBarrier betweenReplannerBarrier;
-		private final CyclicBarrier timeStepEndBarrier;
-
-		public ExceptionHandler(final AtomicBoolean hadException, CyclicBarrier timeStepStartBarrier,
-				CyclicBarrier betweenReplannerBarrier, CyclicBarrier timeStepEndBarrier) {
-			this.hadException = hadException;
-			this.timeStepStartBarrier = timeStepStartBarrier;
-			this.betweenReplannerBarrier = betweenReplannerBarrier;
-			this.timeStepEndBarrier = timeStepEndBarrier;
+	private final class ReplanningAction extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final T factory;
+		private final List<MobsimAgent> agents;
+		private final int from;
+		private final int to;
+		private final int batchSize;
+		private final double time;
+
+		ReplanningAction(T factory, List<MobsimAgent> agents, int from, int to, int batchSize, double time) {
+			this.factory = factory;
+			this.agents = agents;
+			this.from = from;
+			this.to = to;
+			this.batchSize = batchSize;
+			this.time = time;
 		}
 
 		@Override
-		public void uncaughtException(Thread t, Throwable e) {
-			this.hadException.set(true);
-			log.error("Thread " + t.getName() + " died with exception while replanning.", e);
-
-			/*
-			 * By reseting the barriers, they will throw a BrokenBarrierException
-			 * which again will stop the events processing threads.
-			 */
-			this.timeStepStartBarrier.reset();
-			this.betweenReplannerBarrier.reset();
-			this.timeStepEndBarrier.reset();
+		protected void compute() {
+			if (this.to - this.from > this.batchSize) {
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll(new ReplanningAction(this.factory, this.agents, this.from, middle, this.batchSize, this.time),
+						new ReplanningAction(this.factory, this.agents, middle, this.to, this.batchSize, this.time));
+				return;
+			}
+
+			WithinDayReplanner<? extends AgentSelector> withinDayReplanner = borrowReplanner(this.factory);
+			try {
+				// set time once per replanner and batch
+				withinDayReplanner.setTime(this.time);
+				
+				for (int i = this.from; i < this.to; i++) {
+					replan(withinDayReplanner, this.agents.get(i));
+				}
+			} finally {
+				returnReplanner(withinDayReplanner);
+			}
 		}
 
+		private void replan(WithinDayReplanner<? extends AgentSelector> withinDayReplanner, MobsimAgent withinDayAgent) {
+			if (withinDayAgent == null) {
+				log.error("WithinDayAgent is null!");
+				return;
+			}
+			
+			boolean replanningSuccessful = withinDayReplanner.doReplanning(withinDayAgent);
+			
+			if (!replanningSuccessful) {
+				log.error("Replanning was not successful! Replanner " + withinDayReplanner.getClass().toString() + 
+						", time " + Time.writeTime(this.time) + ", agent " + withinDayAgent.getId());
+			} else {
+				/*
+				 * If the EventsManager is not null, we create an entry for the events log file.
+				 */
+				if (eventsManager != null) {
+					ReplanningEvent replanningEvent = new ReplanningEvent(this.time, withinDayAgent.getId(), 
+							withinDayReplanner.getClass().getSimpleName());
+					eventsManager.processEvent(replanningEvent);
+				}
+				
+				counter.incCounter();
+			}
+		}
 	}
 }
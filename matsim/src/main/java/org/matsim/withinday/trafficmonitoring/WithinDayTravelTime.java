@@ -20,19 +20,12 @@
 
 package org.matsim.withinday.trafficmonitoring;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Set;
-import java.util.TreeMap;
-import java.util.concurrent.BrokenBarrierException;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -53,7 +46,6 @@ import org.matsim.api.core.v01.events.handler.VehicleLeavesTrafficEventHandler;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.population.Person;
-import org.matsim.core.gbl.Gbl;
 import org.matsim.core.mobsim.framework.events.MobsimAfterSimStepEvent;
 import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
 import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
@@ -68,7 +60,6 @@ import org.matsim.core.network.NetworkChangeEvent.ChangeValue;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.utils.misc.Counter;
-import org.matsim.core.utils.misc.OptionalTime;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.vehicles.Vehicle;
 
@@ -76,6 +67,13 @@ import org.matsim.vehicles.Vehicle;
  * Collects link travel times over a given time span (storedTravelTimesBinSize)
  * and calculates an average travel time over this time span.
  * 
+ * All data is stored in arrays addressed by the index of the link and vehicle
+ * ids ({@link Id#index()}). The sliding windows of the links that currently see
+ * traffic are updated inline at the beginning of each time step. The resulting
+ * travel times are published in an {@link AtomicLongArray}, so replanning
+ * threads can query {@link #getLinkTravelTime(Link, double, Person, Vehicle)}
+ * concurrently without any locking.
+ * 
  * TODO:
  * - make storedTravelTimesBinSize configurable (e.g. via config)
  * 
@@ -90,38 +88,59 @@ public class WithinDayTravelTime implements TravelTime,
 
 	private static final Logger log = Logger.getLogger(WithinDayTravelTime.class);
 
-	private Network network;
+	private static final int INITIAL_TRIPS_PER_LINK = 4;
 
-	// Trips with no Activity on the current Link
-	private Map<Id<Vehicle>, TripBin> regularActiveTrips; // VehicleId
-	private Map<Id<Link>, TravelTimeInfo> travelTimeInfos; // LinkId
-	
-	private TravelTimeInfoProvider travelTimeInfoProvider;
+	private static final Counter enlarge = new Counter("WithinDayTravelTime: enlarged time bin size: ");
+	private static final Counter shrink = new Counter("WithinDayTravelTime: shrunk time bin size: ");
+
+	private final Network network;
+
+	/*
+	 * Per vehicle (indexed by Id<Vehicle>.index()): the time the vehicle entered its
+	 * current link, NaN if it is not on a link that is monitored.
+	 */
+	private double[] linkEnterTimes;
+	private boolean[] vehiclesToFilter;
+
+	/*
+	 * Per link (indexed by Id<Link>.index()). The travel times are the only data that is
+	 * read from other threads, all other arrays are only accessed by the mobsim and
+	 * events processing.
+	 */
+	private AtomicLongArray travelTimes;
+	private double[] freeSpeedTravelTimes;
+	private double[] dynamicBinSizes; // size of the time window that is taken into account
+	private double[] sumTravelTimes; // sum of the travel times of the trips in the window
+	private double[] addedTravelTimes; // travel times added since the last update
 
-	// Links that are changed by network change events
-	private TreeMap<Double, Map<Link,Double>> changedLinksByTime;
-	// yy better a priority queue.  kai, dec'17
-	
 	/*
-	 * For parallel Execution
+	 * The trips in the window of each link, stored in a ring buffer ordered by leave time.
 	 */
-	private CyclicBarrier startBarrier;
-	private CyclicBarrier endBarrier;
-	private UpdateMeanTravelTimesRunnable[] updateMeanTravelTimesRunnables;
-	private final int numOfThreads;
+	private double[][] tripLeaveTimes;
+	private double[][] tripTravelTimes;
+	private int[] firstTrip;
+	private int[] tripCounts;
+
+	// Links that have trips in their window or have been changed
+	private boolean[] isActive;
+	private int[] activeLinks;
+	private int activeLinksCount;
+
+	// Links that are changed by network change events
+	private PriorityQueue<FreeSpeedChange> freeSpeedChanges;
+	private long freeSpeedChangesCount = 0;
 
 	private final int infoTimeStep = 3600;
 	private int nextInfoTime = 0;
 	
-	private Set<Id<Vehicle>> vehiclesToFilter;
 	private final Set<String> analyzedModes;
 	private final boolean filterModes;
 
+	private static boolean warnedAboutNumberOfThreads = false;
+
 	private boolean problem = true ;
 	private int resetCnt = 0;
 	
-	private double now = Double.NEGATIVE_INFINITY ;
-	
 	@Inject
 	WithinDayTravelTime(Scenario scenario) {
 		this(scenario, null);
@@ -130,12 +149,15 @@ public class WithinDayTravelTime implements TravelTime,
 	public WithinDayTravelTime(Scenario scenario, Set<String> analyzedModes) {
 //		log.setLevel(Level.DEBUG);
 
-		/*
-		 * The parallelization should scale almost linear, therefore we do use
-		 * the number of available threads according to the config file.
-		 */
 		this.network = scenario.getNetwork();
-		this.numOfThreads = scenario.getConfig().global().getNumberOfThreads();
+
+		// the link travel times used to be updated by global.numberOfThreads threads
+		if (scenario.getConfig().global().getNumberOfThreads() > 1 && !warnedAboutNumberOfThreads) {
+			log.warn("WithinDayTravelTime no longer uses global.numberOfThreads. The link travel times are updated "
+					+ "on the mobsim thread at the beginning of each time step, which is cheaper than synchronizing "
+					+ "with separate threads. This setting is ignored here.");
+			warnedAboutNumberOfThreads = true;
+		}
 
 		if (analyzedModes == null || analyzedModes.size() == 0) {
 			this.filterModes = false;
@@ -149,24 +171,33 @@ public class WithinDayTravelTime implements TravelTime,
 	}
 
 	private void init() {
-		this.regularActiveTrips = new HashMap<>();
-		this.travelTimeInfos = new ConcurrentHashMap<>();
-		this.changedLinksByTime = new TreeMap<>();
-		this.vehiclesToFilter = new HashSet<>();
-		
-		// one TravelTimeInfo per link:
-		for (Link link : this.network.getLinks().values()) {
-			TravelTimeInfo travelTimeInfo = new TravelTimeInfo();
-			this.travelTimeInfos.put(link.getId(), travelTimeInfo);
+		int numberOfLinks = Math.max(Id.getNumberOfIds(Link.class), 1);
+		int numberOfVehicles = Math.max(Id.getNumberOfIds(Vehicle.class), 16);
+
+		this.linkEnterTimes = new double[numberOfVehicles];
+		Arrays.fill(this.linkEnterTimes, Double.NaN);
+		this.vehiclesToFilter = new boolean[numberOfVehicles];
+
+		// travel times are not known before the mobsim is initialized
+		this.travelTimes = new AtomicLongArray(numberOfLinks);
+		long unknown = Double.doubleToRawLongBits(Double.MAX_VALUE);
+		for (int i = 0; i < numberOfLinks; i++) {
+			this.travelTimes.set(i, unknown);
 		}
-		
-		/*
-		 * If no RoutingNetwork is used, ArrayBasedTravelTimeInfoProvider uses 
-		 * a MapBasedTravelTimeInfoProvider as fall back solution. This increases 
-		 * routing times of a AStarLandmarks router by ~5%.
-		 */
-//		this.travelTimeInfoProvider = new MapBasedTravelTimeInfoProvider(this.travelTimeInfos);
-		this.travelTimeInfoProvider = new ArrayBasedTravelTimeInfoProvider(this.travelTimeInfos, this.network);
+		this.freeSpeedTravelTimes = new double[numberOfLinks];
+		Arrays.fill(this.freeSpeedTravelTimes, Double.MAX_VALUE);
+		this.dynamicBinSizes = new double[numberOfLinks];
+		this.sumTravelTimes = new double[numberOfLinks];
+		this.addedTravelTimes = new double[numberOfLinks];
+		this.tripLeaveTimes = new double[numberOfLinks][];
+		this.tripTravelTimes = new double[numberOfLinks][];
+		this.firstTrip = new int[numberOfLinks];
+		this.tripCounts = new int[numberOfLinks];
+		this.isActive = new boolean[numberOfLinks];
+		this.activeLinks = new int[Math.min(numberOfLinks, 1024)];
+		this.activeLinksCount = 0;
+
+		this.freeSpeedChanges = new PriorityQueue<>();
 		
 		/*
 		 * If the network is time variant, we have to update the link parameters
@@ -197,7 +228,6 @@ public class WithinDayTravelTime implements TravelTime,
 		ChangeValue freespeedChange = networkChangeEvent.getFreespeedChange();
 		if (freespeedChange != null) {
 			double startTime = networkChangeEvent.getStartTime();
-			Map<Link,Double> newLinkSpeedsAtThisTime = changedLinksByTime.computeIfAbsent(startTime, k -> new HashMap<>());
 			for ( Link link : networkChangeEvent.getLinks() ) {
 				// yy seems that the following should be available centrally. kai, dec'17
 				double newSpeed ;
@@ -218,7 +248,8 @@ public class WithinDayTravelTime implements TravelTime,
 					log.debug( "registering a change event for time=" + startTime
 					+ "; linkId=" + link.getId() ) ;
 				}
-				newLinkSpeedsAtThisTime.put( link, newSpeed ) ;
+				// changes for the same time are applied in the order they were added, so the last one wins
+				this.freeSpeedChanges.add(new FreeSpeedChange(startTime, this.freeSpeedChangesCount++, link, newSpeed));
 			}
 		}
 	}
@@ -229,8 +260,13 @@ public class WithinDayTravelTime implements TravelTime,
 
 	@Override
 	public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
-		final double travelTime = this.travelTimeInfoProvider.getTravelTimeInfo(link).travelTime;
-		return travelTime;
+		int index = link.getId().index();
+		AtomicLongArray travelTimes = this.travelTimes;
+		if (index >= travelTimes.length()) {
+			// link was created after the initialization of this class
+			return link.getLength() / link.getFreespeed(time);
+		}
+		return Double.longBitsToDouble(travelTimes.getAcquire(index));
 	}
 	
 	@Override
@@ -247,41 +283,38 @@ public class WithinDayTravelTime implements TravelTime,
 
 	@Override
 	public void handleEvent(LinkEnterEvent event) {
+		int vehicleIndex = event.getVehicleId().index();
+		ensureVehicleCapacity(vehicleIndex);
+
 		/* 
 		 * If only some modes are analyzed, we check whether the vehicle
 		 * performs a trip with one of those modes. if not, we skip the event.
 		 */
-		if (filterModes && vehiclesToFilter.contains(event.getVehicleId())) return;
+		if (filterModes && this.vehiclesToFilter[vehicleIndex]) return;
 		
-		Id<Vehicle> vehicleId = event.getVehicleId();
-		double time = event.getTime();
-
-		TripBin tripBin = new TripBin();
-		tripBin.enterTime = time;
-
-		this.regularActiveTrips.put(vehicleId, tripBin);
+		this.linkEnterTimes[vehicleIndex] = event.getTime();
 	}
 
 	@Override
 	public void handleEvent(LinkLeaveEvent event) {
-		Id<Link> linkId = event.getLinkId();
-		Id<Vehicle> vehicleId = event.getVehicleId();
-		double time = event.getTime();
+		int vehicleIndex = event.getVehicleId().index();
+		if (vehicleIndex >= this.linkEnterTimes.length) return;
 
-		TripBin tripBin = this.regularActiveTrips.remove(vehicleId);
-		if (tripBin != null) {
-			tripBin.leaveTime = time;
+		double enterTime = this.linkEnterTimes[vehicleIndex];
+		if (Double.isNaN(enterTime)) return;
+		this.linkEnterTimes[vehicleIndex] = Double.NaN;
 
-			double tripTime = tripBin.leaveTime - tripBin.enterTime;
+		int linkIndex = event.getLinkId().index();
+		if (linkIndex >= this.freeSpeedTravelTimes.length) return;
 
-			TravelTimeInfo travelTimeInfo = this.travelTimeInfoProvider.getTravelTimeInfo(linkId);
-			travelTimeInfo.tripBins.add(tripBin);
-			travelTimeInfo.addedTravelTimes += tripTime;
-			travelTimeInfo.addedTrips++;
+		double leaveTime = event.getTime();
+		double tripTime = leaveTime - enterTime;
 
-			travelTimeInfo.checkActiveState();
-			travelTimeInfo.checkBinSize(tripTime);
-		}
+		addTrip(linkIndex, leaveTime, tripTime);
+		this.addedTravelTimes[linkIndex] += tripTime;
+
+		activate(linkIndex);
+		checkBinSize(linkIndex, tripTime);
 	}
 
 	/*
@@ -300,22 +333,27 @@ public class WithinDayTravelTime implements TravelTime,
 	 */
 	@Override
 	public void handleEvent(VehicleLeavesTrafficEvent event) {
-		Id<Vehicle> vehicleId = event.getVehicleId();
+		int vehicleIndex = event.getVehicleId().index();
+		if (vehicleIndex >= this.linkEnterTimes.length) return;
 
-		this.regularActiveTrips.remove(vehicleId);
+		this.linkEnterTimes[vehicleIndex] = Double.NaN;
 		
-		// try to remove vehicle from set with filtered vehicles
-		if (filterModes) this.vehiclesToFilter.remove(event.getVehicleId());
+		// remove vehicle from filtered vehicles
+		this.vehiclesToFilter[vehicleIndex] = false;
 	}
 
 	@Override
 	public void handleEvent(VehicleEntersTrafficEvent event) {
 		/* 
 		 * If filtering transport modes is enabled and the vehicle
-		 * starts a leg on a non analyzed transport mode, add the vehicle
-		 * to the filtered vehicles set.
+		 * starts a leg on a non analyzed transport mode, mark the vehicle
+		 * as filtered.
 		 */
-		if (filterModes && !analyzedModes.contains(event.getNetworkMode())) this.vehiclesToFilter.add(event.getVehicleId());
+		if (filterModes && !analyzedModes.contains(event.getNetworkMode())) {
+			int vehicleIndex = event.getVehicleId().index();
+			ensureVehicleCapacity(vehicleIndex);
+			this.vehiclesToFilter[vehicleIndex] = true;
+		}
 	}
 	
 	/*
@@ -335,20 +373,17 @@ public class WithinDayTravelTime implements TravelTime,
 			this.nextInfoTime = (int)(Math.floor(simStartTime / this.infoTimeStep) * this.infoTimeStep);
 		}
 		
-		
 		for (Link link : this.network.getLinks().values()) {
-			double freeSpeedTravelTime = link.getLength() / link.getFreespeed();
+			int index = link.getId().index();
+			if (index >= this.freeSpeedTravelTimes.length) continue;
 
-			TravelTimeInfo travelTimeInfo = this.travelTimeInfoProvider.getTravelTimeInfo(link);
-			travelTimeInfo.travelTime = freeSpeedTravelTime;
-			travelTimeInfo.init(freeSpeedTravelTime);
+			double freeSpeedTravelTime = link.getLength() / link.getFreespeed();
+			setFreeSpeedTravelTime(index, freeSpeedTravelTime);
+			this.travelTimes.setRelease(index, Double.doubleToRawLongBits(freeSpeedTravelTime));
 		}
-
-		// Now initialize the Parallel Update Threads
-		initParallelThreads();
 	}
 
-	// Update Link TravelTimeInfos if link attributes have changed
+	// Update link data if link attributes have changed
 	@Override
 	public void notifyMobsimAfterSimStep(MobsimAfterSimStepEvent e) {
 		problem = false ;
@@ -356,41 +391,22 @@ public class WithinDayTravelTime implements TravelTime,
 		// yyyy In terms of "bushfire evacuation" design (and maybe even in terms of more general transport telematics)
 		// one would need some settable TimeDependentNetworkUpdater class.  kai, dec'17
 		
-//		Collection<Link> links = changedLinksByTime.remove(e.getSimulationTime());
-		// yyyyyy I find it quite optimistic to do this with doubles. What
-		// if someone adds a link change event in between two integer
-		// time steps?  kai, dec'17
-		
-		while( !changedLinksByTime.isEmpty() && changedLinksByTime.firstKey() <= e.getSimulationTime() ) {
-			Map<Link, Double> map = changedLinksByTime.pollFirstEntry().getValue();
-			for ( Map.Entry<Link,Double> link2speed : map.entrySet() ) {
-				Link link = link2speed.getKey() ;
-				double freeSpeedTravelTime = link.getLength() / link2speed.getValue() ;
-				if ( e.getSimulationTime() > ((QSim)e.getQueueSimulation()).getSimTimer().getSimStartTime() ) {
-					// (otherwise, in some simulations one gets a lot of change events at time 0. kai, dec'17)
-					log.debug("time=" + e.getSimulationTime() +
-									  "; network change event for link=" + link.getId() +
-									  "; new ttime="+ freeSpeedTravelTime );
-				}
-				TravelTimeInfo travelTimeInfo = this.travelTimeInfoProvider.getTravelTimeInfo(link);
-				travelTimeInfo.init(freeSpeedTravelTime);
-				travelTimeInfo.checkActiveState();	// ensure that the estimated link travel time is updated
+		while ( !freeSpeedChanges.isEmpty() && freeSpeedChanges.peek().time <= e.getSimulationTime() ) {
+			FreeSpeedChange change = freeSpeedChanges.poll();
+			Link link = change.link ;
+			double freeSpeedTravelTime = link.getLength() / change.freeSpeed ;
+			if ( e.getSimulationTime() > ((QSim)e.getQueueSimulation()).getSimTimer().getSimStartTime() ) {
+				// (otherwise, in some simulations one gets a lot of change events at time 0. kai, dec'17)
+				log.debug("time=" + e.getSimulationTime() +
+								  "; network change event for link=" + link.getId() +
+								  "; new ttime="+ freeSpeedTravelTime );
 			}
+			int index = link.getId().index();
+			if (index >= this.freeSpeedTravelTimes.length) continue;
+
+			setFreeSpeedTravelTime(index, freeSpeedTravelTime);
+			activate(index);	// ensure that the estimated link travel time is updated
 		}
-		
-//		if (links != null) {
-//			for (Link link : links) {
-//				double freeSpeedTravelTime = link.getLength() / link.getFreespeed(e.getSimulationTime());
-//				if ( e.getSimulationTime() > 0 ) {
-//					log.debug("time=" + e.getSimulationTime() +
-//									  ";\tnetwork change event for link=" + link.getId() +
-//									  ";\tnew ttime="+ freeSpeedTravelTime );
-//				}
-//				TravelTimeInfo travelTimeInfo = this.travelTimeInfoProvider.getTravelTimeInfo(link);
-//				travelTimeInfo.init(freeSpeedTravelTime);
-//				travelTimeInfo.checkActiveState();	// ensure that the estimated link travel time is updated
-//			}
-//		}
 	}
 
 	// Update Link TravelTimes
@@ -398,308 +414,170 @@ public class WithinDayTravelTime implements TravelTime,
 	public void notifyMobsimBeforeSimStep(MobsimBeforeSimStepEvent e) {
 		problem = false ;
 		
-		now = e.getSimulationTime() ;
+		double time = e.getSimulationTime();
 
-		// parallel Execution
-		this.run(e.getSimulationTime());
+		int i = 0;
+		while (i < this.activeLinksCount) {
+			int index = this.activeLinks[i];
+			calcBinTravelTime(time, index);
 
-		printInfo(e.getSimulationTime());
-	}
+			/*
+			 * If no further trips are stored for the link, we deactivate 
+			 * it and ensure that its expected travel time is its free speed 
+			 * travel time. The last active link takes its place in the list.
+			 */
+			if (this.tripCounts[index] == 0) {
+				this.isActive[index] = false;
+				this.travelTimes.setRelease(index, Double.doubleToRawLongBits(this.freeSpeedTravelTimes[index]));
+				this.activeLinks[i] = this.activeLinks[--this.activeLinksCount];
+			} else {
+				i++;
+			}
+		}
 
+		printInfo(time);
+	}
 
 	@Override
 	public void notifyMobsimBeforeCleanup(MobsimBeforeCleanupEvent e) {
 		problem = false ;
-		
-		/*
-		 * Calling the afterSim Method of the Threads will set their 
-		 * simulationRunning flag to false.
-		 */
-		for (UpdateMeanTravelTimesRunnable runnable : this.updateMeanTravelTimesRunnables) {
-			runnable.afterSim();
-		}
-
-		/*
-		 * Triggering the startBarrier of the UpdateMeanTravelTimesRunnables.
-		 * They will check whether the Simulation is still running.
-		 * It is not, so the Threads will terminate.
-		 */
-		try {
-			this.startBarrier.await();
-		} catch (InterruptedException | BrokenBarrierException ex) {
-			throw new RuntimeException(ex);
-		}
 	}
 	
 	private void printInfo(double time) {
 		if (time >= this.nextInfoTime) {
-			int activeLinks = 0;
-			for (UpdateMeanTravelTimesRunnable runnable : this.updateMeanTravelTimesRunnables) {
-				activeLinks += runnable.getActiveLinksCount();
-			}
-
-			log.info("WithinDayTravelTime at " + Time.writeTime(time) + " #links=" + activeLinks);
+			log.info("WithinDayTravelTime at " + Time.writeTime(time) + " #links=" + this.activeLinksCount);
 
 			this.nextInfoTime += this.infoTimeStep;
 		}
 	}
 
-	private static class TripBin {
-		double enterTime;
-		double leaveTime;
+	private void setFreeSpeedTravelTime(int index, double freeSpeedTravelTime) {
+		this.freeSpeedTravelTimes[index] = freeSpeedTravelTime;
+		this.dynamicBinSizes[index] = freeSpeedTravelTime * 2.5;
 	}
 
-	/*package*/ static class TravelTimeInfo {
-
-		UpdateMeanTravelTimesRunnable runnable;
-		List<TripBin> tripBins = new ArrayList<>();
-
-		boolean isActive = false;
-		// int numActiveTrips = 0;
-		int addedTrips = 0;
-		double addedTravelTimes = 0.0;
-		double sumTravelTimes = 0.0; // We cache the sum of the TravelTimes
-
-		double freeSpeedTravelTime = Double.MAX_VALUE; // We cache the FreeSpeedTravelTimes
-		double travelTime = Double.MAX_VALUE; 
-
-		double dynamicBinSize = 0.0; // size of the time window that is taken into account
-
-		static Counter enlarge = new Counter("WithinDayTravelTime: enlarged time bin size: ");
-		static Counter shrink = new Counter("WithinDayTravelTime: shrunk time bin size: ");
-
-		/*package*/ void init(double freeSpeedTravelTime) {
-			this.freeSpeedTravelTime = freeSpeedTravelTime;
-			this.dynamicBinSize = freeSpeedTravelTime * 2.5;
-		}
-
-		/*package*/ void checkActiveState() {
-			if (!isActive) {
-				this.isActive = true;
-				runnable.addTravelTimeInfo(this);
+	private void activate(int index) {
+		if (!this.isActive[index]) {
+			this.isActive[index] = true;
+			if (this.activeLinksCount == this.activeLinks.length) {
+				this.activeLinks = Arrays.copyOf(this.activeLinks, Math.min(this.activeLinks.length * 2, this.isActive.length));
 			}
+			this.activeLinks[this.activeLinksCount++] = index;
 		}
+	}
 
-		/*package*/ void checkBinSize(double tripTime) {
-			if (tripTime > dynamicBinSize) {
-				dynamicBinSize = tripTime * 2;
-				enlarge.incCounter();
-			} else if (tripTime * 3 < dynamicBinSize) {
-				dynamicBinSize = tripTime * 3;
-				shrink.incCounter();
-			}
+	private void checkBinSize(int index, double tripTime) {
+		double dynamicBinSize = this.dynamicBinSizes[index];
+		if (tripTime > dynamicBinSize) {
+			this.dynamicBinSizes[index] = tripTime * 2;
+			enlarge.incCounter();
+		} else if (tripTime * 3 < dynamicBinSize) {
+			this.dynamicBinSizes[index] = tripTime * 3;
+			shrink.incCounter();
 		}
 	}
 
-	/*
-	 * ----------------------------------------------------------------
-	 * Methods for parallel Execution
-	 * ----------------------------------------------------------------
-	 */
-
-	/*
-	 * The Threads are waiting at the TimeStepStartBarrier. We trigger them by
-	 * reaching this Barrier. Now the Threads will start moving the Nodes. We
-	 * wait until all of them reach the TimeStepEndBarrier to move on. We should
-	 * not have any Problems with Race Conditions because even if the Threads
-	 * would be faster than this Thread, means they reach the TimeStepEndBarrier
-	 * before this Method does, it should work anyway.
-	 */
-	private void run(double time) {
-
-		try {
-			// set current Time
-			for (UpdateMeanTravelTimesRunnable updateMeanTravelTimesRunnable : updateMeanTravelTimesRunnables) {
-				updateMeanTravelTimesRunnable.setTime(time);
-			}
-
-			this.startBarrier.await();
-
-			this.endBarrier.await();
-		} catch (InterruptedException | BrokenBarrierException e) {
-			throw new RuntimeException(e);
+	private void addTrip(int index, double leaveTime, double tripTime) {
+		double[] leaveTimes = this.tripLeaveTimes[index];
+		double[] travelTimes = this.tripTravelTimes[index];
+		int count = this.tripCounts[index];
+		if (leaveTimes == null) {
+			leaveTimes = new double[INITIAL_TRIPS_PER_LINK];
+			travelTimes = new double[INITIAL_TRIPS_PER_LINK];
+			this.tripLeaveTimes[index] = leaveTimes;
+			this.tripTravelTimes[index] = travelTimes;
+		} else if (count == leaveTimes.length) {
+			// unroll the ring buffer into arrays of twice the size
+			int first = this.firstTrip[index];
+			double[] newLeaveTimes = new double[2 * count];
+			double[] newTravelTimes = new double[2 * count];
+			System.arraycopy(leaveTimes, first, newLeaveTimes, 0, count - first);
+			System.arraycopy(leaveTimes, 0, newLeaveTimes, count - first, first);
+			System.arraycopy(travelTimes, first, newTravelTimes, 0, count - first);
+			System.arraycopy(travelTimes, 0, newTravelTimes, count - first, first);
+			leaveTimes = newLeaveTimes;
+			travelTimes = newTravelTimes;
+			this.tripLeaveTimes[index] = leaveTimes;
+			this.tripTravelTimes[index] = travelTimes;
+			this.firstTrip[index] = 0;
 		}
+		int slot = (this.firstTrip[index] + count) % leaveTimes.length;
+		leaveTimes[slot] = leaveTime;
+		travelTimes[slot] = tripTime;
+		this.tripCounts[index] = count + 1;
 	}
 
-	private void initParallelThreads() {
-
-		this.startBarrier = new CyclicBarrier(numOfThreads + 1);
-		this.endBarrier = new CyclicBarrier(numOfThreads + 1);
-
-		Thread[] threads = new Thread[numOfThreads];
-		this.updateMeanTravelTimesRunnables = new UpdateMeanTravelTimesRunnable[numOfThreads];
-
-		// setup threads
-		for (int i = 0; i < numOfThreads; i++) {
-			UpdateMeanTravelTimesRunnable updateMeanTravelTimesRunnable = new UpdateMeanTravelTimesRunnable();
-			updateMeanTravelTimesRunnable.setStartBarrier(this.startBarrier);
-			updateMeanTravelTimesRunnable.setEndBarrier(this.endBarrier);
-			updateMeanTravelTimesRunnables[i] = updateMeanTravelTimesRunnable;
-			
-			Thread thread = new Thread(updateMeanTravelTimesRunnable);
-			thread.setName("UpdateMeanTravelTimes" + i);
-			thread.setDaemon(true); // make the Thread demons so they will terminate automatically
-			threads[i] = thread;
-			
-			thread.start();
+	private void calcBinTravelTime(double time, int index) {
+		double removedTravelTimes = 0.0;
+
+		// first remove old travel times
+		double[] leaveTimes = this.tripLeaveTimes[index];
+		double[] travelTimes = this.tripTravelTimes[index];
+		double dynamicBinSize = this.dynamicBinSizes[index];
+		int first = this.firstTrip[index];
+		int count = this.tripCounts[index];
+		while (count > 0 && leaveTimes[first] + dynamicBinSize < time) {
+			removedTravelTimes += travelTimes[first];
+			first = (first + 1) % leaveTimes.length;
+			count--;
 		}
+		this.firstTrip[index] = count == 0 ? 0 : first;
+		this.tripCounts[index] = count;
 
 		/*
-		 * Assign the TravelTimeInfos to the Threads
+		 * We don't need an update if no Trips have been added or removed
+		 * within the current SimStep. The initial FreeSpeedTravelTime has
+		 * to be set correctly via setTravelTime!
 		 */
-		int roundRobin = 0;
-		for (TravelTimeInfo travelTimeInfo : this.travelTimeInfos.values()) {
-			travelTimeInfo.runnable = updateMeanTravelTimesRunnables[roundRobin % numOfThreads];
-			roundRobin++;
-		}
+//		if (removedTravelTimes == 0.0 && addedTravelTimes == 0.0) return;
+		// yyyyyy does not work when a network change event comes in. If the old functionality was intentional, we need to talk:
+		// We are setting speed to zero in the bushfire, and if there is no car on the link already, no car will enter it
+		// (because of special within-day rerouting logic). kai, feb'18
+
+		double sumTravelTimes = this.sumTravelTimes[index] - removedTravelTimes + this.addedTravelTimes[index];
+		this.sumTravelTimes[index] = sumTravelTimes;
+		this.addedTravelTimes[index] = 0.0;
 
 		/*
-		 * After initialization the Threads are waiting at the endBarrier. We
-		 * trigger this Barrier once so they wait at the startBarrier what has
-		 * to be their state when the run() method is called.
+		 * Ensure that we don't allow TravelTimes shorter than the FreeSpeedTravelTime.
 		 */
-		try {
-			this.endBarrier.await();
-		} catch (InterruptedException | BrokenBarrierException e) {
-			throw new RuntimeException(e);
-		}
-	}
-
-	/*
-	 * The thread class that updates the mean travel times.
-	 */
-	private static class UpdateMeanTravelTimesRunnable implements Runnable {
-
-		private volatile boolean simulationRunning = true;
-		
-		private CyclicBarrier startBarrier = null;
-		private CyclicBarrier endBarrier = null;
-		
-		private OptionalTime time = OptionalTime.undefined();
-		private Collection<TravelTimeInfo> activeTravelTimeInfos;
-
-		public UpdateMeanTravelTimesRunnable() {
-			activeTravelTimeInfos = new ArrayList<>();
-		}
-
-		public void setStartBarrier(CyclicBarrier cyclicBarrier) {
-			this.startBarrier = cyclicBarrier;
-		}
-
-		public void setEndBarrier(CyclicBarrier cyclicBarrier) {
-			this.endBarrier = cyclicBarrier;
-		}
+		double freeSpeedTravelTime = this.freeSpeedTravelTimes[index];
+		double meanTravelTime = freeSpeedTravelTime;
+		if (count > 0) meanTravelTime = sumTravelTimes / count;
 
-		public void setTime(final double t) {
-			time = OptionalTime.defined(t);
-		}
+		// can happen when network change event came in with lower speed. kai, feb'18
+		double travelTime = Math.max(meanTravelTime, freeSpeedTravelTime);
+		this.travelTimes.setRelease(index, Double.doubleToRawLongBits(travelTime));
+	}
 
-		public void addTravelTimeInfo(TravelTimeInfo travelTimeInfo) {
-			this.activeTravelTimeInfos.add(travelTimeInfo);
+	private void ensureVehicleCapacity(int index) {
+		if (index >= this.linkEnterTimes.length) {
+			int oldLength = this.linkEnterTimes.length;
+			int newLength = Math.max(index + 1, 2 * oldLength);
+			this.linkEnterTimes = Arrays.copyOf(this.linkEnterTimes, newLength);
+			Arrays.fill(this.linkEnterTimes, oldLength, newLength, Double.NaN);
+			this.vehiclesToFilter = Arrays.copyOf(this.vehiclesToFilter, newLength);
 		}
+	}
 
-		public int getActiveLinksCount() {
-			return this.activeTravelTimeInfos.size();
+	private static final class FreeSpeedChange implements Comparable<FreeSpeedChange> {
+		final double time;
+		final long sequence;
+		final Link link;
+		final double freeSpeed;
+
+		FreeSpeedChange(double time, long sequence, Link link, double freeSpeed) {
+			this.time = time;
+			this.sequence = sequence;
+			this.link = link;
+			this.freeSpeed = freeSpeed;
 		}
 
-		public void afterSim() {
-			this.simulationRunning = false;
-		}
-		
 		@Override
-		public void run() {
-
-			while (true) {
-				try {
-					/*
-					 * The End of the Moving is synchronized with the
-					 * endBarrier. If all Threads reach this Barrier the main
-					 * run() Thread can go on.
-					 * 
-					 * The Threads wait now at the startBarrier until they are
-					 * triggered again in the next TimeStep by the main run()
-					 * method.
-					 */
-					endBarrier.await();
-
-					startBarrier.await();
-
-					/*
-					 * Check if Simulation is still running.
-					 * Otherwise print CPU usage and end Thread.
-					 */
-					if (!simulationRunning) {
-						Gbl.printCurrentThreadCpuTime();
-						return;
-					}
-					
-					Iterator<TravelTimeInfo> iter = activeTravelTimeInfos.iterator();
-					while (iter.hasNext()) {
-						TravelTimeInfo travelTimeInfo = iter.next();
-						calcBinTravelTime(this.time.seconds(), travelTimeInfo);
-
-						/*
-						 * If no further trips are stored in the TravelTimeInfo,
-						 * we deactivate the link and ensure that its expected
-						 * travel time is its free speed travel time.
-						 */
-						if (travelTimeInfo.tripBins.size() == 0) {
-							travelTimeInfo.isActive = false;
-							travelTimeInfo.travelTime = travelTimeInfo.freeSpeedTravelTime;
-							iter.remove();
-						}
-					}
-
-				} catch (InterruptedException | BrokenBarrierException e) {
-					throw new RuntimeException(e);
-				}
-			}
-		} // run()
-
-		private void calcBinTravelTime(double time, TravelTimeInfo travelTimeInfo) {
-			double removedTravelTimes = 0.0;
-
-			List<TripBin> tripBins = travelTimeInfo.tripBins;
-
-			// first remove old TravelTimes
-			Iterator<TripBin> iter = tripBins.iterator();
-			while (iter.hasNext()) {
-				TripBin tripBin = iter.next();
-				if (tripBin.leaveTime + travelTimeInfo.dynamicBinSize < time) {
-					double travelTime = tripBin.leaveTime - tripBin.enterTime;
-					removedTravelTimes += travelTime;
-					iter.remove();
-				} else break;
-			}
-
-			/*
-			 * We don't need an update if no Trips have been added or removed
-			 * within the current SimStep. The initial FreeSpeedTravelTime has
-			 * to be set correctly via setTravelTime!
-			 */
-//			if (removedTravelTimes == 0.0 && travelTimeInfo.addedTravelTimes == 0.0) return;
-			// yyyyyy does not work when a network change event comes in. If the old functionality was intentional, we need to talk:
-			// We are setting speed to zero in the bushfire, and if there is no car on the link already, no car will enter it
-			// (because of special within-day rerouting logic). kai, feb'18
-
-			travelTimeInfo.sumTravelTimes = travelTimeInfo.sumTravelTimes - removedTravelTimes + travelTimeInfo.addedTravelTimes;
-
-			travelTimeInfo.addedTravelTimes = 0.0;
-			/*
-			 * Ensure that we don't allow TravelTimes shorter than the FreeSpeedTravelTime.
-			 */
-			double meanTravelTime = travelTimeInfo.freeSpeedTravelTime;
-			if (!tripBins.isEmpty()) meanTravelTime = travelTimeInfo.sumTravelTimes / tripBins.size();
-
-			if (meanTravelTime < travelTimeInfo.freeSpeedTravelTime) {
-//				log.warn("Mean TravelTime too short?");
-				// can happen when network change event came in with lower speed. kai, feb'18
-				travelTimeInfo.travelTime = travelTimeInfo.freeSpeedTravelTime;
-			} else {
-				travelTimeInfo.travelTime = meanTravelTime;
-			}
+		public int compareTo(FreeSpeedChange o) {
+			int cmp = Double.compare(this.time, o.time);
+			return cmp != 0 ? cmp : Long.compare(this.sequence, o.sequence);
 		}
-
-	} // ReplannerRunnable
+	}
 
 }
@@ -70,6 +70,11 @@ public class ListenersInjectionTest {
 		testIsSingleton( PlansScoring.class );
 	}
 
+	@Test
+	public void testCheckpointingIsSingleton() {
+		testIsSingleton( Checkpointing.class );
+	}
+
 	private void testIsSingleton( final Class<? extends ControlerListener> klass ) {
 		final Config config = ConfigUtils.createConfig();
 		final String outputDir = utils.getOutputDirectory();
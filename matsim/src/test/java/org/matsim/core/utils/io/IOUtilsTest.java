@@ -19,6 +19,7 @@
  * *********************************************************************** */
 package org.matsim.core.utils.io;
 
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
@@ -41,6 +42,12 @@ public class IOUtilsTest {
 
 	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
 
+	@After
+	public void resetCompressionThreads() {
+		// JVM-wide setting, must not leak into other tests
+		IOUtils.setCompressionThreads(1);
+	}
+
 	@Test
 	public void testInitOutputDirLogging() throws IOException {
 		System.out.println(utils.getOutputDirectory());
@@ -213,6 +220,48 @@ public class IOUtilsTest {
 		Assert.assertTrue("compressed file should be less than 50 bytes, but is " + file.length(), file.length() < 50);
 	}
 
+	@Test
+	public void testGetBufferedWriter_gzipped_parallel() throws IOException {
+		String filename = this.utils.getOutputDirectory() + "test.txt.gz";
+		URL url = IOUtils.getFileUrl(filename);
+		int lines = 200000; // more than one block of the parallel compressor
+		IOUtils.setCompressionThreads(4);
+		try (BufferedWriter writer = IOUtils.getBufferedWriter(url)) {
+			for (int i = 0; i < lines; i++) {
+				writer.write("line " + i + "\n");
+			}
+		}
+		try (BufferedReader reader = IOUtils.getBufferedReader(url)) {
+			for (int i = 0; i < lines; i++) {
+				Assert.assertEquals("line " + i, reader.readLine());
+			}
+			Assert.assertNull(reader.readLine());
+		}
+		IOUtils.setCompressionThreads(1);
+
+		// the multi-member file must also be readable with the default, single-threaded gzip decompression
+		try (BufferedReader reader = IOUtils.getBufferedReader(url)) {
+			for (int i = 0; i < lines; i++) {
+				Assert.assertEquals("line " + i, reader.readLine());
+			}
+			Assert.assertNull(reader.readLine());
+		}
+	}
+
+	@Test
+	public void testGetBufferedReader_gzipped_readAhead() throws IOException {
+		String filename = this.utils.getOutputDirectory() + "test.txt.gz";
+		URL url = IOUtils.getFileUrl(filename);
+		try (BufferedWriter writer = IOUtils.getBufferedWriter(url)) {
+			writer.write("12345678901234567890123456789012345678901234567890");
+		}
+		IOUtils.setCompressionThreads(4);
+		try (BufferedReader reader = IOUtils.getBufferedReader(url)) {
+			Assert.assertEquals("12345678901234567890123456789012345678901234567890", reader.readLine());
+			Assert.assertNull(reader.readLine());
+		}
+	}
+
 	@Test(expected = UncheckedIOException.class)
 	public void testGetBufferedWriter_append_lz4() throws IOException {
 		String filename = this.utils.getOutputDirectory() + "test.txt.lz4";
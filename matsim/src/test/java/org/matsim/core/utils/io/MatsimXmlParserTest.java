@@ -24,6 +24,8 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXParseException;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
@@ -104,6 +106,130 @@ public class MatsimXmlParserTest {
 		Assert.assertEquals("value2", parser.lastAttributes.getValue("someAttribute2"));
 	}
 	
+	@Test
+	public void testParse_attributeDefaultsFromDtd() {
+		String str = "<?xml version='1.0' encoding='UTF-8'?>\n" +
+				"<!DOCTYPE a [\n" +
+				"<!ELEMENT a (b*)>\n" +
+				"<!ELEMENT b (#PCDATA)>\n" +
+				"<!ATTLIST b x CDATA \"1\" y (yes|no) \"no\" z CDATA #IMPLIED w NMTOKENS #IMPLIED>\n" +
+				"]>\n" +
+				"<a>\n" +
+				"  <b y=\"yes\" w=\"  p \t q \"> content </b>\n" +
+				"</a>";
+
+		for (String fastParser : new String[] { "false", "true" }) {
+			System.setProperty("matsim.fastXmlParser", fastParser);
+			try {
+				final List<String> log = new ArrayList<>();
+				new MatsimXmlParser() {
+					{
+						this.setValidating(false);
+					}
+					@Override
+					public void startTag(String name, Attributes atts, Stack<String> context) {
+						if (name.equals("b")) {
+							log.add(atts.getValue("x") + "," + atts.getValue("y") + "," + atts.getValue("z") + ","
+									+ atts.getValue("w") + "," + atts.getType("x") + "," + atts.getType("y"));
+						}
+					}
+					@Override
+					public void endTag(String name, String content, Stack<String> context) {
+						log.add(name + ":" + content);
+					}
+				}.parse(new ByteArrayInputStream(str.getBytes(StandardCharsets.UTF_8)));
+
+				Assert.assertEquals(3, log.size());
+				Assert.assertEquals("non-CDATA values are normalized", "1,yes,null,p q,CDATA,NMTOKEN", log.get(0));
+				Assert.assertEquals("b: content ", log.get(1));
+				Assert.assertEquals("whitespace in element content is not reported", "a:", log.get(2));
+			} finally {
+				System.clearProperty("matsim.fastXmlParser");
+			}
+		}
+	}
+
+	@Test
+	public void testParse_largeDocument() {
+		StringBuilder str = new StringBuilder("<?xml version='1.0' encoding='UTF-8'?>\n<root>\n");
+		int count = 20000; // larger than the buffers of the parsers
+		for (int i = 0; i < count; i++) {
+			str.append("\t<!-- element ").append(i).append(" -->\n");
+			str.append("\t<dummy id=\"").append(i).append("\" text=\"a&amp;b\">c&lt;d<![CDATA[&]]></dummy>\n");
+		}
+		str.append("</root>");
+
+		final List<String> log = new ArrayList<>();
+		TestParser parser = new TestParser() {
+			@Override
+			public void startTag(String name, Attributes atts, Stack<String> context) {
+				if (name.equals("dummy")) {
+					log.add(atts.getValue("id") + atts.getValue("text"));
+				}
+			}
+			@Override
+			public void endTag(String name, String content, Stack<String> context) {
+				if (name.equals("dummy")) {
+					log.add(content);
+				}
+			}
+		};
+		parser.setValidating(false);
+		parser.setUseFastParser(true);
+		parser.parse(new ByteArrayInputStream(str.toString().getBytes(StandardCharsets.UTF_8)));
+
+		Assert.assertEquals(2 * count, log.size());
+		for (int i = 0; i < count; i++) {
+			Assert.assertEquals(i + "a&b", log.get(2 * i));
+			Assert.assertEquals("c<d&", log.get(2 * i + 1));
+		}
+	}
+
+	@Test
+	public void testParse_wellFormednessErrors() {
+		String[] documents = {
+				"<?xml version='1.0' encoding='UTF-8'?>\n<a>\n  <b x=\"1\" x=\"2\"/>\n</a>", // duplicate attribute
+				"<?xml version='1.0' encoding='UTF-8'?>\n<a>\n</a>\n<b/>", // second root element
+				"<?xml version='1.0' encoding='UTF-8'?>\n<a/>\ntext", // trailing content
+				"<?xml version='1.0' encoding='UTF-8'?>\n<a>\n  <b x=\"&unknown;\"/>\n</a>", // undeclared entity
+				"<?xml version='1.0' encoding='UTF-8'?>\n", // no root element
+		};
+		for (String document : documents) {
+			for (boolean fastParser : new boolean[] { false, true }) {
+				TestParser parser = new TestParser();
+				parser.setValidating(false);
+				parser.setUseFastParser(fastParser);
+				try {
+					parser.parse(new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8)));
+					Assert.fail("expected an exception, fast parser: " + fastParser + ", document: " + document);
+				} catch (UncheckedIOException e) {
+					Assert.assertTrue(e.getCause() instanceof SAXParseException);
+					if (!document.endsWith("\n")) {
+						// SAX reports the end of file one line further down
+						Assert.assertEquals(document.split("\n").length, ((SAXParseException) e.getCause()).getLineNumber());
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testParse_fastParser_plainPathSystemId() throws IOException {
+		File file = this.tempFolder.newFile("plainPath.xml");
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write("<?xml version='1.0' encoding='UTF-8'?>\n<dummy someAttribute=\"value\">content</dummy>".getBytes(StandardCharsets.UTF_8));
+		}
+
+		TestParser parser = new TestParser();
+		parser.setValidating(false);
+		parser.setUseFastParser(true);
+		// not a URL, resolved by SAX
+		parser.parse(new InputSource(file.getAbsolutePath()));
+		Assert.assertEquals("dummy", parser.lastEndTag);
+		Assert.assertEquals("content", parser.lastContent);
+		Assert.assertEquals("value", parser.lastAttributes.getValue("someAttribute"));
+	}
+
 	private static class TestParser extends MatsimXmlParser {
 
 		public String lastStartTag = null;
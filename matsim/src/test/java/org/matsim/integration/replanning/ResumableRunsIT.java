@@ -24,8 +24,16 @@ import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
 import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.Route;
 import org.matsim.core.config.Config;
 import org.matsim.core.controler.Controler;
+import org.matsim.core.controler.OutputDirectoryHierarchy.OverwriteFileSetting;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.core.utils.io.IOUtils;
@@ -100,4 +108,74 @@ public class ResumableRunsIT {
 		Assert.assertEquals("The checksums of events must be the same when resuming runs.", cksum1, cksum2);
 	}
 
+	/**
+	 * Runs a first simulation for 11 iterations, writing a checkpoint after iteration 10, then continues
+	 * from that checkpoint in the same output directory, which is deleted on restart.  Tests that the events
+	 * of the 11th iteration are byte-identical and that the final plans and scores are exactly the same, i.e.
+	 * that the checkpoint contains everything that is carried over from one iteration to the next one (plans
+	 * and scores with full precision, observed travel times, strategy weights).
+	 */
+	@Test
+	public void testResumeFromCheckpoint() throws MalformedURLException {
+		Config config = utils.loadConfig(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		config.controler().setLastIteration(11);
+		config.controler().setWriteEventsInterval(1);
+		config.controler().setWriteCheckpointInterval(10);
+		config.controler().setCreateGraphs(false);
+		config.controler().setDumpDataAtEnd(false);
+		config.controler().setOverwriteFileSetting(OverwriteFileSetting.deleteDirectoryIfExists);
+		config.controler().setOutputDirectory(utils.getOutputDirectory() + "run");
+		config.global().setNumberOfThreads(1);
+
+		// run1
+		Scenario scenario1 = ScenarioUtils.loadScenario(config);
+		PopulationUtils.sortPersons(scenario1.getPopulation());
+		new Controler(scenario1).run();
+		long cksum1 = CRCChecksum.getCRCFromFile(utils.getOutputDirectory() + "run/ITERS/it.11/11.events.xml.gz");
+		String plans1 = describe(scenario1.getPopulation());
+
+		// run2, continuing after iteration 10 in the same output directory
+		config.controler().setWriteCheckpointInterval(0);
+		config.controler().setRestartFromCheckpoint(new File(utils.getOutputDirectory() + "run_checkpoint/checkpoint.bin.gz").toURI().toURL().toString());
+		Scenario scenario2 = ScenarioUtils.loadScenario(config);
+		PopulationUtils.sortPersons(scenario2.getPopulation());
+		new Controler(scenario2).run();
+
+		Assert.assertFalse("Iteration 10 must not be run again.", new File(utils.getOutputDirectory() + "run/ITERS/it.10/10.events.xml.gz").exists());
+		long cksum2 = CRCChecksum.getCRCFromFile(utils.getOutputDirectory() + "run/ITERS/it.11/11.events.xml.gz");
+		Assert.assertEquals("The checksums of events must be the same when continuing from a checkpoint.", cksum1, cksum2);
+		Assert.assertEquals("Plans and scores must be the same when continuing from a checkpoint.", plans1, describe(scenario2.getPopulation()));
+	}
+
+	/**
+	 * Describes all plans with full precision, unlike the plans file.
+	 */
+	private static String describe(Population population) {
+		StringBuilder sb = new StringBuilder();
+		for (Person person : population.getPersons().values()) {
+			sb.append(person.getId()).append('\n');
+			for (Plan plan : person.getPlans()) {
+				sb.append(plan.getScore()).append(' ').append(plan == person.getSelectedPlan()).append('\n');
+				for (PlanElement pe : plan.getPlanElements()) {
+					if (pe instanceof Activity) {
+						Activity act = (Activity) pe;
+						sb.append(act.getType()).append(' ').append(act.getLinkId()).append(' ').append(act.getCoord())
+								.append(' ').append(act.getStartTime()).append(' ').append(act.getMaximumDuration())
+								.append(' ').append(act.getEndTime());
+					} else {
+						Leg leg = (Leg) pe;
+						sb.append(leg.getMode()).append(' ').append(leg.getDepartureTime()).append(' ').append(leg.getTravelTime());
+						Route route = leg.getRoute();
+						if (route != null) {
+							sb.append(' ').append(route.getRouteDescription()).append(' ').append(route.getTravelTime())
+									.append(' ').append(route.getDistance());
+						}
+					}
+					sb.append('\n');
+				}
+			}
+		}
+		return sb.toString();
+	}
+
 }
@@ -0,0 +1,201 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.withinday.replanning.parallel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.withinday.events.ReplanningEvent;
+import org.matsim.withinday.replanning.replanners.interfaces.WithinDayInitialReplanner;
+import org.matsim.withinday.replanning.replanners.interfaces.WithinDayInitialReplannerFactory;
+import org.matsim.withinday.replanning.replanners.interfaces.WithinDayReplanner;
+
+/**
+ * Compares the parallel replanning with replanning all agents one after another by a single
+ * replanner, which is what the former thread based implementation did per thread.
+ */
+public class ParallelReplannerTest {
+
+	private static final int NUMBER_OF_AGENTS = 1000;
+	private static final int NUMBER_OF_ITERATIONS = 3;
+	private static final double[] TIMES = { 0.0, 60.0, 120.0, 3600.0 };
+
+	@Test
+	public void testReplanningIsIndependentOfNumberOfThreads() {
+		List<MobsimAgent> agents = createAgents();
+
+		// reference: every agent is replanned once per time step, in order
+		RecordingFactory referenceFactory = new RecordingFactory();
+		List<String> referenceEvents = new ArrayList<>();
+		for (int iteration = 0; iteration < NUMBER_OF_ITERATIONS; iteration++) {
+			WithinDayReplanner<?> replanner = referenceFactory.createReplanner();
+			for (double time : TIMES) {
+				replanner.setTime(time);
+				for (MobsimAgent agent : selectAgents(agents, time)) {
+					if (replanner.doReplanning(agent)) {
+						referenceEvents.add(time + " " + agent.getId());
+					}
+				}
+			}
+		}
+
+		for (int numOfThreads : new int[] { 1, 2, 4, 8 }) {
+			EventCollector events = new EventCollector();
+			RecordingFactory factory = new RecordingFactory();
+			ParallelInitialReplanner parallelReplanner = new ParallelInitialReplanner(numOfThreads, events.eventsManager);
+			parallelReplanner.addWithinDayReplannerFactory(factory);
+
+			// several iterations, so the pool is re-created after it has been shut down
+			for (int iteration = 0; iteration < NUMBER_OF_ITERATIONS; iteration++) {
+				parallelReplanner.onPrepareSim();
+				parallelReplanner.resetReplanners();
+				for (double time : TIMES) {
+					List<MobsimAgent> selected = selectAgents(agents, time);
+					parallelReplanner.addAgentsToReplan(factory.getId(), selected);
+					parallelReplanner.run(time);
+					assertEquals(selected.size(), parallelReplanner.getLastStepReplannedAgents());
+				}
+				parallelReplanner.afterSim();
+			}
+
+			assertEquals("different replanning with " + numOfThreads + " threads", referenceFactory.replannedTimes, factory.replannedTimes);
+			List<String> sortedEvents = new ArrayList<>(events.events);
+			Collections.sort(sortedEvents);
+			List<String> sortedReferenceEvents = new ArrayList<>(referenceEvents);
+			Collections.sort(sortedReferenceEvents);
+			assertEquals("different replanning events with " + numOfThreads + " threads", sortedReferenceEvents, sortedEvents);
+		}
+	}
+
+	@Test
+	public void testSharedPoolIsNotShutDown() {
+		RecordingFactory factory = new RecordingFactory();
+		ParallelInitialReplanner parallelReplanner = new ParallelInitialReplanner(2, null);
+		parallelReplanner.addWithinDayReplannerFactory(factory);
+
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			for (int iteration = 0; iteration < NUMBER_OF_ITERATIONS; iteration++) {
+				parallelReplanner.onPrepareSim(pool);
+				parallelReplanner.resetReplanners();
+				parallelReplanner.addAgentsToReplan(factory.getId(), createAgents());
+				parallelReplanner.run(0.0);
+				parallelReplanner.afterSim();
+				assertFalse(pool.isShutdown());
+			}
+		} finally {
+			pool.shutdown();
+		}
+		assertEquals(NUMBER_OF_AGENTS, factory.replannedTimes.size());
+	}
+
+	@Test
+	public void testReplanningOutsideOfMobsimFails() {
+		RecordingFactory factory = new RecordingFactory();
+		ParallelInitialReplanner parallelReplanner = new ParallelInitialReplanner(2, null);
+		parallelReplanner.addWithinDayReplannerFactory(factory);
+		parallelReplanner.onPrepareSim();
+		parallelReplanner.afterSim();
+
+		parallelReplanner.addAgentsToReplan(factory.getId(), createAgents());
+		try {
+			parallelReplanner.run(0.0);
+			fail("expected IllegalStateException since the pool has been shut down");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	private static List<MobsimAgent> createAgents() {
+		List<MobsimAgent> agents = new ArrayList<>();
+		for (int i = 0; i < NUMBER_OF_AGENTS; i++) {
+			MobsimAgent agent = mock(MobsimAgent.class);
+			Id<Person> id = Id.createPersonId("p" + i);
+			when(agent.getId()).thenReturn(id);
+			agents.add(agent);
+		}
+		return agents;
+	}
+
+	/*
+	 * A different, irregular subset of the agents in each time step.
+	 */
+	private static List<MobsimAgent> selectAgents(List<MobsimAgent> agents, double time) {
+		List<MobsimAgent> selected = new ArrayList<>();
+		int step = 1 + (int) (time / 60) % 3;
+		for (int i = 0; i < agents.size(); i += step) {
+			selected.add(agents.get(i));
+		}
+		return selected;
+	}
+
+	private static class EventCollector {
+		final ConcurrentLinkedQueue<String> events = new ConcurrentLinkedQueue<>();
+		final EventsManager eventsManager = mock(EventsManager.class);
+
+		EventCollector() {
+			doAnswer(invocation -> {
+				ReplanningEvent event = invocation.getArgument(0);
+				this.events.add(event.getTime() + " " + event.getPersonId());
+				return null;
+			}).when(this.eventsManager).processEvent(any());
+		}
+	}
+
+	/*
+	 * Records the times at which each agent has been replanned. Every 7th agent cannot be replanned.
+	 */
+	private static class RecordingFactory extends WithinDayInitialReplannerFactory {
+		final Map<Id<Person>, List<Double>> replannedTimes = new ConcurrentHashMap<>();
+
+		RecordingFactory() {
+			super(null);
+		}
+
+		@Override
+		public WithinDayInitialReplanner createReplanner() {
+			return new WithinDayInitialReplanner(getId(), null, null) {
+				@Override
+				public boolean doReplanning(MobsimAgent withinDayAgent) {
+					List<Double> times = replannedTimes.computeIfAbsent(withinDayAgent.getId(),
+							id -> Collections.synchronizedList(new ArrayList<>()));
+					times.add(getTime().seconds());
+					return withinDayAgent.getId().index() % 7 != 0;
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,270 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.withinday.trafficmonitoring;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.mobsim.framework.events.MobsimAfterSimStepEvent;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
+import org.matsim.core.mobsim.framework.events.MobsimInitializedEvent;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Compares the link travel times of {@link WithinDayTravelTime} with those of the previous (map-based, multi-threaded)
+ * implementation, which is reproduced (single-threaded, as the threads did not influence the results) by
+ * {@link MapBasedWithinDayTravelTime}.
+ */
+public class WithinDayTravelTimeEquivalenceTest {
+
+	@Test
+	public void testSameTravelTimesAsMapBasedImplementation() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Network network = scenario.getNetwork();
+		Node nodeA = NetworkUtils.createAndAddNode(network, Id.createNodeId("eqA"), new Coord(0, 0));
+		Node nodeB = NetworkUtils.createAndAddNode(network, Id.createNodeId("eqB"), new Coord(100, 0));
+		Node nodeC = NetworkUtils.createAndAddNode(network, Id.createNodeId("eqC"), new Coord(100, 200));
+		List<Link> links = List.of(//
+				NetworkUtils.createAndAddLink(network, Id.createLinkId("eqAB"), nodeA, nodeB, 100, 10, 1000, 1),
+				NetworkUtils.createAndAddLink(network, Id.createLinkId("eqBC"), nodeB, nodeC, 200, 10, 1000, 1),
+				NetworkUtils.createAndAddLink(network, Id.createLinkId("eqCA"), nodeC, nodeA, 300, 10, 1000, 1));
+
+		// only car trips are analysed, every third vehicle is a bike
+		Set<String> analyzedModes = Set.of(TransportMode.car);
+		WithinDayTravelTime travelTime = new WithinDayTravelTime(scenario, analyzedModes);
+		MapBasedWithinDayTravelTime expectedTravelTime = new MapBasedWithinDayTravelTime(network, analyzedModes);
+
+		travelTime.notifyMobsimInitialized(new MobsimInitializedEvent<>(null));
+		expectedTravelTime.notifyMobsimInitialized();
+
+		Random random = new Random(4711);
+		int vehicleCount = 30;
+		int[] currentLinks = new int[vehicleCount];
+		double[] leaveTimes = new double[vehicleCount];
+		double[] activityEndTimes = new double[vehicleCount];// NaN if on the network
+		for (int v = 0; v < vehicleCount; v++) {
+			activityEndTimes[v] = random.nextInt(600);
+		}
+
+		for (int time = 0; time < 4 * 3600; time++) {
+			travelTime.notifyMobsimBeforeSimStep(new MobsimBeforeSimStepEvent<>(null, time));
+			expectedTravelTime.notifyMobsimBeforeSimStep(time);
+
+			for (int v = 0; v < vehicleCount; v++) {
+				Id<Vehicle> vehicleId = Id.createVehicleId("eq" + v);
+				Id<Person> personId = Id.createPersonId("eq" + v);
+				String mode = v % 3 == 0 ? TransportMode.bike : TransportMode.car;
+				if (!Double.isNaN(activityEndTimes[v])) {
+					if (activityEndTimes[v] <= time) {
+						// departure: enter traffic at the end of the current link
+						activityEndTimes[v] = Double.NaN;
+						handleEvent(travelTime, expectedTravelTime, new VehicleEntersTrafficEvent(time, personId,
+								links.get(currentLinks[v]).getId(), vehicleId, mode, 1.0));
+						leaveTimes[v] = time + 1;
+					}
+				} else if (leaveTimes[v] <= time) {
+					Link link = links.get(currentLinks[v]);
+					if (random.nextDouble() < 0.05) {
+						// arrival: leave traffic and perform an activity
+						handleEvent(travelTime, expectedTravelTime, new VehicleLeavesTrafficEvent(time, personId,
+								link.getId(), vehicleId, mode, 1.0));
+						activityEndTimes[v] = time + random.nextInt(1800);
+					} else {
+						handleEvent(travelTime, expectedTravelTime, new LinkLeaveEvent(time, vehicleId, link.getId()));
+						currentLinks[v] = (currentLinks[v] + 1) % links.size();
+						Link nextLink = links.get(currentLinks[v]);
+						handleEvent(travelTime, expectedTravelTime, new LinkEnterEvent(time, vehicleId, nextLink.getId()));
+						// congestion during the second hour
+						double delay = time >= 3600 && time < 7200 ? random.nextInt(120) : random.nextInt(5);
+						leaveTimes[v] = time + Math.ceil(nextLink.getLength() / nextLink.getFreespeed()) + delay;
+					}
+				}
+			}
+
+			travelTime.notifyMobsimAfterSimStep(new MobsimAfterSimStepEvent<>(null, time));
+
+			for (Link link : links) {
+				assertEquals("link " + link.getId() + " at " + time, expectedTravelTime.getLinkTravelTime(link),
+						travelTime.getLinkTravelTime(link, time, null, null), 1e-9);
+			}
+		}
+	}
+
+	private static void handleEvent(WithinDayTravelTime travelTime, MapBasedWithinDayTravelTime expectedTravelTime,
+			Object event) {
+		if (event instanceof LinkEnterEvent) {
+			travelTime.handleEvent((LinkEnterEvent)event);
+			expectedTravelTime.handleEvent((LinkEnterEvent)event);
+		} else if (event instanceof LinkLeaveEvent) {
+			travelTime.handleEvent((LinkLeaveEvent)event);
+			expectedTravelTime.handleEvent((LinkLeaveEvent)event);
+		} else if (event instanceof VehicleEntersTrafficEvent) {
+			travelTime.handleEvent((VehicleEntersTrafficEvent)event);
+			expectedTravelTime.handleEvent((VehicleEntersTrafficEvent)event);
+		} else {
+			travelTime.handleEvent((VehicleLeavesTrafficEvent)event);
+			expectedTravelTime.handleEvent((VehicleLeavesTrafficEvent)event);
+		}
+	}
+
+	/**
+	 * The algorithm of the previous implementation of {@link WithinDayTravelTime} (without network change events).
+	 */
+	private static class MapBasedWithinDayTravelTime {
+		private final Network network;
+		private final Set<String> analyzedModes;
+
+		private final Map<Id<Vehicle>, TripBin> regularActiveTrips = new HashMap<>();
+		private final Set<Id<Vehicle>> vehiclesToFilter = new HashSet<>();
+		private final Map<Id<Link>, TravelTimeInfo> travelTimeInfos = new HashMap<>();
+		private final List<TravelTimeInfo> activeTravelTimeInfos = new ArrayList<>();
+
+		private MapBasedWithinDayTravelTime(Network network, Set<String> analyzedModes) {
+			this.network = network;
+			this.analyzedModes = analyzedModes;
+			for (Link link : network.getLinks().values()) {
+				this.travelTimeInfos.put(link.getId(), new TravelTimeInfo());
+			}
+		}
+
+		private double getLinkTravelTime(Link link) {
+			return this.travelTimeInfos.get(link.getId()).travelTime;
+		}
+
+		private void handleEvent(LinkEnterEvent event) {
+			if (this.vehiclesToFilter.contains(event.getVehicleId())) return;
+			TripBin tripBin = new TripBin();
+			tripBin.enterTime = event.getTime();
+			this.regularActiveTrips.put(event.getVehicleId(), tripBin);
+		}
+
+		private void handleEvent(LinkLeaveEvent event) {
+			TripBin tripBin = this.regularActiveTrips.remove(event.getVehicleId());
+			if (tripBin != null) {
+				tripBin.leaveTime = event.getTime();
+				double tripTime = tripBin.leaveTime - tripBin.enterTime;
+
+				TravelTimeInfo travelTimeInfo = this.travelTimeInfos.get(event.getLinkId());
+				travelTimeInfo.tripBins.add(tripBin);
+				travelTimeInfo.addedTravelTimes += tripTime;
+				if (!travelTimeInfo.isActive) {
+					travelTimeInfo.isActive = true;
+					this.activeTravelTimeInfos.add(travelTimeInfo);
+				}
+				if (tripTime > travelTimeInfo.dynamicBinSize) {
+					travelTimeInfo.dynamicBinSize = tripTime * 2;
+				} else if (tripTime * 3 < travelTimeInfo.dynamicBinSize) {
+					travelTimeInfo.dynamicBinSize = tripTime * 3;
+				}
+			}
+		}
+
+		private void handleEvent(VehicleLeavesTrafficEvent event) {
+			this.regularActiveTrips.remove(event.getVehicleId());
+			this.vehiclesToFilter.remove(event.getVehicleId());
+		}
+
+		private void handleEvent(VehicleEntersTrafficEvent event) {
+			if (!this.analyzedModes.contains(event.getNetworkMode())) this.vehiclesToFilter.add(event.getVehicleId());
+		}
+
+		private void notifyMobsimInitialized() {
+			for (Link link : this.network.getLinks().values()) {
+				TravelTimeInfo travelTimeInfo = this.travelTimeInfos.get(link.getId());
+				travelTimeInfo.freeSpeedTravelTime = link.getLength() / link.getFreespeed();
+				travelTimeInfo.dynamicBinSize = travelTimeInfo.freeSpeedTravelTime * 2.5;
+				travelTimeInfo.travelTime = travelTimeInfo.freeSpeedTravelTime;
+			}
+		}
+
+		private void notifyMobsimBeforeSimStep(double time) {
+			Iterator<TravelTimeInfo> iter = this.activeTravelTimeInfos.iterator();
+			while (iter.hasNext()) {
+				TravelTimeInfo travelTimeInfo = iter.next();
+				calcBinTravelTime(time, travelTimeInfo);
+				if (travelTimeInfo.tripBins.isEmpty()) {
+					travelTimeInfo.isActive = false;
+					travelTimeInfo.travelTime = travelTimeInfo.freeSpeedTravelTime;
+					iter.remove();
+				}
+			}
+		}
+
+		private void calcBinTravelTime(double time, TravelTimeInfo travelTimeInfo) {
+			double removedTravelTimes = 0.0;
+			Iterator<TripBin> iter = travelTimeInfo.tripBins.iterator();
+			while (iter.hasNext()) {
+				TripBin tripBin = iter.next();
+				if (tripBin.leaveTime + travelTimeInfo.dynamicBinSize < time) {
+					removedTravelTimes += tripBin.leaveTime - tripBin.enterTime;
+					iter.remove();
+				} else break;
+			}
+
+			travelTimeInfo.sumTravelTimes = travelTimeInfo.sumTravelTimes - removedTravelTimes
+					+ travelTimeInfo.addedTravelTimes;
+			travelTimeInfo.addedTravelTimes = 0.0;
+
+			double meanTravelTime = travelTimeInfo.freeSpeedTravelTime;
+			if (!travelTimeInfo.tripBins.isEmpty()) meanTravelTime = travelTimeInfo.sumTravelTimes / travelTimeInfo.tripBins.size();
+			travelTimeInfo.travelTime = Math.max(meanTravelTime, travelTimeInfo.freeSpeedTravelTime);
+		}
+
+		private static class TripBin {
+			double enterTime;
+			double leaveTime;
+		}
+
+		private static class TravelTimeInfo {
+			final List<TripBin> tripBins = new ArrayList<>();
+			boolean isActive = false;
+			double addedTravelTimes = 0.0;
+			double sumTravelTimes = 0.0;
+			double freeSpeedTravelTime = Double.MAX_VALUE;
+			double travelTime = Double.MAX_VALUE;
+			double dynamicBinSize = 0.0;
+		}
+	}
+}